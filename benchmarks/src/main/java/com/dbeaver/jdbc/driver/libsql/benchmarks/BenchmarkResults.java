@@ -0,0 +1,87 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.benchmarks;
+
+import com.dbeaver.jdbc.upd.driver.test.LibSqlMockServer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Results answered by the mock server of benchmarks
+ */
+public final class BenchmarkResults {
+
+    /**
+     * Columns of the result
+     */
+    public enum ColumnSet {
+        // Single integer column
+        INTEGER,
+        // Single text column
+        TEXT,
+        // Integer, text, float, blob and null columns
+        MIXED;
+
+        private static final String[] MIXED_NAMES = {"id", "name", "price", "data", "note"};
+        private static final String[] MIXED_TYPES = {"INTEGER", "TEXT", "REAL", "BLOB", "TEXT"};
+
+        String[] getNames() {
+            return switch (this) {
+                case INTEGER -> new String[]{"id"};
+                case TEXT -> new String[]{"name"};
+                case MIXED -> MIXED_NAMES;
+            };
+        }
+
+        String[] getTypes() {
+            return switch (this) {
+                case INTEGER -> new String[]{"INTEGER"};
+                case TEXT -> new String[]{"TEXT"};
+                case MIXED -> MIXED_TYPES;
+            };
+        }
+    }
+
+    private static final byte[] BLOB_VALUE = "benchmark blob value".getBytes(StandardCharsets.UTF_8);
+
+    private BenchmarkResults() {
+    }
+
+    /**
+     * Result with the given number of rows. Values depend on the row number, the last column of MIXED is null.
+     */
+    public static LibSqlMockServer.Result makeResult(int rowCount, ColumnSet columns) {
+        String[] types = columns.getTypes();
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            Object[] values = new Object[types.length];
+            for (int column = 0; column < types.length; column++) {
+                values[column] = switch (types[column]) {
+                    case "INTEGER" -> row * 1000L + 7;
+                    case "REAL" -> row + 0.25;
+                    case "BLOB" -> BLOB_VALUE;
+                    default -> column == 4 ? null : "Row " + row + " text value";
+                };
+            }
+            rows.add(values);
+        }
+        return new LibSqlMockServer.Result(Arrays.asList(columns.getNames()), Arrays.asList(types), rows, 0);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.benchmarks;
+
+import com.dbeaver.jdbc.upd.driver.test.LibSqlMockServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query execution through JDBC API against the mock server: request serialization, HTTP round trip,
+ * response decoding and reading of all rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class ExecuteBenchmark {
+
+    @Param({"legacy", "hrana2"})
+    public String protocol;
+
+    @Param({"1", "100", "10000"})
+    public int rowCount;
+
+    @Param({"false", "true"})
+    public boolean streamResults;
+
+    private LibSqlMockServer server;
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new LibSqlMockServer(BenchmarkResults.makeResult(rowCount, BenchmarkResults.ColumnSet.MIXED));
+        Properties properties = new Properties();
+        properties.setProperty("protocol", protocol);
+        properties.setProperty("streamResults", String.valueOf(streamResults));
+        properties.setProperty("schemaCache", "false");
+        connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + server.getUrl(), properties);
+        statement = connection.prepareStatement("SELECT id, name, price, data, note FROM products WHERE id > ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void executeQuery(Blackhole blackhole) throws SQLException {
+        statement.setLong(1, 0);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+                blackhole.consume(resultSet.getString(2));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.benchmarks;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlResultSet;
+import com.dbeaver.jdbc.driver.libsql.LibSqlStatement;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.upd.driver.test.LibSqlMockServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result set accessors and metadata of a materialized result.
+ * The result is read from the mock server once, each invocation iterates it with a new result set.
+ * Times are reported per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class ResultSetBenchmark {
+
+    private static final int ROW_COUNT = 1000;
+
+    private LibSqlMockServer server;
+    private Connection connection;
+    private LibSqlStatement statement;
+    private LibSqlExecutionResult result;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new LibSqlMockServer(BenchmarkResults.makeResult(ROW_COUNT, BenchmarkResults.ColumnSet.MIXED));
+        Properties properties = new Properties();
+        properties.setProperty("protocol", "hrana2");
+        // Snapshot queries would get the same result
+        properties.setProperty("schemaCache", "false");
+        connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + server.getUrl(), properties);
+        statement = (LibSqlStatement) connection.createStatement();
+        try (ResultSet resultSet = statement.executeQuery("SELECT id, name, price, data, note FROM products")) {
+            result = ((LibSqlResultSet) resultSet).getResult();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void getLongByIndex(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = new LibSqlResultSet(statement, result)) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void getLongByLabel(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = new LibSqlResultSet(statement, result)) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong("id"));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void getStringByIndex(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = new LibSqlResultSet(statement, result)) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getString(2));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void getStringByLabel(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = new LibSqlResultSet(statement, result)) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getString("name"));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void getAllColumns(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = new LibSqlResultSet(statement, result)) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+                blackhole.consume(resultSet.getString(2));
+                blackhole.consume(resultSet.getDouble(3));
+                blackhole.consume(resultSet.getBytes(4));
+                blackhole.consume(resultSet.getObject(5));
+                blackhole.consume(resultSet.wasNull());
+            }
+        }
+    }
+
+    /**
+     * Metadata of a new result set, as read by tools before the rows (one operation per result set)
+     */
+    @Benchmark
+    public void metadata(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = new LibSqlResultSet(statement, result)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                blackhole.consume(metaData.getColumnLabel(i));
+                blackhole.consume(metaData.getColumnType(i));
+                blackhole.consume(metaData.getColumnTypeName(i));
+                blackhole.consume(metaData.getColumnClassName(i));
+                blackhole.consume(metaData.isNullable(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of request bodies into pooled buffer chunks.
+ * Benchmark is placed in the client package to call request writers of transports directly, without HTTP.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestSerializationBenchmark {
+
+    /**
+     * simple - literal values in SQL, indexed - positional parameters, named - named parameters
+     */
+    @Param({"simple", "indexed", "named"})
+    public String parameters;
+
+    @Param({"1", "100"})
+    public int statementCount;
+
+    private LibSqlStatementTemplate[] stmts;
+    private LibSqlParameters[] stmtParameters;
+    private final LibSqlRequestBuffer buffer = new LibSqlRequestBuffer();
+
+    @Setup
+    public void setup() {
+        stmts = new LibSqlStatementTemplate[statementCount];
+        stmtParameters = new LibSqlParameters[statementCount];
+        for (int i = 0; i < statementCount; i++) {
+            LibSqlParameters values = new LibSqlParameters();
+            switch (parameters) {
+                case "indexed" -> {
+                    stmts[i] = new LibSqlStatementTemplate("SELECT id, name FROM customers WHERE id = ? AND name = ? AND rate > ?");
+                    values.setValue(1, 1000L + i);
+                    values.setValue(2, "Customer \"" + i + "\"");
+                    values.setValue(3, 0.5);
+                }
+                case "named" -> {
+                    stmts[i] = new LibSqlStatementTemplate("SELECT id, name FROM customers WHERE id = :id AND name = :name AND rate > :rate");
+                    values.setValue("id", 1000L + i);
+                    values.setValue("name", "Customer \"" + i + "\"");
+                    values.setValue("rate", 0.5);
+                }
+                default -> stmts[i] = new LibSqlStatementTemplate(
+                    "SELECT id, name FROM customers WHERE id = " + (1000 + i) + " AND name = 'Customer \"" + i + "\"' AND rate > 0.5");
+            }
+            stmtParameters[i] = values;
+        }
+    }
+
+    @Benchmark
+    public long hrana() throws IOException {
+        long length = buffer.writeBody(json -> LibSqlHranaTransport.writeStatementsRequest(json, stmts, stmtParameters), false)
+            .contentLength();
+        buffer.release(true);
+        return length;
+    }
+
+    @Benchmark
+    public long legacy() throws IOException {
+        long length = buffer.writeBody(json -> LibSqlLegacyTransport.writeRequest(stmts, stmtParameters, json), false)
+            .contentLength();
+        buffer.release(true);
+        return length;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.dbeaver.jdbc.driver.libsql.benchmarks.BenchmarkResults;
+import com.dbeaver.jdbc.upd.driver.test.LibSqlMockServer;
+import com.google.gson.GsonBuilder;
+import com.google.gson.Strictness;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.TypeAdapter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of response bodies into materialized results.
+ * Benchmark is placed in the client package to call response parsers directly, without HTTP.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecodingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int rowCount;
+
+    @Param({"INTEGER", "TEXT", "MIXED"})
+    public BenchmarkResults.ColumnSet columns;
+
+    private byte[] hranaResponse;
+    private byte[] legacyResponse;
+    // Same configuration as the value adapter of LibSqlClient
+    private final TypeAdapter<Object> valueAdapter = new GsonBuilder()
+        .setStrictness(Strictness.LENIENT)
+        .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+        .create()
+        .getAdapter(Object.class);
+
+    @Setup
+    public void setup() {
+        LibSqlMockServer.Result result = BenchmarkResults.makeResult(rowCount, columns);
+        hranaResponse = LibSqlMockServer.makeHranaResponse(result);
+        legacyResponse = LibSqlMockServer.makeLegacyResponse(result);
+    }
+
+    @Benchmark
+    public LibSqlExecutionResult hrana() throws IOException {
+        return new LibSqlHranaResponseParser(new ByteArrayInputStream(hranaResponse)).readPipeline(-1).get(0).result;
+    }
+
+    @Benchmark
+    public LibSqlExecutionResult legacy() throws IOException, SQLException {
+        return new LibSqlLegacyResponseParser(new ByteArrayInputStream(legacyResponse), valueAdapter).readResults(1, false)[0];
+    }
+}
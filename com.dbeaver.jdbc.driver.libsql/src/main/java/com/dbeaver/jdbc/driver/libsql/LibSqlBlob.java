@@ -0,0 +1,129 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql;
+
+import org.jkiss.code.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+
+/**
+ * Read-only blob view of a result value. Value bytes are shared, not copied.
+ */
+public class LibSqlBlob implements Blob {
+
+    private byte[] data;
+
+    public LibSqlBlob(@NotNull byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public long length() throws SQLException {
+        return getData().length;
+    }
+
+    @Override
+    public byte[] getBytes(long pos, int length) throws SQLException {
+        byte[] bytes = getData();
+        int offset = getOffset(pos, bytes);
+        if (length < 0) {
+            throw new LibSqlException("Invalid length: " + length);
+        }
+        return Arrays.copyOfRange(bytes, offset, offset + Math.min(length, bytes.length - offset));
+    }
+
+    @Override
+    public InputStream getBinaryStream() throws SQLException {
+        return new ByteArrayInputStream(getData());
+    }
+
+    @Override
+    public InputStream getBinaryStream(long pos, long length) throws SQLException {
+        byte[] bytes = getData();
+        int offset = getOffset(pos, bytes);
+        if (length < 0 || offset + length > bytes.length) {
+            throw new LibSqlException("Invalid length: " + length);
+        }
+        return new ByteArrayInputStream(bytes, offset, (int) length);
+    }
+
+    @Override
+    public long position(byte[] pattern, long start) throws SQLException {
+        byte[] bytes = getData();
+        int offset = getOffset(start, bytes);
+        for (int i = offset; i <= bytes.length - pattern.length; i++) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long position(Blob pattern, long start) throws SQLException {
+        return position(pattern.getBytes(1, (int) pattern.length()), start);
+    }
+
+    @Override
+    public int setBytes(long pos, byte[] bytes) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Result blob is read-only");
+    }
+
+    @Override
+    public int setBytes(long pos, byte[] bytes, int offset, int len) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Result blob is read-only");
+    }
+
+    @Override
+    public OutputStream setBinaryStream(long pos) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Result blob is read-only");
+    }
+
+    @Override
+    public void truncate(long len) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Result blob is read-only");
+    }
+
+    @Override
+    public void free() {
+        data = null;
+    }
+
+    @NotNull
+    private byte[] getData() throws LibSqlException {
+        if (data == null) {
+            throw new LibSqlException("Blob was freed");
+        }
+        return data;
+    }
+
+    /**
+     * Converts 1-based position to array offset
+     */
+    private static int getOffset(long pos, @NotNull byte[] bytes) throws LibSqlException {
+        if (pos < 1 || pos > bytes.length + 1L) {
+            throw new LibSqlException("Invalid position: " + pos);
+        }
+        return (int) (pos - 1);
+    }
+}
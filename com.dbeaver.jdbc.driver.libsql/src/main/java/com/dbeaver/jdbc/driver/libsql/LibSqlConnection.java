@@ -17,20 +17,33 @@
 package com.dbeaver.jdbc.driver.libsql;
 
 import com.dbeaver.jdbc.driver.libsql.client.LibSqlClient;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlParameters;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlReplica;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
 import com.dbeaver.jdbc.model.AbstractJdbcConnection;
 import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
 import org.jkiss.utils.CommonUtils;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
 
 public class LibSqlConnection extends AbstractJdbcConnection {
 
+    private static final Logger log = Logger.getLogger(LibSqlConnection.class.getName());
+
     @NotNull
     private final LibSqlDriver driver;
     @NotNull
@@ -39,7 +52,21 @@ public class LibSqlConnection extends AbstractJdbcConnection {
     private final String url;
     @NotNull
     private final Map<String, Object> driverProperties;
+    private final boolean streamResults;
+    private final int batchMaxStatements;
+    private final long batchMaxBytes;
+    private final int queryTimeout;
+    private final boolean fetchPaging;
+    private final boolean prefetchPages;
+    private final long schemaCacheCheckInterval;
+    private boolean schemaCache;
+    @Nullable
+    private LibSqlSchemaSnapshot schemaSnapshot;
     private LibSqlDatabaseMetaData databaseMetaData;
+    private int savepointCounter;
+    // Null if there are no statement listeners
+    @Nullable
+    private LibSqlStatementListeners statementListeners;
 
     public LibSqlConnection(
         @NotNull LibSqlDriver driver,
@@ -49,20 +76,50 @@ public class LibSqlConnection extends AbstractJdbcConnection {
         this.driver = driver;
         this.url = url;
         this.driverProperties = driverProperties;
+        this.streamResults = CommonUtils.toBoolean(driverProperties.get(LibSqlConstants.PROP_STREAM_RESULTS));
+        this.batchMaxStatements = Math.max(1, CommonUtils.toInt(
+            driverProperties.get(LibSqlConstants.PROP_BATCH_MAX_STATEMENTS), LibSqlConstants.DEFAULT_BATCH_MAX_STATEMENTS));
+        this.batchMaxBytes = Math.max(1, CommonUtils.toLong(
+            driverProperties.get(LibSqlConstants.PROP_BATCH_MAX_BYTES), LibSqlConstants.DEFAULT_BATCH_MAX_BYTES));
+        this.queryTimeout = Math.max(0, CommonUtils.toInt(driverProperties.get(LibSqlConstants.PROP_QUERY_TIMEOUT)));
+        this.fetchPaging = CommonUtils.toBoolean(driverProperties.get(LibSqlConstants.PROP_FETCH_PAGING));
+        this.prefetchPages = CommonUtils.toBoolean(driverProperties.get(LibSqlConstants.PROP_PREFETCH_PAGES));
+        this.schemaCache = CommonUtils.toBoolean(driverProperties.get(LibSqlConstants.PROP_SCHEMA_CACHE));
+        this.schemaCacheCheckInterval = CommonUtils.toLong(
+            driverProperties.get(LibSqlConstants.PROP_SCHEMA_CACHE_CHECK_INTERVAL), LibSqlConstants.DEFAULT_SCHEMA_CACHE_CHECK_INTERVAL);
 
         try {
             String token = CommonUtils.toString(driverProperties.get("password"), null);
-            this.client = new LibSqlClient(new URL(url), token);
+            this.client = new LibSqlClient(parseServerUrls(url), token, driverProperties);
         } catch (IOException e) {
             throw new SQLException(e);
         }
         try {
             // Verify connection
-            LibSqlUtils.executeQuery(this, "SELECT 1");
+            LibSqlUtils.executeQuery(this, "SELECT 1").close();
+            client.openReplica(driverProperties);
         } catch (Exception e) {
             close();
             throw e;
         }
+        this.statementListeners = LibSqlStatementListeners.create(driverProperties);
+    }
+
+    /**
+     * Parses server URL. Multi-host URL is a comma separated list of the primary server URL and read replica URLs.
+     */
+    @NotNull
+    private static List<URL> parseServerUrls(@NotNull String url) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (String serverUrl : url.split(",")) {
+            if (!serverUrl.isBlank()) {
+                urls.add(new URL(serverUrl.trim()));
+            }
+        }
+        if (urls.isEmpty()) {
+            throw new MalformedURLException("Server URL is empty");
+        }
+        return urls;
     }
 
     /**
@@ -76,6 +133,11 @@ public class LibSqlConnection extends AbstractJdbcConnection {
         return client;
     }
 
+    @Nullable
+    LibSqlStatementListeners getStatementListeners() {
+        return statementListeners;
+    }
+
     @NotNull
     public String getUrl() {
         return url;
@@ -86,6 +148,107 @@ public class LibSqlConnection extends AbstractJdbcConnection {
         return driverProperties;
     }
 
+    /**
+     * Query results are decoded from the response stream while they are read
+     */
+    public boolean isStreamResults() {
+        return streamResults;
+    }
+
+    /**
+     * Maximum number of statements sent in one batch request
+     */
+    public int getBatchMaxStatements() {
+        return batchMaxStatements;
+    }
+
+    /**
+     * Approximate maximum payload size of one batch request
+     */
+    public long getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    /**
+     * Default query timeout of new statements in seconds
+     */
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * SELECT results are read by pages of statement fetch size
+     */
+    public boolean isFetchPaging() {
+        return fetchPaging;
+    }
+
+    /**
+     * The next result page is requested while the current one is read
+     */
+    public boolean isPrefetchPages() {
+        return prefetchPages;
+    }
+
+    /**
+     * Executes statement without blocking the calling thread.
+     * Result rows are read completely, the future completes exceptionally with {@link SQLException}.
+     * Cancellation of the future aborts the request.
+     *
+     * @param parameters integer keys are positional parameter indexes (starting from 1), other keys are parameter names
+     */
+    @NotNull
+    public CompletableFuture<LibSqlExecutionResult> executeAsync(@NotNull String sql, @Nullable Map<?, ?> parameters) {
+        LibSqlStatementTemplate template = new LibSqlStatementTemplate(sql);
+        CompletableFuture<LibSqlExecutionResult> result = getClient().executeAsync(template, LibSqlParameters.fromMap(parameters));
+        if (template.isSchemaChange()) {
+            result.whenComplete((r, e) -> invalidateSchemaSnapshot());
+        }
+        return result;
+    }
+
+    /**
+     * Returns schema snapshot for metadata reading.
+     * Returns null if schema cache is disabled or snapshot can't be loaded, then metadata is read by separate queries.
+     */
+    @Nullable
+    synchronized LibSqlSchemaSnapshot getSchemaSnapshot() {
+        if (!schemaCache) {
+            return null;
+        }
+        try {
+            if (schemaSnapshot != null && !schemaSnapshot.isValid(this, schemaCacheCheckInterval)) {
+                schemaSnapshot = null;
+            }
+            if (schemaSnapshot == null) {
+                schemaSnapshot = LibSqlSchemaSnapshot.load(this);
+            }
+            return schemaSnapshot;
+        } catch (SQLException e) {
+            // E.g. table of a virtual table module which is not available on the server
+            log.warning("Schema snapshot can't be loaded, schema cache is disabled: " + e.getMessage());
+            schemaCache = false;
+            schemaSnapshot = null;
+            return null;
+        }
+    }
+
+    /**
+     * Returns schema snapshot if it was already loaded. Does not load or validate the snapshot, so it never
+     * sends requests (e.g. while metadata of a result set is read).
+     */
+    @Nullable
+    synchronized LibSqlSchemaSnapshot getLoadedSchemaSnapshot() {
+        return schemaCache ? schemaSnapshot : null;
+    }
+
+    /**
+     * Drops schema snapshot after schema change
+     */
+    synchronized void invalidateSchemaSnapshot() {
+        schemaSnapshot = null;
+    }
+
     @NotNull
     public LibSqlDriver getDriver() {
         return driver;
@@ -93,6 +256,7 @@ public class LibSqlConnection extends AbstractJdbcConnection {
 
     @Override
     public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        checkOpen();
         return new LibSqlStatement(this);
     }
 
@@ -103,21 +267,123 @@ public class LibSqlConnection extends AbstractJdbcConnection {
 
     @NotNull
     private LibSqlPreparedStatement prepareStatementImpl(String sql) throws SQLException {
+        checkOpen();
         return new LibSqlPreparedStatement(this, sql);
     }
 
+    /**
+     * Synchronizes embedded replica with the server. Does nothing if replica is not configured.
+     */
+    public void syncReplica() throws SQLException {
+        LibSqlReplica replica = client.getReplica();
+        if (replica != null) {
+            replica.sync();
+        }
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return client.isAutoCommit();
+    }
+
+    /**
+     * Statements of a transaction are executed on a pinned server stream.
+     * BEGIN is sent with the first statement of the transaction.
+     */
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        client.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        client.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        try {
+            client.rollback();
+        } finally {
+            // Schema changes of the transaction are reverted
+            invalidateSchemaSnapshot();
+        }
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return setSavepointImpl(null);
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        if (CommonUtils.isEmpty(name)) {
+            throw new LibSqlException("Empty savepoint name");
+        }
+        return setSavepointImpl(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        try {
+            client.rollbackToSavepoint(getSavepoint(savepoint).getSqlName());
+        } finally {
+            invalidateSchemaSnapshot();
+        }
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        client.releaseSavepoint(getSavepoint(savepoint).getSqlName());
+    }
+
+    @NotNull
+    private synchronized LibSqlSavepoint setSavepointImpl(@Nullable String name) throws SQLException {
+        LibSqlSavepoint savepoint = new LibSqlSavepoint(++savepointCounter, name);
+        client.setSavepoint(savepoint.getSqlName());
+        return savepoint;
+    }
+
+    @NotNull
+    private static LibSqlSavepoint getSavepoint(@Nullable Savepoint savepoint) throws SQLException {
+        if (savepoint instanceof LibSqlSavepoint libSqlSavepoint) {
+            return libSqlSavepoint;
+        }
+        throw new LibSqlException("Savepoint was not created by this driver: " + savepoint);
+    }
+
     @Override
     public void close() throws SQLException {
         client.close();
     }
 
+    private void checkOpen() throws SQLException {
+        if (client.isClosed()) {
+            throw new LibSqlException("Connection is closed", "08003");
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new LibSqlException("Connection is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
     @Override
     public boolean isClosed() {
-        return false;
+        return client.isClosed();
     }
 
     @Override
     public DatabaseMetaData getMetaData() throws SQLException {
+        checkOpen();
         if (databaseMetaData == null) {
             databaseMetaData = new LibSqlDatabaseMetaData(this);
         }
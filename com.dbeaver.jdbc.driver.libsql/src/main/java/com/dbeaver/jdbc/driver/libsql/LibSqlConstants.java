@@ -20,7 +20,7 @@ import java.util.regex.Pattern;
 
 public class LibSqlConstants {
 
-    public static final Pattern CONNECTION_URL_EXAMPLE = Pattern.compile("jdbc:dbeaver:libsql:<server-url>");
+    public static final Pattern CONNECTION_URL_EXAMPLE = Pattern.compile("jdbc:dbeaver:libsql:<server-url>[,<replica-url>...]");
     public static final Pattern CONNECTION_URL_PATTERN = Pattern.compile("jdbc:dbeaver:libsql:(.+)");
 
     public static final int DRIVER_VERSION_MAJOR = 1;
@@ -31,4 +31,132 @@ public class LibSqlConstants {
     public static final String DRIVER_INFO = "DBeaver LibSQL JDBC driver";
 
     public static final String DEFAULT_ISO_TIMESTAMP_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    /**
+     * Decode query result rows from the response stream on demand instead of reading the whole result
+     */
+    public static final String PROP_STREAM_RESULTS = "streamResults";
+    /**
+     * Maximum number of statements sent in one request by statement batch execution
+     */
+    public static final String PROP_BATCH_MAX_STATEMENTS = "batchMaxStatements";
+    /**
+     * Approximate maximum request payload size (in bytes) of statement batch execution
+     */
+    public static final String PROP_BATCH_MAX_BYTES = "batchMaxBytes";
+    /**
+     * Wire protocol: legacy, hrana2 or hrana3
+     */
+    public static final String PROP_PROTOCOL = "protocol";
+    /**
+     * Share HTTP client between all connections to the same server
+     */
+    public static final String PROP_SHARED_HTTP_CLIENT = "sharedHttpClient";
+    /**
+     * Preferred HTTP protocol version: HTTP_2 or HTTP_1_1
+     */
+    public static final String PROP_HTTP_VERSION = "httpVersion";
+    /**
+     * Executor of HTTP client: default, virtual (a virtual thread per task, Java 21+),
+     * shared (a driver-wide pool bounded by the number of processors)
+     * or an {@link java.util.concurrent.Executor} instance passed in connection properties.
+     * Executors passed by the caller are not shut down by the driver.
+     */
+    public static final String PROP_HTTP_EXECUTOR = "httpExecutor";
+    /**
+     * Default query timeout in seconds. Zero means no timeout.
+     */
+    public static final String PROP_QUERY_TIMEOUT = "queryTimeout";
+    /**
+     * Read results of SELECT queries by pages of statement fetch size
+     */
+    public static final String PROP_FETCH_PAGING = "fetchPaging";
+    /**
+     * Request the next result page in background while the current one is read
+     */
+    public static final String PROP_PREFETCH_PAGES = "prefetchPages";
+    /**
+     * Maximum size of cached query results of a server in bytes. Zero disables cache.
+     */
+    public static final String PROP_RESULT_CACHE_SIZE = "resultCacheSize";
+    /**
+     * Time to live of cached query results in milliseconds
+     */
+    public static final String PROP_RESULT_CACHE_TTL = "resultCacheTtl";
+    /**
+     * Serve metadata from a schema snapshot which is loaded by a single request
+     */
+    public static final String PROP_SCHEMA_CACHE = "schemaCache";
+    /**
+     * Minimal interval between checks of schema version of the schema snapshot in milliseconds
+     */
+    public static final String PROP_SCHEMA_CACHE_CHECK_INTERVAL = "schemaCacheCheckInterval";
+    /**
+     * Queue data modifications of a transaction and send them with the next statement or commit.
+     * Update counts of queued statements are not known.
+     */
+    public static final String PROP_TRANSACTION_WRITE_BUFFER = "transactionWriteBuffer";
+    /**
+     * Local SQLite file of embedded replica. Read-only queries are served from the replica, writes are sent to the server.
+     */
+    public static final String PROP_REPLICA_PATH = "replicaPath";
+    /**
+     * Interval of embedded replica synchronization in milliseconds. Zero disables periodic synchronization.
+     * Each synchronization downloads all rows of all tables, so a short interval is expensive for large databases.
+     */
+    public static final String PROP_REPLICA_SYNC_INTERVAL = "replicaSyncInterval";
+    /**
+     * Time window in microseconds during which read-only statements of concurrent threads are collected
+     * to be sent in one request. Zero disables coalescing.
+     */
+    public static final String PROP_COALESCE_WINDOW = "coalesceWindow";
+    /**
+     * Route read-only queries of a multi-host connection to replica servers.
+     * If disabled, all statements are executed on the primary server.
+     */
+    public static final String PROP_READ_ROUTING = "readRouting";
+    /**
+     * Number of retries of read-only requests failed by a server error or a broken connection
+     */
+    public static final String PROP_READ_RETRIES = "readRetries";
+    /**
+     * Initial delay in milliseconds before a retry. The delay is doubled by each retry.
+     * A failed server of a multi-host connection is not used for the same period of time.
+     */
+    public static final String PROP_RETRY_BACKOFF = "retryBackoff";
+    /**
+     * Interval of health checks of the servers of a multi-host connection in milliseconds. Zero disables health checks.
+     */
+    public static final String PROP_HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+    /**
+     * Collect request metrics of connections and expose them via JMX (see {@link com.dbeaver.jdbc.driver.libsql.client.LibSqlMetrics})
+     */
+    public static final String PROP_METRICS = "metrics";
+    /**
+     * Class name of {@link com.dbeaver.jdbc.driver.libsql.client.LibSqlMetricsListener} which receives measurements
+     * of every request. The class must have a public no-argument constructor.
+     */
+    public static final String PROP_METRICS_LISTENER = "metricsListener";
+    /**
+     * Comma separated class names of {@link LibSqlStatementListener} which receive statement execution events.
+     * Classes must have a public no-argument constructor.
+     */
+    public static final String PROP_STATEMENT_LISTENERS = "statementListeners";
+    /**
+     * Statements executed longer than this number of milliseconds are logged by {@link LibSqlSlowQueryLogger}.
+     * Zero disables logging.
+     */
+    public static final String PROP_SLOW_QUERY_THRESHOLD = "slowQueryThreshold";
+
+    public static final String HTTP_EXECUTOR_DEFAULT = "default";
+    public static final String HTTP_EXECUTOR_VIRTUAL = "virtual";
+    public static final String HTTP_EXECUTOR_SHARED = "shared";
+
+    public static final int DEFAULT_BATCH_MAX_STATEMENTS = 1000;
+    public static final long DEFAULT_BATCH_MAX_BYTES = 4 * 1024 * 1024;
+    public static final long DEFAULT_RESULT_CACHE_TTL = 5000;
+    public static final long DEFAULT_SCHEMA_CACHE_CHECK_INTERVAL = 2000;
+    public static final int DEFAULT_READ_RETRIES = 2;
+    public static final long DEFAULT_RETRY_BACKOFF = 100;
+    public static final long DEFAULT_HEALTH_CHECK_INTERVAL = 5000;
 }
@@ -16,6 +16,7 @@
  */
 package com.dbeaver.jdbc.driver.libsql;
 
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
 import com.dbeaver.jdbc.model.AbstractJdbcDatabaseMetaData;
 import org.jkiss.code.NotNull;
 import org.jkiss.utils.CommonUtils;
@@ -36,6 +37,20 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
 
     private static final Pattern VERSION_PATTERN = Pattern.compile("(\\w+)\\s+([0-9.]+)\\s+(.+)");
 
+    private static final List<String> TABLE_COLUMNS = List.of(
+        "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS", "TYPE_CAT", "TYPE_SCHEM", "TYPE_NAME");
+    private static final List<String> COLUMN_COLUMNS = List.of(
+        "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE", "TYPE_NAME", "COLUMN_SIZE", "REMARKS",
+        "ORDINAL_POSITION");
+    private static final List<String> PRIMARY_KEY_COLUMNS = List.of(
+        "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "KEY_SEQ", "PK_NAME");
+    private static final List<String> INDEX_COLUMNS = List.of(
+        "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "NON_UNIQUE", "INDEX_QUALIFIER", "INDEX_NAME", "TYPE",
+        "ORDINAL_POSITION", "COLUMN_NAME", "ASC_OR_DESC", "CARDINALITY", "PAGES", "FILTER_CONDITION");
+    private static final List<String> KEY_COLUMNS = List.of(
+        "PKTABLE_CAT", "PKTABLE_SCHEM", "PKTABLE_NAME", "PKCOLUMN_NAME", "FKTABLE_CAT", "FKTABLE_SCHEM",
+        "FKTABLE_NAME", "FKCOLUMN_NAME", "KEY_SEQ", "UPDATE_RULE", "DELETE_RULE", "FK_NAME", "PK_NAME", "DEFERRABILITY");
+
     private String serverVersion;
 
     public LibSqlDatabaseMetaData(@NotNull LibSqlConnection connection) {
@@ -95,14 +110,21 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
     @Override
     public ResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) throws SQLException {
         verifySchemaParameters(catalog, schemaPattern);
-        try (PreparedStatement dbStat = connection.prepareStatement(
+        LibSqlSchemaSnapshot snapshot = connection.getSchemaSnapshot();
+        if (snapshot != null) {
+            List<Object[]> rows = new ArrayList<>();
+            for (LibSqlSchemaSnapshot.SchemaObject object : snapshot.getObjects()) {
+                if (object.isTable()) {
+                    rows.add(new Object[] {null, null, object.name, object.type, null, null, null, null});
+                }
+            }
+            return makeResultSet(TABLE_COLUMNS, rows);
+        }
+        return LibSqlUtils.executeQuery(connection,
             "SELECT NULL as TABLE_CAT, NULL AS TABLE_SCHEM," +
                 "name AS TABLE_NAME,type as TABLE_TYPE, " +
                 "NULL AS REMARKS, NULL AS TYPE_CAT, NULL AS TYPE_SCHEM, NULL AS TYPE_NAME " +
-                "FROM sqlite_master WHERE type='table'")
-        ) {
-            return dbStat.executeQuery();
-        }
+                "FROM sqlite_master WHERE type='table'");
     }
 
     @Override
@@ -111,6 +133,23 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
         if (CommonUtils.isEmpty(tableName) || "%".equals(tableName)) {
             tableName = null;
         }
+        LibSqlSchemaSnapshot snapshot = connection.getSchemaSnapshot();
+        if (snapshot != null) {
+            List<LibSqlSchemaSnapshot.SchemaObject> tables = new ArrayList<>();
+            for (LibSqlSchemaSnapshot.SchemaObject object : snapshot.getObjects()) {
+                if (object.isTable() && (tableName == null || tableName.equals(object.name))) {
+                    tables.add(object);
+                }
+            }
+            tables.sort(Comparator.comparing(table -> table.name));
+            List<Object[]> rows = new ArrayList<>();
+            for (LibSqlSchemaSnapshot.SchemaObject table : tables) {
+                for (LibSqlSchemaSnapshot.ColumnInfo column : table.columns) {
+                    rows.add(new Object[] {null, null, table.name, column.name, Types.VARCHAR, column.type, 0, null, column.cid});
+                }
+            }
+            return makeResultSet(COLUMN_COLUMNS, rows);
+        }
         return executeQuery(
             "WITH all_tables AS (SELECT name AS tn FROM sqlite_master WHERE type = 'table'" +
                 (tableName == null ? "" : " and name=" + LibSqlUtils.quote(tableName)) + ") \n" +
@@ -124,8 +163,22 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
     @Override
     public ResultSet getPrimaryKeys(String catalog, String schema, String tableName) throws SQLException {
         String table = tableName;
-        PrimaryKeyFinder pkFinder = new PrimaryKeyFinder(connection, table);
+        LibSqlSchemaSnapshot snapshot = connection.getSchemaSnapshot();
+        PrimaryKeyFinder pkFinder = snapshot != null ?
+            new PrimaryKeyFinder(snapshot, table) :
+            new PrimaryKeyFinder(connection, table);
         String[] columns = pkFinder.getColumns();
+        if (snapshot != null) {
+            // Rows are unique and ordered by column name, as in the query below
+            Map<String, Object[]> rows = new TreeMap<>();
+            if (columns != null) {
+                for (int i = 0; i < columns.length; i++) {
+                    String columnName = LibSqlUtils.unquote(columns[i]);
+                    rows.putIfAbsent(columnName, new Object[] {null, null, table, columnName, i + 1, pkFinder.getName()});
+                }
+            }
+            return makeResultSet(PRIMARY_KEY_COLUMNS, new ArrayList<>(rows.values()));
+        }
 
         StringBuilder sql = new StringBuilder();
         sql.append("select null as TABLE_CAT, null as TABLE_SCHEM, '")
@@ -154,78 +207,45 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
         return executeQuery(sql.toString());
     }
 
-    private static class IndexInfo {
-        String indexName;
-        int indexId;
-
-        public IndexInfo(String indexName, int indexId) {
-            this.indexName = indexName;
-            this.indexId = indexId;
-        }
-    }
     @Override
     public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique, boolean approximate) throws SQLException {
-        {
-            StringBuilder sql = new StringBuilder();
-
-            // define the column header
-            // this is from the JDBC spec, it is part of the driver protocol
-            sql.append("select null as TABLE_CAT, null as TABLE_SCHEM, '")
-                .append(LibSqlUtils.escape(table))
-                .append("' as TABLE_NAME, un as NON_UNIQUE, null as INDEX_QUALIFIER, n as INDEX_NAME, ")
-                .append(Integer.toString(DatabaseMetaData.tableIndexOther)).append(" as TYPE, op as ORDINAL_POSITION, ")
-                .append("cn as COLUMN_NAME, null as ASC_OR_DESC, 0 as CARDINALITY, 0 as PAGES, null as FILTER_CONDITION from (");
-
-            // this always returns a result set now, previously threw exception
-            List<IndexInfo> indexList = new ArrayList<>();
-            try (ResultSet rs = executeQuery("pragma index_list('" + LibSqlUtils.escape(table) + "')")) {
-                while (rs.next()) {
-                    IndexInfo indexInfo = new IndexInfo(
-                        rs.getString(2),
-                        rs.getInt(3)
-                    );
-                    indexList.add(indexInfo);
-                }
-            }
-            if (indexList.isEmpty()) {
-                // if pragma index_list() returns no information, use this null block
-                sql.append("select null as un, null as n, null as op, null as cn) limit 0;");
-                return executeQuery(sql.toString());
-            } else {
-                // loop over results from pragma call, getting specific info for each index
-                List<String> unionAll = new ArrayList<>();
-                for (IndexInfo currentIndex : indexList) {
-                    String indexName = currentIndex.indexName;
-                    try (ResultSet rs = executeQuery("pragma index_info('" + LibSqlUtils.escape(indexName) + "')")) {
-                        while (rs.next()) {
-                            StringBuilder sqlRow = new StringBuilder();
-
-                            String colName = rs.getString(3);
-                            sqlRow.append("select ")
-                                .append(1 - currentIndex.indexId).append(" as un,'")
-                                .append(LibSqlUtils.escape(indexName)).append("' as n,")
-                                .append(rs.getInt(1) + 1).append(" as op,");
-                            if (colName == null) { // expression index
-                                sqlRow.append("null");
-                            } else {
-                                sqlRow.append("'").append(LibSqlUtils.escape(colName)).append("'");
-                            }
-                            sqlRow.append(" as cn");
-
-                            unionAll.add(sqlRow.toString());
-                        }
+        LibSqlSchemaSnapshot snapshot = connection.getSchemaSnapshot();
+        if (snapshot != null) {
+            List<Object[]> rows = new ArrayList<>();
+            LibSqlSchemaSnapshot.SchemaObject object = snapshot.getObject(table);
+            if (object != null) {
+                for (LibSqlSchemaSnapshot.IndexInfo index : object.indexes) {
+                    for (LibSqlSchemaSnapshot.IndexColumn column : index.columns) {
+                        rows.add(new Object[] {
+                            null, null, table, index.unique ? 0 : 1, null, index.name, DatabaseMetaData.tableIndexOther,
+                            column.seqno + 1, column.name, null, 0, 0, null});
                     }
                 }
-
-                String sqlBlock = String.join(" union all ", unionAll);
-                sql.append(sqlBlock).append(");");
-                return executeQuery(sql.toString());
+            }
+            return makeResultSet(INDEX_COLUMNS, rows);
+        }
+        // Columns of all indexes are read with one query
+        List<Object[]> rows = new ArrayList<>();
+        try (ResultSet rs = executeQuery(
+            "select il.name, il.\"unique\", ii.seqno, ii.name" +
+            " from pragma_index_list('" + LibSqlUtils.escape(table) + "') il join pragma_index_info(il.name) ii" +
+            " order by il.seq, ii.seqno")) {
+            while (rs.next()) {
+                rows.add(new Object[] {
+                    null, null, table, 1 - rs.getInt(2), null, rs.getString(1), DatabaseMetaData.tableIndexOther,
+                    // Column of an expression is null
+                    rs.getInt(3) + 1, rs.getObject(4), null, 0, 0, null});
             }
         }
+        return makeResultSet(INDEX_COLUMNS, rows);
     }
 
     @Override
     public ResultSet getImportedKeys(String catalog, String schema, String table) throws SQLException {
+        LibSqlSchemaSnapshot snapshot = connection.getSchemaSnapshot();
+        if (snapshot != null) {
+            return getImportedKeys(snapshot, catalog, schema, table);
+        }
         {
             StringBuilder sql = new StringBuilder();
 
@@ -258,7 +278,7 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
                     try {
                         PrimaryKeyFinder pkFinder = new PrimaryKeyFinder(connection, PKTabName);
                         pkName = pkFinder.getName();
-                        if (PKColName == null) {
+                        if (CommonUtils.isEmpty(PKColName)) {
                             PKColName = pkFinder.getColumns()[0];
                         }
                     } catch (SQLException ignored) {
@@ -326,115 +346,161 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
         RULE_MAP.put("SET DEFAULT", DatabaseMetaData.importedKeySetDefault);
     }
 
+    private ResultSet getImportedKeys(
+        @NotNull LibSqlSchemaSnapshot snapshot,
+        String catalog,
+        String schema,
+        String table
+    ) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        LibSqlSchemaSnapshot.SchemaObject object = snapshot.getObject(table);
+        if (object != null) {
+            List<ImportedKeyFinder.ForeignKey> fkNames = new ImportedKeyFinder(snapshot, table).getFkList();
+            for (LibSqlSchemaSnapshot.ForeignKeyColumn fkColumn : object.foreignKeys) {
+                String pkColName = fkColumn.to;
+                String pkName = null;
+                try {
+                    PrimaryKeyFinder pkFinder = new PrimaryKeyFinder(snapshot, fkColumn.table);
+                    pkName = pkFinder.getName();
+                    if (CommonUtils.isEmpty(pkColName)) {
+                        pkColName = pkFinder.getColumns()[0];
+                    }
+                } catch (SQLException ignored) {
+                }
+                String fkName = fkNames.size() > fkColumn.id ? fkNames.get(fkColumn.id).getFkName() : null;
+                rows.add(new Object[] {
+                    String.valueOf(catalog), String.valueOf(schema), fkColumn.table, pkColName,
+                    String.valueOf(catalog), String.valueOf(schema), String.valueOf(table), fkColumn.from,
+                    fkColumn.seq + 1, RULE_MAP.get(fkColumn.onUpdate), RULE_MAP.get(fkColumn.onDelete),
+                    fkName == null ? "" : fkName, pkName == null ? "" : pkName,
+                    DatabaseMetaData.importedKeyInitiallyDeferred
+                });
+            }
+            // Same order as in the query
+            rows.sort(Comparator.comparing((Object[] row) -> (String) row[2]).thenComparing(row -> (Integer) row[8]));
+        }
+        return makeResultSet(KEY_COLUMNS, rows);
+    }
+
     @Override
     public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
+        LibSqlSchemaSnapshot snapshot = connection.getSchemaSnapshot();
+        if (snapshot != null) {
+            return getExportedKeys(snapshot, catalog, schema, table);
+        }
         PrimaryKeyFinder pkFinder = new PrimaryKeyFinder(connection, table);
-        String[] pkColumns = pkFinder.getColumns();
-
-        catalog = (catalog != null) ? LibSqlUtils.quote(catalog) : null;
-        schema = (schema != null) ? LibSqlUtils.quote(schema) : null;
-
-        StringBuilder exportedKeysQuery = new StringBuilder();
-
         String target = null;
-        int count = 0;
-        if (pkColumns != null) {
-            // retrieve table list
-            ArrayList<String> tableList;
-            try (ResultSet rs = executeQuery("select name from sqlite_schema where type = 'table'")) {
-                tableList = new ArrayList<>();
-
+        List<ImportedKeyFinder.ForeignKey> foreignKeys = new ArrayList<>();
+        if (pkFinder.getColumns() != null) {
+            // Foreign keys of all tables which reference the target table are read with one query
+            try (ResultSet rs = executeQuery(
+                "select t.name, s.name, s.sql, f.id, f.seq, f.\"table\", f.\"from\", f.\"to\", f.on_update, f.on_delete, f.\"match\"" +
+                " from sqlite_schema t, sqlite_schema s join pragma_foreign_key_list(s.name) f" +
+                " where t.type = 'table' and lower(t.name) = lower('" + LibSqlUtils.escape(table) + "')" +
+                " and s.type = 'table' and exists (" +
+                "select 1 from pragma_foreign_key_list(s.name) r where lower(r.\"table\") = lower(t.name))" +
+                " order by s.name, f.id, f.seq")) {
+                String fkTable = null;
+                String fkTableSql = null;
+                List<LibSqlSchemaSnapshot.ForeignKeyColumn> fkColumns = new ArrayList<>();
                 while (rs.next()) {
-                    String tblname = rs.getString(1);
-                    tableList.add(tblname);
-                    if (tblname.equalsIgnoreCase(table)) {
-                        // get the correct case as in the database
-                        // (not uppercase nor lowercase)
-                        target = tblname;
+                    // get the correct case as in the database
+                    // (not uppercase nor lowercase)
+                    target = rs.getString(1);
+                    String tableName = rs.getString(2);
+                    if (fkTable != null && !fkTable.equals(tableName)) {
+                        foreignKeys.addAll(new ImportedKeyFinder(fkTable, fkTableSql, fkColumns).getFkList());
+                        fkColumns.clear();
                     }
+                    fkTable = tableName;
+                    fkTableSql = rs.getString(3);
+                    fkColumns.add(new LibSqlSchemaSnapshot.ForeignKeyColumn(
+                        rs.getInt(4),
+                        rs.getInt(5),
+                        rs.getString(6),
+                        rs.getString(7),
+                        rs.getString(8),
+                        rs.getString(9),
+                        rs.getString(10),
+                        rs.getString(11)));
+                }
+                if (fkTable != null) {
+                    foreignKeys.addAll(new ImportedKeyFinder(fkTable, fkTableSql, fkColumns).getFkList());
                 }
             }
+        }
+        return makeExportedKeys(catalog, schema, pkFinder, target, foreignKeys);
+    }
 
-            // find imported keys for each table
-            for (String tbl : tableList) {
-                final ImportedKeyFinder impFkFinder = new ImportedKeyFinder(connection, tbl);
-                List<ImportedKeyFinder.ForeignKey> fkNames = impFkFinder.getFkList();
-
-                for (ImportedKeyFinder.ForeignKey foreignKey : fkNames) {
-                    String PKTabName = foreignKey.pkTableName;
+    private ResultSet getExportedKeys(
+        @NotNull LibSqlSchemaSnapshot snapshot,
+        String catalog,
+        String schema,
+        String table
+    ) throws SQLException {
+        PrimaryKeyFinder pkFinder = new PrimaryKeyFinder(snapshot, table);
+        String target = null;
+        List<ImportedKeyFinder.ForeignKey> foreignKeys = new ArrayList<>();
+        if (pkFinder.getColumns() != null) {
+            LibSqlSchemaSnapshot.SchemaObject targetObject = snapshot.getObject(table);
+            if (targetObject != null && targetObject.isTable()) {
+                target = targetObject.name;
+            }
+            for (LibSqlSchemaSnapshot.SchemaObject object : snapshot.getObjects()) {
+                if (object.isTable()) {
+                    foreignKeys.addAll(new ImportedKeyFinder(snapshot, object.name).getFkList());
+                }
+            }
+        }
+        return makeExportedKeys(catalog, schema, pkFinder, target, foreignKeys);
+    }
 
-                    if (PKTabName == null || !PKTabName.equalsIgnoreCase(target)) {
-                        continue;
+    /**
+     * Makes exported keys result set of foreign keys which reference the target table
+     */
+    private ResultSet makeExportedKeys(
+        String catalog,
+        String schema,
+        @NotNull PrimaryKeyFinder pkFinder,
+        String target,
+        @NotNull List<ImportedKeyFinder.ForeignKey> foreignKeys
+    ) throws SQLException {
+        String[] pkColumns = pkFinder.getColumns();
+        List<Object[]> rows = new ArrayList<>();
+        if (pkColumns != null) {
+            for (ImportedKeyFinder.ForeignKey foreignKey : foreignKeys) {
+                if (foreignKey.pkTableName == null || !foreignKey.pkTableName.equalsIgnoreCase(target)) {
+                    continue;
+                }
+                for (int j = 0; j < foreignKey.fkColNames.size(); j++) {
+                    String pkColName = foreignKey.pkColNames.get(j);
+                    if (CommonUtils.isEmpty(pkColName) && j < pkColumns.length) {
+                        // Reference without columns references the primary key
+                        pkColName = pkColumns[j];
                     }
-
-                    for (int j = 0; j < foreignKey.fkColNames.size(); j++) {
-                        int keySeq = j + 1;
-                        String pkColName = foreignKey.pkColNames.get(j);
-                        pkColName = (pkColName == null) ? "" : pkColName;
-                        String fkColName = foreignKey.fkColNames.get(j);
-                        fkColName = (fkColName == null) ? "" : fkColName;
-
-                        boolean usePkName = false;
-                        for (String pkColumn : pkColumns) {
-                            if (pkColumn != null && pkColumn.equalsIgnoreCase(pkColName)) {
-                                usePkName = true;
-                                break;
-                            }
-                        }
-                        String pkName =
-                            (usePkName && pkFinder.getName() != null) ? pkFinder.getName() : "";
-
-                        exportedKeysQuery
-                            .append(count > 0 ? " union all select " : "select ")
-                            .append(keySeq).append(" as ks, '")
-                            .append(LibSqlUtils.escape(tbl)).append("' as fkt, '")
-                            .append(LibSqlUtils.escape(fkColName)).append("' as fcn, '")
-                            .append(LibSqlUtils.escape(pkColName)).append("' as pcn, '")
-                            .append(LibSqlUtils.escape(pkName)).append("' as pkn, ")
-                            .append(RULE_MAP.get(foreignKey.onUpdate)).append(" as ur, ")
-                            .append(RULE_MAP.get(foreignKey.onDelete)).append(" as dr, ");
-
-                        String fkName = foreignKey.getFkName();
-
-                        if (fkName != null) {
-                            exportedKeysQuery.append("'").append(LibSqlUtils.escape(fkName)).append("' as fkn");
-                        } else {
-                            exportedKeysQuery.append("'' as fkn");
+                    pkColName = CommonUtils.notEmpty(pkColName);
+                    String fkColName = CommonUtils.notEmpty(foreignKey.fkColNames.get(j));
+                    boolean usePkName = false;
+                    for (String pkColumn : pkColumns) {
+                        if (pkColumn != null && pkColumn.equalsIgnoreCase(pkColName)) {
+                            usePkName = true;
+                            break;
                         }
-
-                        count++;
                     }
+                    String pkName = usePkName && pkFinder.getName() != null ? pkFinder.getName() : "";
+                    String fkName = foreignKey.getFkName();
+                    rows.add(new Object[] {
+                        catalog, schema, String.valueOf(target), pkColName,
+                        catalog, schema, foreignKey.fkTableName, fkColName,
+                        j + 1, RULE_MAP.get(foreignKey.onUpdate), RULE_MAP.get(foreignKey.onDelete),
+                        fkName == null ? "" : fkName, pkName,
+                        DatabaseMetaData.importedKeyInitiallyDeferred
+                    });
                 }
             }
+            rows.sort(Comparator.comparing((Object[] row) -> (String) row[6]).thenComparing(row -> (Integer) row[8]));
         }
-
-        boolean hasImportedKey = (count > 0);
-        StringBuilder sql = new StringBuilder(512);
-        sql.append("select ")
-            .append(catalog).append(" as PKTABLE_CAT, ")
-            .append(schema).append(" as PKTABLE_SCHEM, ")
-            .append(LibSqlUtils.quote(target)).append(" as PKTABLE_NAME, ")
-            .append(hasImportedKey ? "pcn" : "''").append(" as PKCOLUMN_NAME, ")
-            .append(catalog).append(" as FKTABLE_CAT, ")
-            .append(schema).append(" as FKTABLE_SCHEM, ")
-            .append(hasImportedKey ? "fkt" : "''").append(" as FKTABLE_NAME, ")
-            .append(hasImportedKey ? "fcn" : "''").append(" as FKCOLUMN_NAME, ")
-            .append(hasImportedKey ? "ks" : "-1").append(" as KEY_SEQ, ")
-            .append(hasImportedKey ? "ur" : "3").append(" as UPDATE_RULE, ")
-            .append(hasImportedKey ? "dr" : "3").append(" as DELETE_RULE, ")
-            .append(hasImportedKey ? "fkn" : "''").append(" as FK_NAME, ")
-            .append(hasImportedKey ? "pkn" : "''").append(" as PK_NAME, ")
-            .append(DatabaseMetaData.importedKeyInitiallyDeferred).append(" as DEFERRABILITY ");
-
-        if (hasImportedKey) {
-            sql.append("from (")
-                .append(exportedKeysQuery)
-                .append(") ORDER BY FKTABLE_CAT, FKTABLE_SCHEM, FKTABLE_NAME, KEY_SEQ");
-        } else {
-            sql.append("limit 0");
-        }
-
-        return executeQuery(sql.toString());
+        return makeResultSet(KEY_COLUMNS, rows);
     }
 
     @Override
@@ -473,6 +539,13 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
         return LibSqlUtils.executeQuery(connection, query);
     }
 
+    /**
+     * Creates result set of rows built from schema snapshot
+     */
+    private ResultSet makeResultSet(@NotNull List<String> columns, @NotNull List<Object[]> rows) throws SQLException {
+        return new LibSqlResultSet(new LibSqlStatement(connection), LibSqlExecutionResult.of(columns, rows));
+    }
+
     /**
      * Parses the sqlite_schema table for a table's primary key
      * Original algorithm taken from Xerial SQLite driver.
@@ -496,14 +569,7 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
         public PrimaryKeyFinder(Connection connection, String table) throws SQLException {
             this.table = table;
 
-            // specific handling for sqlite_schema and synonyms, so that
-            // getExportedKeys/getPrimaryKeys return an empty ResultSet instead of throwing an
-            // exception
-            if ("sqlite_schema".equals(table) || "sqlite_master".equals(table)) return;
-
-            if (table == null || table.trim().isEmpty()) {
-                throw new SQLException("Invalid table name: '" + this.table + "'");
-            }
+            if (isSchemaTable(table)) return;
 
             try (ResultSet rs = LibSqlUtils.executeQuery(
                 connection,
@@ -516,16 +582,7 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
                     throw new SQLException("Table not found: '" + table + "'");
                 }
 
-                Matcher matcher = PK_NAMED_PATTERN.matcher(rs.getString(1));
-                if (matcher.find()) {
-                    pkName = LibSqlUtils.unquote(LibSqlUtils.escape(matcher.group(1)));
-                    pkColumns = matcher.group(2).split(",");
-                } else {
-                    matcher = PK_UNNAMED_PATTERN.matcher(rs.getString(1));
-                    if (matcher.find()) {
-                        pkColumns = matcher.group(1).split(",");
-                    }
-                }
+                parseTableSql(rs.getString(1));
 
                 if (pkColumns == null) {
                     try (ResultSet rs2 = LibSqlUtils.executeQuery(connection, "pragma table_info('" + LibSqlUtils.escape(table) + "')")) {
@@ -535,10 +592,63 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
                     }
                 }
 
-                if (pkColumns != null) {
-                    for (int i = 0; i < pkColumns.length; i++) {
-                        pkColumns[i] = LibSqlUtils.unquote(pkColumns[i]);
-                    }
+                unquoteColumns();
+            }
+        }
+
+        PrimaryKeyFinder(LibSqlSchemaSnapshot snapshot, String table) throws SQLException {
+            this.table = table;
+
+            if (isSchemaTable(table)) return;
+
+            LibSqlSchemaSnapshot.SchemaObject object = snapshot.getObject(table);
+            if (object == null || !("table".equals(object.type) || "view".equals(object.type))) {
+                throw new SQLException("Table not found: '" + table + "'");
+            }
+
+            parseTableSql(object.sql);
+
+            if (pkColumns == null) {
+                for (LibSqlSchemaSnapshot.ColumnInfo column : object.columns) {
+                    if (column.pk != 0) pkColumns = new String[] {column.name};
+                }
+            }
+
+            unquoteColumns();
+        }
+
+        private static boolean isSchemaTable(String table) throws SQLException {
+            // specific handling for sqlite_schema and synonyms, so that
+            // getExportedKeys/getPrimaryKeys return an empty ResultSet instead of throwing an
+            // exception
+            if ("sqlite_schema".equals(table) || "sqlite_master".equals(table)) return true;
+
+            if (table == null || table.trim().isEmpty()) {
+                throw new SQLException("Invalid table name: '" + table + "'");
+            }
+            return false;
+        }
+
+        private void parseTableSql(String sql) {
+            if (sql == null) {
+                return;
+            }
+            Matcher matcher = PK_NAMED_PATTERN.matcher(sql);
+            if (matcher.find()) {
+                pkName = LibSqlUtils.unquote(LibSqlUtils.escape(matcher.group(1)));
+                pkColumns = matcher.group(2).split(",");
+            } else {
+                matcher = PK_UNNAMED_PATTERN.matcher(sql);
+                if (matcher.find()) {
+                    pkColumns = matcher.group(1).split(",");
+                }
+            }
+        }
+
+        private void unquoteColumns() {
+            if (pkColumns != null) {
+                for (int i = 0; i < pkColumns.length; i++) {
+                    pkColumns[i] = LibSqlUtils.unquote(pkColumns[i]);
                 }
             }
         }
@@ -576,42 +686,69 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
 
             List<String> fkNames = getForeignKeyNames(table);
 
+            List<LibSqlSchemaSnapshot.ForeignKeyColumn> fkColumns = new ArrayList<>();
             try (ResultSet rs = LibSqlUtils.executeQuery(connection,
                 "pragma foreign_key_list('"
                 + LibSqlUtils.escape(table.toLowerCase())
                 + "')")) {
 
-                int prevFkId = -1;
-                int count = 0;
-                ForeignKey fk = null;
                 while (rs.next()) {
-                    int fkId = rs.getInt(1);
-                    String pkTableName = rs.getString(3);
-                    String fkColName = rs.getString(4);
-                    String pkColName = rs.getString(5);
-                    String onUpdate = rs.getString(6);
-                    String onDelete = rs.getString(7);
-                    String match = rs.getString(8);
+                    fkColumns.add(new LibSqlSchemaSnapshot.ForeignKeyColumn(
+                        rs.getInt(1),
+                        rs.getInt(2),
+                        rs.getString(3),
+                        rs.getString(4),
+                        rs.getString(5),
+                        rs.getString(6),
+                        rs.getString(7),
+                        rs.getString(8)));
+                }
+            }
+            addForeignKeys(table, fkNames, fkColumns);
+        }
 
-                    String fkName = null;
-                    if (fkNames.size() > count) fkName = fkNames.get(count);
-
-                    if (fkId != prevFkId) {
-                        fk =
-                            new ForeignKey(
-                                fkName,
-                                pkTableName,
-                                table,
-                                onUpdate,
-                                onDelete,
-                                match);
-                        fkList.add(fk);
-                        prevFkId = fkId;
-                        count++;
-                    }
-                    if (fk != null) {
-                        fk.addColumnMapping(fkColName, pkColName);
-                    }
+        ImportedKeyFinder(LibSqlSchemaSnapshot snapshot, String table) throws SQLException {
+            this.conn = null;
+            if (table == null || table.trim().isEmpty()) {
+                throw new SQLException("Invalid table name: '" + table + "'");
+            }
+            LibSqlSchemaSnapshot.SchemaObject object = snapshot.getObject(table);
+            if (object != null) {
+                addForeignKeys(table, parseForeignKeyNames(object.sql), object.foreignKeys);
+            }
+        }
+
+        /**
+         * Makes foreign keys of the table from already read table DDL and foreign key list
+         */
+        ImportedKeyFinder(String table, String tableSql, List<LibSqlSchemaSnapshot.ForeignKeyColumn> fkColumns) {
+            this.conn = null;
+            addForeignKeys(table, parseForeignKeyNames(tableSql), fkColumns);
+        }
+
+        private void addForeignKeys(String table, List<String> fkNames, List<LibSqlSchemaSnapshot.ForeignKeyColumn> fkColumns) {
+            int prevFkId = -1;
+            int count = 0;
+            ForeignKey fk = null;
+            for (LibSqlSchemaSnapshot.ForeignKeyColumn fkColumn : fkColumns) {
+                String fkName = null;
+                if (fkNames.size() > count) fkName = fkNames.get(count);
+
+                if (fkColumn.id != prevFkId) {
+                    fk =
+                        new ForeignKey(
+                            fkName,
+                            fkColumn.table,
+                            table,
+                            fkColumn.onUpdate,
+                            fkColumn.onDelete,
+                            fkColumn.match);
+                    fkList.add(fk);
+                    prevFkId = fkColumn.id;
+                    count++;
+                }
+                if (fk != null) {
+                    fk.addColumnMapping(fkColumn.from, fkColumn.to);
                 }
             }
         }
@@ -628,11 +765,18 @@ public class LibSqlDatabaseMetaData extends AbstractJdbcDatabaseMetaData<LibSqlC
                 + "')")) {
 
                 if (rs.next()) {
-                    Matcher matcher = FK_NAMED_PATTERN.matcher(rs.getString(1));
+                    return parseForeignKeyNames(rs.getString(1));
+                }
+            }
+            return fkNames;
+        }
 
-                    while (matcher.find()) {
-                        fkNames.add(matcher.group(1));
-                    }
+        private static List<String> parseForeignKeyNames(String tableSql) {
+            List<String> fkNames = new ArrayList<>();
+            if (tableSql != null) {
+                Matcher matcher = FK_NAMED_PATTERN.matcher(tableSql);
+                while (matcher.find()) {
+                    fkNames.add(matcher.group(1));
                 }
             }
             Collections.reverse(fkNames);
@@ -66,10 +66,71 @@ public class LibSqlDriver implements Driver {
     @Override
     public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
         return new DriverPropertyInfo[] {
-
+            makeProperty(info, LibSqlConstants.PROP_STREAM_RESULTS,
+                "Decode result rows from the response stream on demand", "true", "false"),
+            makeProperty(info, LibSqlConstants.PROP_BATCH_MAX_STATEMENTS,
+                "Maximum number of statements sent in one batch request"),
+            makeProperty(info, LibSqlConstants.PROP_BATCH_MAX_BYTES,
+                "Approximate maximum payload size (in bytes) of one batch request"),
+            makeProperty(info, LibSqlConstants.PROP_PROTOCOL,
+                "Server protocol", "legacy", "hrana2", "hrana3"),
+            makeProperty(info, LibSqlConstants.PROP_SHARED_HTTP_CLIENT,
+                "Share HTTP client between connections to the same server", "true", "false"),
+            makeProperty(info, LibSqlConstants.PROP_HTTP_VERSION,
+                "Preferred HTTP protocol version", "HTTP_2", "HTTP_1_1"),
+            makeProperty(info, LibSqlConstants.PROP_HTTP_EXECUTOR,
+                "Executor of HTTP client", LibSqlConstants.HTTP_EXECUTOR_DEFAULT, LibSqlConstants.HTTP_EXECUTOR_VIRTUAL,
+                LibSqlConstants.HTTP_EXECUTOR_SHARED),
+            makeProperty(info, LibSqlConstants.PROP_QUERY_TIMEOUT,
+                "Default query timeout in seconds (0 - no timeout)"),
+            makeProperty(info, LibSqlConstants.PROP_FETCH_PAGING,
+                "Read results of SELECT queries by pages of statement fetch size", "false", "true"),
+            makeProperty(info, LibSqlConstants.PROP_PREFETCH_PAGES,
+                "Request the next result page in background", "false", "true"),
+            makeProperty(info, LibSqlConstants.PROP_RESULT_CACHE_SIZE,
+                "Maximum size of cached query results in bytes (0 - no cache)"),
+            makeProperty(info, LibSqlConstants.PROP_RESULT_CACHE_TTL,
+                "Time to live of cached query results in milliseconds"),
+            makeProperty(info, LibSqlConstants.PROP_SCHEMA_CACHE,
+                "Read metadata from a schema snapshot loaded by a single request", "true", "false"),
+            makeProperty(info, LibSqlConstants.PROP_SCHEMA_CACHE_CHECK_INTERVAL,
+                "Interval of schema version checks of the schema snapshot in milliseconds"),
+            makeProperty(info, LibSqlConstants.PROP_TRANSACTION_WRITE_BUFFER,
+                "Queue data modifications of a transaction until the next query or commit", "false", "true"),
+            makeProperty(info, LibSqlConstants.PROP_REPLICA_PATH,
+                "Local SQLite file of embedded replica which serves read-only queries"),
+            makeProperty(info, LibSqlConstants.PROP_REPLICA_SYNC_INTERVAL,
+                "Interval of embedded replica synchronization in milliseconds, each one downloads the whole database (0 - on demand only)"),
+            makeProperty(info, LibSqlConstants.PROP_COALESCE_WINDOW,
+                "Time window in microseconds to collect read-only statements of concurrent threads into one request (0 - disabled)"),
+            makeProperty(info, LibSqlConstants.PROP_READ_ROUTING,
+                "Route read-only queries of multi-host connections to replica servers", "false", "true"),
+            makeProperty(info, LibSqlConstants.PROP_READ_RETRIES,
+                "Number of retries of read-only requests failed by a server error or a broken connection"),
+            makeProperty(info, LibSqlConstants.PROP_RETRY_BACKOFF,
+                "Initial delay before a retry in milliseconds, doubled by each retry"),
+            makeProperty(info, LibSqlConstants.PROP_HEALTH_CHECK_INTERVAL,
+                "Interval of health checks of multi-host connection servers in milliseconds (0 - disabled)"),
+            makeProperty(info, LibSqlConstants.PROP_METRICS,
+                "Collect request metrics and expose them via JMX", "false", "true"),
+            makeProperty(info, LibSqlConstants.PROP_METRICS_LISTENER,
+                "Class name of request metrics listener"),
+            makeProperty(info, LibSqlConstants.PROP_STATEMENT_LISTENERS,
+                "Comma separated class names of statement execution listeners"),
+            makeProperty(info, LibSqlConstants.PROP_SLOW_QUERY_THRESHOLD,
+                "Log statements executed longer than this number of milliseconds (0 - disabled)")
         };
     }
 
+    private static DriverPropertyInfo makeProperty(Properties info, String name, String description, String... choices) {
+        DriverPropertyInfo property = new DriverPropertyInfo(name, info == null ? null : info.getProperty(name));
+        property.description = description;
+        if (choices.length > 0) {
+            property.choices = choices;
+        }
+        return property;
+    }
+
     @Override
     public int getMajorVersion() {
         return LibSqlConstants.DRIVER_VERSION_MAJOR;
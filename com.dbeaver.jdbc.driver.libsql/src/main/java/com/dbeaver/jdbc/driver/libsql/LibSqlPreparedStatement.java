@@ -17,13 +17,16 @@
 package com.dbeaver.jdbc.driver.libsql;
 
 import com.dbeaver.jdbc.driver.libsql.client.LibSqlReaderInput;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
 import com.dbeaver.jdbc.driver.libsql.client.LibSqlStreamInput;
 import org.jkiss.code.NotNull;
 
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.Calendar;
 
@@ -33,14 +36,19 @@ public class LibSqlPreparedStatement extends LibSqlStatement implements Prepared
         @NotNull LibSqlConnection connection, String sql) throws SQLException {
         super(connection);
         this.queryText = sql;
+        this.queryTemplate = new LibSqlStatementTemplate(sql);
     }
 
-    protected void addParameter(int parameterIndex, Object value) {
-        this.parameters.put(parameterIndex, value);
+    protected void addParameter(int parameterIndex, Object value) throws SQLException {
+        checkOpen();
+        if (parameterIndex < 1) {
+            throw new LibSqlException("Invalid parameter index: " + parameterIndex);
+        }
+        this.parameters.setValue(parameterIndex, value);
     }
 
     protected void addParameter(String parameterName, Object value) {
-        this.parameters.put(parameterName, value);
+        this.parameters.setValue(parameterName, value);
     }
 
     @Override
@@ -115,12 +123,12 @@ public class LibSqlPreparedStatement extends LibSqlStatement implements Prepared
 
     @Override
     public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
-        this.addParameter(parameterIndex, new LibSqlStreamInput(x, length));
+        this.addParameter(parameterIndex, new LibSqlReaderInput(new InputStreamReader(x, StandardCharsets.US_ASCII), length));
     }
 
     @Override
     public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
-        this.addParameter(parameterIndex, new LibSqlStreamInput(x, length));
+        this.addParameter(parameterIndex, new LibSqlReaderInput(new InputStreamReader(x, StandardCharsets.UTF_8), -1));
     }
 
     @Override
@@ -145,7 +153,8 @@ public class LibSqlPreparedStatement extends LibSqlStatement implements Prepared
 
     @Override
     public void addBatch() throws SQLException {
-        throw new SQLFeatureNotSupportedException("Batches not supported");
+        checkOpen();
+        batch.add(new BatchStatement(queryTemplate, parameters.copy()));
     }
 
     @Override
@@ -255,7 +264,7 @@ public class LibSqlPreparedStatement extends LibSqlStatement implements Prepared
 
     @Override
     public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
-        this.addParameter(parameterIndex, new LibSqlStreamInput(x, length));
+        this.addParameter(parameterIndex, new LibSqlReaderInput(new InputStreamReader(x, StandardCharsets.US_ASCII), length));
     }
 
     @Override
@@ -270,7 +279,7 @@ public class LibSqlPreparedStatement extends LibSqlStatement implements Prepared
 
     @Override
     public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
-        this.addParameter(parameterIndex, new LibSqlStreamInput(x, -1));
+        this.addParameter(parameterIndex, new LibSqlReaderInput(new InputStreamReader(x, StandardCharsets.US_ASCII), -1));
     }
 
     @Override
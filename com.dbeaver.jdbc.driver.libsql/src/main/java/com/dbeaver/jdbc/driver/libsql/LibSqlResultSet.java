@@ -17,13 +17,18 @@
 package com.dbeaver.jdbc.driver.libsql;
 
 import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlResultRows;
 import com.dbeaver.jdbc.model.AbstractJdbcResultSet;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.utils.CommonUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.HashMap;
 import java.util.List;
@@ -34,7 +39,13 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
 
     @Nullable
     private final LibSqlExecutionResult result;
+    private final boolean streaming;
+    // Materialized rows of non-streaming result
+    @Nullable
+    private final LibSqlResultRows rows;
     private transient int cursor = 0;
+    @Nullable
+    private transient Object[] streamRow;
     private transient boolean closed;
     private transient boolean wasNull;
     private transient Map<String, Integer> nameMap;
@@ -42,6 +53,8 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
     public LibSqlResultSet(@NotNull LibSqlStatement statement, @Nullable LibSqlExecutionResult result) {
         super(statement, null);
         this.result = result;
+        this.streaming = result != null && result.isStreaming();
+        this.rows = result == null || streaming ? null : result.getResultRows();
     }
 
     @Nullable
@@ -64,25 +77,88 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
         return index;
     }
 
-    private Object[] getCurrentRow() throws LibSqlException {
-        List<Object[]> rows = result.getRows();
+    private Object[] getStreamRow() throws LibSqlException {
         if (cursor < 1) {
             throw new LibSqlException("Fetch not started");
         }
-        if (cursor > rows.size()) {
+        if (streamRow == null) {
             throw new LibSqlException("Fetch ended");
         }
-        return rows.get(cursor - 1);
+        return streamRow;
+    }
+
+    /**
+     * Returns zero-based index of the current row of materialized result
+     */
+    private int getRowIndex(int columnIndex) throws LibSqlException {
+        if (cursor < 1) {
+            throw new LibSqlException("Fetch not started");
+        }
+        if (cursor > rows.getRowCount()) {
+            throw new LibSqlException("Fetch ended");
+        }
+        if (columnIndex < 1 || columnIndex > rows.getColumnCount()) {
+            throw new LibSqlException("Column index " + columnIndex + " is beyond range (1-" + rows.getColumnCount() + ")");
+        }
+        return cursor - 1;
+    }
+
+    /**
+     * Reads integer value of materialized result without boxing
+     */
+    private long getLongValue(int columnIndex) throws SQLException {
+        if (rows == null) {
+            return CommonUtils.toLong(getObject(columnIndex));
+        }
+        int row = getRowIndex(columnIndex);
+        wasNull = rows.isNull(row, columnIndex - 1);
+        return rows.getLong(row, columnIndex - 1);
+    }
+
+    /**
+     * Reads floating point value of materialized result without boxing
+     */
+    private double getDoubleValue(int columnIndex) throws SQLException {
+        if (rows == null) {
+            return CommonUtils.toDouble(getObject(columnIndex));
+        }
+        int row = getRowIndex(columnIndex);
+        wasNull = rows.isNull(row, columnIndex - 1);
+        return rows.getDouble(row, columnIndex - 1);
     }
 
     @Override
     public boolean next() throws SQLException {
-        return cursor++ < result.getRows().size();
+        if (streaming) {
+            if (cursor > 0 && streamRow == null) {
+                return false;
+            }
+            cursor++;
+            try {
+                streamRow = result.nextRow();
+            } catch (HttpTimeoutException e) {
+                throw new SQLTimeoutException(e.getMessage(), "HYT00", e);
+            } catch (IOException e) {
+                throw new LibSqlException("Error reading result row", e);
+            }
+            return streamRow != null;
+        }
+        return cursor++ < rows.getRowCount();
     }
 
     @Override
     public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
         this.closed = true;
+        if (streaming) {
+            streamRow = null;
+            result.close();
+        }
+        if (!statement.isClosed() && statement.isCloseOnCompletion()) {
+            statement.close();
+        }
     }
 
     @Override
@@ -97,37 +173,42 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
 
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
-        return CommonUtils.toBoolean(getObject(columnIndex));
+        Object value = getObject(columnIndex);
+        if (value instanceof Number number) {
+            // SQLite keeps booleans as integers
+            return number.doubleValue() != 0;
+        }
+        return CommonUtils.toBoolean(value);
     }
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        return (byte) CommonUtils.toInt(getObject(columnIndex));
+        return (byte) getLongValue(columnIndex);
     }
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        return (short) CommonUtils.toInt(getObject(columnIndex));
+        return (short) getLongValue(columnIndex);
     }
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        return CommonUtils.toInt(getObject(columnIndex));
+        return (int) getLongValue(columnIndex);
     }
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
-        return CommonUtils.toLong(getObject(columnIndex));
+        return getLongValue(columnIndex);
     }
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        return CommonUtils.toFloat(getObject(columnIndex));
+        return (float) getDoubleValue(columnIndex);
     }
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
-        return CommonUtils.toDouble(getObject(columnIndex));
+        return getDoubleValue(columnIndex);
     }
 
     @Override
@@ -140,8 +221,9 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
 
     @Override
     public byte[] getBytes(int columnIndex) throws SQLException {
-        Object object = getObject(columnIndex);
-        return object == null ? null : object.toString().getBytes();
+        Object value = getValue(columnIndex);
+        // Blob bytes are shared with cached results, the caller may modify its copy
+        return value instanceof byte[] bytes ? bytes.clone() : toBytes(value);
     }
 
     @Override
@@ -172,9 +254,13 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
         throw new SQLFeatureNotSupportedException();
     }
 
+    /**
+     * Returns read-only stream over the value bytes, blob values are not copied
+     */
     @Override
     public InputStream getBinaryStream(int columnIndex) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        byte[] bytes = toBytes(getValue(columnIndex));
+        return bytes == null ? null : new ByteArrayInputStream(bytes);
     }
 
     @Override
@@ -184,37 +270,37 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
 
     @Override
     public boolean getBoolean(String columnLabel) throws SQLException {
-        return CommonUtils.toBoolean(getObject(columnLabel));
+        return getBoolean(getColumnIndex(columnLabel));
     }
 
     @Override
     public byte getByte(String columnLabel) throws SQLException {
-        return (byte) CommonUtils.toInt(getObject(columnLabel));
+        return getByte(getColumnIndex(columnLabel));
     }
 
     @Override
     public short getShort(String columnLabel) throws SQLException {
-        return (short) CommonUtils.toInt(getObject(columnLabel));
+        return getShort(getColumnIndex(columnLabel));
     }
 
     @Override
     public int getInt(String columnLabel) throws SQLException {
-        return CommonUtils.toInt(getObject(columnLabel));
+        return getInt(getColumnIndex(columnLabel));
     }
 
     @Override
     public long getLong(String columnLabel) throws SQLException {
-        return CommonUtils.toLong(getObject(columnLabel));
+        return getLong(getColumnIndex(columnLabel));
     }
 
     @Override
     public float getFloat(String columnLabel) throws SQLException {
-        return CommonUtils.toFloat(getObject(columnLabel));
+        return getFloat(getColumnIndex(columnLabel));
     }
 
     @Override
     public double getDouble(String columnLabel) throws SQLException {
-        return CommonUtils.toDouble(getObject(columnLabel));
+        return getDouble(getColumnIndex(columnLabel));
     }
 
     @Override
@@ -227,8 +313,18 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
 
     @Override
     public byte[] getBytes(String columnLabel) throws SQLException {
-        Object object = getObject(columnLabel);
-        return object == null ? null : object.toString().getBytes();
+        return getBytes(getColumnIndex(columnLabel));
+    }
+
+    @Override
+    public Blob getBlob(int columnIndex) throws SQLException {
+        byte[] bytes = toBytes(getValue(columnIndex));
+        return bytes == null ? null : new LibSqlBlob(bytes);
+    }
+
+    @Override
+    public Blob getBlob(String columnLabel) throws SQLException {
+        return getBlob(getColumnIndex(columnLabel));
     }
 
     @Override
@@ -261,7 +357,7 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
 
     @Override
     public InputStream getBinaryStream(String columnLabel) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        return getBinaryStream(getColumnIndex(columnLabel));
     }
 
     @Override
@@ -287,9 +383,26 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
         return metadata;
     }
 
+    /**
+     * Blob values are returned as copies, see {@link #getBytes(int)}
+     */
     @Override
     public Object getObject(int columnIndex) throws SQLException {
-        Object[] currentRow = getCurrentRow();
+        Object value = getValue(columnIndex);
+        return value instanceof byte[] bytes ? bytes.clone() : value;
+    }
+
+    /**
+     * Returns value of the current row as is
+     */
+    @Nullable
+    private Object getValue(int columnIndex) throws SQLException {
+        if (rows != null) {
+            Object value = rows.getObject(getRowIndex(columnIndex), columnIndex - 1);
+            wasNull = (value == null);
+            return value;
+        }
+        Object[] currentRow = getStreamRow();
         if (columnIndex < 1 || columnIndex > currentRow.length) {
             throw new LibSqlException("Column index " + columnIndex + " is beyond range (1-" + currentRow.length + ")");
         }
@@ -314,4 +427,17 @@ public class LibSqlResultSet extends AbstractJdbcResultSet<LibSqlStatement, LibS
         return closed;
     }
 
+    /**
+     * Blob values are returned as is (they must not be modified), other values are converted to UTF-8 text bytes
+     */
+    @Nullable
+    private static byte[] toBytes(@Nullable Object object) {
+        if (object == null) {
+            return null;
+        } else if (object instanceof byte[] bytes) {
+            return bytes;
+        }
+        return object.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
 }
@@ -17,44 +17,183 @@
 package com.dbeaver.jdbc.driver.libsql;
 
 import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlResultRows;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
 import com.dbeaver.jdbc.model.AbstractJdbcResultSetMetaData;
 import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
 import org.jkiss.utils.CommonUtils;
 
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 public class LibSqlResultSetMetaData extends AbstractJdbcResultSetMetaData<LibSqlStatement> {
 
-    // We have json data.
-    // Thus we can distinguish strings, numbers and booleans
+    /**
+     * JDBC type of result column
+     */
     private enum ResultColumnDataType {
-        BOOLEAN,
-        NUMBER,
-        STRING,
+        BOOLEAN(Types.BOOLEAN, "BOOLEAN", Boolean.class),
+        INTEGER(Types.BIGINT, "INTEGER", Long.class),
+        REAL(Types.DOUBLE, "REAL", Double.class),
+        NUMERIC(Types.NUMERIC, "NUMERIC", Object.class),
+        STRING(Types.VARCHAR, "VARCHAR", String.class),
+        BLOB(Types.BLOB, "BLOB", byte[].class);
+
+        private final int sqlType;
+        private final String typeName;
+        private final Class<?> valueClass;
+
+        ResultColumnDataType(int sqlType, String typeName, Class<?> valueClass) {
+            this.sqlType = sqlType;
+            this.typeName = typeName;
+            this.valueClass = valueClass;
+        }
     }
 
     @NotNull
     private final LibSqlResultSet resultSet;
+    private ResultColumnDataType[] dataTypes;
+    private String[] typeNames;
+    private String[] tableNames;
 
     public LibSqlResultSetMetaData(@NotNull LibSqlResultSet resultSet) throws SQLException {
         super(resultSet.getStatement());
         this.resultSet = resultSet;
     }
 
-    private ResultColumnDataType getDataTypeFromData(int column) {
+    /**
+     * Column types are resolved once. Declared type of the column is taken from the server response (Hrana)
+     * or from the schema snapshot if the result is a query of a single table and the column is a bare
+     * column reference. Types of expressions are guessed by values.
+     */
+    private void resolveColumnTypes() {
+        if (dataTypes != null) {
+            return;
+        }
         LibSqlExecutionResult result = resultSet.getResult();
-        if (result != null && !CommonUtils.isEmpty(result.getRows())) {
-            Object columnValue = result.getRows().get(0)[column - 1];
-            if (columnValue instanceof Boolean) {
-                return ResultColumnDataType.BOOLEAN;
-            } else if (columnValue instanceof Number) {
-                return ResultColumnDataType.NUMBER;
+        int columnCount = result == null || result.getColumns() == null ? 0 : result.getColumns().size();
+        dataTypes = new ResultColumnDataType[columnCount];
+        typeNames = new String[columnCount];
+        tableNames = new String[columnCount];
+        if (result == null) {
+            return;
+        }
+        List<String> columnTypes = result.getColumnTypes();
+        LibSqlStatementTemplate template = resultSet.getStatement().getExecutedTemplate();
+        String[] selectedColumns = template == null ? null : template.getSelectedColumns();
+        LibSqlSchemaSnapshot.SchemaObject table = selectedColumns == null ? null : getSourceTable(template);
+        boolean allColumns = selectedColumns != null && selectedColumns.length == 1 && "*".equals(selectedColumns[0]);
+        if (table != null && !allColumns && (selectedColumns.length != columnCount || Arrays.asList(selectedColumns).contains("*"))) {
+            // Result columns can't be matched to select list items
+            table = null;
+        }
+        for (int i = 0; i < columnCount; i++) {
+            String declType = columnTypes == null || columnTypes.size() <= i ? null : columnTypes.get(i);
+            // Server reports no declared type for expressions
+            boolean isExpression = columnTypes != null && declType == null;
+            String columnName = table == null || isExpression ? null :
+                allColumns ? result.getColumns().get(i) : selectedColumns[i];
+            LibSqlSchemaSnapshot.ColumnInfo tableColumn = columnName == null ? null : table.getColumn(columnName);
+            if (tableColumn != null) {
+                tableNames[i] = table.name;
+                if (columnTypes == null) {
+                    declType = tableColumn.type;
+                }
+            }
+            if (!CommonUtils.isEmpty(declType)) {
+                dataTypes[i] = getDataTypeFromDeclaration(declType);
+                typeNames[i] = declType;
+            }
+            if (dataTypes[i] == null) {
+                dataTypes[i] = getDataTypeFromData(result, i);
             }
+            if (typeNames[i] == null) {
+                typeNames[i] = dataTypes[i].typeName;
+            }
+        }
+    }
+
+    /**
+     * Table of a single table query. Only a loaded snapshot is used: reading of metadata does not send requests.
+     */
+    @Nullable
+    private LibSqlSchemaSnapshot.SchemaObject getSourceTable(@NotNull LibSqlStatementTemplate template) {
+        String tableName = template.getSourceTable();
+        if (tableName == null) {
+            return null;
+        }
+        LibSqlSchemaSnapshot snapshot = resultSet.getStatement().getConnection().getLoadedSchemaSnapshot();
+        LibSqlSchemaSnapshot.SchemaObject table = snapshot == null ? null : snapshot.getObject(tableName);
+        return table != null && table.isTable() ? table : null;
+    }
+
+    /**
+     * Maps declared type by SQLite column affinity rules.
+     * Boolean and date/time declarations have numeric affinity, but SQLite has no such storage classes:
+     * booleans are kept as integers and dates as ISO-8601 strings, so they are mapped explicitly.
+     *
+     * @return null for other declarations of numeric affinity, which values may be of any type
+     */
+    @Nullable
+    private static ResultColumnDataType getDataTypeFromDeclaration(@NotNull String declType) {
+        String type = declType.trim().toUpperCase(Locale.ENGLISH);
+        if (type.startsWith("BOOL")) {
+            return ResultColumnDataType.BOOLEAN;
+        } else if (type.startsWith("DATE") || type.startsWith("TIME")) {
+            return ResultColumnDataType.STRING;
+        } else if (type.contains("INT")) {
+            return ResultColumnDataType.INTEGER;
+        } else if (type.contains("CHAR") || type.contains("CLOB") || type.contains("TEXT")) {
+            return ResultColumnDataType.STRING;
+        } else if (type.contains("BLOB")) {
+            return ResultColumnDataType.BLOB;
+        } else if (type.contains("REAL") || type.contains("FLOA") || type.contains("DOUB")) {
+            return ResultColumnDataType.REAL;
+        }
+        return null;
+    }
+
+    @NotNull
+    private static ResultColumnDataType getDataTypeFromData(@NotNull LibSqlExecutionResult result, int column) {
+        Class<?> valueClass = null;
+        if (!result.isStreaming() && result.getResultRows() != null) {
+            LibSqlResultRows rows = result.getResultRows();
+            if (column < rows.getColumnCount()) {
+                valueClass = rows.getValueClass(column);
+            }
+        } else {
+            Object[] firstRow = result.getFirstRow();
+            if (firstRow != null && column < firstRow.length && firstRow[column] != null) {
+                valueClass = firstRow[column].getClass();
+            }
+        }
+        if (valueClass == Boolean.class) {
+            return ResultColumnDataType.BOOLEAN;
+        } else if (valueClass == Long.class || valueClass == Integer.class) {
+            return ResultColumnDataType.INTEGER;
+        } else if (valueClass == Double.class || valueClass == Float.class) {
+            return ResultColumnDataType.REAL;
+        } else if (valueClass != null && Number.class.isAssignableFrom(valueClass)) {
+            return ResultColumnDataType.NUMERIC;
+        } else if (valueClass == byte[].class) {
+            return ResultColumnDataType.BLOB;
         }
         return ResultColumnDataType.STRING;
     }
 
+    @NotNull
+    private ResultColumnDataType getDataType(int column) throws SQLException {
+        resolveColumnTypes();
+        if (column < 1 || column > dataTypes.length) {
+            throw new LibSqlException("Column index " + column + " is beyond range (1-" + dataTypes.length + ")");
+        }
+        return dataTypes[column - 1];
+    }
+
     @Override
     public int getColumnCount() throws SQLException {
         return resultSet.getResult() == null ? 0 : resultSet.getResult().getColumns().size();
@@ -127,27 +266,24 @@ public class LibSqlResultSetMetaData extends AbstractJdbcResultSetMetaData<LibSq
 
     @Override
     public String getTableName(int column) throws SQLException {
-        return null;
+        getDataType(column);
+        return tableNames[column - 1];
     }
 
     @Override
     public int getColumnType(int column) throws SQLException {
-        return switch (getDataTypeFromData(column)) {
-            case BOOLEAN -> Types.BOOLEAN;
-            case NUMBER -> Types.NUMERIC;
-            case STRING -> Types.VARCHAR;
-            default -> Types.OTHER;
-        };
+        return getDataType(column).sqlType;
     }
 
     @Override
     public String getColumnTypeName(int column) throws SQLException {
-        return switch (getDataTypeFromData(column)) {
-            case BOOLEAN -> "BOOLEAN";
-            case NUMBER -> "NUMERIC";
-            case STRING -> "VARCHAR";
-            default -> "UNKNOWN";
-        };
+        getDataType(column);
+        return typeNames[column - 1];
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        return getDataType(column).valueClass.getName();
     }
 
     @Override
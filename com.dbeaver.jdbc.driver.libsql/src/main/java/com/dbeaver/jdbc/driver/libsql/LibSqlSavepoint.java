@@ -0,0 +1,67 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Transaction savepoint. Unnamed savepoints get generated names.
+ */
+public class LibSqlSavepoint implements Savepoint {
+
+    private final int id;
+    @Nullable
+    private final String name;
+
+    LibSqlSavepoint(int id, @Nullable String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    @Override
+    public int getSavepointId() throws SQLException {
+        if (name != null) {
+            throw new LibSqlException("Savepoint is named");
+        }
+        return id;
+    }
+
+    @Override
+    public String getSavepointName() throws SQLException {
+        if (name == null) {
+            throw new LibSqlException("Savepoint is not named");
+        }
+        return name;
+    }
+
+    /**
+     * Name of the savepoint in SQL
+     */
+    @NotNull
+    String getSqlName() {
+        return name != null ? name : "jdbc_savepoint_" + id;
+    }
+
+    @Override
+    public String toString() {
+        return getSqlName();
+    }
+}
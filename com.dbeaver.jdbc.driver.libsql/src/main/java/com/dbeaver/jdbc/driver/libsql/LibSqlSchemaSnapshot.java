@@ -0,0 +1,291 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlParameters;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlResultRows;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Database schema read by a single request: sqlite_schema contents with columns,
+ * indexes and foreign keys of all tables. Used to serve metadata calls from memory.
+ * Snapshot is identified by the schema_version pragma, which is incremented by every schema change.
+ */
+class LibSqlSchemaSnapshot {
+
+    private static final LibSqlStatementTemplate SCHEMA_VERSION_QUERY = new LibSqlStatementTemplate(
+        "SELECT schema_version FROM pragma_schema_version");
+    private static final LibSqlStatementTemplate[] SNAPSHOT_QUERIES = {
+        SCHEMA_VERSION_QUERY,
+        new LibSqlStatementTemplate(
+            "SELECT type, name, sql FROM sqlite_schema"),
+        new LibSqlStatementTemplate(
+            "SELECT m.name, p.cid, p.name, p.type, p.\"notnull\", p.dflt_value, p.pk " +
+                "FROM sqlite_schema m JOIN pragma_table_info(m.name) p WHERE m.type = 'table'"),
+        new LibSqlStatementTemplate(
+            "SELECT m.name, il.name, il.\"unique\", il.origin, il.partial " +
+                "FROM sqlite_schema m JOIN pragma_index_list(m.name) il WHERE m.type = 'table'"),
+        new LibSqlStatementTemplate(
+            "SELECT il.name, ii.seqno, ii.cid, ii.name " +
+                "FROM sqlite_schema m JOIN pragma_index_list(m.name) il JOIN pragma_index_info(il.name) ii " +
+                "WHERE m.type = 'table'"),
+        new LibSqlStatementTemplate(
+            "SELECT m.name, fk.id, fk.seq, fk.\"table\", fk.\"from\", fk.\"to\", fk.on_update, fk.on_delete, fk.\"match\" " +
+                "FROM sqlite_schema m JOIN pragma_foreign_key_list(m.name) fk WHERE m.type = 'table'"),
+    };
+
+    private final long schemaVersion;
+    // Schema objects in sqlite_schema order
+    private final List<SchemaObject> objects = new ArrayList<>();
+    private final Map<String, SchemaObject> objectsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private long checkTime;
+
+    private LibSqlSchemaSnapshot(long schemaVersion) {
+        this.schemaVersion = schemaVersion;
+        this.checkTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Schema objects (tables, views, indexes and triggers) in sqlite_schema order
+     */
+    @NotNull
+    List<SchemaObject> getObjects() {
+        return objects;
+    }
+
+    /**
+     * Finds schema object by name. Names are case-insensitive.
+     */
+    @Nullable
+    SchemaObject getObject(@Nullable String name) {
+        return name == null ? null : objectsByName.get(name);
+    }
+
+    /**
+     * Checks that the schema wasn't changed. Schema version is read not more often than the check interval.
+     */
+    boolean isValid(@NotNull LibSqlConnection connection, long checkInterval) throws SQLException {
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - checkTime < checkInterval) {
+            return true;
+        }
+        // Batch is always sent to the server, the version of embedded replica may differ
+        LibSqlExecutionResult result = connection.getClient().executeBatch(
+            new LibSqlStatementTemplate[] { SCHEMA_VERSION_QUERY }, new LibSqlParameters[] { new LibSqlParameters() }, false)[0];
+        checkTime = currentTime;
+        return getLong(result.getResultRows(), 0, 0) == schemaVersion;
+    }
+
+    @NotNull
+    static LibSqlSchemaSnapshot load(@NotNull LibSqlConnection connection) throws SQLException {
+        LibSqlParameters[] parameters = new LibSqlParameters[SNAPSHOT_QUERIES.length];
+        Arrays.fill(parameters, new LibSqlParameters());
+        LibSqlExecutionResult[] results = connection.getClient().executeBatch(SNAPSHOT_QUERIES, parameters, false);
+
+        LibSqlSchemaSnapshot snapshot = new LibSqlSchemaSnapshot(getLong(results[0].getResultRows(), 0, 0));
+        LibSqlResultRows rows = results[1].getResultRows();
+        for (int i = 0; i < rows.getRowCount(); i++) {
+            SchemaObject object = new SchemaObject(getString(rows, i, 0), getString(rows, i, 1), getString(rows, i, 2));
+            snapshot.objects.add(object);
+            snapshot.objectsByName.put(object.name, object);
+        }
+
+        rows = results[2].getResultRows();
+        for (int i = 0; i < rows.getRowCount(); i++) {
+            SchemaObject table = snapshot.getObject(getString(rows, i, 0));
+            if (table != null) {
+                table.columns.add(new ColumnInfo(
+                    (int) getLong(rows, i, 1),
+                    getString(rows, i, 2),
+                    getString(rows, i, 3),
+                    getLong(rows, i, 4) != 0,
+                    getString(rows, i, 5),
+                    (int) getLong(rows, i, 6)));
+            }
+        }
+
+        Map<String, IndexInfo> indexes = new HashMap<>();
+        rows = results[3].getResultRows();
+        for (int i = 0; i < rows.getRowCount(); i++) {
+            SchemaObject table = snapshot.getObject(getString(rows, i, 0));
+            if (table != null) {
+                IndexInfo index = new IndexInfo(
+                    getString(rows, i, 1),
+                    getLong(rows, i, 2) != 0,
+                    getString(rows, i, 3),
+                    getLong(rows, i, 4) != 0);
+                table.indexes.add(index);
+                indexes.put(index.name, index);
+            }
+        }
+        rows = results[4].getResultRows();
+        for (int i = 0; i < rows.getRowCount(); i++) {
+            IndexInfo index = indexes.get(getString(rows, i, 0));
+            if (index != null) {
+                index.columns.add(new IndexColumn((int) getLong(rows, i, 1), (int) getLong(rows, i, 2), getString(rows, i, 3)));
+            }
+        }
+
+        rows = results[5].getResultRows();
+        for (int i = 0; i < rows.getRowCount(); i++) {
+            SchemaObject table = snapshot.getObject(getString(rows, i, 0));
+            if (table != null) {
+                table.foreignKeys.add(new ForeignKeyColumn(
+                    (int) getLong(rows, i, 1),
+                    (int) getLong(rows, i, 2),
+                    getString(rows, i, 3),
+                    getString(rows, i, 4),
+                    getString(rows, i, 5),
+                    getString(rows, i, 6),
+                    getString(rows, i, 7),
+                    getString(rows, i, 8)));
+            }
+        }
+        return snapshot;
+    }
+
+    private static long getLong(@NotNull LibSqlResultRows rows, int row, int column) {
+        return row < rows.getRowCount() && column < rows.getColumnCount() ? rows.getLong(row, column) : 0;
+    }
+
+    @Nullable
+    private static String getString(@NotNull LibSqlResultRows rows, int row, int column) {
+        return CommonUtils.toString(rows.getObject(row, column), null);
+    }
+
+    /**
+     * Row of sqlite_schema. Columns, indexes and foreign keys are loaded for tables only.
+     */
+    static class SchemaObject {
+        final String type;
+        final String name;
+        @Nullable
+        final String sql;
+        final List<ColumnInfo> columns = new ArrayList<>();
+        final List<IndexInfo> indexes = new ArrayList<>();
+        final List<ForeignKeyColumn> foreignKeys = new ArrayList<>();
+
+        SchemaObject(String type, String name, @Nullable String sql) {
+            this.type = type;
+            this.name = name;
+            this.sql = sql;
+        }
+
+        boolean isTable() {
+            return "table".equals(type);
+        }
+
+        @Nullable
+        ColumnInfo getColumn(@NotNull String columnName) {
+            for (ColumnInfo column : columns) {
+                if (column.name.equalsIgnoreCase(columnName)) {
+                    return column;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Row of pragma table_info
+     */
+    static class ColumnInfo {
+        final int cid;
+        final String name;
+        final String type;
+        final boolean notNull;
+        @Nullable
+        final String defaultValue;
+        final int pk;
+
+        ColumnInfo(int cid, String name, String type, boolean notNull, @Nullable String defaultValue, int pk) {
+            this.cid = cid;
+            this.name = name;
+            this.type = type;
+            this.notNull = notNull;
+            this.defaultValue = defaultValue;
+            this.pk = pk;
+        }
+    }
+
+    /**
+     * Row of pragma index_list with columns from pragma index_info
+     */
+    static class IndexInfo {
+        final String name;
+        final boolean unique;
+        final String origin;
+        final boolean partial;
+        final List<IndexColumn> columns = new ArrayList<>();
+
+        IndexInfo(String name, boolean unique, String origin, boolean partial) {
+            this.name = name;
+            this.unique = unique;
+            this.origin = origin;
+            this.partial = partial;
+        }
+    }
+
+    /**
+     * Row of pragma index_info. Name is null for expressions.
+     */
+    static class IndexColumn {
+        final int seqno;
+        final int cid;
+        @Nullable
+        final String name;
+
+        IndexColumn(int seqno, int cid, @Nullable String name) {
+            this.seqno = seqno;
+            this.cid = cid;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Row of pragma foreign_key_list
+     */
+    static class ForeignKeyColumn {
+        final int id;
+        final int seq;
+        final String table;
+        final String from;
+        @Nullable
+        final String to;
+        final String onUpdate;
+        final String onDelete;
+        final String match;
+
+        ForeignKeyColumn(int id, int seq, String table, String from, @Nullable String to, String onUpdate, String onDelete, String match) {
+            this.id = id;
+            this.seq = seq;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+            this.onUpdate = onUpdate;
+            this.onDelete = onDelete;
+            this.match = match;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs statements executed longer than the threshold (see {@link LibSqlConstants#PROP_SLOW_QUERY_THRESHOLD}).
+ * Messages are written as warnings to the "com.dbeaver.jdbc.driver.libsql.LibSqlSlowQueryLogger" logger.
+ */
+public class LibSqlSlowQueryLogger implements LibSqlStatementListener {
+
+    private static final Logger log = Logger.getLogger(LibSqlSlowQueryLogger.class.getName());
+
+    private final long thresholdNanos;
+
+    /**
+     * @param threshold minimal logged execution time in milliseconds
+     */
+    public LibSqlSlowQueryLogger(long threshold) {
+        this.thresholdNanos = threshold * 1_000_000;
+    }
+
+    @Override
+    public void afterExecute(@NotNull LibSqlStatementEvent event, @Nullable Object context) {
+        if (event.getElapsedNanos() < thresholdNanos || !log.isLoggable(Level.WARNING)) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Slow query: ")
+            .append(event.getElapsedNanos() / 1_000_000).append(" ms");
+        if (event.getServerDurationMs() > 0) {
+            message.append(", server ").append(String.format("%.1f", event.getServerDurationMs())).append(" ms");
+        }
+        if (event.getRowCount() >= 0) {
+            message.append(", ").append(event.getRowCount()).append(" rows");
+        }
+        message.append(", ").append(event.getRowsRead()).append(" rows read");
+        if (event.getRequestCount() > 0) {
+            message.append(", request ").append(event.getRequestBytes())
+                .append(" bytes, response ").append(event.getResponseBytes()).append(" bytes");
+        }
+        if (event.getError() != null) {
+            message.append(", failed: ").append(event.getError().getMessage());
+        }
+        message.append("\n").append(event.getSql());
+        log.warning(message.toString());
+    }
+}
@@ -17,98 +17,395 @@
 package com.dbeaver.jdbc.driver.libsql;
 
 import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlParameters;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlReaderInput;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlRequestControl;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStreamInput;
 import com.dbeaver.jdbc.model.AbstractJdbcStatement;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 
+import java.sql.BatchUpdateException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.SQLFeatureNotSupportedException;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.*;
 
 public class LibSqlStatement extends AbstractJdbcStatement<LibSqlConnection> {
 
     protected String queryText;
-    protected Map<Object, Object> parameters = new LinkedHashMap<>();
+    protected LibSqlStatementTemplate queryTemplate;
+    protected final LibSqlParameters parameters = new LibSqlParameters();
+
+    protected final List<BatchStatement> batch = new ArrayList<>();
+    protected final LibSqlRequestControl requestControl = new LibSqlRequestControl();
+    private int queryTimeout;
+    private int fetchSize;
+    private boolean closed;
+    private boolean closeOnCompletion;
 
     protected LibSqlExecutionResult executionResult;
     protected LibSqlResultSet resultSet;
+    // Statement which produced the current result
+    @Nullable
+    private LibSqlStatementTemplate executedTemplate;
 
     public LibSqlStatement(@NotNull LibSqlConnection connection) throws SQLException {
         super(connection);
+        setQueryTimeout(connection.getQueryTimeout());
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
-        executionResult = connection.getClient().execute(sql, parameters);
+        executeQueryStatement(new LibSqlStatementTemplate(sql));
         return getResultSet();
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException {
-        return executeQuery(queryText);
+        executeQueryStatement(getQueryTemplate());
+        return getResultSet();
     }
 
     @Override
     protected boolean execute(@NotNull String sql, @Nullable int[] columnIndexes, @Nullable String[] columnNames, int autoGeneratedKeys) throws SQLException {
-        executionResult = connection.getClient().execute(sql, parameters);
+        executeQueryStatement(new LibSqlStatementTemplate(sql));
         return true;
     }
 
     @Override
     public boolean execute() throws SQLException {
-        executionResult = connection.getClient().execute(queryText, parameters);
+        executeQueryStatement(getQueryTemplate());
         return true;
     }
 
     @Override
     protected int executeUpdate(@NotNull String sql, @Nullable int[] columnIndexes, @Nullable String[] columnNames, int autoGeneratedKeys) throws SQLException {
-        executionResult = connection.getClient().execute(sql, parameters);
+        executeUpdateStatement(new LibSqlStatementTemplate(sql));
         return (int) executionResult.getUpdateCount();
     }
 
     @Override
     public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
-        executionResult = connection.getClient().execute(sql, parameters);
+        executeUpdateStatement(new LibSqlStatementTemplate(sql));
         return executionResult.getUpdateCount();
     }
 
     @Override
     public long executeLargeUpdate(String sql) throws SQLException {
-        executionResult = connection.getClient().execute(sql, parameters);
+        executeUpdateStatement(new LibSqlStatementTemplate(sql));
         return executionResult.getUpdateCount();
     }
 
     @Override
     public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
-        executionResult = connection.getClient().execute(sql, parameters);
+        executeUpdateStatement(new LibSqlStatementTemplate(sql));
         return executionResult.getUpdateCount();
     }
 
     @Override
     public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
-        executionResult = connection.getClient().execute(sql, parameters);
+        executeUpdateStatement(new LibSqlStatementTemplate(sql));
         return executionResult.getUpdateCount();
     }
 
     @Override
     public long executeLargeUpdate() throws SQLException {
-        executionResult = connection.getClient().execute(queryText, parameters);
+        executeUpdateStatement(getQueryTemplate());
         return executionResult.getUpdateCount();
     }
 
+    protected void executeStatement(@NotNull String sql, boolean streamRows) throws SQLException {
+        executeStatement(new LibSqlStatementTemplate(sql), streamRows);
+    }
+
+    protected void executeStatement(@NotNull LibSqlStatementTemplate template, boolean streamRows) throws SQLException {
+        checkOpen();
+        closeResults();
+        executedTemplate = template;
+        LibSqlStatementEvent event = beginExecute(template);
+        try {
+            executionResult = connection.getClient().execute(template, parameters, streamRows, requestControl);
+            endExecute(event, executionResult, null);
+        } catch (SQLException e) {
+            endExecute(event, null, e);
+            throw e;
+        } finally {
+            if (template.isSchemaChange()) {
+                connection.invalidateSchemaSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Executes statement which returns update count.
+     * Update may be queued by transaction write buffer, then update count is unknown.
+     */
+    protected void executeUpdateStatement(@NotNull LibSqlStatementTemplate template) throws SQLException {
+        checkOpen();
+        closeResults();
+        executedTemplate = template;
+        LibSqlStatementEvent event = beginExecute(template);
+        try {
+            executionResult = connection.getClient().executeDeferred(template, parameters, requestControl);
+            endExecute(event, executionResult, null);
+        } catch (SQLException e) {
+            endExecute(event, null, e);
+            throw e;
+        } finally {
+            if (template.isSchemaChange()) {
+                connection.invalidateSchemaSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Executes statement which may return rows.
+     * Results of SELECT queries are read by pages of fetch size if paging is enabled.
+     */
+    protected void executeQueryStatement(@NotNull LibSqlStatementTemplate template) throws SQLException {
+        checkOpen();
+        if (fetchSize > 0 && connection.isFetchPaging()) {
+            closeResults();
+            executedTemplate = template;
+            LibSqlStatementEvent event = beginExecute(template);
+            try {
+                executionResult = connection.getClient().executePaged(
+                    template, parameters, fetchSize, connection.isPrefetchPages(), requestControl);
+                endExecute(event, executionResult, null);
+            } catch (SQLException e) {
+                endExecute(event, null, e);
+                throw e;
+            }
+        } else {
+            executeStatement(template, connection.isStreamResults());
+        }
+    }
+
+    /**
+     * Notifies statement listeners of the connection about the execution.
+     * Returns null if there are no listeners.
+     */
+    @Nullable
+    private LibSqlStatementEvent beginExecute(@NotNull LibSqlStatementTemplate template) {
+        LibSqlStatementListeners listeners = connection.getStatementListeners();
+        return listeners == null ? null : listeners.beforeExecute(
+            connection, new LibSqlStatementTemplate[]{template}, new LibSqlParameters[]{parameters}, requestControl);
+    }
+
+    private void endExecute(
+        @Nullable LibSqlStatementEvent event,
+        @Nullable LibSqlExecutionResult result,
+        @Nullable SQLException error
+    ) {
+        if (event == null) {
+            return;
+        }
+        if (result != null) {
+            event.addResults(result);
+        }
+        connection.getStatementListeners().afterExecute(event, requestControl, error);
+    }
+
+    @Nullable
+    LibSqlStatementTemplate getExecutedTemplate() {
+        return executedTemplate;
+    }
+
+    /**
+     * Template of the statement query text, it is built once and reused by all executions
+     */
+    @NotNull
+    protected LibSqlStatementTemplate getQueryTemplate() throws SQLException {
+        if (queryTemplate == null) {
+            if (queryText == null) {
+                throw new LibSqlException("Statement has no query text");
+            }
+            queryTemplate = new LibSqlStatementTemplate(queryText);
+        }
+        return queryTemplate;
+    }
+
+    protected void checkOpen() throws SQLException {
+        if (closed) {
+            throw new LibSqlException("Statement is closed");
+        }
+    }
+
+    /**
+     * Releases results of the previous execution
+     */
+    protected void closeResults() throws SQLException {
+        if (resultSet != null) {
+            resultSet.close();
+            resultSet = null;
+        }
+        if (executionResult != null) {
+            executionResult.close();
+            executionResult = null;
+        }
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        checkOpen();
+        batch.add(new BatchStatement(new LibSqlStatementTemplate(sql), null));
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        batch.clear();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long[] largeCounts = executeLargeBatch();
+        int[] updateCounts = new int[largeCounts.length];
+        for (int i = 0; i < largeCounts.length; i++) {
+            updateCounts[i] = (int) Math.min(largeCounts[i], Integer.MAX_VALUE);
+        }
+        return updateCounts;
+    }
+
+    /**
+     * Sends batch statements in as few requests as possible.
+     * Batch is split into chunks limited by statement count and approximate payload size.
+     */
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        checkOpen();
+        closeResults();
+        List<BatchStatement> statements = new ArrayList<>(batch);
+        batch.clear();
+
+        int maxStatements = connection.getBatchMaxStatements();
+        long maxBytes = connection.getBatchMaxBytes();
+        long[] updateCounts = new long[statements.size()];
+        LibSqlStatementEvent event = null;
+        LibSqlStatementListeners listeners = connection.getStatementListeners();
+        if (listeners != null) {
+            LibSqlStatementTemplate[] queries = new LibSqlStatementTemplate[statements.size()];
+            LibSqlParameters[] queryParameters = new LibSqlParameters[statements.size()];
+            for (int i = 0; i < queries.length; i++) {
+                queries[i] = statements.get(i).template;
+                queryParameters[i] = statements.get(i).parameters;
+            }
+            event = listeners.beforeExecute(connection, queries, queryParameters, requestControl);
+        }
+        for (int chunkStart = 0; chunkStart < statements.size(); ) {
+            int chunkEnd = chunkStart;
+            long chunkBytes = 0;
+            while (chunkEnd < statements.size() && chunkEnd - chunkStart < maxStatements) {
+                long size = statements.get(chunkEnd).estimateSize();
+                if (chunkEnd > chunkStart && chunkBytes + size > maxBytes) {
+                    break;
+                }
+                chunkBytes += size;
+                chunkEnd++;
+            }
+            int chunkSize = chunkEnd - chunkStart;
+            LibSqlStatementTemplate[] queries = new LibSqlStatementTemplate[chunkSize];
+            LibSqlParameters[] queryParameters = new LibSqlParameters[chunkSize];
+            for (int i = 0; i < chunkSize; i++) {
+                BatchStatement statement = statements.get(chunkStart + i);
+                queries[i] = statement.template;
+                queryParameters[i] = statement.parameters;
+            }
+            try {
+                LibSqlExecutionResult[] results = connection.getClient().executeBatch(queries, queryParameters, false, requestControl);
+                for (int i = 0; i < results.length && i < chunkSize; i++) {
+                    updateCounts[chunkStart + i] = results[i].getUpdateCount();
+                }
+                if (event != null) {
+                    event.addResults(results);
+                }
+            } catch (SQLException e) {
+                BatchUpdateException error = new BatchUpdateException(
+                    e.getMessage(),
+                    e.getSQLState(),
+                    e.getErrorCode(),
+                    Arrays.copyOf(updateCounts, chunkStart),
+                    e);
+                endExecute(event, null, error);
+                throw error;
+            } finally {
+                for (LibSqlStatementTemplate query : queries) {
+                    if (query.isSchemaChange()) {
+                        connection.invalidateSchemaSnapshot();
+                        break;
+                    }
+                }
+            }
+            chunkStart = chunkEnd;
+        }
+        endExecute(event, null, null);
+        return updateCounts;
+    }
+
+    /**
+     * Releases open results: streamed response body or prefetched page of the current result set
+     */
     @Override
     public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        batch.clear();
+        closeResults();
+    }
+
+    /**
+     * Statement is closed when its result set is closed
+     */
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        checkOpen();
+        closeOnCompletion = true;
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        checkOpen();
+        return closeOnCompletion;
     }
 
     @Override
     public void cancel() throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        requestControl.cancel();
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return fetchSize;
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        if (rows < 0) {
+            throw new LibSqlException("Invalid fetch size: " + rows);
+        }
+        this.fetchSize = rows;
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return queryTimeout;
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        if (seconds < 0) {
+            throw new LibSqlException("Invalid query timeout: " + seconds);
+        }
+        this.queryTimeout = seconds;
+        requestControl.setTimeout(Duration.ofSeconds(seconds));
     }
 
     @Override
     public ResultSet getResultSet() throws SQLException {
+        checkOpen();
         if (resultSet == null) {
             if (executionResult == null) {
                 throw new SQLException("No result set was returned from server");
@@ -155,7 +452,48 @@ public class LibSqlStatement extends AbstractJdbcStatement<LibSqlConnection> {
     }
     @Override
     public boolean isClosed() throws SQLException {
-        return false;
+        return closed;
+    }
+
+    protected static class BatchStatement {
+        private final LibSqlStatementTemplate template;
+        @Nullable
+        private final LibSqlParameters parameters;
+
+        BatchStatement(@NotNull LibSqlStatementTemplate template, @Nullable LibSqlParameters parameters) {
+            this.template = template;
+            this.parameters = parameters;
+        }
+
+        /**
+         * Approximate size of the statement in request payload
+         */
+        long estimateSize() {
+            long size = template.getSql().length() + 8;
+            if (parameters != null) {
+                for (int i = 0; i < parameters.getCount(); i++) {
+                    size += estimateSize(parameters.getValue(i));
+                }
+                for (Object value : parameters.getNamedValues().values()) {
+                    size += estimateSize(value);
+                }
+            }
+            return size;
+        }
+
+        private static long estimateSize(@Nullable Object value) {
+            if (value instanceof CharSequence str) {
+                return str.length() + 4;
+            } else if (value instanceof byte[] bytes) {
+                return bytes.length * 2L;
+            } else if (value instanceof LibSqlStreamInput input && input.getLength() > 0) {
+                return input.getLength() * 2;
+            } else if (value instanceof LibSqlReaderInput input && input.getLength() > 0) {
+                return input.getLength() + 4;
+            } else {
+                return 16;
+            }
+        }
     }
 
 }
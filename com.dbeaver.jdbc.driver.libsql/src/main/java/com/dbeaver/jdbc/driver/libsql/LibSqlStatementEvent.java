@@ -0,0 +1,183 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlRequestStats;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlResultRows;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Statement execution passed to {@link LibSqlStatementListener}.
+ * Results are available in {@link LibSqlStatementListener#afterExecute}. Rows of streamed and paged results
+ * are read after the execution, so they are not counted.
+ */
+public final class LibSqlStatementEvent {
+
+    @NotNull
+    private final LibSqlConnection connection;
+    @NotNull
+    private final List<String> statements;
+    private final int parameterCount;
+    private final long startTime = System.nanoTime();
+    // Values returned by beforeExecute of listeners
+    @Nullable
+    Object[] contexts;
+
+    private long elapsedNanos;
+    @Nullable
+    private SQLException error;
+    private long updateCount;
+    private long rowCount = -1;
+    private long rowsRead;
+    private long rowsWritten;
+    private double serverDurationMs;
+    private int requestCount;
+    private long requestBytes;
+    private long responseBytes;
+
+    LibSqlStatementEvent(@NotNull LibSqlConnection connection, @NotNull List<String> statements, int parameterCount) {
+        this.connection = connection;
+        this.statements = statements;
+        this.parameterCount = parameterCount;
+    }
+
+    @NotNull
+    public LibSqlConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * SQL text of the statement. Statements of a batch are separated by semicolons.
+     */
+    @NotNull
+    public String getSql() {
+        return statements.size() == 1 ? statements.get(0) : String.join(";\n", statements);
+    }
+
+    /**
+     * SQL texts of all statements, a batch has several statements
+     */
+    @NotNull
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Number of parameter values of all statements
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Execution time measured by the client
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Execution error or null if the statement succeeded
+     */
+    @Nullable
+    public SQLException getError() {
+        return error;
+    }
+
+    /**
+     * Number of affected rows (sum of a batch)
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * Number of returned rows or -1 if rows were not read during the execution
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Query duration reported by the server
+     */
+    public double getServerDurationMs() {
+        return serverDurationMs;
+    }
+
+    /**
+     * Number of HTTP requests sent for the execution.
+     * Zero if results were served from the cache or the embedded replica or if the statement was coalesced
+     * with statements of other threads.
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Size of request bodies. Bodies with stream parameters are not counted.
+     */
+    public synchronized long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Size of response bodies read during the execution
+     */
+    public synchronized long getResponseBytes() {
+        return responseBytes;
+    }
+
+    synchronized void addRequestStats(@NotNull LibSqlRequestStats stats) {
+        requestCount++;
+        requestBytes += Math.max(stats.getRequestBytes(), 0);
+        responseBytes += stats.getResponseBytes();
+    }
+
+    void addResults(@NotNull LibSqlExecutionResult... results) {
+        for (LibSqlExecutionResult result : results) {
+            updateCount += Math.max(result.getUpdateCount(), 0);
+            rowsRead += result.getRowsRead();
+            rowsWritten += (long) result.getRowsWritten();
+            serverDurationMs += result.getQueryDurationMs();
+            if (!result.isStreaming() && result.getColumns() != null && !result.getColumns().isEmpty()) {
+                LibSqlResultRows rows = result.getResultRows();
+                if (rows != null) {
+                    rowCount = Math.max(rowCount, 0) + rows.getRowCount();
+                }
+            }
+        }
+    }
+
+    void finish(@Nullable SQLException error) {
+        this.elapsedNanos = System.nanoTime() - startTime;
+        this.error = error;
+    }
+}
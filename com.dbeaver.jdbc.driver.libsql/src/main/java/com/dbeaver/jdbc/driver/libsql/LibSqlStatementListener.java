@@ -0,0 +1,47 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+/**
+ * Receives statement execution events of a connection, e.g. to create tracing spans or to log slow queries.
+ * Listeners are configured by {@link LibSqlConstants#PROP_STATEMENT_LISTENERS} or registered
+ * as {@link java.util.ServiceLoader} services (shared by all connections).
+ * Listeners are called in the thread which executes the statement and must be thread safe.
+ */
+public interface LibSqlStatementListener {
+
+    /**
+     * Called before the statement is sent to the server.
+     *
+     * @return context passed to {@link #afterExecute}, e.g. a tracing span
+     */
+    @Nullable
+    default Object beforeExecute(@NotNull LibSqlStatementEvent event) {
+        return null;
+    }
+
+    /**
+     * Called after the statement was executed or failed
+     *
+     * @param context value returned by {@link #beforeExecute}
+     */
+    void afterExecute(@NotNull LibSqlStatementEvent event, @Nullable Object context);
+
+}
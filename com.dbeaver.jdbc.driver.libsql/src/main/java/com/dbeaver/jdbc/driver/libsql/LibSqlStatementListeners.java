@@ -0,0 +1,154 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlParameters;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlRequestControl;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statement listeners of a connection. Connections without listeners don't create it,
+ * so statements are executed without events.
+ */
+final class LibSqlStatementListeners {
+
+    private static final Logger log = Logger.getLogger(LibSqlStatementListeners.class.getName());
+
+    // Listeners registered as services, loaded once
+    @Nullable
+    private static List<LibSqlStatementListener> serviceListeners;
+
+    @NotNull
+    private final LibSqlStatementListener[] listeners;
+
+    private LibSqlStatementListeners(@NotNull List<LibSqlStatementListener> listeners) {
+        this.listeners = listeners.toArray(new LibSqlStatementListener[0]);
+    }
+
+    /**
+     * Creates listeners configured by driver properties and registered as services.
+     *
+     * @return null if there are no listeners
+     */
+    @Nullable
+    static LibSqlStatementListeners create(@NotNull Map<String, Object> driverProperties) {
+        List<LibSqlStatementListener> listeners = new ArrayList<>(getServiceListeners());
+        String classNames = CommonUtils.toString(driverProperties.get(LibSqlConstants.PROP_STATEMENT_LISTENERS), null);
+        if (!CommonUtils.isEmpty(classNames)) {
+            for (String className : classNames.split(",")) {
+                if (!className.isBlank()) {
+                    LibSqlStatementListener listener = createListener(className.trim());
+                    if (listener != null) {
+                        listeners.add(listener);
+                    }
+                }
+            }
+        }
+        long slowQueryThreshold = CommonUtils.toLong(driverProperties.get(LibSqlConstants.PROP_SLOW_QUERY_THRESHOLD));
+        if (slowQueryThreshold > 0) {
+            listeners.add(new LibSqlSlowQueryLogger(slowQueryThreshold));
+        }
+        return listeners.isEmpty() ? null : new LibSqlStatementListeners(listeners);
+    }
+
+    @NotNull
+    private static synchronized List<LibSqlStatementListener> getServiceListeners() {
+        if (serviceListeners == null) {
+            List<LibSqlStatementListener> listeners = new ArrayList<>();
+            try {
+                for (LibSqlStatementListener listener : ServiceLoader.load(
+                    LibSqlStatementListener.class, LibSqlStatementListener.class.getClassLoader())) {
+                    listeners.add(listener);
+                }
+            } catch (ServiceConfigurationError e) {
+                log.log(Level.WARNING, "Error loading statement listener services", e);
+            }
+            serviceListeners = List.copyOf(listeners);
+        }
+        return serviceListeners;
+    }
+
+    @Nullable
+    private static LibSqlStatementListener createListener(@NotNull String className) {
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Class<?> listenerClass = Class.forName(
+                className, true, classLoader != null ? classLoader : LibSqlStatementListeners.class.getClassLoader());
+            return (LibSqlStatementListener) listenerClass.getConstructor().newInstance();
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Statement listener '" + className + "' can't be created", e);
+            return null;
+        }
+    }
+
+    /**
+     * Notifies listeners about statement execution. Requests issued with the control are measured until the execution ends.
+     */
+    @NotNull
+    LibSqlStatementEvent beforeExecute(
+        @NotNull LibSqlConnection connection,
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        @NotNull LibSqlRequestControl control
+    ) {
+        List<String> sql = new ArrayList<>(stmts.length);
+        for (LibSqlStatementTemplate stmt : stmts) {
+            sql.add(stmt.getSql());
+        }
+        int parameterCount = 0;
+        for (LibSqlParameters stmtParameters : parameters) {
+            if (stmtParameters != null) {
+                parameterCount += stmtParameters.isPositional() ? stmtParameters.getCount() : stmtParameters.getNamedValues().size();
+            }
+        }
+        LibSqlStatementEvent event = new LibSqlStatementEvent(connection, sql, parameterCount);
+        event.contexts = new Object[listeners.length];
+        for (int i = 0; i < listeners.length; i++) {
+            try {
+                event.contexts[i] = listeners[i].beforeExecute(event);
+            } catch (RuntimeException e) {
+                log.log(Level.FINE, "Error in statement listener", e);
+            }
+        }
+        control.setStatsConsumer(event::addRequestStats);
+        return event;
+    }
+
+    void afterExecute(@NotNull LibSqlStatementEvent event, @NotNull LibSqlRequestControl control, @Nullable SQLException error) {
+        control.setStatsConsumer(null);
+        event.finish(error);
+        for (int i = 0; i < listeners.length; i++) {
+            try {
+                listeners[i].afterExecute(event, event.contexts[i]);
+            } catch (RuntimeException e) {
+                log.log(Level.FINE, "Error in statement listener", e);
+            }
+        }
+    }
+}
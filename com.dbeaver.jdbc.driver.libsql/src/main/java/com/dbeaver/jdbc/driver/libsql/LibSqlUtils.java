@@ -61,9 +61,18 @@ public class LibSqlUtils {
         return buf.toString();
     }
 
+    /**
+     * Executes query by a new statement. The statement is closed with the returned result set.
+     */
     public static ResultSet executeQuery(Connection connection, String query) throws SQLException {
-        try (Statement stat = connection.createStatement()) {
-            return stat.executeQuery(query);
+        Statement stat = connection.createStatement();
+        try {
+            ResultSet resultSet = stat.executeQuery(query);
+            stat.closeOnCompletion();
+            return resultSet;
+        } catch (SQLException e) {
+            stat.close();
+            throw e;
         }
     }
 }
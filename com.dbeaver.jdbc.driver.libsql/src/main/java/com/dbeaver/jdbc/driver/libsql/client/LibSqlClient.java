@@ -21,54 +21,185 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.Strictness;
 import com.google.gson.ToNumberPolicy;
-import com.google.gson.stream.JsonWriter;
+import com.google.gson.TypeAdapter;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.utils.CommonUtils;
 
 import java.io.*;
-import java.net.CookieManager;
 import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.net.http.HttpTimeoutException;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The entry point to LibSQL client API.
  */
 public class LibSqlClient {
 
+    private static final String SQL_STATE_CANCELLED = "HY008";
+    private static final String SQL_STATE_TIMEOUT = "HYT00";
+    private static final String SQL_STATE_CONNECTION_FAILURE = "08006";
+    private static final String SQL_STATE_CONNECTION_CLOSED = "08003";
+    private static final String SQL_STATE_TRANSACTION_ROLLBACK = "40000";
+
     private static final Gson gson = new GsonBuilder()
         .setStrictness(Strictness.LENIENT)
         .setDateFormat(LibSqlConstants.DEFAULT_ISO_TIMESTAMP_FORMAT)
         .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
         .create();
+    private static final TypeAdapter<Object> valueAdapter = gson.getAdapter(Object.class);
+    private static final Logger log = Logger.getLogger(LibSqlClient.class.getName());
 
     private final URL url;
     private final String authToken;
-    private final ExecutorService clientExecutor;
     private String userAgent = LibSqlConstants.DRIVER_INFO + " " +
         LibSqlConstants.DRIVER_VERSION_MAJOR +
         "." + LibSqlConstants.DRIVER_VERSION_MAJOR +
         "." + LibSqlConstants.DRIVER_VERSION_MICRO;
+    private final LibSqlHttpClients.Handle clientHandle;
     private final HttpClient client;
+    private final LibSqlProtocol protocol;
+    private final LibSqlTransport transport;
+    @Nullable
+    private final Duration defaultTimeout;
+    @Nullable
+    private final LibSqlResultCache resultCache;
+    private final long resultCacheTtl;
+    private final boolean bufferTransactionWrites;
+    private final int maxBufferedWrites;
+    // Null in auto-commit mode
+    @Nullable
+    private volatile LibSqlTransaction transaction;
+    // Guards the transaction. Not a monitor, so virtual threads waiting for a response do not pin their carriers.
+    private final ReentrantLock transactionLock = new ReentrantLock();
+    @Nullable
+    private LibSqlReplica replica;
+    @Nullable
+    private final LibSqlRequestCoalescer coalescer;
+    // Null if the connection has a single server
+    @Nullable
+    private final LibSqlEndpoints endpoints;
+    private final Map<LibSqlEndpoints.Endpoint, LibSqlTransport> replicaTransports = new HashMap<>();
+    private final int readRetries;
+    // Session state (temporary tables, PRAGMA settings, attached databases) exists on the primary server stream only
+    private volatile boolean sessionStateChanged;
+    private final long retryBackoff;
+    // Null if metrics are disabled
+    @Nullable
+    private final LibSqlMetrics metrics;
+    @Nullable
+    private volatile LibSqlMetricsListener metricsListener;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     public LibSqlClient(URL url, String authToken) {
-        this.url = url;
+        this(url, authToken, LibSqlProtocol.LEGACY);
+    }
+
+    public LibSqlClient(URL url, String authToken, LibSqlProtocol protocol) {
+        this(url, authToken, Map.of(LibSqlConstants.PROP_PROTOCOL, protocol.getId()));
+    }
+
+    /**
+     * Creates client configured by driver properties
+     */
+    public LibSqlClient(URL url, String authToken, Map<String, Object> driverProperties) {
+        this(List.of(url), authToken, driverProperties);
+    }
+
+    /**
+     * Creates client of a multi-host connection configured by driver properties.
+     *
+     * @param urls the primary server URL followed by URLs of read replicas
+     */
+    public LibSqlClient(List<URL> urls, String authToken, Map<String, Object> driverProperties) {
+        this.url = urls.get(0);
         this.authToken = authToken;
+        this.protocol = LibSqlProtocol.fromId(
+            CommonUtils.toString(driverProperties.get(LibSqlConstants.PROP_PROTOCOL), null));
+        this.transport = createTransport(url);
 
-        this.clientExecutor = Executors.newSingleThreadExecutor();
-        HttpClient.Builder builder = HttpClient.newBuilder()
-            .executor(this.clientExecutor)
-            .cookieHandler(new CookieManager());
-        this.client = builder.build();
+        int timeoutSeconds = CommonUtils.toInt(driverProperties.get(LibSqlConstants.PROP_QUERY_TIMEOUT));
+        this.defaultTimeout = timeoutSeconds > 0 ? Duration.ofSeconds(timeoutSeconds) : null;
+        this.clientHandle = LibSqlHttpClients.acquire(url, authToken, driverProperties);
+        this.client = clientHandle.getClient();
+        long resultCacheSize = CommonUtils.toLong(driverProperties.get(LibSqlConstants.PROP_RESULT_CACHE_SIZE));
+        this.resultCache = resultCacheSize > 0 ? LibSqlResultCache.acquire(url, authToken, resultCacheSize) : null;
+        this.resultCacheTtl = CommonUtils.toLong(
+            driverProperties.get(LibSqlConstants.PROP_RESULT_CACHE_TTL), LibSqlConstants.DEFAULT_RESULT_CACHE_TTL);
+        this.bufferTransactionWrites = CommonUtils.toBoolean(
+            driverProperties.get(LibSqlConstants.PROP_TRANSACTION_WRITE_BUFFER));
+        this.maxBufferedWrites = Math.max(1, CommonUtils.toInt(
+            driverProperties.get(LibSqlConstants.PROP_BATCH_MAX_STATEMENTS), LibSqlConstants.DEFAULT_BATCH_MAX_STATEMENTS));
+        long coalesceWindow = CommonUtils.toLong(driverProperties.get(LibSqlConstants.PROP_COALESCE_WINDOW));
+        this.coalescer = coalesceWindow > 0 ?
+            new LibSqlRequestCoalescer(
+                Duration.ofNanos(coalesceWindow * 1000),
+                maxBufferedWrites,
+                (stmts, parameters, control) -> executeRequest(stmts, parameters, false, control)) :
+            null;
+        this.readRetries = Math.max(0, CommonUtils.toInt(
+            driverProperties.get(LibSqlConstants.PROP_READ_RETRIES), LibSqlConstants.DEFAULT_READ_RETRIES));
+        this.retryBackoff = Math.max(1, CommonUtils.toLong(
+            driverProperties.get(LibSqlConstants.PROP_RETRY_BACKOFF), LibSqlConstants.DEFAULT_RETRY_BACKOFF));
+        boolean readRouting = CommonUtils.toBoolean(driverProperties.get(LibSqlConstants.PROP_READ_ROUTING));
+        if (urls.size() > 1 && !readRouting) {
+            log.warning("Replica servers of " + url + " are not used: read routing is disabled");
+        }
+        this.endpoints = urls.size() > 1 && readRouting ?
+            LibSqlEndpoints.acquire(urls, driverProperties, retryBackoff, CommonUtils.toLong(
+                driverProperties.get(LibSqlConstants.PROP_HEALTH_CHECK_INTERVAL), LibSqlConstants.DEFAULT_HEALTH_CHECK_INTERVAL)) :
+            null;
+        this.metrics = CommonUtils.toBoolean(driverProperties.get(LibSqlConstants.PROP_METRICS)) ?
+            LibSqlMetrics.createConnectionMetrics(url) :
+            null;
+        this.metricsListener = createMetricsListener(
+            CommonUtils.toString(driverProperties.get(LibSqlConstants.PROP_METRICS_LISTENER), null));
+    }
+
+    @Nullable
+    private static LibSqlMetricsListener createMetricsListener(@Nullable String className) {
+        if (CommonUtils.isEmpty(className)) {
+            return null;
+        }
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Class<?> listenerClass = Class.forName(
+                className, true, classLoader != null ? classLoader : LibSqlClient.class.getClassLoader());
+            return (LibSqlMetricsListener) listenerClass.getConstructor().newInstance();
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Metrics listener '" + className + "' can't be created", e);
+            return null;
+        }
+    }
+
+    @NotNull
+    private LibSqlTransport createTransport(@NotNull URL serverUrl) {
+        return protocol.isHrana() ?
+            new LibSqlHranaTransport(this, serverUrl, protocol) :
+            new LibSqlLegacyTransport(this, serverUrl, valueAdapter);
     }
 
     public void setUserAgent(String userAgent) {
@@ -81,7 +212,177 @@ public class LibSqlClient {
      * @return The result set.
      */
     public LibSqlExecutionResult execute(String stmt, Map<Object, Object> parameters) throws SQLException {
-        return executeBatch(new String[]{stmt}, new Map[]{ parameters })[0];
+        return execute(stmt, parameters, false);
+    }
+
+    /**
+     * Execute a single SQL statement.
+     *
+     * @param streamRows do not read result rows immediately, decode them on demand from the response body.
+     *                   Streaming result must be closed after use.
+     * @return The result set.
+     */
+    public LibSqlExecutionResult execute(String stmt, Map<Object, Object> parameters, boolean streamRows) throws SQLException {
+        return execute(new LibSqlStatementTemplate(stmt), LibSqlParameters.fromMap(parameters), streamRows);
+    }
+
+    /**
+     * Execute a single statement.
+     *
+     * @param streamRows do not read result rows immediately, decode them on demand from the response body.
+     *                   Streaming result must be closed after use.
+     * @return The result set.
+     */
+    public LibSqlExecutionResult execute(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        boolean streamRows
+    ) throws SQLException {
+        return execute(stmt, parameters, streamRows, null);
+    }
+
+    /**
+     * Execute a single statement.
+     *
+     * @param streamRows do not read result rows immediately, decode them on demand from the response body.
+     *                   Streaming result must be closed after use.
+     * @param control    request timeout and cancellation. If not specified, default timeout is used.
+     * @return The result set.
+     */
+    public LibSqlExecutionResult execute(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        boolean streamRows,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        checkOpen();
+        // Results may contain uncommitted changes of the transaction, depend on the session state
+        // which the replica and other connections sharing the cache don't have, or differ between executions
+        boolean sessionResult = transaction != null || sessionStateChanged || stmt.isVolatile();
+        if (replica != null && !sessionResult && stmt.isReadOnly()) {
+            LibSqlExecutionResult result = replica.execute(stmt, parameters);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (resultCache == null) {
+            return executeSingle(stmt, parameters, streamRows, control);
+        }
+        if (!stmt.isReadOnly()) {
+            try {
+                return executeSingle(stmt, parameters, streamRows, control);
+            } finally {
+                resultCache.invalidate();
+            }
+        }
+        // Stream parameters are consumed by the request and can't be compared as a cache key
+        if (sessionResult || parameters.hasStreams()) {
+            return executeSingle(stmt, parameters, streamRows, control);
+        }
+        LibSqlResultCache.Key cacheKey = new LibSqlResultCache.Key(stmt.getSql(), parameters);
+        LibSqlExecutionResult result = resultCache.get(cacheKey, resultCacheTtl);
+        if (result != null) {
+            return result;
+        }
+        long cacheGeneration = resultCache.getGeneration();
+        result = executeSingle(stmt, parameters, streamRows, control);
+        if (!result.isStreaming()) {
+            resultCache.put(cacheKey, result, cacheGeneration);
+        }
+        return result;
+    }
+
+    @NotNull
+    private LibSqlExecutionResult executeSingle(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        boolean streamRows,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        if (coalescer != null && !streamRows && transaction == null && stmt.isReadOnly() && !parameters.hasStreams()) {
+            return executeCoalesced(stmt, parameters, control);
+        }
+        return executeRequest(
+            new LibSqlStatementTemplate[]{ stmt },
+            new LibSqlParameters[]{ parameters },
+            streamRows,
+            control)[0];
+    }
+
+    /**
+     * Executes read-only statement in one request with statements of other threads.
+     * The caller waits for its own result only, so its timeout and cancellation do not affect other statements.
+     * Stats consumer of the request control receives measurements of the combined request.
+     */
+    @NotNull
+    private LibSqlExecutionResult executeCoalesced(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        Duration timeout = control != null ? control.getTimeout() : defaultTimeout;
+        CompletableFuture<LibSqlExecutionResult> future = coalescer.submit(
+            stmt, parameters, timeout, control != null ? control.getStatsConsumer() : null);
+        if (control != null) {
+            control.beginRequest(future);
+        }
+        try {
+            return timeout != null ? future.get(timeout.toNanos(), TimeUnit.NANOSECONDS) : future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw translateSendError(new CancellationException(), timeout);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw translateSendError(e, timeout);
+        } catch (CancellationException e) {
+            throw translateSendError(e, timeout);
+        } catch (ExecutionException e) {
+            throw translateSendError(e.getCause(), timeout);
+        }
+    }
+
+    /**
+     * Executes a statement which result is not needed immediately (e.g. data modification).
+     * In a transaction with write buffering the statement is queued and sent with the next request,
+     * then the returned result has unknown update count ({@link java.sql.Statement#SUCCESS_NO_INFO}).
+     * Errors of queued statements are thrown by the request which sends them.
+     *
+     * @param control request timeout and cancellation. If not specified, default timeout is used.
+     */
+    @NotNull
+    public LibSqlExecutionResult executeDeferred(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        checkOpen();
+        // Stream parameters may be closed by the caller after execution, so they must be sent immediately
+        if (!bufferTransactionWrites || transaction == null || stmt.isReadOnly() || parameters.hasStreams()) {
+            return execute(stmt, parameters, false, control);
+        }
+        transactionLock.lock();
+        try {
+            LibSqlTransaction tx = transaction;
+            if (tx == null) {
+                return execute(stmt, parameters, false, control);
+            }
+            checkNotAborted(tx);
+            tx.addPending(stmt, parameters.copy());
+            trackSessionState(stmt);
+            if (resultCache != null) {
+                resultCache.invalidate();
+            }
+            if (replica != null) {
+                replica.setStale();
+            }
+            if (tx.getPendingCount() >= maxBufferedWrites) {
+                executeInTransaction(tx, new LibSqlStatementTemplate[0], new LibSqlParameters[0], false, control);
+            }
+        } finally {
+            transactionLock.unlock();
+        }
+        return LibSqlExecutionResult.deferred();
     }
 
     /**
@@ -90,63 +391,820 @@ public class LibSqlClient {
     public LibSqlExecutionResult[] executeBatch(
         @NotNull String[] stmts,
         @Nullable Map<Object, Object>[] parameters) throws SQLException {
+        return executeBatch(stmts, parameters, false);
+    }
+
+    /**
+     * Execute a batch of SQL statements.
+     *
+     * @param streamLast do not read rows of the last statement result immediately
+     */
+    public LibSqlExecutionResult[] executeBatch(
+        @NotNull String[] stmts,
+        @Nullable Map<Object, Object>[] parameters,
+        boolean streamLast
+    ) throws SQLException {
+        LibSqlStatementTemplate[] templates = new LibSqlStatementTemplate[stmts.length];
+        LibSqlParameters[] stmtParameters = new LibSqlParameters[stmts.length];
+        for (int i = 0; i < stmts.length; i++) {
+            templates[i] = new LibSqlStatementTemplate(stmts[i]);
+            stmtParameters[i] = LibSqlParameters.fromMap(
+                parameters != null && i < parameters.length ? parameters[i] : null);
+        }
+        return executeBatch(templates, stmtParameters, streamLast);
+    }
+
+    /**
+     * Execute a batch of statements.
+     *
+     * @param parameters parameters of each statement
+     * @param streamLast do not read rows of the last statement result immediately
+     */
+    public LibSqlExecutionResult[] executeBatch(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast
+    ) throws SQLException {
+        return executeBatch(stmts, parameters, streamLast, null);
+    }
+
+    /**
+     * Execute a batch of statements.
+     *
+     * @param parameters parameters of each statement
+     * @param streamLast do not read rows of the last statement result immediately
+     * @param control    request timeout and cancellation. If not specified, default timeout is used.
+     */
+    public LibSqlExecutionResult[] executeBatch(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        checkOpen();
         try {
-            StringWriter requestBuffer = new StringWriter();
-            executeQuery(stmts, parameters, requestBuffer);
-
-            final HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(url.toURI())
-                .version(HttpClient.Version.HTTP_1_1)
-                .header("Content-Type", "application/json")
-                .header("User-Agent", userAgent)
-                .POST(HttpRequest.BodyPublishers.ofString(requestBuffer.toString()));
-            if (authToken != null) {
-                builder.header("Authorization", "Bearer " + authToken);
-            }
-
-            HttpResponse.BodyHandler<String> readerBodyHandler =
-                info -> HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
-
-            final HttpResponse<String> httpResponse = client.send(
-                builder.build(),
-                readerBodyHandler
-            );
+            return executeRequest(stmts, parameters, streamLast, control);
+        } finally {
+            invalidateCache(stmts);
+        }
+    }
+
+    /**
+     * Execute a single statement without blocking the calling thread.
+     * Result rows are read completely. Returned future completes exceptionally with {@link SQLException}.
+     * Cancellation of the returned future aborts the request.
+     */
+    @NotNull
+    public CompletableFuture<LibSqlExecutionResult> executeAsync(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters
+    ) {
+        return executeAsync(stmt, parameters, null);
+    }
+
+    /**
+     * Execute a single statement without blocking the calling thread.
+     *
+     * @param control request timeout and cancellation. If not specified, default timeout is used.
+     * @see #executeAsync(LibSqlStatementTemplate, LibSqlParameters)
+     */
+    @NotNull
+    public CompletableFuture<LibSqlExecutionResult> executeAsync(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        @Nullable LibSqlRequestControl control
+    ) {
+        CompletableFuture<LibSqlExecutionResult[]> batch = executeBatchAsync(
+            new LibSqlStatementTemplate[]{ stmt },
+            new LibSqlParameters[]{ parameters },
+            control);
+        CompletableFuture<LibSqlExecutionResult> result = batch.thenApply(results -> results[0]);
+        // Dependent future doesn't cancel its source, the batch future aborts the request
+        result.whenComplete((r, error) -> {
+            if (error instanceof CancellationException) {
+                batch.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Execute a query reading result rows by pages.
+     * The first page is read immediately, the following pages are requested when the previous page was read.
+     * Statements which can't be paged (not a SELECT, a query without ORDER BY or with LIMIT clause)
+     * and statements with stream parameters, which can be read only once, are executed as usual.
+     *
+     * @param pageSize number of rows in a page
+     * @param prefetch request the next page in background while the current page is read
+     * @param control  request timeout and cancellation. If not specified, default timeout is used.
+     */
+    public LibSqlExecutionResult executePaged(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        int pageSize,
+        boolean prefetch,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        String query = pageSize > 0 && !parameters.hasStreams() ? LibSqlPagedRowStream.getPageableQuery(stmt) : null;
+        if (query == null) {
+            return execute(stmt, parameters, false, control);
+        }
+        LibSqlParameters pageParameters = parameters.copy();
+        LibSqlExecutionResult result = execute(
+            LibSqlPagedRowStream.makePageStatement(query, pageSize, 0), pageParameters, false, control);
+        LibSqlResultRows firstPage = result.getResultRows();
+        if (firstPage.getRowCount() < pageSize) {
+            // All rows fit into a single page
+            return result;
+        }
+        result.setRows(null);
+        result.setRowStream(
+            new LibSqlPagedRowStream(this, query, pageParameters, pageSize, prefetch, control, firstPage),
+            firstPage.getRow(0));
+        return result;
+    }
+
+    /**
+     * Execute a batch of statements without blocking the calling thread.
+     *
+     * @param control request timeout and cancellation. If not specified, default timeout is used.
+     * @see #executeAsync(LibSqlStatementTemplate, LibSqlParameters)
+     */
+    @NotNull
+    public CompletableFuture<LibSqlExecutionResult[]> executeBatchAsync(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        @Nullable LibSqlRequestControl control
+    ) {
+        if (closed.get()) {
+            return CompletableFuture.failedFuture(createClosedError());
+        }
+        if (transaction != null) {
+            // Transaction statements must be executed in order on the transaction stream, not on a standalone one
             try {
-                String responseBody = httpResponse.body();
-                try (Reader isr = new StringReader(responseBody)) {
-                    Response[] response;
-                    if (responseBody.startsWith("[")) {
-                        response = gson.fromJson(isr, Response[].class);
-                    } else {
-                        response = new Response[] {
-                            gson.fromJson(isr, Response.class)
-                        };
+                return CompletableFuture.completedFuture(executeBatch(stmts, parameters, false, control));
+            } catch (SQLException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        LibSqlRequestControl requestControl;
+        if (control != null) {
+            requestControl = control;
+        } else {
+            requestControl = new LibSqlRequestControl();
+            requestControl.setTimeout(defaultTimeout);
+        }
+        Duration timeout = requestControl.getTimeout();
+        markReplicaStale(stmts);
+        // Futures of HTTP client are not returned: cancellation must abort the request by the control
+        CompletableFuture<LibSqlExecutionResult[]> result = new CompletableFuture<>();
+        transport.executeBatchAsync(stmts, parameters, requestControl).whenComplete((results, error) -> {
+            markReplicaStale(stmts);
+            invalidateCache(stmts);
+            if (error != null) {
+                result.completeExceptionally(translateSendError(error, timeout));
+            } else {
+                result.complete(results);
+            }
+        });
+        result.whenComplete((results, error) -> {
+            if (error instanceof CancellationException) {
+                requestControl.cancel();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Connection is in auto-commit mode: each request is executed in its own transaction
+     */
+    public boolean isAutoCommit() {
+        return transaction == null;
+    }
+
+    /**
+     * Switches transaction mode. Enabling auto-commit commits the current transaction.
+     * Transactions are supported only by Hrana protocol: statements of a transaction are executed on a pinned server stream.
+     * With the legacy protocol the connection stays in auto-commit mode, the request is ignored with a warning.
+     */
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        checkOpen();
+        transactionLock.lock();
+        try {
+            LibSqlTransaction tx = transaction;
+            if (autoCommit == (tx == null)) {
+                return;
+            }
+            if (autoCommit) {
+                commit();
+                transaction = null;
+                transport.setStreamPinned(false);
+            } else if (!transport.supportsTransactions()) {
+                log.warning("Transactions are not supported by " + protocol.getId() + " protocol, " +
+                    "statements are committed immediately");
+            } else {
+                transaction = new LibSqlTransaction();
+            }
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    /**
+     * Commits the current transaction. Queued statements are sent in the same request.
+     * Fails if the transaction was aborted, then it must be rolled back.
+     * Does nothing with the legacy protocol.
+     */
+    public void commit() throws SQLException {
+        checkOpen();
+        if (!transport.supportsTransactions()) {
+            return;
+        }
+        transactionLock.lock();
+        try {
+            LibSqlTransaction tx = getTransaction();
+            checkNotAborted(tx);
+            if (tx.isStarted() || tx.getPendingCount() > 0) {
+                try {
+                    executeInTransaction(tx, new LibSqlStatementTemplate[]{ LibSqlTransaction.COMMIT }, new LibSqlParameters[0], false, null);
+                } finally {
+                    // Writes of the transaction become visible to replica synchronization only now
+                    if (replica != null) {
+                        replica.setStale();
                     }
-                    LibSqlExecutionResult[] resultSets = new LibSqlExecutionResult[response.length];
-                    for (int i = 0; i < response.length; i++) {
-                        if (!CommonUtils.isEmpty(response[i].error)) {
-                            throw new SQLException(response[i].error);
-                        }
-                        resultSets[i] = response[i].results;
+                }
+                tx.setStarted(false);
+                transport.setStreamPinned(false);
+            }
+            if (resultCache != null) {
+                resultCache.invalidate();
+            }
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    /**
+     * Rolls back the current transaction. Queued statements are discarded.
+     * Rollback of an aborted transaction only resets its state: the server already discarded it with its stream.
+     * Does nothing with the legacy protocol.
+     */
+    public void rollback() throws SQLException {
+        checkOpen();
+        if (!transport.supportsTransactions()) {
+            return;
+        }
+        transactionLock.lock();
+        try {
+            LibSqlTransaction tx = getTransaction();
+            tx.clearPending();
+            tx.setAborted(false);
+            if (!tx.isStarted()) {
+                return;
+            }
+            try {
+                executeInTransaction(tx, new LibSqlStatementTemplate[]{ LibSqlTransaction.ROLLBACK }, new LibSqlParameters[0], false, null);
+            } finally {
+                // Transaction is either rolled back or lost with its stream
+                tx.setStarted(false);
+                tx.setAborted(false);
+                transport.setStreamPinned(false);
+            }
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    /**
+     * Creates savepoint in the current transaction. The statement is sent with the next request.
+     */
+    public void setSavepoint(@NotNull String name) throws SQLException {
+        addPendingStatement(new LibSqlStatementTemplate("SAVEPOINT " + quoteName(name)));
+    }
+
+    /**
+     * Rolls back changes made after the savepoint. The statement is sent with the next request.
+     */
+    public void rollbackToSavepoint(@NotNull String name) throws SQLException {
+        addPendingStatement(new LibSqlStatementTemplate("ROLLBACK TO " + quoteName(name)));
+    }
+
+    /**
+     * Removes the savepoint. The statement is sent with the next request.
+     */
+    public void releaseSavepoint(@NotNull String name) throws SQLException {
+        addPendingStatement(new LibSqlStatementTemplate("RELEASE " + quoteName(name)));
+    }
+
+    private void addPendingStatement(@NotNull LibSqlStatementTemplate stmt) throws SQLException {
+        checkOpen();
+        transactionLock.lock();
+        try {
+            LibSqlTransaction tx = getTransaction();
+            checkNotAborted(tx);
+            tx.addPending(stmt, new LibSqlParameters());
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    @NotNull
+    private LibSqlTransaction getTransaction() throws SQLException {
+        LibSqlTransaction tx = transaction;
+        if (tx == null) {
+            throw new SQLException("Connection is in auto-commit mode");
+        }
+        return tx;
+    }
+
+    private static void checkNotAborted(@NotNull LibSqlTransaction tx) throws SQLException {
+        if (tx.isAborted()) {
+            throw new SQLException(
+                "Transaction was aborted because its server stream was lost, it must be rolled back",
+                SQL_STATE_TRANSACTION_ROLLBACK);
+        }
+    }
+
+    @NotNull
+    private static String quoteName(@NotNull String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Executes statements in a single request. In a transaction, the transaction prefix is sent in the same request.
+     */
+    @NotNull
+    private LibSqlExecutionResult[] executeRequest(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        markReplicaStale(stmts);
+        trackSessionState(stmts);
+        try {
+            if (transaction == null) {
+                return executeAutoCommit(stmts, parameters, streamLast, control);
+            }
+            transactionLock.lock();
+            try {
+                LibSqlTransaction tx = transaction;
+                if (tx == null) {
+                    return executeAutoCommit(stmts, parameters, streamLast, control);
+                }
+                return executeInTransaction(tx, stmts, parameters, streamLast, control);
+            } finally {
+                transactionLock.unlock();
+            }
+        } finally {
+            // Replica synchronized while the write was executed may not contain it
+            markReplicaStale(stmts);
+        }
+    }
+
+    /**
+     * Executes statements outside of transaction. Read-only requests are routed to the fastest available server
+     * and retried with exponential backoff after server errors and connection failures
+     * until the request timeout expires or the request is cancelled.
+     * Other requests are sent to the primary server once.
+     * After the session state was changed, reads are sent to the primary server and are not retried:
+     * neither a replica nor a new server stream would see the session state.
+     */
+    @NotNull
+    private LibSqlExecutionResult[] executeAutoCommit(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        if (!isIdempotent(stmts, parameters)) {
+            return transport.executeBatch(stmts, parameters, streamLast, control);
+        }
+        boolean sessionState = sessionStateChanged;
+        int retries = sessionState && protocol.isHrana() ? 0 : readRetries;
+        // Retries are limited by the request timeout and stopped by cancellation
+        Duration timeout = control != null ? control.getTimeout() : defaultTimeout;
+        long deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        int cancelCount = control != null ? control.getCancelCount() : 0;
+        LibSqlRequestControl attemptControl = control;
+        for (int attempt = 0; ; attempt++) {
+            LibSqlEndpoints.Endpoint endpoint = endpoints != null && !sessionState ? endpoints.selectForRead() : null;
+            long startTime = System.nanoTime();
+            try {
+                LibSqlExecutionResult[] results = getTransport(endpoint).executeBatch(stmts, parameters, streamLast, attemptControl);
+                if (endpoint != null) {
+                    endpoints.reportSuccess(endpoint, System.nanoTime() - startTime);
+                }
+                return results;
+            } catch (SQLException e) {
+                if (!isTransientError(e)) {
+                    throw e;
+                }
+                if (endpoint != null) {
+                    endpoints.reportFailure(endpoint);
+                }
+                if (attempt >= retries) {
+                    throw e;
+                }
+                long delay = LibSqlEndpoints.getBackoffDelay(retryBackoff, attempt);
+                if (timeout != null && deadline - System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(delay) <= 0) {
+                    throw new SQLTimeoutException("Query timeout expired (" + timeout + ")", SQL_STATE_TIMEOUT, e);
+                }
+                try {
+                    if (control == null) {
+                        Thread.sleep(delay);
+                    } else if (!control.waitForRetry(delay, cancelCount)) {
+                        throw new SQLException("Statement was cancelled", SQL_STATE_CANCELLED, e);
                     }
-                    return resultSets;
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
                 }
-            } catch (Exception e) {
-                switch (httpResponse.statusCode()) {
-                    case HttpURLConnection.HTTP_UNAUTHORIZED ->
-                        throw new SQLException("Authentication required", e);
-                    case HttpURLConnection.HTTP_FORBIDDEN ->
-                        throw new SQLException("Access denied", e);
+            } finally {
+                if (control != null && attemptControl != control) {
+                    control.unlinkControl(attemptControl);
                 }
-                throw e;
             }
-        } catch (Exception e) {
-            if (e instanceof SQLException sqle) {
-                throw sqle;
+            if (timeout != null) {
+                Duration timeLeft = Duration.ofNanos(deadline - System.nanoTime());
+                if (control == null) {
+                    attemptControl = new LibSqlRequestControl();
+                    attemptControl.setTimeout(timeLeft);
+                } else {
+                    attemptControl = control.createLinkedControl(timeLeft);
+                }
+            }
+            if (control != null && control.getCancelCount() != cancelCount) {
+                if (attemptControl != control) {
+                    control.unlinkControl(attemptControl);
+                }
+                throw new SQLException("Statement was cancelled", SQL_STATE_CANCELLED);
+            }
+        }
+    }
+
+    /**
+     * Request can be safely repeated: all statements are read-only and parameters can be sent again
+     */
+    private static boolean isIdempotent(@NotNull LibSqlStatementTemplate[] stmts, @NotNull LibSqlParameters[] parameters) {
+        for (LibSqlStatementTemplate stmt : stmts) {
+            if (!stmt.isReadOnly()) {
+                return false;
             }
-            throw new SQLException(e);
         }
+        return !LibSqlTransport.isStreamingBody(parameters);
+    }
 
+    /**
+     * Server error (5xx) or broken connection. Timeouts and cancellations are not transient.
+     */
+    private static boolean isTransientError(@NotNull SQLException e) {
+        if (e instanceof SQLTransientConnectionException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException || cause instanceof HttpTimeoutException ||
+                cause instanceof InterruptedIOException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Transport of the server, the connection transport is used for the primary server
+     */
+    @NotNull
+    private LibSqlTransport getTransport(@Nullable LibSqlEndpoints.Endpoint endpoint) {
+        if (endpoint == null || endpoint.isPrimary()) {
+            return transport;
+        }
+        synchronized (replicaTransports) {
+            return replicaTransports.computeIfAbsent(endpoint, e -> createTransport(e.getUrl()));
+        }
+    }
+
+    /**
+     * Request metrics of the connection or null if metrics are disabled (see {@link LibSqlConstants#PROP_METRICS})
+     */
+    @Nullable
+    public LibSqlMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets listener of request measurements. Replaces the listener configured by driver properties.
+     */
+    public void setMetricsListener(@Nullable LibSqlMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Starts measurements of a request or returns null if nobody needs them
+     */
+    @Nullable
+    LibSqlRequestStats startRequestStats(@NotNull URL server, int statementCount, @Nullable LibSqlRequestControl control) {
+        Consumer<LibSqlRequestStats> consumer = control != null ? control.getStatsConsumer() : null;
+        return metrics != null || metricsListener != null || consumer != null ?
+            new LibSqlRequestStats(server, statementCount, consumer) :
+            null;
+    }
+
+    /**
+     * Records measurements of a finished request
+     */
+    void finishRequestStats(@Nullable LibSqlRequestStats stats) {
+        if (stats == null) {
+            return;
+        }
+        stats.finish();
+        if (metrics != null) {
+            metrics.record(stats);
+        }
+        LibSqlMetricsListener listener = metricsListener;
+        if (listener != null) {
+            try {
+                listener.requestCompleted(stats);
+            } catch (RuntimeException e) {
+                log.log(Level.FINE, "Error in metrics listener", e);
+            }
+        }
+        Consumer<LibSqlRequestStats> consumer = stats.getConsumer();
+        if (consumer != null) {
+            consumer.accept(stats);
+        }
+    }
+
+    /**
+     * Servers of a multi-host connection or null if the connection has a single server
+     */
+    @Nullable
+    public LibSqlEndpoints getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Executes statements preceded by BEGIN (if the transaction was not started yet) and queued statements.
+     * Returns results of the given statements only.
+     * If the request breaks the server stream of a transaction with changes (e.g. by a timeout or an IO error),
+     * the transaction is aborted: a new BEGIN is not sent until the transaction is rolled back.
+     */
+    @NotNull
+    private LibSqlExecutionResult[] executeInTransaction(
+        @NotNull LibSqlTransaction tx,
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        checkNotAborted(tx);
+        int prefixLength = tx.getPrefixLength();
+        boolean hadChanges = tx.isStarted() || tx.getPendingCount() > 0;
+        transport.setStreamPinned(tx.isStarted());
+        try {
+            if (prefixLength == 0) {
+                return transport.executeBatch(stmts, parameters, streamLast, control);
+            }
+            LibSqlExecutionResult[] results = transport.executeBatch(
+                tx.withPrefix(stmts), tx.withPrefix(parameters, stmts.length), false, control);
+            return Arrays.copyOfRange(results, prefixLength, results.length);
+        } finally {
+            tx.clearPending();
+            // Transaction is lost if the request broke the server stream
+            boolean streamOpen = transport.isStreamOpen();
+            if (!streamOpen && hadChanges) {
+                tx.setAborted(true);
+            }
+            tx.setStarted(streamOpen);
+            transport.setStreamPinned(tx.isStarted());
+        }
+    }
+
+    /**
+     * Opens embedded replica configured by driver properties (see {@link LibSqlConstants#PROP_REPLICA_PATH}).
+     * Read-only queries executed outside of transactions are served by the replica while it is not stale.
+     * Replica is released when the client is closed.
+     */
+    public void openReplica(@NotNull Map<String, Object> driverProperties) throws SQLException {
+        String replicaPath = CommonUtils.toString(driverProperties.get(LibSqlConstants.PROP_REPLICA_PATH), null);
+        if (CommonUtils.isEmpty(replicaPath) || replica != null) {
+            return;
+        }
+        replica = LibSqlReplica.acquire(replicaPath, url, authToken, driverProperties,
+            CommonUtils.toLong(driverProperties.get(LibSqlConstants.PROP_REPLICA_SYNC_INTERVAL)));
+    }
+
+    /**
+     * Embedded replica or null if replica is not configured
+     */
+    @Nullable
+    public LibSqlReplica getReplica() {
+        return replica;
+    }
+
+    /**
+     * Statements of the connection changed the session state of the server stream
+     * (temporary objects, attached databases, pragmas)
+     */
+    boolean isSessionStateChanged() {
+        return sessionStateChanged;
+    }
+
+    /**
+     * Remembers that statements changed the session state of the primary server
+     */
+    private void trackSessionState(@NotNull LibSqlStatementTemplate... stmts) {
+        if (!sessionStateChanged) {
+            for (LibSqlStatementTemplate stmt : stmts) {
+                if (stmt.isSessionStateChange()) {
+                    sessionStateChanged = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes make embedded replica stale until the next synchronization
+     */
+    private void markReplicaStale(@NotNull LibSqlStatementTemplate[] stmts) {
+        if (replica != null) {
+            for (LibSqlStatementTemplate stmt : stmts) {
+                if (!stmt.isReadOnly()) {
+                    replica.setStale();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Results cache of the server or null if caching is disabled
+     */
+    @Nullable
+    public LibSqlResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Invalidates cached results if any of statements may modify data
+     */
+    private void invalidateCache(@NotNull LibSqlStatementTemplate[] stmts) {
+        if (resultCache != null) {
+            for (LibSqlStatementTemplate stmt : stmts) {
+                if (!stmt.isReadOnly()) {
+                    resultCache.invalidate();
+                    return;
+                }
+            }
+        }
+    }
+
+    @NotNull
+    public LibSqlProtocol getProtocol() {
+        return protocol;
+    }
+
+    @NotNull
+    URL getUrl() {
+        return url;
+    }
+
+    /**
+     * Posts JSON request body.
+     * Request is sent asynchronously, so it can be aborted by the request control from another thread.
+     */
+    @NotNull
+    HttpResponse<InputStream> sendRequest(
+        @NotNull URI uri,
+        @NotNull HttpRequest.BodyPublisher body,
+        @Nullable LibSqlRequestControl control
+    ) throws IOException, InterruptedException, SQLException {
+        Duration timeout = control != null ? control.getTimeout() : defaultTimeout;
+        LibSqlRequestControl bodyControl = control;
+        if (bodyControl == null && timeout != null) {
+            bodyControl = new LibSqlRequestControl();
+            bodyControl.setTimeout(timeout);
+        }
+        HttpResponse.BodyHandler<InputStream> bodyHandler = HttpResponse.BodyHandlers.ofInputStream();
+        if (bodyControl != null) {
+            // Request timeout of HTTP client expires when headers are received, the body is limited by the control
+            LibSqlRequestControl deadlineControl = bodyControl;
+            long startTime = System.nanoTime();
+            bodyHandler = responseInfo -> HttpResponse.BodySubscribers.mapping(
+                HttpResponse.BodySubscribers.ofInputStream(),
+                stream -> deadlineControl.trackResponseBody(stream, startTime));
+        }
+        CompletableFuture<HttpResponse<InputStream>> future = client.sendAsync(
+            buildRequest(uri, body, timeout),
+            bodyHandler);
+        if (control != null) {
+            control.beginRequest(future);
+        }
+        try {
+            HttpResponse<InputStream> response = future.get();
+            if (control != null) {
+                control.setResponseBody(response.body());
+            }
+            return response;
+        } catch (CancellationException e) {
+            throw translateSendError(e, timeout);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe && !(ioe instanceof HttpTimeoutException)) {
+                throw ioe;
+            }
+            throw translateSendError(e.getCause(), timeout);
+        }
+    }
+
+    /**
+     * Posts JSON request body without blocking. Response body is read completely.
+     */
+    @NotNull
+    CompletableFuture<HttpResponse<byte[]>> sendRequestAsync(
+        @NotNull URI uri,
+        @NotNull HttpRequest.BodyPublisher body,
+        @NotNull LibSqlRequestControl control
+    ) {
+        CompletableFuture<HttpResponse<byte[]>> future = client.sendAsync(
+            buildRequest(uri, body, control.getTimeout()),
+            HttpResponse.BodyHandlers.ofByteArray());
+        control.beginRequest(future);
+        return future;
+    }
+
+    @NotNull
+    private HttpRequest buildRequest(
+        @NotNull URI uri,
+        @NotNull HttpRequest.BodyPublisher body,
+        @Nullable Duration timeout
+    ) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .uri(uri)
+            .header("Content-Type", "application/json")
+            .header("User-Agent", userAgent)
+            .POST(body);
+        if (authToken != null) {
+            builder.header("Authorization", "Bearer " + authToken);
+        }
+        if (timeout != null) {
+            builder.timeout(timeout);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Converts error of request sending to SQL exception
+     */
+    @NotNull
+    private static SQLException translateSendError(@NotNull Throwable error, @Nullable Duration timeout) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof CancellationException) {
+            return new SQLException("Statement was cancelled", SQL_STATE_CANCELLED, error);
+        } else if (error instanceof HttpTimeoutException || error instanceof TimeoutException) {
+            return new SQLTimeoutException("Query timeout expired (" + timeout + ")", SQL_STATE_TIMEOUT, error);
+        } else if (error instanceof SQLException sqle) {
+            return sqle;
+        }
+        return new SQLException(error);
+    }
+
+    /**
+     * Default timeout of requests without a request control
+     */
+    @Nullable
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * Converts response processing error to SQL exception according to response status
+     */
+    @NotNull
+    SQLException translateError(int statusCode, @NotNull Exception e) {
+        switch (statusCode) {
+            case HttpURLConnection.HTTP_UNAUTHORIZED -> {
+                return new SQLException("Authentication required", e);
+            }
+            case HttpURLConnection.HTTP_FORBIDDEN -> {
+                return new SQLException("Access denied", e);
+            }
+        }
+        if (statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+            return new SQLTransientConnectionException(e.getMessage(), SQL_STATE_CONNECTION_FAILURE, e);
+        }
+        if (e instanceof HttpTimeoutException) {
+            return new SQLTimeoutException(e.getMessage(), SQL_STATE_TIMEOUT, e);
+        }
+        return e instanceof SQLException sqle ? sqle : new SQLException(e);
     }
 
     public HttpURLConnection openSimpleConnection(String endpoint) throws IOException {
@@ -160,84 +1218,48 @@ public class LibSqlClient {
         return connection;
     }
 
-    private void executeQuery(
-        @NotNull String[] queries,
-        @Nullable Map<Object, Object>[] parameters,
-        @NotNull Writer os
-    ) throws IOException {
-        JsonWriter jsonWriter = new JsonWriter(os);
-        jsonWriter.beginObject();
-        jsonWriter.name("statements");
-        jsonWriter.beginArray();
-        for (int i = 0; i < queries.length; i++) {
-            String stmt = queries[i];
-            if (parameters != null && i < parameters.length && !CommonUtils.isEmpty(parameters[i])) {
-                // Query with parameters
-                jsonWriter.beginObject();
-                jsonWriter.name("q");
-                jsonWriter.value(stmt);
-                jsonWriter.name("params");
-                if (isIndexedParams(parameters[i])) {
-                    Map<Integer, Object> paramTree = new TreeMap<>();
-                    for (Map.Entry<?,?> entry : parameters[i].entrySet()) {
-                        paramTree.put((Integer) entry.getKey(), entry.getValue());
-                    }
-                    jsonWriter.beginArray();
-                    for (Object value : paramTree.values()) {
-                        serializeParameterValue(value, jsonWriter);
-                    }
-                    jsonWriter.endArray();
-                } else {
-                    jsonWriter.beginObject();
-                    for (Map.Entry<?, ?> param : parameters[i].entrySet()) {
-                        jsonWriter.name(String.valueOf(param.getKey()));
-                        serializeParameterValue(param.getValue(), jsonWriter);
-                    }
-                    jsonWriter.endObject();
-                }
-
-                jsonWriter.endObject();
-            } else {
-                // Simple query
-                jsonWriter.value(stmt);
-            }
-        }
-        jsonWriter.endArray();
-        jsonWriter.endObject();
-        jsonWriter.flush();
+    public boolean isClosed() {
+        return closed.get();
     }
 
-    private boolean isIndexedParams(Map<Object, Object> parameter) {
-        if (!parameter.isEmpty()) {
-            return parameter.keySet().iterator().next() instanceof Integer;
+    private void checkOpen() throws SQLException {
+        if (closed.get()) {
+            throw createClosedError();
         }
-        return false;
     }
 
-    private static void serializeParameterValue(Object value, JsonWriter jsonWriter) throws IOException {
-        if (value == null) {
-            jsonWriter.nullValue();
-        } else if (value instanceof Number nValue) {
-            jsonWriter.value(nValue);
-        } else if (value instanceof Boolean bValue) {
-            jsonWriter.value(bValue);
-        } else if (value instanceof String strValue) {
-            jsonWriter.value(strValue);
-        } else {
-            jsonWriter.value(value.toString());
-        }
+    @NotNull
+    private static SQLException createClosedError() {
+        return new SQLException("Connection is closed", SQL_STATE_CONNECTION_CLOSED);
     }
 
     /**
-     * Closes client. Terminates client executor.
+     * Closes client. Releases HTTP client and other shared resources.
+     * Does nothing if the client is already closed.
      */
     public void close() {
-        clientExecutor.shutdown();
-    }
-
-    private static class Response {
-        public String error;
-        public LibSqlExecutionResult results;
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        transport.close();
+        synchronized (replicaTransports) {
+            replicaTransports.values().forEach(LibSqlTransport::close);
+            replicaTransports.clear();
+        }
+        if (endpoints != null) {
+            endpoints.release();
+        }
+        clientHandle.release();
+        if (resultCache != null) {
+            resultCache.release();
+        }
+        if (replica != null) {
+            replica.release();
+            replica = null;
+        }
+        if (metrics != null) {
+            metrics.unregister();
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,309 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Servers of a multi-host connection: the primary server followed by read replicas.
+ * Writes and transactions use the primary server, read-only queries are routed to the available server
+ * with the lowest response time. A server which failed a request is not used for an exponentially growing
+ * period of time. Servers are checked by the health endpoint in background, so a server which is down is not
+ * chosen until it is up again.
+ * Endpoints state is shared by all connections with the same servers list and disposed with the last of them.
+ */
+public final class LibSqlEndpoints {
+
+    private static final Logger log = Logger.getLogger(LibSqlEndpoints.class.getName());
+
+    private static final Map<String, LibSqlEndpoints> sharedEndpoints = new HashMap<>();
+    private static ScheduledExecutorService healthCheckExecutor;
+
+    // Weight of the last response time in the average
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    /**
+     * Server of a multi-host connection
+     */
+    public static final class Endpoint {
+        @NotNull
+        private final URL url;
+        private final boolean primary;
+        // Smoothed response time, zero if unknown
+        private volatile long latencyNanos;
+        private volatile boolean healthy = true;
+        private volatile int failureCount;
+        // System.nanoTime() until which the server is not used after a failure
+        private volatile long retryAfter;
+
+        private Endpoint(@NotNull URL url, boolean primary) {
+            this.url = url;
+            this.primary = primary;
+        }
+
+        @NotNull
+        public URL getUrl() {
+            return url;
+        }
+
+        public boolean isPrimary() {
+            return primary;
+        }
+
+        /**
+         * Smoothed response time in nanoseconds, zero if it is not known yet
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * Server passed the last health check and there are no recent request failures
+         */
+        public boolean isAvailable() {
+            return healthy && failureCount == 0;
+        }
+
+        private boolean isAvailable(long now) {
+            return healthy && (failureCount == 0 || now - retryAfter >= 0);
+        }
+
+        private void updateLatency(long elapsedNanos) {
+            long latency = latencyNanos;
+            latencyNanos = latency == 0 ? elapsedNanos : (long) (latency * (1 - LATENCY_SMOOTHING) + elapsedNanos * LATENCY_SMOOTHING);
+        }
+
+        @Override
+        public String toString() {
+            return url.toString();
+        }
+    }
+
+    @NotNull
+    private final String key;
+    @NotNull
+    private final List<Endpoint> endpoints;
+    private final long backoffMs;
+    @Nullable
+    private final LibSqlHttpClients.Handle healthCheckClient;
+    @Nullable
+    private ScheduledFuture<?> healthCheckTask;
+    private int refCount = 1;
+
+    private LibSqlEndpoints(
+        @NotNull String key,
+        @NotNull List<URL> urls,
+        long backoffMs,
+        @Nullable LibSqlHttpClients.Handle healthCheckClient
+    ) {
+        this.key = key;
+        List<Endpoint> endpointList = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            endpointList.add(new Endpoint(urls.get(i), i == 0));
+        }
+        this.endpoints = Collections.unmodifiableList(endpointList);
+        this.backoffMs = Math.max(1, backoffMs);
+        this.healthCheckClient = healthCheckClient;
+    }
+
+    @NotNull
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    @NotNull
+    public Endpoint getPrimary() {
+        return endpoints.get(0);
+    }
+
+    /**
+     * Chooses server for a read-only request: the available server with the lowest response time.
+     * Servers with unknown response time are tried first, servers which are retried after a failure are tried last.
+     * If no server is available,
+     * the one which will be retried soonest is returned.
+     */
+    @NotNull
+    Endpoint selectForRead() {
+        long now = System.nanoTime();
+        Endpoint best = null;
+        Endpoint fallback = null;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable(now)) {
+                // Servers which failed recently are used only if there are no other servers
+                boolean failed = endpoint.failureCount > 0;
+                boolean bestFailed = best != null && best.failureCount > 0;
+                if (best == null || (bestFailed && !failed) ||
+                    (failed == bestFailed && endpoint.latencyNanos < best.latencyNanos)) {
+                    best = endpoint;
+                }
+            } else if (fallback == null || (endpoint.healthy && !fallback.healthy) ||
+                (endpoint.healthy == fallback.healthy && endpoint.retryAfter - fallback.retryAfter < 0)) {
+                fallback = endpoint;
+            }
+        }
+        return best != null ? best : fallback;
+    }
+
+    void reportSuccess(@NotNull Endpoint endpoint, long elapsedNanos) {
+        synchronized (endpoint) {
+            endpoint.failureCount = 0;
+        }
+        endpoint.updateLatency(elapsedNanos);
+    }
+
+    void reportFailure(@NotNull Endpoint endpoint) {
+        synchronized (endpoint) {
+            endpoint.failureCount++;
+            endpoint.retryAfter = System.nanoTime() +
+                TimeUnit.MILLISECONDS.toNanos(getBackoffDelay(backoffMs, endpoint.failureCount - 1));
+        }
+        log.fine("Server " + endpoint + " failed, it is not used for reads for a while");
+    }
+
+    /**
+     * Exponential backoff with jitter: the delay is doubled by each attempt, a random half of it is subtracted
+     */
+    static long getBackoffDelay(long baseMs, int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, baseMs << Math.min(attempt, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void checkHealth() {
+        if (healthCheckClient == null) {
+            return;
+        }
+        for (Endpoint endpoint : endpoints) {
+            HttpRequest request;
+            try {
+                request = HttpRequest.newBuilder()
+                    .uri(getHealthURI(endpoint.url))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            } catch (URISyntaxException e) {
+                continue;
+            }
+            long startTime = System.nanoTime();
+            healthCheckClient.getClient().sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    // Servers without health endpoint answer with 404, they are alive anyway
+                    boolean healthy = error == null && response.statusCode() < 500;
+                    if (healthy != endpoint.healthy) {
+                        log.log(healthy ? Level.INFO : Level.WARNING,
+                            "Server " + endpoint + (healthy ? " is up" : " is down"));
+                    }
+                    // Failure backoff is not reset: the server may answer health checks but fail requests
+                    if (healthy) {
+                        endpoint.updateLatency(System.nanoTime() - startTime);
+                    }
+                    endpoint.healthy = healthy;
+                });
+        }
+    }
+
+    @NotNull
+    private static URI getHealthURI(@NotNull URL url) throws URISyntaxException {
+        String base = url.toString();
+        if (!base.endsWith("/")) {
+            base += "/";
+        }
+        return new URI(base + "health");
+    }
+
+    /**
+     * Returns endpoints of the servers list. Endpoints must be released when connection is closed.
+     *
+     * @param urls                primary server URL followed by replica URLs
+     * @param backoffMs           initial period of time a failed server is not used
+     * @param healthCheckInterval interval of server health checks in milliseconds, zero disables health checks
+     */
+    @NotNull
+    static LibSqlEndpoints acquire(
+        @NotNull List<URL> urls,
+        @NotNull Map<String, Object> driverProperties,
+        long backoffMs,
+        long healthCheckInterval
+    ) {
+        String key = urls.stream().map(URL::toString).collect(Collectors.joining(","));
+        synchronized (sharedEndpoints) {
+            LibSqlEndpoints endpoints = sharedEndpoints.get(key);
+            if (endpoints != null) {
+                endpoints.refCount++;
+                return endpoints;
+            }
+            LibSqlHttpClients.Handle healthCheckClient = healthCheckInterval > 0 ?
+                LibSqlHttpClients.acquire(urls.get(0), null, driverProperties) : null;
+            endpoints = new LibSqlEndpoints(key, urls, backoffMs, healthCheckClient);
+            if (healthCheckClient != null) {
+                endpoints.healthCheckTask = getHealthCheckExecutor().scheduleWithFixedDelay(
+                    endpoints::checkHealth, 0, healthCheckInterval, TimeUnit.MILLISECONDS);
+            }
+            sharedEndpoints.put(key, endpoints);
+            return endpoints;
+        }
+    }
+
+    void release() {
+        synchronized (sharedEndpoints) {
+            if (--refCount > 0) {
+                return;
+            }
+            sharedEndpoints.remove(key);
+            if (healthCheckTask != null) {
+                healthCheckTask.cancel(false);
+            }
+            if (healthCheckClient != null) {
+                healthCheckClient.release();
+            }
+        }
+    }
+
+    @NotNull
+    private static synchronized ScheduledExecutorService getHealthCheckExecutor() {
+        if (healthCheckExecutor == null) {
+            healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "LibSQL health check");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return healthCheckExecutor;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -16,37 +16,241 @@
  */
 package com.dbeaver.jdbc.driver.libsql.client;
 
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Statement;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * Result of a single statement execution.
+ * Rows are either fully materialized or streamed from the response body (see {@link #isStreaming()}).
+ */
 public class LibSqlExecutionResult {
 
     private List<String> columns;
-    private List<Object[]> rows;
-    private long rows_read;
-    private long rows_written;
-    private double query_duration_ms;
+    @Nullable
+    private List<String> columnTypes;
+    private LibSqlResultRows rows;
+    private long rowsRead;
+    private long rowsWritten;
+    private long updateCount;
+    private double queryDurationMs;
+
+    @Nullable
+    private LibSqlRowStream rowStream;
+    @Nullable
+    private Object[] firstRow;
+    @Nullable
+    private Object[] pendingRow;
+
+    LibSqlExecutionResult() {
+    }
+
+    /**
+     * Creates materialized result of rows produced on the client side (e.g. metadata)
+     */
+    public static LibSqlExecutionResult of(@NotNull List<String> columns, @NotNull List<Object[]> rows) {
+        LibSqlResultRows.Builder builder = new LibSqlResultRows.Builder(columns.size());
+        for (Object[] row : rows) {
+            builder.appendRow(row);
+        }
+        LibSqlExecutionResult result = new LibSqlExecutionResult();
+        result.columns = columns;
+        result.rows = builder.build();
+        return result;
+    }
 
     public List<String> getColumns() {
         return columns;
     }
 
-    public List<Object[]> getRows() {
+    /**
+     * Declared types of result columns reported by the server (Hrana protocol).
+     * Returns null if types are unknown, elements are null for columns which are not table columns (e.g. expressions).
+     */
+    @Nullable
+    public List<String> getColumnTypes() {
+        return columnTypes;
+    }
+
+    /**
+     * Returns result rows.
+     * For streaming results reads all remaining rows from the response.
+     */
+    public LibSqlResultRows getResultRows() {
+        if (rowStream != null || pendingRow != null) {
+            try {
+                LibSqlResultRows.Builder remaining = new LibSqlResultRows.Builder(columns == null ? 0 : columns.size());
+                for (Object[] row = nextRow(); row != null; row = nextRow()) {
+                    remaining.appendRow(row);
+                }
+                rows = remaining.build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         return rows;
     }
 
+    /**
+     * Returns result rows as value arrays. Values are boxed on access,
+     * {@link #getResultRows()} gives access to values without boxing.
+     */
+    public List<Object[]> getRows() {
+        LibSqlResultRows resultRows = getResultRows();
+        if (resultRows == null) {
+            return null;
+        }
+        return new AbstractList<>() {
+            @Override
+            public Object[] get(int index) {
+                Objects.checkIndex(index, resultRows.getRowCount());
+                return resultRows.getRow(index);
+            }
+
+            @Override
+            public int size() {
+                return resultRows.getRowCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the first row of the result or null if result is empty.
+     * Doesn't move the streaming cursor.
+     */
+    @Nullable
+    public Object[] getFirstRow() {
+        if (firstRow == null && rows != null && rows.getRowCount() > 0) {
+            return rows.getRow(0);
+        }
+        return firstRow;
+    }
+
+    /**
+     * Streaming results are decoded row by row from the response body
+     * and can be iterated only once with {@link #nextRow()}.
+     */
+    public boolean isStreaming() {
+        return rowStream != null || pendingRow != null;
+    }
+
+    /**
+     * Reads next row of a streaming result.
+     *
+     * @return next row or null if there are no more rows
+     */
+    @Nullable
+    public Object[] nextRow() throws IOException {
+        if (pendingRow != null) {
+            Object[] row = pendingRow;
+            pendingRow = null;
+            return row;
+        }
+        if (rowStream == null) {
+            return null;
+        }
+        return rowStream.readRow(this);
+    }
+
+    /**
+     * Creates result of a statement queued for later execution. Update count is unknown.
+     */
+    @NotNull
+    static LibSqlExecutionResult deferred() {
+        LibSqlExecutionResult result = new LibSqlExecutionResult();
+        result.columns = List.of();
+        result.rows = LibSqlResultRows.empty();
+        result.updateCount = Statement.SUCCESS_NO_INFO;
+        return result;
+    }
+
+    /**
+     * Releases response stream of a streaming result.
+     */
+    public void close() {
+        pendingRow = null;
+        if (rowStream != null) {
+            rowStream.close();
+            rowStream = null;
+        }
+    }
+
     public long getUpdateCount() {
-        return rows_written;
+        return updateCount;
     }
 
     public long getRowsRead() {
-        return rows_read;
+        return rowsRead;
     }
 
     public double getRowsWritten() {
-        return rows_written;
+        return rowsWritten;
     }
 
     public double getQueryDurationMs() {
-        return query_duration_ms;
+        return queryDurationMs;
+    }
+
+    /**
+     * Creates a result which shares columns and rows of this materialized result
+     */
+    LibSqlExecutionResult copy() {
+        LibSqlExecutionResult result = new LibSqlExecutionResult();
+        result.columns = columns;
+        result.columnTypes = columnTypes;
+        result.rows = getResultRows();
+        result.rowsRead = rowsRead;
+        result.rowsWritten = rowsWritten;
+        result.updateCount = updateCount;
+        result.queryDurationMs = queryDurationMs;
+        return result;
+    }
+
+    void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    void setColumnTypes(@Nullable List<String> columnTypes) {
+        this.columnTypes = columnTypes;
+    }
+
+    void setRows(LibSqlResultRows rows) {
+        this.rows = rows;
+    }
+
+    void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
     }
+
+    void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    void setUpdateCount(long updateCount) {
+        this.updateCount = updateCount;
+    }
+
+    void setQueryDurationMs(double queryDurationMs) {
+        this.queryDurationMs = queryDurationMs;
+    }
+
+    void setRowStream(@Nullable LibSqlRowStream rowStream, @Nullable Object[] firstRow) {
+        this.rowStream = rowStream;
+        this.firstRow = firstRow;
+        this.pendingRow = firstRow;
+    }
+
+    void endRowStream() {
+        this.rowStream = null;
+        if (this.rows == null) {
+            this.rows = LibSqlResultRows.empty();
+        }
+    }
+
 }
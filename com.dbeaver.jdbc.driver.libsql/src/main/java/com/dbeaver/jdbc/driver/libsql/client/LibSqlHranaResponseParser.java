@@ -0,0 +1,420 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.stream.JsonToken;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Parser of the Hrana pipeline response
+ */
+class LibSqlHranaResponseParser extends LibSqlResponseParser {
+
+    /**
+     * Result of a single pipeline request
+     */
+    static class StreamResult {
+        @Nullable
+        String error;
+        @Nullable
+        LibSqlExecutionResult result;
+        @Nullable
+        List<LibSqlExecutionResult> stepResults;
+        @Nullable
+        List<String> stepErrors;
+    }
+
+    @Nullable
+    private String baton;
+    @Nullable
+    private String baseUrl;
+    private boolean batonRead;
+    @Nullable
+    private String errorCode;
+
+    // Attributes of the last read value
+    @Nullable
+    private String valueType;
+    @Nullable
+    private String valueText;
+    @Nullable
+    private String valueBase64;
+
+    LibSqlHranaResponseParser(@NotNull InputStream stream) {
+        super(stream);
+    }
+
+    @Nullable
+    String getBaton() {
+        return baton;
+    }
+
+    @Nullable
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Code of the error response read by {@link #readErrorResponse()}
+     */
+    @Nullable
+    String getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Reads pipeline response.
+     *
+     * @param streamIndex index of the execute request whose rows are left in the stream, or -1
+     */
+    @NotNull
+    List<StreamResult> readPipeline(int streamIndex) throws IOException {
+        List<StreamResult> results = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "baton" -> {
+                    baton = readNullableString();
+                    batonRead = true;
+                }
+                case "base_url" -> baseUrl = readNullableString();
+                case "results" -> {
+                    // Streaming requires the baton as the next request may be sent while rows are still read
+                    boolean streaming = batonRead && streamIndex >= 0;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        StreamResult result = new StreamResult();
+                        results.add(result);
+                        if (readStreamResult(result, streaming && results.size() - 1 == streamIndex)) {
+                            return results;
+                        }
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        close();
+        return results;
+    }
+
+    /**
+     * Reads error response body
+     */
+    @Nullable
+    String readErrorResponse() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
+        }
+        String message = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "message" -> message = readNullableString();
+                case "code" -> errorCode = readNullableString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return message;
+    }
+
+    @Override
+    protected void readResponseTail(@NotNull LibSqlExecutionResult result) throws IOException {
+        // Statement result
+        while (reader.hasNext()) {
+            readResultAttribute(result, reader.nextName());
+        }
+        reader.endObject();
+        // Response and stream result
+        for (int i = 0; i < 2; i++) {
+            while (reader.hasNext()) {
+                reader.nextName();
+                reader.skipValue();
+            }
+            reader.endObject();
+        }
+        // Rest of pipeline
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("baton".equals(name)) {
+                baton = readNullableString();
+            } else if ("base_url".equals(name)) {
+                baseUrl = readNullableString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * @return true if rows were left in the stream
+     */
+    private boolean readStreamResult(@NotNull StreamResult result, boolean streamRows) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "error" -> {
+                    result.error = readError();
+                    if (result.error == null) {
+                        result.error = "Unknown error";
+                    }
+                }
+                case "response" -> {
+                    if (readStreamResponse(result, streamRows)) {
+                        return true;
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return false;
+    }
+
+    private boolean readStreamResponse(@NotNull StreamResult result, boolean streamRows) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"result".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            // Execute and batch results are distinguished by their content
+            reader.beginObject();
+            LibSqlExecutionResult stmtResult = null;
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "step_results" -> result.stepResults = readStepResults();
+                    case "step_errors" -> result.stepErrors = readStepErrors();
+                    case "rows" -> {
+                        if (stmtResult == null) {
+                            stmtResult = new LibSqlExecutionResult();
+                        }
+                        result.result = stmtResult;
+                        if (streamRows && stmtResult.getColumns() != null) {
+                            startRowStream(stmtResult);
+                            return true;
+                        }
+                        stmtResult.setRows(readRows(stmtResult.getColumns() == null ? -1 : stmtResult.getColumns().size()));
+                    }
+                    default -> {
+                        if (stmtResult == null) {
+                            stmtResult = new LibSqlExecutionResult();
+                        }
+                        result.result = stmtResult;
+                        readResultAttribute(stmtResult, name);
+                    }
+                }
+            }
+            reader.endObject();
+            if (stmtResult != null) {
+                completeResult(stmtResult);
+            }
+        }
+        reader.endObject();
+        return false;
+    }
+
+    @NotNull
+    private List<LibSqlExecutionResult> readStepResults() throws IOException {
+        List<LibSqlExecutionResult> results = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                results.add(null);
+                continue;
+            }
+            results.add(readStmtResult());
+        }
+        reader.endArray();
+        return results;
+    }
+
+    @NotNull
+    private List<String> readStepErrors() throws IOException {
+        List<String> errors = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            errors.add(readError());
+        }
+        reader.endArray();
+        return errors;
+    }
+
+    @NotNull
+    private LibSqlExecutionResult readStmtResult() throws IOException {
+        LibSqlExecutionResult result = new LibSqlExecutionResult();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("rows".equals(name)) {
+                result.setRows(readRows(result.getColumns() == null ? -1 : result.getColumns().size()));
+            } else {
+                readResultAttribute(result, name);
+            }
+        }
+        reader.endObject();
+        completeResult(result);
+        return result;
+    }
+
+    private static void completeResult(@NotNull LibSqlExecutionResult result) {
+        if (result.getResultRows() == null) {
+            result.setRows(LibSqlResultRows.empty());
+        }
+        if (result.getColumns() == null) {
+            result.setColumns(new ArrayList<>());
+        }
+    }
+
+    private void readResultAttribute(@NotNull LibSqlExecutionResult result, @NotNull String name) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+        switch (name) {
+            case "cols" -> {
+                List<String> columns = new ArrayList<>();
+                List<String> columnTypes = new ArrayList<>();
+                boolean hasColumnTypes = false;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String columnName = null;
+                    String columnType = null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "name" -> columnName = readNullableString();
+                            case "decltype" -> {
+                                columnType = readNullableString();
+                                hasColumnTypes = true;
+                            }
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    columns.add(columnName == null ? "" : columnName);
+                    columnTypes.add(columnType);
+                }
+                reader.endArray();
+                result.setColumns(columns);
+                result.setColumnTypes(hasColumnTypes ? columnTypes : null);
+            }
+            case "affected_row_count" -> result.setUpdateCount(reader.nextLong());
+            case "rows_read" -> result.setRowsRead(reader.nextLong());
+            case "rows_written" -> result.setRowsWritten(reader.nextLong());
+            case "query_duration_ms" -> result.setQueryDurationMs(reader.nextDouble());
+            default -> reader.skipValue();
+        }
+    }
+
+    /**
+     * Reads typed Hrana value: {"type": "integer", "value": "1"}
+     */
+    @Nullable
+    @Override
+    protected Object readValue() throws IOException {
+        if (!readTypedValue() || valueType == null) {
+            return null;
+        }
+        return switch (valueType) {
+            case "integer" -> valueText == null ? null : Long.parseLong(valueText);
+            case "float" -> valueText == null ? null : Double.parseDouble(valueText);
+            case "text" -> valueText;
+            case "blob" -> decodeBlob();
+            default -> null;
+        };
+    }
+
+    @Override
+    protected void readValue(@NotNull LibSqlResultRows.Builder rows, int column) throws IOException {
+        if (!readTypedValue() || valueType == null) {
+            rows.appendNull(column);
+            return;
+        }
+        switch (valueType) {
+            case "integer" -> {
+                if (valueText == null) {
+                    rows.appendNull(column);
+                } else {
+                    rows.appendLong(column, Long.parseLong(valueText));
+                }
+            }
+            case "float" -> {
+                if (valueText == null) {
+                    rows.appendNull(column);
+                } else {
+                    rows.appendDouble(column, Double.parseDouble(valueText));
+                }
+            }
+            case "text" -> rows.appendObject(column, valueText);
+            case "blob" -> rows.appendObject(column, decodeBlob());
+            default -> rows.appendNull(column);
+        }
+    }
+
+    /**
+     * Reads value attributes into {@link #valueType}, {@link #valueText} and {@link #valueBase64}
+     *
+     * @return false if value is not an object
+     */
+    private boolean readTypedValue() throws IOException {
+        valueType = null;
+        valueText = null;
+        valueBase64 = null;
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type" -> valueType = reader.nextString();
+                case "value" -> valueText = readNullableString();
+                case "base64" -> valueBase64 = readNullableString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return true;
+    }
+
+    @NotNull
+    private byte[] decodeBlob() {
+        return valueBase64 == null ? new byte[0] : Base64.getDecoder().decode(valueBase64);
+    }
+
+}
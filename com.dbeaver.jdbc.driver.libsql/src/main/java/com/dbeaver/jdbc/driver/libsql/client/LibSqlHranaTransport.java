@@ -0,0 +1,522 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.stream.JsonWriter;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Hrana over HTTP: statements are sent to the pipeline endpoint of a server side stream.
+ * The stream is identified by a baton which is returned by every response and must be passed to the next request.
+ * A stream is kept open between requests, so one pipeline (single HTTP round trip) may contain several requests.
+ */
+class LibSqlHranaTransport extends LibSqlTransport {
+
+    private static final String SQL_STATE_TRANSACTION_ROLLBACK = "40000";
+    private static final Set<String> STREAM_ERROR_CODES = Set.of(
+        "STREAM_EXPIRED", "STREAM_NOT_FOUND", "STREAM_CLOSED", "BATON_INVALID", "BATON_REUSED", "BATON_STREAM_CLOSED");
+    private static final Pattern STREAM_ERROR_PATTERN = Pattern.compile(
+        "\\bbaton\\b|\\bstream\\b.*\\b(expired|not found|closed)\\b", Pattern.CASE_INSENSITIVE);
+
+    @NotNull
+    private final String pipelinePath;
+    @Nullable
+    private String baton;
+    @Nullable
+    private String baseUrl;
+    private boolean streamPinned;
+    // Not a monitor: virtual threads waiting for a response must not pin their carrier threads
+    private final ReentrantLock streamLock = new ReentrantLock();
+
+    LibSqlHranaTransport(@NotNull LibSqlClient client, @NotNull URL url, @NotNull LibSqlProtocol protocol) {
+        super(client, url);
+        this.pipelinePath = protocol.getPipelinePath();
+    }
+
+    @NotNull
+    @Override
+    LibSqlExecutionResult[] executeBatch(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        streamLock.lock();
+        try {
+            return executePipeline(stmts, parameters, streamLast, control);
+        } catch (StreamExpiredException e) {
+            resetStream();
+            if (streamPinned) {
+                // Server rolled back the transaction of the stream
+                throw new SQLException("Server stream expired, transaction was rolled back", SQL_STATE_TRANSACTION_ROLLBACK, e.getCause());
+            }
+            if (client.isSessionStateChanged()) {
+                // Statements may depend on temporary objects, attached databases or pragmas of the lost stream
+                throw new SQLException("Server stream expired, session state (temporary objects, attached databases, pragmas) was lost", e.getCause());
+            }
+            // The stream was closed by server. Nothing was executed, so we can open a new one.
+            try {
+                return executePipeline(stmts, parameters, streamLast, control);
+            } catch (StreamExpiredException e1) {
+                throw new SQLException("Server stream expired", e1.getCause());
+            }
+        } finally {
+            streamLock.unlock();
+        }
+    }
+
+    @Override
+    boolean supportsTransactions() {
+        return true;
+    }
+
+    @Override
+    void setStreamPinned(boolean pinned) {
+        streamLock.lock();
+        try {
+            this.streamPinned = pinned;
+        } finally {
+            streamLock.unlock();
+        }
+    }
+
+    @Override
+    boolean isStreamOpen() {
+        streamLock.lock();
+        try {
+            return baton != null;
+        } finally {
+            streamLock.unlock();
+        }
+    }
+
+    @Override
+    void close() {
+        streamLock.lock();
+        try {
+            closeStream();
+        } finally {
+            streamLock.unlock();
+        }
+    }
+
+    private void closeStream() {
+        if (baton == null) {
+            return;
+        }
+        try {
+            StringWriter requestBuffer = new StringWriter();
+            JsonWriter json = new JsonWriter(requestBuffer);
+            beginPipeline(json, baton);
+            json.beginObject();
+            json.name("type").value("close");
+            json.endObject();
+            endPipeline(json);
+            HttpResponse<InputStream> response = client.sendRequest(
+                getPipelineURI(),
+                HttpRequest.BodyPublishers.ofString(requestBuffer.toString()),
+                null);
+            response.body().close();
+        } catch (Exception e) {
+            // Server will close the stream by timeout
+        } finally {
+            resetStream();
+        }
+    }
+
+    private void resetStream() {
+        baton = null;
+        baseUrl = null;
+    }
+
+    @NotNull
+    private LibSqlExecutionResult[] executePipeline(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException, StreamExpiredException {
+        String requestBaton = baton;
+        boolean streamOpened = requestBaton != null;
+        LibSqlRequestStats stats = client.startRequestStats(url, stmts.length, control);
+        try {
+            URI pipelineURI = getPipelineURI();
+            // Baton can be used only once. If the response is lost (e.g. request was cancelled)
+            // the next request will open a new stream.
+            resetStream();
+            final HttpResponse<InputStream> httpResponse;
+            LibSqlRequestBuffer requestBuffer = acquireBuffer();
+            boolean sent = false;
+            try {
+                HttpRequest.BodyPublisher body = writeBody(requestBuffer, json -> {
+                    beginPipeline(json, requestBaton);
+                    writeStatementsRequest(json, stmts, parameters);
+                    endPipeline(json);
+                }, parameters, stats);
+                httpResponse = client.sendRequest(pipelineURI, body, control);
+                sent = true;
+            } finally {
+                releaseBuffer(requestBuffer, sent);
+            }
+            long decodeStartTime = System.nanoTime();
+            LibSqlHranaResponseParser parser = new LibSqlHranaResponseParser(openResponseBody(httpResponse, stats));
+            try {
+                int statusCode = httpResponse.statusCode();
+                if (statusCode != HttpURLConnection.HTTP_OK) {
+                    String message = parser.readErrorResponse();
+                    parser.close();
+                    SQLException error = new SQLException(CommonUtils.isEmpty(message) ? "HTTP error " + statusCode : message);
+                    if (statusCode == HttpURLConnection.HTTP_BAD_REQUEST && streamOpened &&
+                        isStreamError(parser.getErrorCode(), message)) {
+                        throw new StreamExpiredException(error);
+                    }
+                    throw client.translateError(statusCode, error);
+                }
+                List<LibSqlHranaResponseParser.StreamResult> results = parser.readPipeline(stmts.length == 1 && streamLast ? 0 : -1);
+                baton = parser.getBaton();
+                if (parser.getBaseUrl() != null) {
+                    baseUrl = parser.getBaseUrl();
+                }
+                LibSqlExecutionResult[] stmtResults = getResults(results, stmts.length);
+                if (stats != null) {
+                    stats.setDecoded(decodeStartTime, stmtResults);
+                }
+                return stmtResults;
+            } catch (SQLException | StreamExpiredException e) {
+                parser.close();
+                throw e;
+            } catch (Exception e) {
+                parser.close();
+                throw client.translateError(httpResponse.statusCode(), e);
+            }
+        } catch (SQLException | StreamExpiredException e) {
+            if (stats != null) {
+                stats.setError(e);
+            }
+            throw e;
+        } catch (Exception e) {
+            if (stats != null) {
+                stats.setError(e);
+            }
+            throw new SQLException(e);
+        } finally {
+            client.finishRequestStats(stats);
+        }
+    }
+
+    /**
+     * Statements are executed on a standalone stream which is closed in the same pipeline,
+     * so asynchronous requests do not wait for each other and for requests on the connection stream.
+     */
+    @NotNull
+    @Override
+    CompletableFuture<LibSqlExecutionResult[]> executeBatchAsync(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        @NotNull LibSqlRequestControl control
+    ) {
+        LibSqlRequestStats stats = client.startRequestStats(url, stmts.length, control);
+        LibSqlRequestBuffer requestBuffer = acquireBuffer();
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            HttpRequest.BodyPublisher body = writeBody(requestBuffer, json -> {
+                beginPipeline(json, null);
+                writeStatementsRequest(json, stmts, parameters);
+                json.beginObject();
+                json.name("type").value("close");
+                json.endObject();
+                endPipeline(json);
+            }, parameters, stats);
+            response = client.sendRequestAsync(getPipelineURI(null), body, control);
+        } catch (Exception e) {
+            releaseBuffer(requestBuffer, false);
+            finishRequestStats(stats, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((httpResponse, error) -> releaseBuffer(requestBuffer, error == null));
+        return response.thenApply(httpResponse -> {
+            long decodeStartTime = System.nanoTime();
+            try (LibSqlHranaResponseParser parser = new LibSqlHranaResponseParser(openResponseBytes(httpResponse, stats))) {
+                int statusCode = httpResponse.statusCode();
+                if (statusCode != HttpURLConnection.HTTP_OK) {
+                    String message = parser.readErrorResponse();
+                    throw client.translateError(statusCode, new SQLException(
+                        CommonUtils.isEmpty(message) ? "HTTP error " + statusCode : message));
+                }
+                LibSqlExecutionResult[] results = getResults(parser.readPipeline(-1), stmts.length);
+                if (stats != null) {
+                    stats.setDecoded(decodeStartTime, results);
+                }
+                return results;
+            } catch (Exception e) {
+                throw new CompletionException(client.translateError(httpResponse.statusCode(), e));
+            }
+        }).whenComplete((results, error) -> finishRequestStats(stats, error));
+    }
+
+    @NotNull
+    private URI getPipelineURI() throws URISyntaxException {
+        return getPipelineURI(baseUrl);
+    }
+
+    @NotNull
+    private URI getPipelineURI(@Nullable String baseUrl) throws URISyntaxException {
+        String base = baseUrl != null ? baseUrl : url.toString();
+        if (!base.endsWith("/")) {
+            base += "/";
+        }
+        return new URI(base + pipelinePath);
+    }
+
+    @NotNull
+    private static LibSqlExecutionResult[] getResults(
+        @NotNull List<LibSqlHranaResponseParser.StreamResult> results,
+        int stmtCount
+    ) throws SQLException {
+        if (results.isEmpty()) {
+            throw new SQLException("Bad response: no pipeline results");
+        }
+        return stmtCount == 1 ?
+            new LibSqlExecutionResult[] { getExecuteResult(results.get(0)) } :
+            getBatchResults(results.get(0), stmtCount);
+    }
+
+    @NotNull
+    private static LibSqlExecutionResult getExecuteResult(@NotNull LibSqlHranaResponseParser.StreamResult result) throws SQLException {
+        if (result.error != null) {
+            throw new SQLException(result.error);
+        }
+        if (result.result == null) {
+            throw new SQLException("Bad response: no statement result");
+        }
+        return result.result;
+    }
+
+    @NotNull
+    private static LibSqlExecutionResult[] getBatchResults(
+        @NotNull LibSqlHranaResponseParser.StreamResult result,
+        int stmtCount
+    ) throws SQLException {
+        if (result.error != null) {
+            throw new SQLException(result.error);
+        }
+        if (result.stepErrors != null) {
+            for (String error : result.stepErrors) {
+                if (error != null) {
+                    throw new SQLException(error);
+                }
+            }
+        }
+        if (result.stepResults == null || result.stepResults.size() < stmtCount) {
+            throw new SQLException("Bad response: batch results are missing");
+        }
+        LibSqlExecutionResult[] results = new LibSqlExecutionResult[stmtCount];
+        for (int i = 0; i < stmtCount; i++) {
+            results[i] = result.stepResults.get(i);
+            if (results[i] == null) {
+                throw new SQLException("Batch step " + (i + 1) + " was not executed");
+            }
+        }
+        return results;
+    }
+
+    @Nullable
+    private static LibSqlParameters getParameters(@NotNull LibSqlParameters[] parameters, int index) {
+        return index < parameters.length ? parameters[index] : null;
+    }
+
+    private static void beginPipeline(@NotNull JsonWriter json, @Nullable String baton) throws IOException {
+        json.beginObject();
+        json.name("baton");
+        json.value(baton);
+        json.name("requests");
+        json.beginArray();
+    }
+
+    private static void endPipeline(@NotNull JsonWriter json) throws IOException {
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Single statement is sent as execute request, several statements - as batch
+     */
+    static void writeStatementsRequest(
+        @NotNull JsonWriter json,
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters
+    ) throws IOException {
+        if (stmts.length == 1) {
+            writeExecuteRequest(json, stmts[0], getParameters(parameters, 0));
+        } else {
+            writeBatchRequest(json, stmts, parameters);
+        }
+    }
+
+    private static void writeExecuteRequest(
+        @NotNull JsonWriter json,
+        @NotNull LibSqlStatementTemplate stmt,
+        @Nullable LibSqlParameters parameters
+    ) throws IOException {
+        json.beginObject();
+        json.name("type").value("execute");
+        json.name("stmt");
+        writeStatement(json, stmt, parameters);
+        json.endObject();
+    }
+
+    /**
+     * Each batch step is executed only if the previous one succeeded
+     */
+    private static void writeBatchRequest(
+        @NotNull JsonWriter json,
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters
+    ) throws IOException {
+        json.beginObject();
+        json.name("type").value("batch");
+        json.name("batch");
+        json.beginObject();
+        json.name("steps");
+        json.beginArray();
+        for (int i = 0; i < stmts.length; i++) {
+            json.beginObject();
+            if (i > 0) {
+                json.name("condition");
+                json.beginObject();
+                json.name("type").value("ok");
+                json.name("step").value(i - 1);
+                json.endObject();
+            }
+            json.name("stmt");
+            writeStatement(json, stmts[i], getParameters(parameters, i));
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.endObject();
+    }
+
+    private static void writeStatement(
+        @NotNull JsonWriter json,
+        @NotNull LibSqlStatementTemplate stmt,
+        @Nullable LibSqlParameters parameters
+    ) throws IOException {
+        json.beginObject();
+        json.name("sql").jsonValue(stmt.getSqlJson());
+        if (parameters != null && !parameters.isEmpty()) {
+            if (parameters.isPositional()) {
+                json.name("args");
+                json.beginArray();
+                for (int i = 0; i < parameters.getCount(); i++) {
+                    writeValue(json, parameters.getValue(i));
+                }
+                json.endArray();
+            } else {
+                json.name("named_args");
+                json.beginArray();
+                for (Map.Entry<String, Object> param : parameters.getNamedValues().entrySet()) {
+                    json.beginObject();
+                    json.name("name").value(param.getKey());
+                    json.name("value");
+                    writeValue(json, param.getValue());
+                    json.endObject();
+                }
+                json.endArray();
+            }
+        }
+        json.name("want_rows").value(true);
+        json.endObject();
+    }
+
+    /**
+     * Writes typed Hrana value. Integers are passed as strings to keep 64-bit precision.
+     */
+    private static void writeValue(@NotNull JsonWriter json, @Nullable Object value) throws IOException {
+        json.beginObject();
+        if (value == null) {
+            json.name("type").value("null");
+        } else if (value instanceof Boolean bValue) {
+            json.name("type").value("integer");
+            json.name("value").value(bValue ? "1" : "0");
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short ||
+            value instanceof Byte || value instanceof BigInteger) {
+            json.name("type").value("integer");
+            json.name("value").value(value.toString());
+        } else if (value instanceof Number nValue) {
+            json.name("type").value("float");
+            json.name("value").value(nValue instanceof BigDecimal ? nValue : nValue.doubleValue());
+        } else if (value instanceof byte[] || value instanceof LibSqlStreamInput || value instanceof Blob) {
+            json.name("type").value("blob");
+            json.name("base64");
+            LibSqlJsonWriter.writeBase64(json, value);
+        } else if (value instanceof LibSqlReaderInput readerInput) {
+            json.name("type").value("text");
+            json.name("value");
+            LibSqlJsonWriter.writeText(json, readerInput);
+        } else {
+            json.name("type").value("text");
+            json.name("value").value(value.toString());
+        }
+        json.endObject();
+    }
+
+    /**
+     * Error response means that the baton is invalid: the stream was expired or closed by the server.
+     * Other bad requests must not be retried on a new stream.
+     */
+    private static boolean isStreamError(@Nullable String code, @Nullable String message) {
+        if (code != null && STREAM_ERROR_CODES.contains(code)) {
+            return true;
+        }
+        return message != null && STREAM_ERROR_PATTERN.matcher(message).find();
+    }
+
+    /**
+     * Server doesn't know the stream anymore
+     */
+    private static class StreamExpiredException extends Exception {
+        StreamExpiredException(@NotNull SQLException serverError) {
+            super(serverError);
+        }
+    }
+
+}
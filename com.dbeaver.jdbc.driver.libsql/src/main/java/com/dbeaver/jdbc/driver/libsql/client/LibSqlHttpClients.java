@@ -0,0 +1,236 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlConstants;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.net.CookieManager;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * HTTP clients of the driver.
+ * By default, connections to the same server with the same auth token share one client (and thus its connection
+ * pool, selector thread, TLS sessions and cookies). Shared client is disposed when the last connection which uses
+ * it is closed.
+ * Executor of a client is owned by the client unless it is the driver-wide pool or supplied by the caller.
+ */
+final class LibSqlHttpClients {
+
+    private static final Logger log = Logger.getLogger(LibSqlHttpClients.class.getName());
+
+    private static final Map<ClientKey, Handle> sharedClients = new HashMap<>();
+    // Created on first use, never shut down: its threads are daemons which stop when idle
+    @Nullable
+    private static ThreadPoolExecutor sharedExecutor;
+
+    /**
+     * Sharing scope of a client. Session cookies of a server are bound to credentials, so the auth token hash is
+     * a part of the key. Caller-supplied executors are compared by identity.
+     */
+    private record ClientKey(
+        @NotNull String server,
+        @NotNull String tokenHash,
+        @NotNull HttpClient.Version version,
+        @NotNull String executorType,
+        @Nullable Executor executor
+    ) {
+    }
+
+    /**
+     * Reference to HTTP client. Must be released after use.
+     */
+    static final class Handle {
+        @Nullable
+        private final ClientKey key;
+        @NotNull
+        private final HttpClient client;
+        // Executor created for this client only
+        @Nullable
+        private final ExecutorService ownExecutor;
+        private int refCount = 1;
+
+        private Handle(@Nullable ClientKey key, @NotNull HttpClient client, @Nullable ExecutorService ownExecutor) {
+            this.key = key;
+            this.client = client;
+            this.ownExecutor = ownExecutor;
+        }
+
+        @NotNull
+        HttpClient getClient() {
+            return client;
+        }
+
+        void release() {
+            if (key != null) {
+                synchronized (sharedClients) {
+                    if (--refCount > 0) {
+                        return;
+                    }
+                    sharedClients.remove(key);
+                }
+            }
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    private static final String HTTP_EXECUTOR_CUSTOM = "custom";
+
+    private LibSqlHttpClients() {
+    }
+
+    /**
+     * Returns HTTP client for the server and credentials configured by driver properties
+     */
+    @NotNull
+    static Handle acquire(@NotNull URL url, @Nullable String authToken, @NotNull Map<String, Object> properties) {
+        HttpClient.Version version = getHttpVersion(properties);
+        Object executorValue = properties.get(LibSqlConstants.PROP_HTTP_EXECUTOR);
+        Executor customExecutor = executorValue instanceof Executor executor ? executor : null;
+        String executorType = customExecutor != null ?
+            HTTP_EXECUTOR_CUSTOM :
+            CommonUtils.toString(executorValue, LibSqlConstants.HTTP_EXECUTOR_DEFAULT).toLowerCase(Locale.ENGLISH);
+        boolean shared = CommonUtils.getBoolean(properties.get(LibSqlConstants.PROP_SHARED_HTTP_CLIENT), true);
+        if (!shared) {
+            return createClient(null, version, executorType, customExecutor);
+        }
+        // Connections are pooled per host, so this is the widest scope where client can be shared
+        ClientKey key = new ClientKey(
+            url.getProtocol() + "://" + url.getAuthority(), hashToken(authToken), version, executorType, customExecutor);
+        synchronized (sharedClients) {
+            Handle handle = sharedClients.get(key);
+            if (handle != null) {
+                handle.refCount++;
+                return handle;
+            }
+            handle = createClient(key, version, executorType, customExecutor);
+            sharedClients.put(key, handle);
+            return handle;
+        }
+    }
+
+    @NotNull
+    private static Handle createClient(
+        @Nullable ClientKey key,
+        @NotNull HttpClient.Version version,
+        @NotNull String executorType,
+        @Nullable Executor customExecutor
+    ) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(version)
+            .cookieHandler(new CookieManager());
+        ExecutorService ownExecutor = null;
+        if (customExecutor != null) {
+            builder.executor(customExecutor);
+        } else if (LibSqlConstants.HTTP_EXECUTOR_SHARED.equals(executorType)) {
+            builder.executor(getSharedExecutor());
+        } else {
+            ownExecutor = createExecutor(executorType);
+            if (ownExecutor != null) {
+                builder.executor(ownExecutor);
+            }
+        }
+        return new Handle(key, builder.build(), ownExecutor);
+    }
+
+    /**
+     * @return executor or null if HTTP client default executor should be used
+     */
+    @Nullable
+    private static ExecutorService createExecutor(@NotNull String executorType) {
+        if (LibSqlConstants.HTTP_EXECUTOR_VIRTUAL.equals(executorType)) {
+            try {
+                // Java 21+
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warning("Virtual threads are not supported, default HTTP executor is used");
+            }
+        } else if (!LibSqlConstants.HTTP_EXECUTOR_DEFAULT.equals(executorType)) {
+            log.warning("Unknown HTTP executor '" + executorType + "', default HTTP executor is used");
+        }
+        return null;
+    }
+
+    /**
+     * Pool of all clients with the shared executor.
+     * HTTP client runs only response handling on it, so the pool is bounded by the number of processors.
+     */
+    @NotNull
+    private static synchronized Executor getSharedExecutor() {
+        if (sharedExecutor == null) {
+            int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+            AtomicInteger threadNumber = new AtomicInteger();
+            sharedExecutor = new ThreadPoolExecutor(
+                threadCount, threadCount, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "LibSQL HTTP " + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            sharedExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * Hash of auth token for keys of shared resources, so the token itself is not kept in them.
+     * Empty string if there is no token.
+     */
+    @NotNull
+    static String hashToken(@Nullable String authToken) {
+        if (authToken == null) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NotNull
+    private static HttpClient.Version getHttpVersion(@NotNull Map<String, Object> properties) {
+        String version = CommonUtils.toString(properties.get(LibSqlConstants.PROP_HTTP_VERSION), null);
+        if (CommonUtils.isEmpty(version)) {
+            return HttpClient.Version.HTTP_2;
+        }
+        try {
+            return HttpClient.Version.valueOf(version.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            log.warning("Unknown HTTP version '" + version + "', HTTP/2 is used");
+            return HttpClient.Version.HTTP_2;
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.stream.JsonWriter;
+import org.jkiss.code.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.Base64;
+
+/**
+ * JSON writer of request body which writes binary values as base64 strings directly into the body bytes.
+ * Base64 alphabet needs no JSON escaping, so binary data is never converted to Java strings.
+ * Text read from readers is escaped and encoded by chunks.
+ */
+final class LibSqlJsonWriter extends JsonWriter {
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @NotNull
+    private final OutputStream out;
+    @NotNull
+    private final Writer textOut;
+
+    LibSqlJsonWriter(@NotNull OutputStream out) {
+        this(out, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private LibSqlJsonWriter(@NotNull OutputStream out, @NotNull Writer textOut) {
+        super(textOut);
+        this.out = out;
+        this.textOut = textOut;
+    }
+
+    /**
+     * Writes bytes as base64 string value
+     */
+    void base64Value(@NotNull byte[] bytes) throws IOException {
+        beginRawString();
+        out.write(Base64.getEncoder().encode(bytes));
+        out.write('"');
+    }
+
+    /**
+     * Writes stream content as base64 string value. The stream is encoded by chunks and is not buffered.
+     *
+     * @param length maximum number of bytes to read or -1 to read the whole stream
+     */
+    void base64Value(@NotNull InputStream stream, long length) throws IOException {
+        beginRawString();
+        // Encoder stream writes final padding on close, the body stream must stay open
+        try (OutputStream encoder = Base64.getEncoder().wrap(new FilterOutputStream(out) {
+            @Override
+            public void write(@NotNull byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        })) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long remaining = length < 0 ? Long.MAX_VALUE : length;
+            while (remaining > 0) {
+                int count = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count < 0) {
+                    break;
+                }
+                encoder.write(buffer, 0, count);
+                remaining -= count;
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Writes blob content as base64 string value
+     */
+    void base64Value(@NotNull Blob blob) throws IOException {
+        try {
+            try (InputStream stream = blob.getBinaryStream()) {
+                base64Value(stream, blob.length());
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error reading blob value", e);
+        }
+    }
+
+    /**
+     * Writes binary value (bytes, {@link LibSqlStreamInput} or {@link Blob}) as base64 string.
+     * Writers which don't write to the body stream get the encoded string.
+     */
+    static void writeBase64(@NotNull JsonWriter json, @NotNull Object value) throws IOException {
+        if (json instanceof LibSqlJsonWriter writer) {
+            if (value instanceof byte[] bytes) {
+                writer.base64Value(bytes);
+            } else if (value instanceof LibSqlStreamInput input) {
+                writer.base64Value(input.openStream(), input.getLength());
+            } else {
+                writer.base64Value((Blob) value);
+            }
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (LibSqlJsonWriter writer = new LibSqlJsonWriter(buffer)) {
+            writeBase64(writer, value);
+        }
+        json.jsonValue(buffer.toString(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Writes reader content as string value. The reader is escaped by chunks and is not buffered.
+     *
+     * @param length maximum number of characters to read, zero or negative to read the whole reader
+     */
+    void textValue(@NotNull Reader reader, long length) throws IOException {
+        beginRawString();
+        char[] buffer = new char[COPY_BUFFER_SIZE];
+        long remaining = length <= 0 ? Long.MAX_VALUE : length;
+        while (remaining > 0) {
+            int count = reader.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (count < 0) {
+                break;
+            }
+            writeEscaped(buffer, count);
+            remaining -= count;
+        }
+        textOut.write('"');
+        textOut.flush();
+    }
+
+    /**
+     * Writes text parameter value as string.
+     * Writers which don't write to the body stream get the whole text.
+     */
+    static void writeText(@NotNull JsonWriter json, @NotNull LibSqlReaderInput value) throws IOException {
+        if (json instanceof LibSqlJsonWriter writer) {
+            writer.textValue(value.openReader(), value.getLength());
+            return;
+        }
+        StringWriter buffer = new StringWriter();
+        value.openReader().transferTo(buffer);
+        String text = buffer.toString();
+        json.value(value.getLength() <= 0 ? text : text.substring(0, (int) Math.min(text.length(), value.getLength())));
+    }
+
+    /**
+     * Escapes characters as {@link JsonWriter} does for string values
+     */
+    private void writeEscaped(@NotNull char[] chars, int count) throws IOException {
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            char c = chars[i];
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                replacement = null;
+            } else {
+                continue;
+            }
+            textOut.write(chars, start, i - start);
+            if (replacement != null) {
+                textOut.write(replacement);
+            } else {
+                textOut.write("\\u");
+                textOut.write(HEX_DIGITS[(c >> 12) & 0xF]);
+                textOut.write(HEX_DIGITS[(c >> 8) & 0xF]);
+                textOut.write(HEX_DIGITS[(c >> 4) & 0xF]);
+                textOut.write(HEX_DIGITS[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        textOut.write(chars, start, count - start);
+    }
+
+    /**
+     * Writes opening quote of a string value and flushes the writer,
+     * so the value content may be written directly to the body stream.
+     */
+    private void beginRawString() throws IOException {
+        jsonValue("\"");
+        flush();
+    }
+}
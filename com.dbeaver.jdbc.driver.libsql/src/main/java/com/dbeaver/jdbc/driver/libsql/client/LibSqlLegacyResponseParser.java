@@ -0,0 +1,213 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonToken;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser of the legacy statements endpoint response
+ */
+class LibSqlLegacyResponseParser extends LibSqlResponseParser {
+
+    private final TypeAdapter<Object> valueAdapter;
+    private boolean arrayResponse;
+
+    LibSqlLegacyResponseParser(@NotNull InputStream stream, @NotNull TypeAdapter<Object> valueAdapter) {
+        super(stream);
+        this.valueAdapter = valueAdapter;
+    }
+
+    /**
+     * Reads results of all statements.
+     *
+     * @param statementCount number of statements in request
+     * @param streamLast     leave rows of the last result in the stream
+     */
+    @NotNull
+    LibSqlExecutionResult[] readResults(int statementCount, boolean streamLast) throws IOException, SQLException {
+        List<LibSqlExecutionResult> results = new ArrayList<>();
+        arrayResponse = reader.peek() == JsonToken.BEGIN_ARRAY;
+        if (arrayResponse) {
+            reader.beginArray();
+        }
+        boolean streaming = false;
+        while (arrayResponse ? reader.hasNext() : results.isEmpty()) {
+            reader.beginObject();
+            LibSqlExecutionResult result = null;
+            String error = null;
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "results" -> {
+                        result = new LibSqlExecutionResult();
+                        streaming = readResult(result, streamLast && results.size() == statementCount - 1);
+                    }
+                    case "error" -> error = readError();
+                    default -> reader.skipValue();
+                }
+                if (streaming) {
+                    break;
+                }
+            }
+            if (error != null) {
+                throw new SQLException(error);
+            }
+            if (result == null) {
+                throw new IOException("Bad response: no statement results");
+            }
+            results.add(result);
+            if (streaming) {
+                return results.toArray(new LibSqlExecutionResult[0]);
+            }
+            reader.endObject();
+        }
+        if (arrayResponse) {
+            reader.endArray();
+        }
+        close();
+        return results.toArray(new LibSqlExecutionResult[0]);
+    }
+
+    @Override
+    protected void readResponseTail(@NotNull LibSqlExecutionResult result) throws IOException {
+        while (reader.hasNext()) {
+            readResultAttribute(result, reader.nextName());
+        }
+        reader.endObject();
+        while (reader.hasNext()) {
+            if ("error".equals(reader.nextName())) {
+                throw new IOException(readError());
+            }
+            reader.skipValue();
+        }
+        reader.endObject();
+        if (arrayResponse) {
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+        }
+    }
+
+    /**
+     * @return true if rows were left in the stream
+     */
+    private boolean readResult(@NotNull LibSqlExecutionResult result, boolean streamRows) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("rows".equals(name)) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                if (streamRows && result.getColumns() != null) {
+                    startRowStream(result);
+                    return true;
+                }
+                result.setRows(readRows(result.getColumns() == null ? -1 : result.getColumns().size()));
+            } else {
+                readResultAttribute(result, name);
+            }
+        }
+        reader.endObject();
+        if (result.getResultRows() == null) {
+            result.setRows(LibSqlResultRows.empty());
+        }
+        if (result.getColumns() == null) {
+            result.setColumns(new ArrayList<>());
+        }
+        return false;
+    }
+
+    private void readResultAttribute(@NotNull LibSqlExecutionResult result, @NotNull String name) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+        switch (name) {
+            case "columns" -> {
+                List<String> columns = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    columns.add(reader.nextString());
+                }
+                reader.endArray();
+                result.setColumns(columns);
+            }
+            case "rows_read" -> result.setRowsRead(reader.nextLong());
+            case "rows_written" -> {
+                long rowsWritten = reader.nextLong();
+                result.setRowsWritten(rowsWritten);
+                result.setUpdateCount(rowsWritten);
+            }
+            case "query_duration_ms" -> result.setQueryDurationMs(reader.nextDouble());
+            default -> reader.skipValue();
+        }
+    }
+
+    @Nullable
+    @Override
+    protected Object readValue() throws IOException {
+        switch (reader.peek()) {
+            case NULL -> {
+                reader.nextNull();
+                return null;
+            }
+            case STRING -> {
+                return reader.nextString();
+            }
+            case BOOLEAN -> {
+                return reader.nextBoolean();
+            }
+            case NUMBER -> {
+                return parseNumber(reader.nextString());
+            }
+            default -> {
+                Object value = valueAdapter.read(reader);
+                if (value instanceof Map<?, ?> map && map.size() == 1 && map.get("base64") instanceof String base64) {
+                    // Blob value
+                    return Base64.getDecoder().decode(base64);
+                }
+                return value;
+            }
+        }
+    }
+
+    @Override
+    protected void readValue(@NotNull LibSqlResultRows.Builder rows, int column) throws IOException {
+        switch (reader.peek()) {
+            case NULL -> {
+                reader.nextNull();
+                rows.appendNull(column);
+            }
+            case NUMBER -> appendNumber(rows, column, reader.nextString());
+            default -> rows.appendObject(column, readValue());
+        }
+    }
+
+}
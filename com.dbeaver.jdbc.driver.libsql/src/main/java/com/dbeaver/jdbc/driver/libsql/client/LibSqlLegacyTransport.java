@@ -0,0 +1,195 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Legacy HTTP API: all statements are posted to the server root as {"statements": [...]}
+ */
+class LibSqlLegacyTransport extends LibSqlTransport {
+
+    @NotNull
+    private final TypeAdapter<Object> valueAdapter;
+
+    LibSqlLegacyTransport(@NotNull LibSqlClient client, @NotNull URL url, @NotNull TypeAdapter<Object> valueAdapter) {
+        super(client, url);
+        this.valueAdapter = valueAdapter;
+    }
+
+    @NotNull
+    @Override
+    LibSqlExecutionResult[] executeBatch(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException {
+        LibSqlRequestStats stats = client.startRequestStats(url, stmts.length, control);
+        try {
+            final HttpResponse<InputStream> httpResponse;
+            LibSqlRequestBuffer requestBuffer = acquireBuffer();
+            boolean sent = false;
+            try {
+                HttpRequest.BodyPublisher body = writeBody(
+                    requestBuffer, json -> writeRequest(stmts, parameters, json), parameters, stats);
+                httpResponse = client.sendRequest(url.toURI(), body, control);
+                sent = true;
+            } finally {
+                releaseBuffer(requestBuffer, sent);
+            }
+            long decodeStartTime = System.nanoTime();
+            LibSqlLegacyResponseParser parser = new LibSqlLegacyResponseParser(
+                openResponseBody(httpResponse, stats), valueAdapter);
+            try {
+                LibSqlExecutionResult[] results = parser.readResults(stmts.length, streamLast);
+                if (stats != null) {
+                    stats.setDecoded(decodeStartTime, results);
+                }
+                return results;
+            } catch (Exception e) {
+                parser.close();
+                throw client.translateError(httpResponse.statusCode(), e);
+            }
+        } catch (Exception e) {
+            if (stats != null) {
+                stats.setError(e);
+            }
+            if (e instanceof SQLException sqle) {
+                throw sqle;
+            }
+            throw new SQLException(e);
+        } finally {
+            client.finishRequestStats(stats);
+        }
+    }
+
+    @NotNull
+    @Override
+    CompletableFuture<LibSqlExecutionResult[]> executeBatchAsync(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        @NotNull LibSqlRequestControl control
+    ) {
+        LibSqlRequestStats stats = client.startRequestStats(url, stmts.length, control);
+        LibSqlRequestBuffer requestBuffer = acquireBuffer();
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            HttpRequest.BodyPublisher body = writeBody(
+                requestBuffer, json -> writeRequest(stmts, parameters, json), parameters, stats);
+            response = client.sendRequestAsync(url.toURI(), body, control);
+        } catch (Exception e) {
+            releaseBuffer(requestBuffer, false);
+            finishRequestStats(stats, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((httpResponse, error) -> releaseBuffer(requestBuffer, error == null));
+        return response.thenApply(httpResponse -> {
+            long decodeStartTime = System.nanoTime();
+            try (LibSqlLegacyResponseParser parser = new LibSqlLegacyResponseParser(
+                openResponseBytes(httpResponse, stats), valueAdapter)
+            ) {
+                LibSqlExecutionResult[] results = parser.readResults(stmts.length, false);
+                if (stats != null) {
+                    stats.setDecoded(decodeStartTime, results);
+                }
+                return results;
+            } catch (Exception e) {
+                throw new CompletionException(client.translateError(httpResponse.statusCode(), e));
+            }
+        }).whenComplete((results, error) -> finishRequestStats(stats, error));
+    }
+
+    static void writeRequest(
+        @NotNull LibSqlStatementTemplate[] queries,
+        @NotNull LibSqlParameters[] parameters,
+        @NotNull JsonWriter jsonWriter
+    ) throws IOException {
+        jsonWriter.beginObject();
+        jsonWriter.name("statements");
+        jsonWriter.beginArray();
+        for (int i = 0; i < queries.length; i++) {
+            LibSqlStatementTemplate stmt = queries[i];
+            LibSqlParameters stmtParameters = i < parameters.length ? parameters[i] : null;
+            if (stmtParameters != null && !stmtParameters.isEmpty()) {
+                // Query with parameters
+                jsonWriter.beginObject();
+                jsonWriter.name("q");
+                jsonWriter.jsonValue(stmt.getSqlJson());
+                jsonWriter.name("params");
+                if (stmtParameters.isPositional()) {
+                    jsonWriter.beginArray();
+                    for (int k = 0; k < stmtParameters.getCount(); k++) {
+                        serializeParameterValue(stmtParameters.getValue(k), jsonWriter);
+                    }
+                    jsonWriter.endArray();
+                } else {
+                    jsonWriter.beginObject();
+                    for (Map.Entry<String, Object> param : stmtParameters.getNamedValues().entrySet()) {
+                        jsonWriter.name(param.getKey());
+                        serializeParameterValue(param.getValue(), jsonWriter);
+                    }
+                    jsonWriter.endObject();
+                }
+
+                jsonWriter.endObject();
+            } else {
+                // Simple query
+                jsonWriter.jsonValue(stmt.getSqlJson());
+            }
+        }
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+        jsonWriter.flush();
+    }
+
+    private static void serializeParameterValue(Object value, JsonWriter jsonWriter) throws IOException {
+        if (value == null) {
+            jsonWriter.nullValue();
+        } else if (value instanceof Number nValue) {
+            jsonWriter.value(nValue);
+        } else if (value instanceof Boolean bValue) {
+            jsonWriter.value(bValue);
+        } else if (value instanceof String strValue) {
+            jsonWriter.value(strValue);
+        } else if (value instanceof byte[] || value instanceof LibSqlStreamInput || value instanceof Blob) {
+            jsonWriter.beginObject();
+            jsonWriter.name("base64");
+            LibSqlJsonWriter.writeBase64(jsonWriter, value);
+            jsonWriter.endObject();
+        } else if (value instanceof LibSqlReaderInput readerInput) {
+            LibSqlJsonWriter.writeText(jsonWriter, readerInput);
+        } else {
+            jsonWriter.value(value.toString());
+        }
+    }
+
+}
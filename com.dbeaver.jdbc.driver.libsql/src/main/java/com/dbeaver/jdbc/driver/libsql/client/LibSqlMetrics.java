@@ -0,0 +1,331 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Request metrics of a connection. Metrics of all connections are also summed in the driver metrics.
+ * Metrics are registered as MXBeans "com.dbeaver.jdbc.driver.libsql:type=Driver"
+ * and "com.dbeaver.jdbc.driver.libsql:type=Connection,id=N,server=URL".
+ */
+public final class LibSqlMetrics implements LibSqlMetricsMXBean {
+
+    private static final Logger log = Logger.getLogger(LibSqlMetrics.class.getName());
+
+    private static final String JMX_DOMAIN = "com.dbeaver.jdbc.driver.libsql";
+    private static final LibSqlMetrics driverMetrics = new LibSqlMetrics(null);
+    private static final AtomicLong connectionSequence = new AtomicLong();
+    private static boolean driverRegistered;
+
+    @Nullable
+    private final LibSqlMetrics parent;
+    @Nullable
+    private ObjectName objectName;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder statementCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final Map<Integer, LongAdder> errorsByStatus = new ConcurrentHashMap<>();
+    private final Histogram latency = new Histogram();
+    private final Histogram serverDuration = new Histogram();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+
+    private LibSqlMetrics(@Nullable LibSqlMetrics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Metrics of all connections
+     */
+    @NotNull
+    public static LibSqlMetrics getDriverMetrics() {
+        return driverMetrics;
+    }
+
+    /**
+     * Creates metrics of a new connection and registers them (and the driver metrics) in the platform MBean server
+     */
+    @NotNull
+    static LibSqlMetrics createConnectionMetrics(@NotNull URL url) {
+        registerDriverMetrics();
+        LibSqlMetrics metrics = new LibSqlMetrics(driverMetrics);
+        try {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=Connection,id=" + connectionSequence.incrementAndGet() +
+                ",server=" + ObjectName.quote(url.toString()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            metrics.objectName = name;
+        } catch (JMException | RuntimeException e) {
+            log.log(Level.FINE, "Error registering connection metrics MBean", e);
+        }
+        return metrics;
+    }
+
+    private static synchronized void registerDriverMetrics() {
+        if (driverRegistered) {
+            return;
+        }
+        driverRegistered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=Driver");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(driverMetrics, name);
+            }
+        } catch (JMException | RuntimeException e) {
+            log.log(Level.FINE, "Error registering driver metrics MBean", e);
+        }
+    }
+
+    /**
+     * Unregisters connection metrics MBean
+     */
+    void unregister() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException | RuntimeException e) {
+                log.log(Level.FINE, "Error unregistering connection metrics MBean", e);
+            }
+            objectName = null;
+        }
+    }
+
+    void record(@NotNull LibSqlRequestStats stats) {
+        requestCount.increment();
+        statementCount.add(stats.getStatementCount());
+        if (stats.getError() != null) {
+            errorCount.increment();
+            errorsByStatus.computeIfAbsent(stats.getStatusCode(), status -> new LongAdder()).increment();
+        }
+        latency.record(stats.getLatencyNanos());
+        if (stats.getServerDurationMs() > 0) {
+            serverDuration.record((long) (stats.getServerDurationMs() * 1_000_000));
+        }
+        encodeNanos.add(stats.getEncodeNanos());
+        decodeNanos.add(stats.getDecodeNanos());
+        if (stats.getRequestBytes() > 0) {
+            requestBytes.add(stats.getRequestBytes());
+        }
+        responseBytes.add(stats.getResponseBytes());
+        rowsRead.add(stats.getRowsRead());
+        rowsWritten.add(stats.getRowsWritten());
+        if (parent != null) {
+            parent.record(stats);
+        }
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    @Override
+    public long getStatementCount() {
+        return statementCount.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByStatus() {
+        Map<String, Long> result = new TreeMap<>();
+        errorsByStatus.forEach((status, count) -> result.put(String.valueOf(status), count.sum()));
+        return result;
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return latency.getMean() / 1e6;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return latency.getMax() / 1e6;
+    }
+
+    @Override
+    public double getServerDurationMeanMillis() {
+        return serverDuration.getMean() / 1e6;
+    }
+
+    @Override
+    public double getServerDurationP99Millis() {
+        return serverDuration.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getEncodeTimeTotalMillis() {
+        return encodeNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getDecodeTimeTotalMillis() {
+        return decodeNanos.sum() / 1e6;
+    }
+
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    @Override
+    public void reset() {
+        requestCount.reset();
+        statementCount.reset();
+        errorCount.reset();
+        errorsByStatus.clear();
+        latency.reset();
+        serverDuration.reset();
+        encodeNanos.reset();
+        decodeNanos.reset();
+        requestBytes.reset();
+        responseBytes.reset();
+        rowsRead.reset();
+        rowsWritten.reset();
+    }
+
+    /**
+     * Histogram of durations in nanoseconds. Each power of two range is divided into linear sub-buckets
+     * (like in HdrHistogram), so the bucket upper bound exceeds the recorded value by at most 1/32.
+     */
+    private static class Histogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+        void record(long nanos) {
+            nanos = Math.max(nanos, 0);
+            buckets.incrementAndGet(getBucketIndex(nanos));
+            count.increment();
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        /**
+         * Values below SUB_BUCKET_COUNT have their own buckets, bigger values are grouped by the highest bit
+         * and divided by the next SUB_BUCKET_BITS bits
+         */
+        private static int getBucketIndex(long value) {
+            if (value < SUB_BUCKET_COUNT) {
+                return (int) value;
+            }
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+        }
+
+        private static long getBucketUpperBound(int index) {
+            if (index < SUB_BUCKET_COUNT) {
+                return index;
+            }
+            int shift = (index >> SUB_BUCKET_BITS) - 1;
+            long lowerBound = (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+            return lowerBound + (1L << shift) - 1;
+        }
+
+        double getMean() {
+            long total = count.sum();
+            return total == 0 ? 0 : (double) sum.sum() / total;
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Upper bound of the bucket containing the percentile
+         */
+        long getPercentile(double percent) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(percent / 100 * total);
+            long accumulated = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                accumulated += buckets.get(i);
+                if (accumulated >= threshold) {
+                    return Math.min(getBucketUpperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+}
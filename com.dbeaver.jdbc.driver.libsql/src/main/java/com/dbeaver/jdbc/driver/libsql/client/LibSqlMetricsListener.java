@@ -0,0 +1,31 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+
+/**
+ * Receives measurements of every request of a connection, e.g. to export them to a monitoring system.
+ * Listener is configured by {@link com.dbeaver.jdbc.driver.libsql.LibSqlConstants#PROP_METRICS_LISTENER}
+ * or {@link LibSqlClient#setMetricsListener}. It is called in the thread which processed the response,
+ * so it must be fast and thread safe.
+ */
+public interface LibSqlMetricsListener {
+
+    void requestCompleted(@NotNull LibSqlRequestStats stats);
+
+}
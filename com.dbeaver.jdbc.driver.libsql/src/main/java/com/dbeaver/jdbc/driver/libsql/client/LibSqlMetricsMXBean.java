@@ -0,0 +1,68 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import java.util.Map;
+
+/**
+ * Request metrics of a connection or of all connections of the driver exposed via JMX.
+ * Times are in milliseconds. Percentiles are approximate: the upper bound of a histogram bucket,
+ * at most 1/32 (about 3%) above the exact value.
+ */
+public interface LibSqlMetricsMXBean {
+
+    long getRequestCount();
+
+    long getStatementCount();
+
+    long getErrorCount();
+
+    /**
+     * Numbers of failed requests by HTTP status, "0" - response was not received
+     */
+    Map<String, Long> getErrorsByStatus();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyMaxMillis();
+
+    /**
+     * Query durations reported by the server
+     */
+    double getServerDurationMeanMillis();
+
+    double getServerDurationP99Millis();
+
+    double getEncodeTimeTotalMillis();
+
+    double getDecodeTimeTotalMillis();
+
+    long getRequestBytes();
+
+    long getResponseBytes();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    void reset();
+
+}
@@ -0,0 +1,236 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Rows of a SELECT query which are read page by page.
+ * Every page is requested by a separate execution of the query with LIMIT and OFFSET appended,
+ * so only the current page (and the prefetched one) is kept in memory.
+ * Only queries with ORDER BY are paged: without it the order of rows may differ between executions.
+ * Pages are consistent only if the queried tables are not modified while rows are read
+ * and the ORDER BY key is unique: rows with equal keys may be ordered differently by each execution,
+ * then they are duplicated or skipped at page boundaries.
+ */
+final class LibSqlPagedRowStream implements LibSqlRowStream {
+
+    private static final Pattern LIMIT_PATTERN = Pattern.compile("\\blimit\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER_BY_PATTERN = Pattern.compile("order\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
+    @NotNull
+    private final LibSqlClient client;
+    @NotNull
+    private final String query;
+    @NotNull
+    private final LibSqlParameters parameters;
+    private final int pageSize;
+    private final boolean prefetch;
+    @Nullable
+    private final LibSqlRequestControl control;
+
+    @Nullable
+    private LibSqlResultRows page;
+    private int pageRow;
+    private long pageOffset;
+    @Nullable
+    private CompletableFuture<LibSqlExecutionResult> nextPage;
+    @Nullable
+    private LibSqlRequestControl nextPageControl;
+
+    /**
+     * @param firstPage rows of the first page, the first row was already returned by the result
+     */
+    LibSqlPagedRowStream(
+        @NotNull LibSqlClient client,
+        @NotNull String query,
+        @NotNull LibSqlParameters parameters,
+        int pageSize,
+        boolean prefetch,
+        @Nullable LibSqlRequestControl control,
+        @NotNull LibSqlResultRows firstPage
+    ) {
+        this.client = client;
+        this.query = query;
+        this.parameters = parameters;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+        this.control = control;
+        this.page = firstPage;
+        this.pageRow = 1;
+        startPrefetch();
+    }
+
+    @Nullable
+    @Override
+    public Object[] readRow(@NotNull LibSqlExecutionResult result) throws IOException {
+        if (page == null) {
+            return null;
+        }
+        if (pageRow >= page.getRowCount() && (page.getRowCount() < pageSize || !readNextPage())) {
+            close();
+            result.endRowStream();
+            return null;
+        }
+        return page.getRow(pageRow++);
+    }
+
+    @Override
+    public void close() {
+        page = null;
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        unlinkPrefetchControl();
+    }
+
+    private boolean readNextPage() throws IOException {
+        pageOffset += pageSize;
+        LibSqlExecutionResult pageResult;
+        try {
+            if (nextPage != null) {
+                CompletableFuture<LibSqlExecutionResult> prefetchedPage = nextPage;
+                nextPage = null;
+                try {
+                    pageResult = prefetchedPage.get();
+                } finally {
+                    unlinkPrefetchControl();
+                }
+            } else {
+                pageResult = client.execute(makePageStatement(query, pageSize, pageOffset), parameters, false, control);
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Error reading result page", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Result page read interrupted");
+        } catch (SQLException e) {
+            throw new IOException("Error reading result page", e);
+        }
+        page = pageResult.getResultRows();
+        pageRow = 0;
+        if (page.getRowCount() == 0) {
+            return false;
+        }
+        startPrefetch();
+        return true;
+    }
+
+    /**
+     * Requests the page following the current one in background
+     */
+    private void startPrefetch() {
+        // Transaction statements are executed synchronously, prefetch would block
+        if (prefetch && client.isAutoCommit() && page != null && page.getRowCount() >= pageSize) {
+            // Own control of the prefetch: the statement control tracks the request of the statement itself
+            nextPageControl = control == null ? null : control.createLinkedControl();
+            nextPage = client.executeAsync(makePageStatement(query, pageSize, pageOffset + pageSize), parameters, nextPageControl);
+        }
+    }
+
+    private void unlinkPrefetchControl() {
+        if (nextPageControl != null) {
+            control.unlinkControl(nextPageControl);
+            nextPageControl = null;
+        }
+    }
+
+    /**
+     * Returns query text which can be paged or null if query can't be paged:
+     * it is not a single SELECT statement, it has no ORDER BY clause or it already has a LIMIT clause.
+     */
+    @Nullable
+    static String getPageableQuery(@NotNull LibSqlStatementTemplate stmt) {
+        if (!stmt.isReadOnly() || stmt.isPragma()) {
+            return null;
+        }
+        String query = stmt.getSql().strip();
+        while (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1).stripTrailing();
+        }
+        if (query.indexOf(';') >= 0 || LIMIT_PATTERN.matcher(query).find() || !hasOrderBy(query)) {
+            return null;
+        }
+        return query;
+    }
+
+    /**
+     * Finds ORDER BY of the query itself, outside of parentheses (subqueries, window definitions),
+     * quoted strings and comments
+     */
+    private static boolean hasOrderBy(@NotNull String query) {
+        int depth = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            switch (c) {
+                case '\'', '"', '`', '[' -> {
+                    int end = query.indexOf(c == '[' ? ']' : c, i + 1);
+                    if (end < 0) {
+                        return false;
+                    }
+                    i = end;
+                }
+                case '-' -> {
+                    if (query.startsWith("--", i)) {
+                        int end = query.indexOf('\n', i);
+                        if (end < 0) {
+                            return false;
+                        }
+                        i = end;
+                    }
+                }
+                case '/' -> {
+                    if (query.startsWith("/*", i)) {
+                        int end = query.indexOf("*/", i + 2);
+                        if (end < 0) {
+                            return false;
+                        }
+                        i = end + 1;
+                    }
+                }
+                case '(' -> depth++;
+                case ')' -> depth--;
+                case 'o', 'O' -> {
+                    if (depth == 0 && (i == 0 || !Character.isLetterOrDigit(query.charAt(i - 1)) && query.charAt(i - 1) != '_') &&
+                        ORDER_BY_PATTERN.matcher(query).region(i, query.length()).lookingAt()) {
+                        return true;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Line break protects LIMIT clause from a trailing line comment
+     */
+    @NotNull
+    static LibSqlStatementTemplate makePageStatement(@NotNull String query, int pageSize, long offset) {
+        return new LibSqlStatementTemplate(query + "\nLIMIT " + pageSize + " OFFSET " + offset);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.sql.Blob;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statement parameter values.
+ * Positional parameters are stored in array addressed by parameter index (starting from 1),
+ * unset parameters before the last set one are sent as nulls.
+ * Named parameters are used only if there are no positional ones.
+ */
+public class LibSqlParameters {
+
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    @NotNull
+    private Object[] values = EMPTY_VALUES;
+    private int count;
+    @Nullable
+    private Map<String, Object> namedValues;
+
+    public LibSqlParameters() {
+    }
+
+    private LibSqlParameters(@NotNull LibSqlParameters source) {
+        this.values = source.count == 0 ? EMPTY_VALUES : Arrays.copyOf(source.values, source.count);
+        this.count = source.count;
+        this.namedValues = source.namedValues == null ? null : new LinkedHashMap<>(source.namedValues);
+    }
+
+    public void setValue(int index, @Nullable Object value) {
+        if (index < 1) {
+            throw new IllegalArgumentException("Invalid parameter index: " + index);
+        }
+        if (index > values.length) {
+            values = Arrays.copyOf(values, Math.max(index, values.length * 2));
+        }
+        values[index - 1] = value;
+        if (index > count) {
+            count = index;
+        }
+    }
+
+    public void setValue(@NotNull String name, @Nullable Object value) {
+        if (namedValues == null) {
+            namedValues = new LinkedHashMap<>();
+        }
+        namedValues.put(name, value);
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, count, null);
+        count = 0;
+        namedValues = null;
+    }
+
+    public boolean isEmpty() {
+        return count == 0 && (namedValues == null || namedValues.isEmpty());
+    }
+
+    public boolean isPositional() {
+        return count > 0;
+    }
+
+    /**
+     * Number of positional parameters
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param index zero-based position
+     */
+    @Nullable
+    public Object getValue(int index) {
+        return values[index];
+    }
+
+    @NotNull
+    public Map<String, Object> getNamedValues() {
+        return namedValues == null ? Map.of() : namedValues;
+    }
+
+    /**
+     * Values include streams or blobs which are read while the request is sent
+     */
+    public boolean hasStreams() {
+        for (int i = 0; i < count; i++) {
+            if (isStream(values[i])) {
+                return true;
+            }
+        }
+        if (namedValues != null) {
+            for (Object value : namedValues.values()) {
+                if (isStream(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a snapshot of current values
+     */
+    @NotNull
+    public LibSqlParameters copy() {
+        return new LibSqlParameters(this);
+    }
+
+    private static boolean isStream(@Nullable Object value) {
+        return value instanceof LibSqlStreamInput || value instanceof LibSqlReaderInput || value instanceof Blob;
+    }
+
+    /**
+     * Converts parameters map: integer keys are positional parameter indexes, other keys are parameter names.
+     */
+    @NotNull
+    public static LibSqlParameters fromMap(@Nullable Map<?, ?> parameters) {
+        LibSqlParameters result = new LibSqlParameters();
+        if (parameters != null) {
+            for (Map.Entry<?, ?> entry : parameters.entrySet()) {
+                if (entry.getKey() instanceof Integer index) {
+                    result.setValue(index, entry.getValue());
+                } else {
+                    result.setValue(String.valueOf(entry.getKey()), entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+/**
+ * Server protocol used to execute statements
+ */
+public enum LibSqlProtocol {
+    /**
+     * Stateless statements endpoint
+     */
+    LEGACY("legacy", null),
+    /**
+     * Hrana version 2 over HTTP
+     */
+    HRANA_V2("hrana2", "v2/pipeline"),
+    /**
+     * Hrana version 3 over HTTP
+     */
+    HRANA_V3("hrana3", "v3/pipeline");
+
+    private final String id;
+    private final String pipelinePath;
+
+    LibSqlProtocol(@NotNull String id, @Nullable String pipelinePath) {
+        this.id = id;
+        this.pipelinePath = pipelinePath;
+    }
+
+    @NotNull
+    public String getId() {
+        return id;
+    }
+
+    String getPipelinePath() {
+        return pipelinePath;
+    }
+
+    public boolean isHrana() {
+        return pipelinePath != null;
+    }
+
+    @NotNull
+    public static LibSqlProtocol fromId(@Nullable String id) {
+        if (!CommonUtils.isEmpty(id)) {
+            for (LibSqlProtocol protocol : values()) {
+                if (protocol.id.equalsIgnoreCase(id)) {
+                    return protocol;
+                }
+            }
+        }
+        return LEGACY;
+    }
+}
@@ -16,30 +16,46 @@
  */
 package com.dbeaver.jdbc.driver.libsql.client;
 
-import org.jkiss.utils.IOUtils;
+import org.jkiss.code.NotNull;
 
 import java.io.IOException;
 import java.io.Reader;
 
+/**
+ * Text parameter value read from a reader.
+ * The reader is encoded to the request body when the statement is executed, so it can be sent only once.
+ */
 public class LibSqlReaderInput {
-    private Reader stream;
-    private long length;
+    private final Reader stream;
+    private final long length;
+    private boolean consumed;
 
+    /**
+     * @param length number of characters to read, zero or negative to read the whole reader
+     */
     public LibSqlReaderInput(Reader stream, long length) {
         this.stream = stream;
         this.length = length;
     }
 
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the reader for reading. The reader can't be read again.
+     */
+    @NotNull
+    Reader openReader() throws IOException {
+        if (consumed) {
+            throw new IOException("Reader parameter value was already sent");
+        }
+        consumed = true;
+        return stream;
+    }
+
     @Override
     public String toString() {
-        try {
-            String str = IOUtils.readToString(stream);
-            if (length <= 0) {
-                return str;
-            }
-            return str.substring(0, (int) length);
-        } catch (IOException e) {
-            return e.getMessage();
-        }
+        return "character stream";
     }
 }
@@ -0,0 +1,481 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlConstants;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded replica: a local SQLite copy of the server database.
+ * Read-only queries are executed locally, writes are sent to the server.
+ * Replica is synchronized by copying schema and rows of all tables from the server,
+ * on creation, periodically and on demand. After a write the replica is stale and queries go to the server
+ * until the next synchronization, so writes of the connection are always visible to its reads.
+ * Local database is opened with SQLite JDBC driver ({@code jdbc:sqlite:}) which must be available in the classpath.
+ * One replica is shared by all connections which use the same file, the file can be a replica of one database only.
+ */
+public final class LibSqlReplica {
+
+    private static final Logger log = Logger.getLogger(LibSqlReplica.class.getName());
+
+    private static final Map<String, LibSqlReplica> sharedReplicas = new HashMap<>();
+    private static ScheduledExecutorService syncExecutor;
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    // Tables first, so indexes, views and triggers are created after rows are copied
+    private static final LibSqlStatementTemplate SCHEMA_QUERY = new LibSqlStatementTemplate(
+        "SELECT s.type, s.name, s.sql, CASE WHEN s.type = 'table' THEN " +
+        "(SELECT json_group_array(c.name) FROM pragma_table_xinfo(s.name) c WHERE c.hidden = 0) END " +
+        "FROM sqlite_schema s WHERE s.sql IS NOT NULL AND s.name NOT LIKE 'sqlite_%' " +
+        "ORDER BY CASE s.type WHEN 'table' THEN 0 WHEN 'index' THEN 1 WHEN 'view' THEN 2 ELSE 3 END, s.rowid");
+
+    @NotNull
+    private final String path;
+    // Server URL and hash of the auth token
+    @NotNull
+    private final String sourceKey;
+    @NotNull
+    private final LibSqlClient source;
+    @NotNull
+    private final Connection writer;
+    @NotNull
+    private final Connection reader;
+    private final Object syncLock = new Object();
+    @Nullable
+    private ScheduledFuture<?> syncTask;
+    private volatile boolean stale = true;
+    // Incremented by each write, guarded by staleLock
+    private long writeGeneration;
+    private final Object staleLock = new Object();
+    private volatile long lastSyncTime;
+    private int refCount = 1;
+
+    private LibSqlReplica(
+        @NotNull String path,
+        @NotNull String sourceKey,
+        @NotNull LibSqlClient source,
+        @NotNull Connection writer,
+        @NotNull Connection reader
+    ) {
+        this.path = path;
+        this.sourceKey = sourceKey;
+        this.source = source;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    /**
+     * Local database file
+     */
+    @NotNull
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Time of the last successful synchronization (milliseconds since epoch) or 0 if replica was never synchronized
+     */
+    public long getLastSyncTime() {
+        return lastSyncTime;
+    }
+
+    /**
+     * Replica doesn't contain changes made after the last synchronization by connections of this process
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Marks replica as outdated by a write, queries are sent to the server until the next synchronization.
+     * Must be called both before the write is sent and after it is completed, so a synchronization
+     * which overlaps the write can't mark the replica as fresh.
+     */
+    void setStale() {
+        synchronized (staleLock) {
+            writeGeneration++;
+            stale = true;
+        }
+    }
+
+    /**
+     * Copies schema and rows of the server database to the local file.
+     * Rows are read in a transaction of the server, so the copy is consistent.
+     * Local changes are committed at once: local queries see either old or new data.
+     * Replica stays stale if there were writes during synchronization: the copy may miss them.
+     */
+    public void sync() throws SQLException {
+        synchronized (syncLock) {
+            long syncGeneration;
+            synchronized (staleLock) {
+                syncGeneration = writeGeneration;
+            }
+            try {
+                boolean transactional = source.getProtocol().isHrana();
+                if (transactional) {
+                    source.setAutoCommit(false);
+                }
+                try {
+                    copyDatabase();
+                } finally {
+                    if (transactional) {
+                        try {
+                            source.rollback();
+                            source.setAutoCommit(true);
+                        } catch (SQLException e) {
+                            log.log(Level.FINE, "Error ending replica read transaction", e);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                stale = true;
+                throw e;
+            }
+            synchronized (staleLock) {
+                if (writeGeneration == syncGeneration) {
+                    stale = false;
+                }
+            }
+            lastSyncTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Executes read-only query on the local database.
+     * Returns null if the query can't be served by the replica: the replica is stale,
+     * parameters can't be bound locally or the local query fails (e.g. a virtual table module is not available).
+     */
+    @Nullable
+    LibSqlExecutionResult execute(@NotNull LibSqlStatementTemplate stmt, @NotNull LibSqlParameters parameters) {
+        if (stale || !parameters.getNamedValues().isEmpty() || parameters.hasStreams()) {
+            return null;
+        }
+        synchronized (reader) {
+            try (PreparedStatement dbStat = reader.prepareStatement(stmt.getSql())) {
+                for (int i = 0; i < parameters.getCount(); i++) {
+                    dbStat.setObject(i + 1, toLocalValue(parameters.getValue(i)));
+                }
+                try (ResultSet dbResult = dbStat.executeQuery()) {
+                    ResultSetMetaData metaData = dbResult.getMetaData();
+                    int columnCount = metaData.getColumnCount();
+                    List<String> columns = new ArrayList<>(columnCount);
+                    for (int i = 1; i <= columnCount; i++) {
+                        columns.add(metaData.getColumnLabel(i));
+                    }
+                    List<Object[]> rows = new ArrayList<>();
+                    while (dbResult.next()) {
+                        Object[] row = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            row[i] = fromLocalValue(dbResult.getObject(i + 1));
+                        }
+                        rows.add(row);
+                    }
+                    return LibSqlExecutionResult.of(columns, rows);
+                }
+            } catch (SQLException e) {
+                log.log(Level.FINE, "Query can't be executed by replica, it is sent to server: " + stmt, e);
+                return null;
+            }
+        }
+    }
+
+    private void copyDatabase() throws SQLException {
+        List<Object[]> objects = source.execute(SCHEMA_QUERY, new LibSqlParameters(), false).getRows();
+        synchronized (writer) {
+            writer.setAutoCommit(false);
+            try {
+                dropLocalObjects();
+                Set<String> skippedTables = new HashSet<>();
+                for (Object[] object : objects) {
+                    String type = CommonUtils.toString(object[0]);
+                    String name = CommonUtils.toString(object[1]);
+                    String sql = CommonUtils.toString(object[2]);
+                    if (isShadowTable(name, skippedTables)) {
+                        continue;
+                    }
+                    try (Statement dbStat = writer.createStatement()) {
+                        dbStat.execute(sql);
+                    } catch (SQLException e) {
+                        // E.g. virtual table of a module which is not available locally
+                        log.warning("Replica object " + name + " can't be created: " + e.getMessage());
+                        skippedTables.add(name);
+                        continue;
+                    }
+                    if ("table".equals(type) && !sql.regionMatches(true, 0, "CREATE VIRTUAL", 0, 14)) {
+                        copyRows(name, parseColumnNames(object[3]));
+                    }
+                }
+                writer.commit();
+            } catch (SQLException e) {
+                writer.rollback();
+                throw e;
+            } finally {
+                writer.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void dropLocalObjects() throws SQLException {
+        List<String> drops = new ArrayList<>();
+        try (Statement dbStat = writer.createStatement();
+             ResultSet dbResult = dbStat.executeQuery(
+                 "SELECT type, name FROM sqlite_schema WHERE type IN ('table', 'view', 'trigger') AND name NOT LIKE 'sqlite_%' " +
+                 "ORDER BY CASE type WHEN 'table' THEN 1 ELSE 0 END")
+        ) {
+            while (dbResult.next()) {
+                drops.add("DROP " + dbResult.getString(1) + " IF EXISTS " + quoteName(dbResult.getString(2)));
+            }
+        }
+        try (Statement dbStat = writer.createStatement()) {
+            for (String drop : drops) {
+                dbStat.execute(drop);
+            }
+        }
+    }
+
+    /**
+     * Rows are streamed from the server and inserted by batches
+     */
+    private void copyRows(@NotNull String table, @NotNull List<String> columns) throws SQLException {
+        if (columns.isEmpty()) {
+            return;
+        }
+        StringBuilder columnList = new StringBuilder();
+        for (String column : columns) {
+            if (!columnList.isEmpty()) {
+                columnList.append(',');
+            }
+            columnList.append(quoteName(column));
+        }
+        LibSqlExecutionResult result = source.execute(
+            new LibSqlStatementTemplate("SELECT " + columnList + " FROM " + quoteName(table)),
+            new LibSqlParameters(),
+            true);
+        String insert = "INSERT INTO " + quoteName(table) + "(" + columnList + ") VALUES (" +
+            "?,".repeat(columns.size() - 1) + "?)";
+        try (PreparedStatement dbStat = writer.prepareStatement(insert)) {
+            int batchSize = 0;
+            for (Object[] row = result.nextRow(); row != null; row = result.nextRow()) {
+                for (int i = 0; i < columns.size(); i++) {
+                    dbStat.setObject(i + 1, i < row.length ? row[i] : null);
+                }
+                dbStat.addBatch();
+                if (++batchSize >= INSERT_BATCH_SIZE) {
+                    dbStat.executeBatch();
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                dbStat.executeBatch();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Error reading rows of " + table, e);
+        } finally {
+            result.close();
+        }
+    }
+
+    /**
+     * Virtual table module creates its shadow tables itself
+     */
+    private static boolean isShadowTable(@NotNull String name, @NotNull Set<String> skippedTables) {
+        for (String table : skippedTables) {
+            if (name.startsWith(table + "_")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    private static List<String> parseColumnNames(@Nullable Object columnsJson) {
+        List<String> columns = new ArrayList<>();
+        if (columnsJson instanceof String json) {
+            for (JsonElement column : JsonParser.parseString(json).getAsJsonArray()) {
+                columns.add(column.getAsString());
+            }
+        }
+        return columns;
+    }
+
+    @Nullable
+    private static Object toLocalValue(@Nullable Object value) {
+        if (value instanceof Boolean bValue) {
+            return bValue ? 1 : 0;
+        }
+        return value;
+    }
+
+    /**
+     * SQLite JDBC returns small integers as Integer, while server results always contain Long
+     */
+    @Nullable
+    private static Object fromLocalValue(@Nullable Object value) {
+        if (value instanceof Integer iValue) {
+            return iValue.longValue();
+        }
+        return value;
+    }
+
+    @NotNull
+    private static String quoteName(@NotNull String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Returns replica of the local file, creates and synchronizes it if it doesn't exist yet.
+     * Replica must be released when connection is closed.
+     * The file can't be shared by replicas of different servers or credentials.
+     *
+     * @param syncInterval interval of periodic synchronization in milliseconds, zero disables it
+     */
+    @NotNull
+    static LibSqlReplica acquire(
+        @NotNull String path,
+        @NotNull URL url,
+        @Nullable String authToken,
+        @NotNull Map<String, Object> driverProperties,
+        long syncInterval
+    ) throws SQLException {
+        String fileKey;
+        try {
+            fileKey = new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            throw new SQLException("Invalid replica path: " + path, e);
+        }
+        String sourceKey = url.getProtocol() + "://" + url.getAuthority() + url.getPath() + "|" +
+            LibSqlHttpClients.hashToken(authToken);
+        synchronized (sharedReplicas) {
+            LibSqlReplica replica = sharedReplicas.get(fileKey);
+            if (replica != null) {
+                if (!replica.sourceKey.equals(sourceKey)) {
+                    throw new SQLException("Replica file " + fileKey + " is already used by a replica of another server or credentials");
+                }
+                replica.refCount++;
+                return replica;
+            }
+            replica = open(fileKey, sourceKey, url, authToken, driverProperties);
+            try {
+                replica.sync();
+            } catch (SQLException e) {
+                replica.close();
+                throw e;
+            }
+            if (syncInterval > 0) {
+                replica.syncTask = getSyncExecutor().scheduleWithFixedDelay(
+                    replica::syncInBackground, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+            }
+            sharedReplicas.put(fileKey, replica);
+            return replica;
+        }
+    }
+
+    void release() {
+        synchronized (sharedReplicas) {
+            if (--refCount > 0) {
+                return;
+            }
+            sharedReplicas.remove(path);
+        }
+        close();
+    }
+
+    @NotNull
+    private static LibSqlReplica open(
+        @NotNull String path,
+        @NotNull String sourceKey,
+        @NotNull URL url,
+        @Nullable String authToken,
+        @NotNull Map<String, Object> driverProperties
+    ) throws SQLException {
+        // Synchronization reads the server with its own client, outside of transactions of the connection
+        Map<String, Object> sourceProperties = new LinkedHashMap<>(driverProperties);
+        sourceProperties.remove(LibSqlConstants.PROP_REPLICA_PATH);
+        sourceProperties.remove(LibSqlConstants.PROP_RESULT_CACHE_SIZE);
+        LibSqlClient source = new LibSqlClient(url, authToken, sourceProperties);
+        Connection writer = null;
+        try {
+            writer = DriverManager.getConnection("jdbc:sqlite:" + path);
+            try (Statement dbStat = writer.createStatement()) {
+                // Local queries read the last committed copy while the next one is written
+                dbStat.execute("PRAGMA journal_mode=WAL");
+            }
+            Connection reader = DriverManager.getConnection("jdbc:sqlite:" + path);
+            try (Statement dbStat = reader.createStatement()) {
+                dbStat.execute("PRAGMA query_only=1");
+            }
+            return new LibSqlReplica(path, sourceKey, source, writer, reader);
+        } catch (SQLException e) {
+            source.close();
+            if (writer != null) {
+                writer.close();
+            }
+            throw new SQLException("Replica file " + path + " can't be opened. Embedded replica requires SQLite JDBC driver", e);
+        }
+    }
+
+    private void syncInBackground() {
+        try {
+            sync();
+        } catch (Throwable e) {
+            log.log(Level.WARNING, "Error synchronizing replica " + path, e);
+        }
+    }
+
+    private void close() {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+            syncTask = null;
+        }
+        source.close();
+        for (Connection connection : new Connection[] { reader, writer }) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.log(Level.FINE, "Error closing replica file", e);
+            }
+        }
+    }
+
+    @NotNull
+    private static synchronized ScheduledExecutorService getSyncExecutor() {
+        if (syncExecutor == null) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "LibSQL replica sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return syncExecutor;
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.stream.JsonWriter;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Request body buffer. JSON is encoded directly into UTF-8 bytes of pooled chunks
+ * which are published to the HTTP client without copying.
+ * Chunks return to the pool only when the request is released and the HTTP client finished reading the body.
+ * Bodies with stream parameters are written by a background task while the HTTP client sends them,
+ * so stream content is read only when it is sent and is never held in memory as a whole.
+ */
+final class LibSqlRequestBuffer {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // Chunks kept for reuse by all connections
+    private static final int MAX_POOLED_CHUNKS = 64;
+    // Number of written chunks of a streaming body which may wait for sending
+    private static final int PIPE_CAPACITY = 4;
+    private static final long PIPE_WAIT_MS = 100;
+    private static final ByteBuffer END_OF_BODY = ByteBuffer.allocate(0);
+
+    private static final Queue<ByteBuffer> chunkPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledChunkCount = new AtomicInteger();
+    private static final ExecutorService bodyWriterExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "LibSQL request body writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Writes JSON request body
+     */
+    @FunctionalInterface
+    interface BodyWriter {
+        void write(@NotNull JsonWriter json) throws IOException;
+    }
+
+    @Nullable
+    private ChunkPublisher publisher;
+    @Nullable
+    private BodyPipe pipe;
+
+    /**
+     * Writes the request body and returns its publisher.
+     *
+     * @param streaming write the body while it is sent. Used if parameters contain streams.
+     */
+    @NotNull
+    HttpRequest.BodyPublisher writeBody(@NotNull BodyWriter writer, boolean streaming) throws IOException {
+        release(true);
+        if (streaming) {
+            BodyPipe bodyPipe = new BodyPipe(writer);
+            pipe = bodyPipe;
+            return HttpRequest.BodyPublishers.ofInputStream(bodyPipe::open);
+        }
+        ChunkPublisher bodyPublisher = new ChunkPublisher();
+        publisher = bodyPublisher;
+        ChunkOutputStream out = new ChunkOutputStream(bodyPublisher.chunks::add);
+        JsonWriter json = new LibSqlJsonWriter(out);
+        writer.write(json);
+        json.flush();
+        out.finish();
+        for (ByteBuffer chunk : bodyPublisher.chunks) {
+            bodyPublisher.length += chunk.remaining();
+        }
+        return bodyPublisher;
+    }
+
+    /**
+     * Releases chunks of the last request body. Must be called after the response was received or the request failed.
+     * Chunks are returned to the pool when all subscriptions of the HTTP client to the body are completed
+     * or cancelled: the response may be received while the client still holds the body.
+     *
+     * @param reuse return chunks to the pool. Body of a failed request may still be read by the HTTP client,
+     *              its chunks must not be reused.
+     */
+    void release(boolean reuse) {
+        if (pipe != null) {
+            pipe.close();
+            pipe = null;
+        }
+        if (publisher != null) {
+            publisher.release(reuse);
+            publisher = null;
+        }
+    }
+
+    @NotNull
+    private static ByteBuffer allocateChunk() {
+        ByteBuffer chunk = chunkPool.poll();
+        if (chunk == null) {
+            return ByteBuffer.allocate(CHUNK_SIZE);
+        }
+        pooledChunkCount.decrementAndGet();
+        chunk.clear();
+        return chunk;
+    }
+
+    private static void recycleChunk(@NotNull ByteBuffer chunk) {
+        if (chunk == END_OF_BODY) {
+            return;
+        }
+        if (pooledChunkCount.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+            chunkPool.offer(chunk);
+        } else {
+            pooledChunkCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Receives filled chunks ready for reading
+     */
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(@NotNull ByteBuffer chunk) throws IOException;
+    }
+
+    /**
+     * Writes bytes into chunks
+     */
+    private static final class ChunkOutputStream extends OutputStream {
+        @NotNull
+        private final ChunkConsumer consumer;
+        @Nullable
+        private ByteBuffer current;
+
+        ChunkOutputStream(@NotNull ChunkConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            nextChunk().put((byte) b);
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer chunk = nextChunk();
+                int count = Math.min(len, chunk.remaining());
+                chunk.put(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        /**
+         * Passes the last chunk to the consumer
+         */
+        void finish() throws IOException {
+            if (current != null && current.position() > 0) {
+                consumer.accept(current.flip());
+            }
+            current = null;
+        }
+
+        @NotNull
+        private ByteBuffer nextChunk() throws IOException {
+            if (current != null && !current.hasRemaining()) {
+                ByteBuffer chunk = current;
+                current = null;
+                consumer.accept(chunk.flip());
+            }
+            if (current == null) {
+                current = allocateChunk();
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Publishes chunks without copying. Chunks are owned by the publisher until they are recycled:
+     * after the buffer released them and no subscription reads them.
+     */
+    private static final class ChunkPublisher implements HttpRequest.BodyPublisher {
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private long length;
+        // Guarded by this
+        private int activeSubscriptions;
+        private boolean released;
+        private boolean reusable;
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            synchronized (this) {
+                if (!released) {
+                    activeSubscriptions++;
+                    subscriber.onSubscribe(new ChunkSubscription(this, subscriber));
+                    return;
+                }
+            }
+            // Chunks may be already reused by another request
+            subscriber.onSubscribe(new ChunkSubscription(this, subscriber));
+            subscriber.onError(new IllegalStateException("Request body was released"));
+        }
+
+        synchronized void release(boolean reuse) {
+            released = true;
+            reusable = reuse;
+            recycleIfUnused();
+        }
+
+        synchronized void endSubscription() {
+            activeSubscriptions--;
+            recycleIfUnused();
+        }
+
+        private void recycleIfUnused() {
+            if (!released || activeSubscriptions > 0) {
+                return;
+            }
+            if (reusable) {
+                for (ByteBuffer chunk : chunks) {
+                    recycleChunk(chunk);
+                }
+            }
+            chunks.clear();
+        }
+    }
+
+    private static final class ChunkSubscription implements Flow.Subscription {
+        @NotNull
+        private final ChunkPublisher publisher;
+        @NotNull
+        private final List<ByteBuffer> chunks;
+        @NotNull
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private int next;
+        private long demand;
+        private boolean emitting;
+        private boolean done;
+
+        ChunkSubscription(@NotNull ChunkPublisher publisher, @NotNull Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.publisher = publisher;
+            // Subscription of a released body ends before it reads chunks
+            this.chunks = publisher.released ? List.of() : publisher.chunks;
+            this.done = publisher.released;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (n <= 0) {
+                    done = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                    if (emitting) {
+                        // Requested from onNext, the emitting loop continues
+                        return;
+                    }
+                    emitting = true;
+                }
+            }
+            if (n <= 0) {
+                publisher.endSubscription();
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                return;
+            }
+            while (true) {
+                ByteBuffer chunk;
+                synchronized (this) {
+                    if (done) {
+                        emitting = false;
+                        return;
+                    }
+                    if (next >= chunks.size()) {
+                        done = true;
+                        chunk = null;
+                    } else if (demand == 0) {
+                        emitting = false;
+                        return;
+                    } else {
+                        demand--;
+                        chunk = chunks.get(next++);
+                    }
+                }
+                if (chunk == null) {
+                    subscriber.onComplete();
+                    publisher.endSubscription();
+                    return;
+                }
+                // Each subscription reads its own view, so the body may be sent again
+                subscriber.onNext(chunk.duplicate());
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            publisher.endSubscription();
+        }
+    }
+
+    /**
+     * Body which is written by a background task and read by the HTTP client.
+     * The writer waits while the reader doesn't keep up, so only a few chunks are in memory.
+     */
+    private static final class BodyPipe extends InputStream {
+        @NotNull
+        private final BodyWriter writer;
+        private final BlockingQueue<ByteBuffer> filledChunks = new ArrayBlockingQueue<>(PIPE_CAPACITY);
+        private final AtomicBoolean opened = new AtomicBoolean();
+        private volatile boolean closed;
+        @Nullable
+        private volatile IOException error;
+        @Nullable
+        private ByteBuffer reading;
+        private boolean ended;
+
+        BodyPipe(@NotNull BodyWriter writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * Starts writing. Stream parameters can be read only once, so the body can't be sent again.
+         */
+        @NotNull
+        InputStream open() {
+            if (!opened.compareAndSet(false, true)) {
+                return new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Request body with stream parameters can't be sent again");
+                    }
+                };
+            }
+            bodyWriterExecutor.execute(this::writeBody);
+            return this;
+        }
+
+        private void writeBody() {
+            try {
+                ChunkOutputStream out = new ChunkOutputStream(this::put);
+                JsonWriter json = new LibSqlJsonWriter(out);
+                writer.write(json);
+                json.flush();
+                out.finish();
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new IOException("Error writing request body", e);
+            }
+            try {
+                put(END_OF_BODY);
+            } catch (IOException e) {
+                // Body is not read anymore
+            }
+        }
+
+        private void put(@NotNull ByteBuffer chunk) throws IOException {
+            try {
+                while (!filledChunks.offer(chunk, PIPE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        throw new IOException("Request body is not read anymore");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request body writing was interrupted");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int count = read(buffer, 0, 1);
+            return count < 0 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (reading == null || !reading.hasRemaining()) {
+                if (reading != null) {
+                    recycleChunk(reading);
+                    reading = null;
+                }
+                if (ended) {
+                    return -1;
+                }
+                ByteBuffer chunk;
+                try {
+                    chunk = filledChunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Request body reading was interrupted");
+                }
+                if (chunk == END_OF_BODY) {
+                    ended = true;
+                    IOException writeError = error;
+                    if (writeError != null) {
+                        throw writeError;
+                    }
+                    return -1;
+                }
+                reading = chunk;
+            }
+            int count = Math.min(len, reading.remaining());
+            reading.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            filledChunks.clear();
+        }
+    }
+}
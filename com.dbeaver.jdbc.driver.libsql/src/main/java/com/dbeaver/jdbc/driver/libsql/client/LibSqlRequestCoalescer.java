@@ -0,0 +1,228 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Combines read-only statements submitted by concurrent threads within a short time window into one batch request.
+ * Only one combined request of the client is in progress at a time: statements submitted while it is executed
+ * are sent with the next one. If the combined request fails, its statements are executed one by one,
+ * so each caller gets the error of its own statement.
+ * Measurements of the requests which executed a statement are passed to the stats consumer of its caller.
+ */
+final class LibSqlRequestCoalescer {
+
+    private static final ExecutorService flushExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "LibSQL request coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Executes statements in one request
+     */
+    @FunctionalInterface
+    interface BatchExecutor {
+        @NotNull
+        LibSqlExecutionResult[] executeBatch(
+            @NotNull LibSqlStatementTemplate[] stmts,
+            @NotNull LibSqlParameters[] parameters,
+            @NotNull LibSqlRequestControl control
+        ) throws SQLException;
+    }
+
+    private static class PendingStatement {
+        final LibSqlStatementTemplate stmt;
+        final LibSqlParameters parameters;
+        @Nullable
+        final Duration timeout;
+        @Nullable
+        final Consumer<LibSqlRequestStats> statsConsumer;
+        final CompletableFuture<LibSqlExecutionResult> result = new CompletableFuture<>();
+
+        PendingStatement(
+            @NotNull LibSqlStatementTemplate stmt,
+            @NotNull LibSqlParameters parameters,
+            @Nullable Duration timeout,
+            @Nullable Consumer<LibSqlRequestStats> statsConsumer
+        ) {
+            this.stmt = stmt;
+            this.parameters = parameters;
+            this.timeout = timeout;
+            this.statsConsumer = statsConsumer;
+        }
+    }
+
+    private final long windowNanos;
+    private final int maxStatements;
+    private final BatchExecutor executor;
+
+    private final List<PendingStatement> pending = new ArrayList<>();
+    // Time when the oldest pending statement must be sent
+    private long windowEnd;
+    private boolean flushing;
+
+    LibSqlRequestCoalescer(@NotNull Duration window, int maxStatements, @NotNull BatchExecutor executor) {
+        this.windowNanos = window.toNanos();
+        this.maxStatements = Math.max(1, maxStatements);
+        this.executor = executor;
+    }
+
+    /**
+     * Queues statement for execution with statements of other threads.
+     * Parameters are copied, so the caller may reuse them if it stops waiting for the result.
+     *
+     * @param timeout timeout of the statement. The combined request uses the longest timeout of its statements.
+     * @param statsConsumer receiver of measurements of the requests which execute the statement
+     */
+    @NotNull
+    CompletableFuture<LibSqlExecutionResult> submit(
+        @NotNull LibSqlStatementTemplate stmt,
+        @NotNull LibSqlParameters parameters,
+        @Nullable Duration timeout,
+        @Nullable Consumer<LibSqlRequestStats> statsConsumer
+    ) {
+        PendingStatement statement = new PendingStatement(stmt, parameters.copy(), timeout, statsConsumer);
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                windowEnd = System.nanoTime() + windowNanos;
+            }
+            pending.add(statement);
+            if (!flushing) {
+                flushing = true;
+                flushExecutor.execute(this::flush);
+            } else if (pending.size() >= maxStatements) {
+                notifyAll();
+            }
+        }
+        return statement.result;
+    }
+
+    private void flush() {
+        while (true) {
+            List<PendingStatement> group;
+            synchronized (this) {
+                try {
+                    long remaining;
+                    while (pending.size() < maxStatements && (remaining = windowEnd - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    // Send what we have
+                    Thread.currentThread().interrupt();
+                }
+                int groupSize = Math.min(pending.size(), maxStatements);
+                group = new ArrayList<>(pending.subList(0, groupSize));
+                pending.subList(0, groupSize).clear();
+            }
+            // Callers which stopped waiting do not need the result
+            group.removeIf(statement -> statement.result.isDone());
+            if (!group.isEmpty()) {
+                execute(group);
+            }
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    flushing = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void execute(@NotNull List<PendingStatement> group) {
+        LibSqlStatementTemplate[] stmts = new LibSqlStatementTemplate[group.size()];
+        LibSqlParameters[] parameters = new LibSqlParameters[group.size()];
+        for (int i = 0; i < stmts.length; i++) {
+            stmts[i] = group.get(i).stmt;
+            parameters[i] = group.get(i).parameters;
+        }
+        LibSqlExecutionResult[] results;
+        try {
+            results = executor.executeBatch(stmts, parameters, makeControl(group));
+        } catch (SQLException e) {
+            if (group.size() == 1 || e instanceof SQLTimeoutException) {
+                group.forEach(statement -> statement.result.completeExceptionally(e));
+            } else {
+                // Find out which statement failed
+                group.forEach(this::executeSeparately);
+            }
+            return;
+        } catch (Throwable e) {
+            group.forEach(statement -> statement.result.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < results.length; i++) {
+            group.get(i).result.complete(results[i]);
+        }
+    }
+
+    private void executeSeparately(@NotNull PendingStatement statement) {
+        if (statement.result.isDone()) {
+            return;
+        }
+        try {
+            LibSqlExecutionResult[] results = executor.executeBatch(
+                new LibSqlStatementTemplate[]{ statement.stmt },
+                new LibSqlParameters[]{ statement.parameters },
+                makeControl(List.of(statement)));
+            statement.result.complete(results[0]);
+        } catch (Throwable e) {
+            statement.result.completeExceptionally(e);
+        }
+    }
+
+    @NotNull
+    private static LibSqlRequestControl makeControl(@NotNull List<PendingStatement> group) {
+        Duration timeout = Duration.ZERO;
+        for (PendingStatement statement : group) {
+            if (statement.timeout == null) {
+                timeout = null;
+                break;
+            }
+            if (statement.timeout.compareTo(timeout) > 0) {
+                timeout = statement.timeout;
+            }
+        }
+        List<Consumer<LibSqlRequestStats>> consumers = new ArrayList<>();
+        for (PendingStatement statement : group) {
+            if (statement.statsConsumer != null) {
+                consumers.add(statement.statsConsumer);
+            }
+        }
+        LibSqlRequestControl control = new LibSqlRequestControl();
+        control.setTimeout(timeout);
+        if (consumers.size() == 1) {
+            control.setStatsConsumer(consumers.get(0));
+        } else if (!consumers.isEmpty()) {
+            control.setStatsConsumer(stats -> consumers.forEach(consumer -> consumer.accept(stats)));
+        }
+        return control;
+    }
+}
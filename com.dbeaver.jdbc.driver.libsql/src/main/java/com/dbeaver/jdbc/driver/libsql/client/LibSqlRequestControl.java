@@ -0,0 +1,278 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Timeout and cancellation of requests issued by a statement.
+ * {@link #cancel()} may be called from any thread: it aborts the HTTP request in progress
+ * and closes the response body of a streaming result.
+ * The timeout covers the whole response: the body is closed by a timer if it is not read completely
+ * before the deadline (see {@link #trackResponseBody}).
+ */
+public class LibSqlRequestControl {
+
+    private static ScheduledThreadPoolExecutor deadlineExecutor;
+
+    @Nullable
+    private volatile Duration timeout;
+    @Nullable
+    private Future<?> request;
+    @Nullable
+    private InputStream responseBody;
+    @Nullable
+    private volatile Consumer<LibSqlRequestStats> statsConsumer;
+    private final Set<LibSqlRequestControl> linkedControls = ConcurrentHashMap.newKeySet();
+    // Number of cancel() calls, requests compare it to detect cancellation while they wait
+    private int cancelCount;
+
+    /**
+     * @return request timeout or null if there is no limit
+     */
+    @Nullable
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(@Nullable Duration timeout) {
+        this.timeout = timeout == null || timeout.isZero() || timeout.isNegative() ? null : timeout;
+    }
+
+    /**
+     * Sets receiver of measurements of requests issued with this control (e.g. to report request sizes
+     * to statement listeners). Requests are measured only while the receiver is set.
+     */
+    public void setStatsConsumer(@Nullable Consumer<LibSqlRequestStats> statsConsumer) {
+        this.statsConsumer = statsConsumer;
+    }
+
+    @Nullable
+    Consumer<LibSqlRequestStats> getStatsConsumer() {
+        return statsConsumer;
+    }
+
+    /**
+     * Creates control of a request issued in background on behalf of this control (e.g. prefetch of a result page).
+     * It has the same timeout and is cancelled with this control until it is unlinked.
+     */
+    @NotNull
+    LibSqlRequestControl createLinkedControl() {
+        return createLinkedControl(timeout);
+    }
+
+    /**
+     * Creates linked control with the given timeout (e.g. the time left for a retried request)
+     */
+    @NotNull
+    LibSqlRequestControl createLinkedControl(@Nullable Duration timeout) {
+        LibSqlRequestControl linked = new LibSqlRequestControl();
+        linked.setTimeout(timeout);
+        linked.setStatsConsumer(statsConsumer);
+        linkedControls.add(linked);
+        return linked;
+    }
+
+    void unlinkControl(@NotNull LibSqlRequestControl linked) {
+        linkedControls.remove(linked);
+    }
+
+    /**
+     * Aborts current request and requests of linked controls
+     */
+    public void cancel() {
+        for (LibSqlRequestControl linked : linkedControls) {
+            linked.cancel();
+        }
+        Future<?> currentRequest;
+        InputStream currentBody;
+        synchronized (this) {
+            currentRequest = request;
+            currentBody = responseBody;
+            request = null;
+            responseBody = null;
+            cancelCount++;
+            notifyAll();
+        }
+        if (currentRequest != null) {
+            currentRequest.cancel(true);
+        }
+        if (currentBody != null) {
+            try {
+                currentBody.close();
+            } catch (IOException ignored) {
+                // Connection is already broken
+            }
+        }
+    }
+
+    synchronized int getCancelCount() {
+        return cancelCount;
+    }
+
+    /**
+     * Waits before the next attempt of a request.
+     *
+     * @param cancelCount cancel count read before the first attempt
+     * @return false if the control was cancelled since the first attempt
+     */
+    synchronized boolean waitForRetry(long delayMs, int cancelCount) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        while (this.cancelCount == cancelCount) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return false;
+    }
+
+    synchronized void beginRequest(@NotNull Future<?> request) {
+        this.request = request;
+        this.responseBody = null;
+    }
+
+    synchronized void setResponseBody(@NotNull InputStream responseBody) {
+        this.request = null;
+        this.responseBody = responseBody;
+    }
+
+    /**
+     * Wraps response body of a request started at the given time (System.nanoTime).
+     * The body is closed when the request timeout expires unless it was read to the end or closed before,
+     * reads of the expired body fail with {@link HttpTimeoutException}.
+     */
+    @NotNull
+    InputStream trackResponseBody(@NotNull InputStream body, long startTime) {
+        Duration currentTimeout = timeout;
+        if (currentTimeout == null) {
+            return body;
+        }
+        DeadlineBody deadlineBody = new DeadlineBody(body, currentTimeout);
+        long delay = currentTimeout.toNanos() - (System.nanoTime() - startTime);
+        deadlineBody.deadlineTask = getDeadlineExecutor().schedule(deadlineBody::expire, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+        return deadlineBody;
+    }
+
+    @NotNull
+    private static synchronized ScheduledExecutorService getDeadlineExecutor() {
+        if (deadlineExecutor == null) {
+            deadlineExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "LibSQL request timeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Deadline tasks reference response bodies, drop them from the queue as soon as the body is read
+            deadlineExecutor.setRemoveOnCancelPolicy(true);
+        }
+        return deadlineExecutor;
+    }
+
+    /**
+     * Response body closed at the request deadline
+     */
+    private static class DeadlineBody extends FilterInputStream {
+        @NotNull
+        private final Duration timeout;
+        @Nullable
+        private volatile ScheduledFuture<?> deadlineTask;
+        private volatile boolean expired;
+
+        DeadlineBody(@NotNull InputStream body, @NotNull Duration timeout) {
+            super(body);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value;
+            try {
+                value = super.read();
+            } catch (IOException e) {
+                checkExpired();
+                throw e;
+            }
+            checkExpired();
+            if (value < 0) {
+                cancelDeadline();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count;
+            try {
+                count = super.read(b, off, len);
+            } catch (IOException e) {
+                checkExpired();
+                throw e;
+            }
+            checkExpired();
+            if (count < 0) {
+                cancelDeadline();
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            cancelDeadline();
+            super.close();
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                super.close();
+            } catch (IOException ignored) {
+                // Connection is already broken
+            }
+        }
+
+        private void cancelDeadline() {
+            ScheduledFuture<?> task = deadlineTask;
+            if (task != null) {
+                task.cancel(false);
+                deadlineTask = null;
+            }
+        }
+
+        private void checkExpired() throws HttpTimeoutException {
+            if (expired) {
+                throw new HttpTimeoutException("Query timeout expired (" + timeout + ")");
+            }
+        }
+    }
+
+}
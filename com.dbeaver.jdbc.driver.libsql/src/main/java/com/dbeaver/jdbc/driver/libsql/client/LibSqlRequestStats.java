@@ -0,0 +1,199 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.function.Consumer;
+
+/**
+ * Measurements of a single HTTP request.
+ * Collected by transports when metrics are enabled, a {@link LibSqlMetricsListener} is set
+ * or the request control has a stats consumer.
+ */
+public final class LibSqlRequestStats {
+
+    @NotNull
+    private final URL server;
+    private final int statementCount;
+    private final long startTime = System.nanoTime();
+    private long latencyNanos;
+    private long encodeNanos;
+    private long decodeNanos;
+    private long requestBytes = -1;
+    private long responseBytes;
+    private int statusCode;
+    private double serverDurationMs;
+    private long rowsRead;
+    private long rowsWritten;
+    @Nullable
+    private Throwable error;
+    // Receiver of the request control
+    @Nullable
+    private final Consumer<LibSqlRequestStats> consumer;
+
+    LibSqlRequestStats(@NotNull URL server, int statementCount, @Nullable Consumer<LibSqlRequestStats> consumer) {
+        this.server = server;
+        this.statementCount = statementCount;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Server which executed the request
+     */
+    @NotNull
+    public URL getServer() {
+        return server;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Time from the start of request body writing to the end of response decoding, as observed by the client
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * Time of JSON request body writing. Bodies with stream parameters are written while they are sent,
+     * so only the preparation is measured.
+     */
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    /**
+     * Time of JSON response decoding including reading of the response body
+     */
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    /**
+     * Size of request body or -1 if the body was streamed
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Size of response body read while results were decoded.
+     * Rows of streamed results which are read later are not counted.
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * HTTP status or 0 if the response was not received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Sum of query durations reported by the server
+     */
+    public double getServerDurationMs() {
+        return serverDurationMs;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Request error or null if all statements were executed
+     */
+    @Nullable
+    public Throwable getError() {
+        return error;
+    }
+
+    void setEncoded(long encodeStartTime, long requestBytes) {
+        this.encodeNanos = System.nanoTime() - encodeStartTime;
+        this.requestBytes = requestBytes;
+    }
+
+    void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+
+    void setDecoded(long decodeStartTime, @NotNull LibSqlExecutionResult[] results) {
+        decodeNanos = System.nanoTime() - decodeStartTime;
+        for (LibSqlExecutionResult result : results) {
+            serverDurationMs += result.getQueryDurationMs();
+            rowsRead += result.getRowsRead();
+            rowsWritten += (long) result.getRowsWritten();
+        }
+    }
+
+    void setError(@NotNull Throwable error) {
+        this.error = error;
+    }
+
+    void finish() {
+        latencyNanos = System.nanoTime() - startTime;
+    }
+
+    @Nullable
+    Consumer<LibSqlRequestStats> getConsumer() {
+        return consumer;
+    }
+
+    /**
+     * Counts bytes of the response body
+     */
+    @NotNull
+    InputStream countResponse(@NotNull InputStream body) {
+        return new FilterInputStream(body) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    responseBytes++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(@NotNull byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count > 0) {
+                    responseBytes += count;
+                }
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull parser of a server response.
+ * Reads response body token by token. Rows of the last result may be left in the stream
+ * and decoded on demand (see {@link LibSqlExecutionResult#nextRow()}).
+ */
+abstract class LibSqlResponseParser implements LibSqlRowStream, Closeable {
+
+    protected final JsonReader reader;
+
+    protected LibSqlResponseParser(@NotNull InputStream stream) {
+        this.reader = new JsonReader(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)));
+        this.reader.setStrictness(Strictness.LENIENT);
+    }
+
+    /**
+     * Reads next row of the streamed result.
+     * Reads the rest of response after the last row.
+     */
+    @Nullable
+    @Override
+    public Object[] readRow(@NotNull LibSqlExecutionResult result) throws IOException {
+        if (reader.hasNext()) {
+            return readRowValues(result.getColumns().size());
+        }
+        reader.endArray();
+        readResponseTail(result);
+        result.endRowStream();
+        close();
+        return null;
+    }
+
+    /**
+     * Reads the response remaining after rows of a streamed result
+     */
+    protected abstract void readResponseTail(@NotNull LibSqlExecutionResult result) throws IOException;
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // Response stream is already broken
+        }
+    }
+
+    /**
+     * Starts streaming of result rows. Reader must be positioned at rows array.
+     */
+    protected void startRowStream(@NotNull LibSqlExecutionResult result) throws IOException {
+        reader.beginArray();
+        // Read the first row ahead to make it available for metadata
+        result.setRowStream(this, null);
+        Object[] firstRow = readRow(result);
+        if (firstRow != null) {
+            result.setRowStream(this, firstRow);
+        }
+    }
+
+    @NotNull
+    protected LibSqlResultRows readRows(int columnCount) throws IOException {
+        LibSqlResultRows.Builder rows = new LibSqlResultRows.Builder(columnCount);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginArray();
+            for (int i = 0; reader.hasNext(); i++) {
+                readValue(rows, i);
+            }
+            reader.endArray();
+            rows.endRow();
+        }
+        reader.endArray();
+        return rows.build();
+    }
+
+    @NotNull
+    protected Object[] readRowValues(int columnCount) throws IOException {
+        List<Object> values = columnCount < 0 ? new ArrayList<>() : null;
+        Object[] row = columnCount < 0 ? null : new Object[columnCount];
+        reader.beginArray();
+        for (int i = 0; reader.hasNext(); i++) {
+            Object value = readValue();
+            if (row == null) {
+                values.add(value);
+            } else if (i < row.length) {
+                row[i] = value;
+            }
+        }
+        reader.endArray();
+        return row == null ? values.toArray() : row;
+    }
+
+    @Nullable
+    protected abstract Object readValue() throws IOException;
+
+    /**
+     * Reads value and appends it to the column. Numeric values are appended without boxing.
+     */
+    protected abstract void readValue(@NotNull LibSqlResultRows.Builder rows, int column) throws IOException;
+
+    /**
+     * Appends JSON number, integers are stored as longs, other numbers as doubles
+     */
+    protected static void appendNumber(@NotNull LibSqlResultRows.Builder rows, int column, @NotNull String number) {
+        if (isIntegral(number)) {
+            try {
+                rows.appendLong(column, Long.parseLong(number));
+                return;
+            } catch (NumberFormatException e) {
+                // Out of long range
+            }
+        }
+        rows.appendDouble(column, Double.parseDouble(number));
+    }
+
+    @NotNull
+    protected static Object parseNumber(@NotNull String number) {
+        if (isIntegral(number)) {
+            try {
+                return Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                // Out of long range
+            }
+        }
+        return Double.parseDouble(number);
+    }
+
+    private static boolean isIntegral(@NotNull String number) {
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    protected String readNullableString() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    @Nullable
+    protected String readError() throws IOException {
+        switch (reader.peek()) {
+            case NULL -> {
+                reader.nextNull();
+                return null;
+            }
+            case BEGIN_OBJECT -> {
+                String message = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("message".equals(reader.nextName())) {
+                        message = readNullableString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return message;
+            }
+            default -> {
+                return reader.nextString();
+            }
+        }
+    }
+}
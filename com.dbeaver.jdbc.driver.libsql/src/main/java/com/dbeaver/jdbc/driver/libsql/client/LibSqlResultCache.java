@@ -0,0 +1,281 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Cache of read-only query results.
+ * One cache is shared by all connections to the same server with the same auth token, so results are never
+ * served to a connection with other credentials. The cache is bounded by the approximate size of cached results
+ * and evicts the least recently used ones. The size is set by the connection which created the cache.
+ * Any statement which may modify data invalidates all caches of the server.
+ * Entries expire after time to live of the reading connection.
+ * Results which depend on the session or the moment of execution (see {@link LibSqlStatementTemplate#isVolatile()})
+ * are not cached, a connection which changed its session state (e.g. created a temporary table) does not use the cache.
+ * Cache is disposed when the last connection which uses it is closed.
+ */
+public final class LibSqlResultCache {
+
+    private static final Logger log = Logger.getLogger(LibSqlResultCache.class.getName());
+
+    private static final Map<String, LibSqlResultCache> sharedCaches = new HashMap<>();
+
+    // Approximate size of a cache entry without result values
+    private static final int ENTRY_OVERHEAD = 128;
+
+    @NotNull
+    private final String serverKey;
+    // Server key and hash of the auth token
+    @NotNull
+    private final String cacheKey;
+    private final long maxSize;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    // Incremented by each invalidation, results of queries started before invalidation are not stored
+    private long generation;
+    private int refCount = 1;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private LibSqlResultCache(@NotNull String serverKey, @NotNull String cacheKey, long maxSize) {
+        this.serverKey = serverKey;
+        this.cacheKey = cacheKey;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Number of queries answered from cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Number of cacheable queries which were sent to server
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Approximate size of cached results in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all cached results of the server, including caches of connections with other credentials
+     */
+    public void invalidate() {
+        List<LibSqlResultCache> serverCaches = new ArrayList<>();
+        synchronized (sharedCaches) {
+            for (LibSqlResultCache cache : sharedCaches.values()) {
+                if (cache.serverKey.equals(serverKey)) {
+                    serverCaches.add(cache);
+                }
+            }
+        }
+        if (!serverCaches.contains(this)) {
+            serverCaches.add(this);
+        }
+        for (LibSqlResultCache cache : serverCaches) {
+            cache.clear();
+        }
+    }
+
+    private synchronized void clear() {
+        generation++;
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns copy of a cached result or null if there is no live result.
+     *
+     * @param timeToLive maximum age of the result in milliseconds
+     */
+    @Nullable
+    LibSqlExecutionResult get(@NotNull Key key, long timeToLive) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.createTime <= timeToLive * 1_000_000L) {
+                    hitCount.incrementAndGet();
+                    return entry.result.copy();
+                }
+                removeEntry(key);
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns current generation. It must be obtained before query execution and passed to {@link #put}.
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Stores materialized result. Result is not stored if the cache was invalidated since the query start.
+     */
+    synchronized void put(@NotNull Key key, @NotNull LibSqlExecutionResult result, long queryGeneration) {
+        if (queryGeneration != generation) {
+            return;
+        }
+        LibSqlResultRows rows = result.getResultRows();
+        long entrySize = ENTRY_OVERHEAD + key.estimateSize() + (rows == null ? 0 : rows.estimateSize());
+        if (entrySize > maxSize) {
+            return;
+        }
+        removeEntry(key);
+        entries.put(key, new Entry(result.copy(), entrySize, System.nanoTime()));
+        size += entrySize;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    private void removeEntry(@NotNull Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.size;
+        }
+    }
+
+    /**
+     * Returns cache of the server and credentials. Cache must be released when connection is closed.
+     * If the cache already exists, its size is not changed.
+     */
+    @NotNull
+    static LibSqlResultCache acquire(@NotNull URL url, @Nullable String authToken, long maxSize) {
+        String serverKey = url.getProtocol() + "://" + url.getAuthority() + url.getPath();
+        String cacheKey = serverKey + "|" + LibSqlHttpClients.hashToken(authToken);
+        synchronized (sharedCaches) {
+            LibSqlResultCache cache = sharedCaches.get(cacheKey);
+            if (cache != null) {
+                if (cache.maxSize != maxSize) {
+                    log.warning("Result cache of " + serverKey + " already exists with size " + cache.maxSize +
+                        ", size " + maxSize + " is ignored");
+                }
+                synchronized (cache) {
+                    cache.refCount++;
+                }
+                return cache;
+            }
+            cache = new LibSqlResultCache(serverKey, cacheKey, maxSize);
+            sharedCaches.put(cacheKey, cache);
+            return cache;
+        }
+    }
+
+    void release() {
+        synchronized (sharedCaches) {
+            synchronized (this) {
+                if (--refCount > 0) {
+                    return;
+                }
+                entries.clear();
+                size = 0;
+            }
+            sharedCaches.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Query text and parameter values. Parameters must not contain streams.
+     */
+    static final class Key {
+        @NotNull
+        private final String sql;
+        @NotNull
+        private final Object[] values;
+        @NotNull
+        private final Map<String, Object> namedValues;
+        private final int hashCode;
+
+        Key(@NotNull String sql, @NotNull LibSqlParameters parameters) {
+            this.sql = sql;
+            this.values = new Object[parameters.getCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = parameters.getValue(i);
+            }
+            this.namedValues = parameters.getNamedValues().isEmpty() ? Map.of() : new HashMap<>(parameters.getNamedValues());
+            this.hashCode = (sql.hashCode() * 31 + Arrays.deepHashCode(values)) * 31 + namedValues.hashCode();
+        }
+
+        long estimateSize() {
+            long result = 2L * sql.length();
+            for (Object value : values) {
+                result += LibSqlResultRows.estimateValueSize(value);
+            }
+            for (Map.Entry<String, Object> entry : namedValues.entrySet()) {
+                result += 2L * entry.getKey().length() + LibSqlResultRows.estimateValueSize(entry.getValue());
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key key)) {
+                return false;
+            }
+            return hashCode == key.hashCode &&
+                sql.equals(key.sql) &&
+                Arrays.deepEquals(values, key.values) &&
+                namedValues.equals(key.namedValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        @NotNull
+        private final LibSqlExecutionResult result;
+        private final long size;
+        private final long createTime;
+
+        private Entry(@NotNull LibSqlExecutionResult result, long size, long createTime) {
+            this.result = result;
+            this.size = size;
+            this.createTime = createTime;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.util.Arrays;
+
+/**
+ * Materialized result rows stored by columns.
+ * Columns which contain only integers or only floats are kept in primitive arrays with a null bitmap,
+ * so numeric values are read without boxing. Other columns (text, blobs and columns with mixed value types,
+ * which are legal in SQLite) are kept as objects.
+ */
+public final class LibSqlResultRows {
+
+    private static final Column[] NO_COLUMNS = new Column[0];
+
+    @NotNull
+    private final Column[] columns;
+    private final int rowCount;
+
+    private LibSqlResultRows(@NotNull Column[] columns, int rowCount) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Row and column indexes are zero-based
+     */
+    public boolean isNull(int row, int column) {
+        return columns[column].isNull(row);
+    }
+
+    public long getLong(int row, int column) {
+        return columns[column].getLong(row);
+    }
+
+    public double getDouble(int row, int column) {
+        return columns[column].getDouble(row);
+    }
+
+    @Nullable
+    public Object getObject(int row, int column) {
+        return columns[column].getObject(row);
+    }
+
+    /**
+     * Returns class of the column values: {@code Long} or {@code Double} for numeric columns,
+     * class of the first non-null value for other columns, or null if all values are null.
+     */
+    @Nullable
+    public Class<?> getValueClass(int column) {
+        return columns[column].getValueClass();
+    }
+
+    /**
+     * Returns values of the row. Numeric values are boxed.
+     */
+    @NotNull
+    public Object[] getRow(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].getObject(row);
+        }
+        return values;
+    }
+
+    /**
+     * Approximate memory size of values in bytes
+     */
+    long estimateSize() {
+        long result = 0;
+        for (Column column : columns) {
+            result += column.estimateSize();
+        }
+        return result;
+    }
+
+    static long estimateValueSize(@Nullable Object value) {
+        if (value instanceof String str) {
+            return 40 + 2L * str.length();
+        } else if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        return 16;
+    }
+
+    @NotNull
+    static LibSqlResultRows empty() {
+        return new LibSqlResultRows(NO_COLUMNS, 0);
+    }
+
+    /**
+     * Collects rows value by value: values of each row are appended by column index, then the row is ended.
+     */
+    static final class Builder {
+        @NotNull
+        private Column[] columns;
+        private int rowCount;
+
+        Builder(int columnCount) {
+            columns = new Column[Math.max(columnCount, 0)];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new Column();
+            }
+        }
+
+        void appendNull(int column) {
+            getColumn(column).appendNull(rowCount);
+        }
+
+        void appendLong(int column, long value) {
+            getColumn(column).appendLong(rowCount, value);
+        }
+
+        void appendDouble(int column, double value) {
+            getColumn(column).appendDouble(rowCount, value);
+        }
+
+        void appendObject(int column, @Nullable Object value) {
+            if (value == null) {
+                appendNull(column);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                appendLong(column, ((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                appendDouble(column, ((Number) value).doubleValue());
+            } else {
+                getColumn(column).appendObject(rowCount, value);
+            }
+        }
+
+        void appendRow(@NotNull Object[] row) {
+            for (int i = 0; i < row.length; i++) {
+                appendObject(i, row[i]);
+            }
+            endRow();
+        }
+
+        void endRow() {
+            for (Column column : columns) {
+                if (column.size <= rowCount) {
+                    // Value is missing in a short row
+                    column.appendNull(rowCount);
+                }
+            }
+            rowCount++;
+        }
+
+        @NotNull
+        LibSqlResultRows build() {
+            return new LibSqlResultRows(columns, rowCount);
+        }
+
+        @NotNull
+        private Column getColumn(int column) {
+            if (column >= columns.length) {
+                // Row is wider than columns list
+                int oldLength = columns.length;
+                columns = Arrays.copyOf(columns, column + 1);
+                for (int i = oldLength; i < columns.length; i++) {
+                    columns[i] = new Column();
+                }
+            }
+            return columns[column];
+        }
+    }
+
+    /**
+     * Column values. Storage type is chosen by the first non-null value
+     * and is changed to objects if a value of another type is found.
+     */
+    private static final class Column {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private static final byte TYPE_NULL = 0;
+        private static final byte TYPE_LONG = 1;
+        private static final byte TYPE_DOUBLE = 2;
+        private static final byte TYPE_OBJECT = 3;
+
+        private byte type = TYPE_NULL;
+        private long[] longs;
+        private double[] doubles;
+        private Object[] objects;
+        // Null flags of primitive values, bit per row
+        private long[] nulls;
+        // Number of rows with appended values
+        private int size;
+
+        long estimateSize() {
+            return switch (type) {
+                case TYPE_LONG -> 8L * longs.length + 8L * nulls.length;
+                case TYPE_DOUBLE -> 8L * doubles.length + 8L * nulls.length;
+                case TYPE_OBJECT -> {
+                    long result = 8L * objects.length;
+                    for (int i = 0; i < size; i++) {
+                        if (objects[i] != null) {
+                            result += estimateValueSize(objects[i]);
+                        }
+                    }
+                    yield result;
+                }
+                default -> 0;
+            };
+        }
+
+        @Nullable
+        Class<?> getValueClass() {
+            return switch (type) {
+                case TYPE_LONG -> Long.class;
+                case TYPE_DOUBLE -> Double.class;
+                case TYPE_OBJECT -> {
+                    for (int i = 0; i < size; i++) {
+                        if (objects[i] != null) {
+                            yield objects[i].getClass();
+                        }
+                    }
+                    yield null;
+                }
+                default -> null;
+            };
+        }
+
+        boolean isNull(int row) {
+            return switch (type) {
+                case TYPE_LONG, TYPE_DOUBLE -> isNullBit(row);
+                case TYPE_OBJECT -> row >= objects.length || objects[row] == null;
+                default -> true;
+            };
+        }
+
+        long getLong(int row) {
+            if (isNull(row)) {
+                return 0;
+            }
+            return switch (type) {
+                case TYPE_LONG -> longs[row];
+                case TYPE_DOUBLE -> (long) doubles[row];
+                case TYPE_OBJECT -> CommonUtils.toLong(objects[row]);
+                default -> 0;
+            };
+        }
+
+        double getDouble(int row) {
+            if (isNull(row)) {
+                return 0;
+            }
+            return switch (type) {
+                case TYPE_LONG -> longs[row];
+                case TYPE_DOUBLE -> doubles[row];
+                case TYPE_OBJECT -> CommonUtils.toDouble(objects[row]);
+                default -> 0;
+            };
+        }
+
+        @Nullable
+        Object getObject(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return switch (type) {
+                case TYPE_LONG -> longs[row];
+                case TYPE_DOUBLE -> doubles[row];
+                case TYPE_OBJECT -> objects[row];
+                default -> null;
+            };
+        }
+
+        void appendNull(int row) {
+            // Object and empty columns treat missing values as nulls
+            if (type == TYPE_LONG || type == TYPE_DOUBLE) {
+                setNullBit(row);
+            }
+            size = row + 1;
+        }
+
+        void appendLong(int row, long value) {
+            if (type == TYPE_NULL) {
+                type = TYPE_LONG;
+                longs = new long[capacity(row)];
+                initNulls(row);
+            }
+            if (type == TYPE_LONG) {
+                if (row >= longs.length) {
+                    longs = Arrays.copyOf(longs, grow(longs.length, row));
+                }
+                longs[row] = value;
+                size = row + 1;
+            } else {
+                appendObject(row, value);
+            }
+        }
+
+        void appendDouble(int row, double value) {
+            if (type == TYPE_NULL) {
+                type = TYPE_DOUBLE;
+                doubles = new double[capacity(row)];
+                initNulls(row);
+            }
+            if (type == TYPE_DOUBLE) {
+                if (row >= doubles.length) {
+                    doubles = Arrays.copyOf(doubles, grow(doubles.length, row));
+                }
+                doubles[row] = value;
+                size = row + 1;
+            } else {
+                appendObject(row, value);
+            }
+        }
+
+        void appendObject(int row, @NotNull Object value) {
+            if (type != TYPE_OBJECT) {
+                convertToObjects(row);
+            }
+            if (row >= objects.length) {
+                objects = Arrays.copyOf(objects, grow(objects.length, row));
+            }
+            objects[row] = value;
+            size = row + 1;
+        }
+
+        private void convertToObjects(int rowCount) {
+            Object[] values = new Object[capacity(rowCount)];
+            if (type == TYPE_LONG || type == TYPE_DOUBLE) {
+                for (int i = 0; i < rowCount; i++) {
+                    if (!isNullBit(i)) {
+                        values[i] = type == TYPE_LONG ? (Object) longs[i] : (Object) doubles[i];
+                    }
+                }
+            }
+            type = TYPE_OBJECT;
+            objects = values;
+            longs = null;
+            doubles = null;
+            nulls = null;
+        }
+
+        /**
+         * All rows before the first value are nulls
+         */
+        private void initNulls(int row) {
+            nulls = new long[(capacity(row) >> 6) + 1];
+            for (int i = 0; i < row; i++) {
+                setNullBit(i);
+            }
+        }
+
+        private boolean isNullBit(int row) {
+            int word = row >> 6;
+            return row >= size || (word < nulls.length && (nulls[word] & (1L << row)) != 0);
+        }
+
+        private void setNullBit(int row) {
+            int word = row >> 6;
+            if (word >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 2));
+            }
+            nulls[word] |= 1L << row;
+        }
+
+        private static int capacity(int row) {
+            return Math.max(INITIAL_CAPACITY, row + 1);
+        }
+
+        private static int grow(int length, int row) {
+            return Math.max(row + 1, length * 2);
+        }
+    }
+
+}
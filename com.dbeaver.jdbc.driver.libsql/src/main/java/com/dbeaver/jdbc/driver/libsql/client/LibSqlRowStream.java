@@ -0,0 +1,42 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Source of rows of a streaming result
+ */
+interface LibSqlRowStream {
+
+    /**
+     * Reads next row. At the end of rows the stream must call {@link LibSqlExecutionResult#endRowStream()}.
+     *
+     * @return next row or null if there are no more rows
+     */
+    @Nullable
+    Object[] readRow(@NotNull LibSqlExecutionResult result) throws IOException;
+
+    /**
+     * Releases resources of unread rows
+     */
+    void close();
+
+}
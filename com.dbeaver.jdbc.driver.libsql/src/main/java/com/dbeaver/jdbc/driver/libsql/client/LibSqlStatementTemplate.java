@@ -0,0 +1,299 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import com.google.gson.stream.JsonWriter;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Statement SQL text.
+ * Escaped JSON string of the SQL is built once and reused by every request which executes the statement.
+ */
+public class LibSqlStatementTemplate {
+
+    private static final Pattern MODIFY_PATTERN = Pattern.compile(
+        "\\b(insert|update|delete|replace)\\b", Pattern.CASE_INSENSITIVE);
+    // SELECT from a single table without joins, subqueries in FROM and compound selects
+    private static final Pattern SINGLE_TABLE_PATTERN = Pattern.compile(
+        "^\\s*select\\s(?:(?!\\bfrom\\b).)*?\\bfrom\\s+[`\"\\[]?([\\w$]+)[`\"\\]]?" +
+        "(?:\\s+(?:as\\s+)?(?!(?:where|group|order|limit|window)\\b)\\w+)?" +
+        "\\s*(?:(?:where|group|order|limit|window)\\b(?:(?!\\b(?:join|union|except|intersect)\\b).)*)?;?\\s*$",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern CREATE_TEMP_PATTERN = Pattern.compile(
+        "^create\\s+temp(?:orary)?\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SELECT_PREFIX_PATTERN = Pattern.compile(
+        "^\\s*select\\s+(?:(?:distinct|all)\\s+)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FROM_PATTERN = Pattern.compile("from\\b", Pattern.CASE_INSENSITIVE);
+    private static final String NAME = "(?:[\\w$]+|\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\])";
+    // [table.]* or [table.]column [[AS] alias]
+    private static final Pattern COLUMN_REFERENCE_PATTERN = Pattern.compile(
+        "(?:" + NAME + "\\s*\\.\\s*)?(?:(\\*)|(?!(?:null|true|false|current_\\w+)\\b|\\d)(" + NAME + "))" +
+        "(?:\\s+(?:as\\s+)?" + NAME + ")?",
+        Pattern.CASE_INSENSITIVE);
+    // Functions and values which differ between executions or sessions, references of temporary objects
+    private static final Pattern VOLATILE_PATTERN = Pattern.compile(
+        "'now'|\\b(?:(?:random|randomblob|last_insert_rowid|changes|total_changes)\\s*\\(" +
+        "|current_(?:date|time|timestamp)\\b|temp\\s*\\.|sqlite_temp_\\w+|(?:pragma_)?(?:data|schema)_version\\b)",
+        Pattern.CASE_INSENSITIVE);
+    // PRAGMA [schema.]name [= value | (argument)]
+    private static final Pattern PRAGMA_PATTERN = Pattern.compile(
+        "^pragma\\s+(?:[\\w$]+\\s*\\.\\s*)?([\\w$]+)\\s*([=(])?", Pattern.CASE_INSENSITIVE);
+    // Pragmas which take a table or index name as argument and only read it
+    private static final Set<String> PRAGMA_READ_FUNCTIONS = Set.of(
+        "table_info", "table_xinfo", "table_list", "index_list", "index_info", "index_xinfo",
+        "foreign_key_list", "foreign_key_check", "integrity_check", "quick_check");
+    // Pragmas which modify the database without a value
+    private static final Set<String> PRAGMA_ACTIONS = Set.of(
+        "optimize", "incremental_vacuum", "wal_checkpoint", "shrink_memory");
+
+    @NotNull
+    private final String sql;
+    private String sqlJson;
+    private Boolean readOnly;
+    private Boolean volatileResult;
+    private String sourceTable;
+    private String[] selectedColumns;
+
+    public LibSqlStatementTemplate(@NotNull String sql) {
+        this.sql = sql;
+    }
+
+    @NotNull
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns SQL text as JSON string literal
+     */
+    @NotNull
+    String getSqlJson() {
+        if (sqlJson == null) {
+            StringWriter buffer = new StringWriter(sql.length() + 16);
+            try (JsonWriter json = new JsonWriter(buffer)) {
+                json.value(sql);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sqlJson = buffer.toString();
+        }
+        return sqlJson;
+    }
+
+    /**
+     * Statement is a query which can't modify data (SELECT, WITH ... SELECT or a PRAGMA which reads a value).
+     * Any statement which is not recognized as a query is considered as modifying.
+     */
+    public boolean isReadOnly() {
+        if (readOnly == null) {
+            readOnly = isReadOnlyQuery(sql);
+        }
+        return readOnly;
+    }
+
+    /**
+     * Result depends on the moment or the session of execution: the statement calls a non-deterministic function
+     * (like {@code random()} or date functions of {@code 'now'}), reads values of the session
+     * (like {@code last_insert_rowid()} or {@code changes()}), refers to temporary objects or reads schema version.
+     * Such results must not be reused by other executions.
+     */
+    public boolean isVolatile() {
+        if (volatileResult == null) {
+            volatileResult = isPragma() || VOLATILE_PATTERN.matcher(sql).find();
+        }
+        return volatileResult;
+    }
+
+    /**
+     * Returns name of the table if the statement is a simple query of one table (no joins or compound selects).
+     */
+    @Nullable
+    public String getSourceTable() {
+        if (sourceTable == null) {
+            Matcher matcher = SINGLE_TABLE_PATTERN.matcher(sql);
+            sourceTable = matcher.matches() ? matcher.group(1) : "";
+        }
+        return sourceTable.isEmpty() ? null : sourceTable;
+    }
+
+    /**
+     * Returns columns referenced by items of the select list of a simple query of one table
+     * (see {@link #getSourceTable()}): name of the column for a bare column reference (possibly qualified
+     * by the table name and aliased), {@code *} for all columns of the table and null for other expressions.
+     * Returns null if the statement is not a simple query of one table.
+     */
+    @Nullable
+    public String[] getSelectedColumns() {
+        if (selectedColumns == null) {
+            selectedColumns = getSourceTable() == null ? new String[0] : parseSelectList(sql);
+        }
+        return selectedColumns.length == 0 ? null : selectedColumns;
+    }
+
+    /**
+     * Statement changes database schema (CREATE, DROP or ALTER)
+     */
+    public boolean isSchemaChange() {
+        String query = sql.stripLeading();
+        return startsWithKeyword(query, "create") || startsWithKeyword(query, "drop") || startsWithKeyword(query, "alter");
+    }
+
+    /**
+     * Statement is a PRAGMA
+     */
+    public boolean isPragma() {
+        return startsWithKeyword(sql.stripLeading(), "pragma");
+    }
+
+    /**
+     * Statement changes state of the server session which other sessions don't see:
+     * a PRAGMA which sets a value, ATTACH, DETACH or creation of a temporary object.
+     * PRAGMA which reads a value ({@code pragma name} or {@code pragma table_info(name)}) does not change the session.
+     */
+    public boolean isSessionStateChange() {
+        String query = sql.stripLeading();
+        if (startsWithKeyword(query, "pragma")) {
+            return isPragmaAssignment(query);
+        }
+        return startsWithKeyword(query, "attach") || startsWithKeyword(query, "detach") ||
+            CREATE_TEMP_PATTERN.matcher(query).find();
+    }
+
+    private static boolean isReadOnlyQuery(@NotNull String sql) {
+        String query = sql.stripLeading();
+        if (startsWithKeyword(query, "select")) {
+            return isSingleStatement(query);
+        }
+        if (startsWithKeyword(query, "pragma")) {
+            return isSingleStatement(query) && !isPragmaAssignment(query) && !isPragmaAction(query);
+        }
+        return startsWithKeyword(query, "with") && query.indexOf(';') < 0 && !MODIFY_PATTERN.matcher(query).find();
+    }
+
+    /**
+     * Splits select list by commas outside of parentheses, quotes and comments
+     */
+    @NotNull
+    private static String[] parseSelectList(@NotNull String sql) {
+        Matcher selectMatcher = SELECT_PREFIX_PATTERN.matcher(sql);
+        if (!selectMatcher.find()) {
+            return new String[0];
+        }
+        List<String> columns = new ArrayList<>();
+        int depth = 0;
+        int itemStart = selectMatcher.end();
+        for (int i = itemStart; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            switch (c) {
+                case '\'', '"', '`', '[' -> {
+                    int end = sql.indexOf(c == '[' ? ']' : c, i + 1);
+                    if (end < 0) {
+                        return new String[0];
+                    }
+                    i = end;
+                }
+                case '-', '/' -> {
+                    if (i + 1 < sql.length() && sql.charAt(i + 1) == (c == '-' ? '-' : '*')) {
+                        // Comments are not supported in the select list
+                        return new String[0];
+                    }
+                }
+                case '(' -> depth++;
+                case ')' -> depth--;
+                case ',' -> {
+                    if (depth == 0) {
+                        columns.add(getSelectedColumn(sql.substring(itemStart, i)));
+                        itemStart = i + 1;
+                    }
+                }
+                default -> {
+                    if (depth == 0 && (c == 'f' || c == 'F') && FROM_PATTERN.matcher(sql).region(i, sql.length()).lookingAt() &&
+                        !Character.isLetterOrDigit(sql.charAt(i - 1)) && sql.charAt(i - 1) != '_') {
+                        columns.add(getSelectedColumn(sql.substring(itemStart, i)));
+                        return columns.toArray(new String[0]);
+                    }
+                }
+            }
+        }
+        return new String[0];
+    }
+
+    @Nullable
+    private static String getSelectedColumn(@NotNull String item) {
+        Matcher matcher = COLUMN_REFERENCE_PATTERN.matcher(item.strip());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : unquoteName(matcher.group(2));
+    }
+
+    @NotNull
+    private static String unquoteName(@NotNull String name) {
+        char first = name.charAt(0);
+        if (first == '"' || first == '`' || first == '[') {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    private static boolean isSingleStatement(@NotNull String query) {
+        return query.indexOf(';') < 0 || query.indexOf(';') == query.stripTrailing().length() - 1;
+    }
+
+    /**
+     * PRAGMA sets a value: {@code pragma name = value} or {@code pragma name(value)} of a pragma which is not
+     * a table-valued read (like {@code table_info(name)}).
+     * Unrecognized PRAGMA syntax is considered as an assignment.
+     */
+    private static boolean isPragmaAssignment(@NotNull String query) {
+        Matcher matcher = PRAGMA_PATTERN.matcher(query);
+        if (!matcher.find()) {
+            return true;
+        }
+        String value = matcher.group(2);
+        if (value == null) {
+            return false;
+        }
+        return value.equals("=") || !PRAGMA_READ_FUNCTIONS.contains(matcher.group(1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private static boolean isPragmaAction(@NotNull String query) {
+        Matcher matcher = PRAGMA_PATTERN.matcher(query);
+        return matcher.find() && PRAGMA_ACTIONS.contains(matcher.group(1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private static boolean startsWithKeyword(@NotNull String query, @NotNull String keyword) {
+        return query.regionMatches(true, 0, keyword, 0, keyword.length()) &&
+            (query.length() == keyword.length() || !Character.isLetterOrDigit(query.charAt(keyword.length())));
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
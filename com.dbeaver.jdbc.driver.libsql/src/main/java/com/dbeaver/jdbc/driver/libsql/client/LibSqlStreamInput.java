@@ -16,32 +16,47 @@
  */
 package com.dbeaver.jdbc.driver.libsql.client;
 
-import java.io.ByteArrayOutputStream;
+import org.jkiss.code.NotNull;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 
+/**
+ * Binary parameter value read from a stream.
+ * The stream is encoded to the request body when the statement is executed, so it can be sent only once.
+ */
 public class LibSqlStreamInput {
-    private InputStream stream;
-    private long length;
+    private final InputStream stream;
+    private final long length;
+    private boolean consumed;
 
+    /**
+     * @param length number of bytes to read or -1 to read the whole stream
+     */
     public LibSqlStreamInput(InputStream stream, long length) {
         this.stream = stream;
         this.length = length;
     }
 
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the stream for reading. The stream can't be read again.
+     */
+    @NotNull
+    InputStream openStream() throws IOException {
+        if (consumed) {
+            throw new IOException("Stream parameter value was already sent");
+        }
+        consumed = true;
+        return stream;
+    }
+
     @Override
     public String toString() {
-        try {
-            ByteArrayOutputStream result = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            for (int length; (length = stream.read(buffer)) != -1; ) {
-                result.write(buffer, 0, length);
-            }
-            return result.toString(StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            return e.getMessage();
-        }
+        return "binary stream";
     }
 
 }
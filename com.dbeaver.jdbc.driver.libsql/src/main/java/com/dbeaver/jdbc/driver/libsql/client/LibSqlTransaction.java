@@ -0,0 +1,117 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transaction of a client in manual commit mode.
+ * BEGIN is not sent separately: it is prepended to the first request of the transaction.
+ * Statements which results are not needed immediately (savepoints and buffered writes) are queued
+ * and sent in the same pipeline with the next statement, commit or rollback.
+ */
+final class LibSqlTransaction {
+
+    static final LibSqlStatementTemplate BEGIN = new LibSqlStatementTemplate("BEGIN");
+    static final LibSqlStatementTemplate COMMIT = new LibSqlStatementTemplate("COMMIT");
+    static final LibSqlStatementTemplate ROLLBACK = new LibSqlStatementTemplate("ROLLBACK");
+
+    private static final LibSqlParameters NO_PARAMETERS = new LibSqlParameters();
+
+    private final List<LibSqlStatementTemplate> pendingStatements = new ArrayList<>();
+    private final List<LibSqlParameters> pendingParameters = new ArrayList<>();
+    // BEGIN was executed on the server stream
+    private boolean started;
+    // Server stream was lost with changes of the transaction, only rollback is allowed
+    private boolean aborted;
+
+    boolean isStarted() {
+        return started;
+    }
+
+    void setStarted(boolean started) {
+        this.started = started;
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    void setAborted(boolean aborted) {
+        this.aborted = aborted;
+    }
+
+    void addPending(@NotNull LibSqlStatementTemplate stmt, @NotNull LibSqlParameters parameters) {
+        pendingStatements.add(stmt);
+        pendingParameters.add(parameters);
+    }
+
+    int getPendingCount() {
+        return pendingStatements.size();
+    }
+
+    void clearPending() {
+        pendingStatements.clear();
+        pendingParameters.clear();
+    }
+
+    /**
+     * Number of statements which must be executed before the next statement: BEGIN and queued statements
+     */
+    int getPrefixLength() {
+        return (started ? 0 : 1) + pendingStatements.size();
+    }
+
+    /**
+     * Builds statements list of a request: transaction prefix followed by the given statements
+     */
+    @NotNull
+    LibSqlStatementTemplate[] withPrefix(@NotNull LibSqlStatementTemplate[] stmts) {
+        LibSqlStatementTemplate[] result = new LibSqlStatementTemplate[getPrefixLength() + stmts.length];
+        int pos = 0;
+        if (!started) {
+            result[pos++] = BEGIN;
+        }
+        for (LibSqlStatementTemplate stmt : pendingStatements) {
+            result[pos++] = stmt;
+        }
+        System.arraycopy(stmts, 0, result, pos, stmts.length);
+        return result;
+    }
+
+    /**
+     * Builds parameters list of a request, see {@link #withPrefix(LibSqlStatementTemplate[])}
+     */
+    @NotNull
+    LibSqlParameters[] withPrefix(@NotNull LibSqlParameters[] parameters, int stmtCount) {
+        LibSqlParameters[] result = new LibSqlParameters[getPrefixLength() + stmtCount];
+        int pos = 0;
+        if (!started) {
+            result[pos++] = NO_PARAMETERS;
+        }
+        for (LibSqlParameters stmtParameters : pendingParameters) {
+            result[pos++] = stmtParameters;
+        }
+        for (int i = 0; i < stmtCount; i++) {
+            result[pos++] = i < parameters.length ? parameters[i] : null;
+        }
+        return result;
+    }
+}
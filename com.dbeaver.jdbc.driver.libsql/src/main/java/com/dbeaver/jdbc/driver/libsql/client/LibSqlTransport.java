@@ -0,0 +1,189 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.driver.libsql.client;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Wire protocol used by {@link LibSqlClient} to execute statements
+ */
+abstract class LibSqlTransport {
+
+    @NotNull
+    protected final LibSqlClient client;
+    // Server of the transport
+    @NotNull
+    protected final URL url;
+    private final AtomicReference<LibSqlRequestBuffer> requestBuffer = new AtomicReference<>();
+
+    protected LibSqlTransport(@NotNull LibSqlClient client, @NotNull URL url) {
+        this.client = client;
+        this.url = url;
+    }
+
+    /**
+     * Executes statements in a single request.
+     *
+     * @param streamLast do not read rows of the last statement result immediately
+     * @param control    request timeout and cancellation
+     */
+    @NotNull
+    abstract LibSqlExecutionResult[] executeBatch(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        boolean streamLast,
+        @Nullable LibSqlRequestControl control
+    ) throws SQLException;
+
+    /**
+     * Executes statements in a single request without blocking.
+     * Results are read completely. Future completes with response processing error or
+     * with a request sending error which is translated by the client.
+     */
+    @NotNull
+    abstract CompletableFuture<LibSqlExecutionResult[]> executeBatchAsync(
+        @NotNull LibSqlStatementTemplate[] stmts,
+        @NotNull LibSqlParameters[] parameters,
+        @NotNull LibSqlRequestControl control
+    );
+
+    /**
+     * Statements of several requests can be executed in one server side transaction
+     */
+    boolean supportsTransactions() {
+        return false;
+    }
+
+    /**
+     * Pins the server stream: requests must not be moved to a new stream, e.g. while a transaction is open
+     */
+    void setStreamPinned(boolean pinned) {
+    }
+
+    /**
+     * Server stream of the previous request is still open
+     */
+    boolean isStreamOpen() {
+        return false;
+    }
+
+    /**
+     * Releases server side resources
+     */
+    void close() {
+    }
+
+    /**
+     * Returns request buffer. Buffer of the previous request is reused if it is not used by another request.
+     */
+    @NotNull
+    protected LibSqlRequestBuffer acquireBuffer() {
+        LibSqlRequestBuffer buffer = requestBuffer.getAndSet(null);
+        return buffer != null ? buffer : new LibSqlRequestBuffer();
+    }
+
+    /**
+     * Returns buffer for reuse. Must be called after the response was received or the request failed.
+     * Body chunks are pooled when the HTTP client finished reading them.
+     *
+     * @param sent response was received, so body chunks may be reused
+     */
+    protected void releaseBuffer(@NotNull LibSqlRequestBuffer buffer, boolean sent) {
+        buffer.release(sent);
+        requestBuffer.set(buffer);
+    }
+
+    /**
+     * Writes request body into the buffer and measures the encoding time
+     */
+    @NotNull
+    protected static HttpRequest.BodyPublisher writeBody(
+        @NotNull LibSqlRequestBuffer buffer,
+        @NotNull LibSqlRequestBuffer.BodyWriter writer,
+        @NotNull LibSqlParameters[] parameters,
+        @Nullable LibSqlRequestStats stats
+    ) throws IOException {
+        long startTime = System.nanoTime();
+        HttpRequest.BodyPublisher body = buffer.writeBody(writer, isStreamingBody(parameters));
+        if (stats != null) {
+            stats.setEncoded(startTime, body.contentLength());
+        }
+        return body;
+    }
+
+    /**
+     * Response body stream. Bytes are counted if metrics are collected.
+     */
+    @NotNull
+    protected static InputStream openResponseBody(@NotNull HttpResponse<InputStream> response, @Nullable LibSqlRequestStats stats) {
+        if (stats == null) {
+            return response.body();
+        }
+        stats.setStatusCode(response.statusCode());
+        return stats.countResponse(response.body());
+    }
+
+    /**
+     * Stream of completely read response body
+     */
+    @NotNull
+    protected static InputStream openResponseBytes(@NotNull HttpResponse<byte[]> response, @Nullable LibSqlRequestStats stats) {
+        if (stats != null) {
+            stats.setStatusCode(response.statusCode());
+            stats.setResponseBytes(response.body().length);
+        }
+        return new ByteArrayInputStream(response.body());
+    }
+
+    /**
+     * Passes measurements of the finished request to the client
+     */
+    protected void finishRequestStats(@Nullable LibSqlRequestStats stats, @Nullable Throwable error) {
+        if (stats == null) {
+            return;
+        }
+        if (error != null) {
+            stats.setError(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        }
+        client.finishRequestStats(stats);
+    }
+
+    /**
+     * Request body should be written while it is sent: stream parameters are read directly into the body
+     */
+    protected static boolean isStreamingBody(@NotNull LibSqlParameters[] parameters) {
+        for (LibSqlParameters stmtParameters : parameters) {
+            if (stmtParameters != null && stmtParameters.hasStreams()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
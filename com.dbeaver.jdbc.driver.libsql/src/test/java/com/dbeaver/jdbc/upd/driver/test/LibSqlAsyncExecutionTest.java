@@ -0,0 +1,79 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlConnection;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asynchronous execution of statements on standalone streams
+ */
+public class LibSqlAsyncExecutionTest extends LibSqlTestBase {
+
+    private static final long SLOW_DELAY = 2000;
+
+    @Test
+    public void testExecuteAsync() throws Exception {
+        try (Connection connection = connect(makeProperties())) {
+            LibSqlConnection libSqlConnection = connection.unwrap(LibSqlConnection.class);
+            server.setLatency(SLOW_DELAY, 0);
+            int openStreams = server.getOpenStreamCount();
+            long startTime = System.currentTimeMillis();
+            List<CompletableFuture<LibSqlExecutionResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(libSqlConnection.executeAsync("select " + i, Map.of(1, i)));
+            }
+            assertTrue(System.currentTimeMillis() - startTime < SLOW_DELAY, "execution must not block");
+            for (CompletableFuture<LibSqlExecutionResult> future : futures) {
+                assertEquals(1, future.get().getRows().size());
+            }
+            assertTrue(System.currentTimeMillis() - startTime < SLOW_DELAY * 3, "requests must run concurrently");
+            assertEquals(openStreams, server.getOpenStreamCount(), "async streams must be closed");
+
+            CompletableFuture<LibSqlExecutionResult> failed = libSqlConnection.executeAsync("fail", null);
+            ExecutionException error = assertThrows(ExecutionException.class, failed::get);
+            assertInstanceOf(SQLException.class, error.getCause());
+
+            // Response body is delayed, so the server sees the connection closed by the aborted request
+            server.setLatency(200, 0);
+            server.setBodyDelay(SLOW_DELAY);
+            long abortedCount = server.getAbortedCount();
+            CompletableFuture<LibSqlExecutionResult> cancelled = libSqlConnection.executeAsync("select 1", null);
+            Thread.sleep(100);
+            assertTrue(cancelled.cancel(true));
+            assertThrows(CancellationException.class, cancelled::get);
+            long deadline = System.currentTimeMillis() + SLOW_DELAY * 3;
+            while (server.getAbortedCount() == abortedCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(abortedCount + 1, server.getAbortedCount(), "cancellation of the future must abort the request");
+            server.setBodyDelay(0);
+        }
+    }
+}
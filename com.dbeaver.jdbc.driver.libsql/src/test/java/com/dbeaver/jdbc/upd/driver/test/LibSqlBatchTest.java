@@ -0,0 +1,119 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JDBC statement batches sent by chunks of multi-statement requests
+ */
+public class LibSqlBatchTest extends LibSqlTestBase {
+
+    @Test
+    public void testStatementBatch() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("batchMaxStatements", "2");
+        try (Connection connection = connect(props); Statement dbStat = connection.createStatement()) {
+            for (int i = 0; i < 5; i++) {
+                dbStat.addBatch("insert into testme values (" + i + ")");
+            }
+            int sqlCount = server.getAllSql().size();
+            long requestCount = server.getRequestCount();
+            assertArrayEquals(new int[]{1, 1, 1, 1, 1}, dbStat.executeBatch());
+            assertEquals(requestCount + 3, server.getRequestCount(), "batch must be sent by chunks of 2 statements");
+            List<String> allSql = server.getAllSql();
+            for (int i = 0; i < 5; i++) {
+                assertEquals("insert into testme values (" + i + ")", allSql.get(sqlCount + i), "statement order");
+            }
+
+            assertEquals(0, dbStat.executeBatch().length, "batch must be cleared by execution");
+            dbStat.addBatch("insert into testme values (1)");
+            dbStat.clearBatch();
+            requestCount = server.getRequestCount();
+            assertEquals(0, dbStat.executeLargeBatch().length, "batch must be cleared");
+            assertEquals(requestCount, server.getRequestCount(), "empty batch must not be sent");
+        }
+
+        props.setProperty("batchMaxBytes", "100");
+        props.setProperty("batchMaxStatements", "1000");
+        try (Connection connection = connect(props); Statement dbStat = connection.createStatement()) {
+            String value = "x".repeat(60);
+            for (int i = 0; i < 3; i++) {
+                dbStat.addBatch("insert into testme values ('" + value + "')");
+            }
+            long requestCount = server.getRequestCount();
+            assertEquals(3, dbStat.executeBatch().length);
+            assertEquals(requestCount + 3, server.getRequestCount(), "batch must be split by payload size");
+        }
+    }
+
+    @Test
+    public void testPreparedStatementBatch() throws Exception {
+        try (Connection connection = connect(makeProperties());
+             PreparedStatement dbStat = connection.prepareStatement("insert into testme values (?, ?)")) {
+            for (int i = 0; i < 3; i++) {
+                dbStat.setLong(1, i);
+                dbStat.setString(2, "value " + i);
+                dbStat.addBatch();
+            }
+            long requestCount = server.getRequestCount();
+            assertArrayEquals(new long[]{1, 1, 1}, dbStat.executeLargeBatch());
+            assertEquals(requestCount + 1, server.getRequestCount(), "batch must be sent by one request");
+            JsonArray steps = server.getLastRequest().getAsJsonArray("requests").get(0).getAsJsonObject()
+                .getAsJsonObject("batch").getAsJsonArray("steps");
+            assertEquals(3, steps.size());
+            for (int i = 0; i < 3; i++) {
+                JsonObject stmt = steps.get(i).getAsJsonObject().getAsJsonObject("stmt");
+                assertEquals("insert into testme values (?, ?)", stmt.get("sql").getAsString());
+                JsonArray args = stmt.getAsJsonArray("args");
+                assertEquals(String.valueOf(i), args.get(0).getAsJsonObject().get("value").getAsString(),
+                    "parameters of batch step " + i + " must be copied by addBatch");
+                assertEquals("value " + i, args.get(1).getAsJsonObject().get("value").getAsString());
+            }
+
+            // Parameters set after addBatch are not a part of the batch
+            dbStat.setLong(1, 10);
+            dbStat.addBatch();
+            dbStat.clearBatch();
+            assertEquals(0, dbStat.executeBatch().length);
+        }
+    }
+
+    @Test
+    public void testBatchError() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("batchMaxStatements", "2");
+        try (Connection connection = connect(props); Statement dbStat = connection.createStatement()) {
+            dbStat.addBatch("insert into testme values (1)");
+            dbStat.addBatch("insert into testme values (2)");
+            dbStat.addBatch("fail");
+            dbStat.addBatch("insert into testme values (3)");
+            BatchUpdateException error = assertThrows(BatchUpdateException.class, dbStat::executeBatch);
+            assertArrayEquals(new int[]{1, 1}, error.getUpdateCounts(), "update counts of executed chunks");
+            assertEquals(0, dbStat.executeBatch().length, "failed batch must be cleared");
+            assertTrue(dbStat.executeQuery("select 1").next(), "statement works after batch error");
+        }
+    }
+}
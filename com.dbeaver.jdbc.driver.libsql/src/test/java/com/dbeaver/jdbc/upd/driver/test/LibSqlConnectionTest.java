@@ -0,0 +1,265 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.sql.*;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JDBC connection, statements and result sets over Hrana
+ */
+public class LibSqlConnectionTest extends LibSqlTestBase {
+
+    @Test
+    public void testResultSet() throws Exception {
+        try (Connection connection = connect(makeProperties())) {
+            try (Statement dbStat = connection.createStatement()) {
+                try (ResultSet dbResult = dbStat.executeQuery("select * from testme")) {
+                    ResultSetMetaData rsmd = dbResult.getMetaData();
+                    assertEquals(Types.BIGINT, rsmd.getColumnType(1));
+                    assertEquals("INTEGER", rsmd.getColumnTypeName(1));
+                    assertEquals(Long.class.getName(), rsmd.getColumnClassName(1));
+                    assertEquals(Types.DOUBLE, rsmd.getColumnType(2), "float type by value");
+                    assertEquals(Types.VARCHAR, rsmd.getColumnType(3), "declared text type");
+                    assertEquals(Types.BLOB, rsmd.getColumnType(4), "declared blob type");
+                    assertEquals(Types.VARCHAR, rsmd.getColumnType(5), "null column type");
+                    assertTrue(dbResult.next());
+                    assertEquals(Long.MAX_VALUE, dbResult.getLong(1));
+                    assertArrayEquals(new byte[]{1, 2, 3}, dbResult.getBytes(4));
+                    dbResult.getBytes(4)[0] = 9;
+                    ((byte[]) dbResult.getObject(4))[1] = 9;
+                    assertArrayEquals(new byte[]{1, 2, 3}, dbResult.getBytes(4), "returned blob bytes must be a copy");
+                    assertArrayEquals(new byte[]{1, 2, 3}, dbResult.getBinaryStream(4).readAllBytes());
+                    assertArrayEquals(new byte[]{2, 3}, dbResult.getBlob(4).getBytes(2, 5));
+                }
+            }
+        }
+        assertEquals(0, server.getOpenStreamCount(), "connection close must close stream");
+    }
+
+    @Test
+    public void testDeclaredTypes() throws Exception {
+        server.setFixedResult(new LibSqlMockServer.Result(
+            List.of("d", "dt", "ts", "t", "b", "bb", "dec", "num"),
+            List.of("DATE", "DATETIME", "TIMESTAMP", "TIME", "BOOLEAN", "bool", "DECIMAL(10,2)", "NUMERIC"),
+            List.<Object[]>of(new Object[]{"2024-01-02", "2024-01-02 10:20:30", "2024-01-02 10:20:30", "10:20:30", 1L, 0L, 1.25, 7L}),
+            0));
+        try (Connection connection = connect(makeProperties());
+             Statement dbStat = connection.createStatement();
+             ResultSet dbResult = dbStat.executeQuery("select * from dates")) {
+            ResultSetMetaData rsmd = dbResult.getMetaData();
+            for (int i = 1; i <= 4; i++) {
+                assertEquals(Types.VARCHAR, rsmd.getColumnType(i), "date/time column " + i + " keeps ISO strings");
+                assertEquals(String.class.getName(), rsmd.getColumnClassName(i));
+            }
+            assertEquals("DATETIME", rsmd.getColumnTypeName(2), "declared type name");
+            assertEquals(Types.BOOLEAN, rsmd.getColumnType(5));
+            assertEquals(Types.BOOLEAN, rsmd.getColumnType(6));
+            assertEquals(Types.DOUBLE, rsmd.getColumnType(7), "numeric affinity type by value");
+            assertEquals("DECIMAL(10,2)", rsmd.getColumnTypeName(7));
+            assertEquals(Types.BIGINT, rsmd.getColumnType(8), "numeric affinity type by value");
+            assertEquals(Long.class.getName(), rsmd.getColumnClassName(8));
+
+            assertTrue(dbResult.next());
+            assertEquals(Date.valueOf("2024-01-02"), dbResult.getDate(1));
+            assertEquals(Timestamp.valueOf("2024-01-02 10:20:30"), dbResult.getTimestamp(3));
+            assertTrue(dbResult.getBoolean(5));
+            assertFalse(dbResult.getBoolean(6));
+        }
+    }
+
+    @Test
+    public void testParameters() throws Exception {
+        try (Connection connection = connect(makeProperties())) {
+            try (PreparedStatement dbStat = connection.prepareStatement("insert into testme values (?, ?, ?)")) {
+                byte[] data = new byte[100_000];
+                new Random(1).nextBytes(data);
+                String text = "text \"\\\n\u0001\u2028\u00e9\ud83d\ude00 ".repeat(10_000);
+                dbStat.setBinaryStream(1, new ByteArrayInputStream(data));
+                dbStat.setBytes(2, new byte[]{0, -1});
+                dbStat.setCharacterStream(3, new StringReader(text));
+                dbStat.execute();
+                JsonArray params = getLastStatement().getAsJsonArray("args");
+                assertEquals("text", params.get(2).getAsJsonObject().get("type").getAsString());
+                assertEquals(text, params.get(2).getAsJsonObject().get("value").getAsString(), "reader parameter");
+                for (int i = 0; i < 2; i++) {
+                    assertEquals("blob", params.get(i).getAsJsonObject().get("type").getAsString());
+                }
+                assertArrayEquals(data, Base64.getDecoder().decode(
+                    params.get(0).getAsJsonObject().get("base64").getAsString()), "stream parameter");
+                assertArrayEquals(new byte[]{0, -1}, Base64.getDecoder().decode(
+                    params.get(1).getAsJsonObject().get("base64").getAsString()), "bytes parameter");
+            }
+            try (PreparedStatement dbStat = connection.prepareStatement("select * from testme where a = ? and b = ?")) {
+                for (int i = 0; i < 2; i++) {
+                    dbStat.setLong(1, i);
+                    dbStat.setString(3, "value \"" + i + "\"");
+                    try (ResultSet dbResult = dbStat.executeQuery()) {
+                        assertTrue(dbResult.next());
+                    }
+                    JsonObject stmt = getLastStatement();
+                    assertEquals("select * from testme where a = ? and b = ?", stmt.get("sql").getAsString());
+                    JsonArray params = stmt.getAsJsonArray("args");
+                    assertEquals(3, params.size());
+                    assertEquals(String.valueOf(i), params.get(0).getAsJsonObject().get("value").getAsString());
+                    assertEquals("null", params.get(1).getAsJsonObject().get("type").getAsString(), "unset parameter");
+                    assertEquals("value \"" + i + "\"", params.get(2).getAsJsonObject().get("value").getAsString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        Properties props = makeProperties();
+        try (Connection other = connect(props)) {
+            Connection connection = connect(props);
+            assertFalse(connection.isClosed());
+            connection.close();
+            connection.close();
+            assertTrue(connection.isClosed());
+            SQLException error = assertThrows(SQLException.class, connection::createStatement);
+            assertEquals("08003", error.getSQLState());
+            // Shared HTTP client is still referenced by the other connection
+            try (Statement dbStat = other.createStatement()) {
+                assertTrue(dbStat.executeQuery("select 1").next(), "other connection works");
+            }
+
+            Properties streamProps = new Properties();
+            streamProps.putAll(props);
+            streamProps.setProperty("streamResults", "true");
+            try (Connection streaming = connect(streamProps)) {
+                Statement dbStat = streaming.createStatement();
+                ResultSet dbResult = dbStat.executeQuery("select * from testme");
+                assertTrue(dbResult.next());
+                dbStat.close();
+                assertTrue(dbStat.isClosed() && dbResult.isClosed(), "statement close must close its result set");
+                assertThrows(SQLException.class, () -> dbStat.executeQuery("select 1"));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingResults() throws Exception {
+        int rowCount = 20_000;
+        String value = "x".repeat(50);
+        try (LibSqlMockServer rowServer = new LibSqlMockServer(LibSqlMockServer.generatedRows(rowCount, value.length()))) {
+            for (String protocol : new String[]{"hrana2", "legacy"}) {
+                Properties props = new Properties();
+                props.setProperty("protocol", protocol);
+                props.setProperty("streamResults", "true");
+                try (Connection connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + rowServer.getUrl(), props);
+                     Statement dbStat = connection.createStatement()) {
+                    try (ResultSet dbResult = dbStat.executeQuery("select id, value from generated")) {
+                        int count = 0;
+                        while (dbResult.next()) {
+                            assertEquals(count, dbResult.getLong(1));
+                            assertEquals(value, dbResult.getString(2));
+                            count++;
+                        }
+                        assertEquals(rowCount, count, protocol + ": all rows must be decoded");
+                    }
+                    try (ResultSet dbResult = dbStat.executeQuery("select id, value from generated")) {
+                        for (int i = 0; i < 10; i++) {
+                            assertTrue(dbResult.next());
+                        }
+                    }
+                    try (ResultSet dbResult = dbStat.executeQuery("select id, value from generated")) {
+                        assertTrue(dbResult.next(), protocol + ": query after partially read result");
+                        assertEquals(0, dbResult.getLong(1));
+                    }
+                }
+            }
+        }
+
+        Properties props = makeProperties();
+        props.setProperty("streamResults", "true");
+        try (Connection streaming = connect(props);
+             Connection materialized = connect(makeProperties());
+             ResultSet streamed = streaming.createStatement().executeQuery("select * from testme");
+             ResultSet expected = materialized.createStatement().executeQuery("select * from testme")) {
+            assertTrue(streamed.next() && expected.next());
+            assertEquals(expected.getLong(1), streamed.getLong(1));
+            assertEquals(expected.getDouble(2), streamed.getDouble(2));
+            assertEquals(expected.getString(3), streamed.getString(3));
+            assertArrayEquals(expected.getBytes(4), streamed.getBytes(4));
+            assertNull(streamed.getObject(5));
+            assertTrue(streamed.wasNull());
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(expected.getMetaData().getColumnType(i), streamed.getMetaData().getColumnType(i),
+                    "type of streamed column " + i);
+            }
+            assertFalse(streamed.next() || expected.next());
+        }
+    }
+
+    @Test
+    public void testLegacyColumnTypes() throws Exception {
+        try (LibSqlMockServer sqliteServer = new LibSqlMockServer(LibSqlMockServer.sqlite())) {
+            Properties props = new Properties();
+            props.setProperty("schemaCache", "true");
+            try (Connection connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + sqliteServer.getUrl(), props)) {
+                try (Statement dbStat = connection.createStatement()) {
+                    dbStat.execute("create table t1 (id integer primary key, name varchar(20), data blob)");
+                    dbStat.execute("insert into t1 values (1, 'a', x'01')");
+
+                    long requestCount = sqliteServer.getRequestCount();
+                    try (ResultSet dbResult = dbStat.executeQuery("select * from t1")) {
+                        requestCount++;
+                        assertEquals("VARCHAR", dbResult.getMetaData().getColumnTypeName(2), "type by value without snapshot");
+                        assertNull(dbResult.getMetaData().getTableName(1));
+                    }
+                    assertEquals(requestCount, sqliteServer.getRequestCount(), "metadata must not load schema snapshot");
+
+                    connection.getMetaData().getTables(null, null, "t1", null).close();
+                    try (ResultSet dbResult = dbStat.executeQuery("select * from t1")) {
+                        ResultSetMetaData rsmd = dbResult.getMetaData();
+                        assertEquals("varchar(20)", rsmd.getColumnTypeName(2));
+                        assertEquals(Types.BLOB, rsmd.getColumnType(3));
+                        assertEquals("t1", rsmd.getTableName(2));
+                    }
+                    try (ResultSet dbResult = dbStat.executeQuery("select t1.name as id, \"id\" name from t1")) {
+                        ResultSetMetaData rsmd = dbResult.getMetaData();
+                        assertEquals("varchar(20)", rsmd.getColumnTypeName(1), "aliased column");
+                        assertEquals("t1", rsmd.getTableName(1));
+                        assertEquals(Types.BIGINT, rsmd.getColumnType(2));
+                    }
+                    try (ResultSet dbResult = dbStat.executeQuery("select upper(name) as id, count(*) as name, 'x, y' as data from t1")) {
+                        ResultSetMetaData rsmd = dbResult.getMetaData();
+                        for (int i = 1; i <= 3; i++) {
+                            assertNull(rsmd.getTableName(i), "expression " + i + " has no table");
+                        }
+                        assertEquals(Types.VARCHAR, rsmd.getColumnType(1), "expression type by value");
+                        assertEquals(Types.BIGINT, rsmd.getColumnType(2), "expression type by value");
+                        assertEquals(Types.VARCHAR, rsmd.getColumnType(3), "expression type by value");
+                    }
+                }
+            }
+        }
+    }
+}
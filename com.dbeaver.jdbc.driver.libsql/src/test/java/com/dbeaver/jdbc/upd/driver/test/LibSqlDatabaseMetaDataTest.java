@@ -0,0 +1,199 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Metadata served from the schema snapshot and read by single queries must match metadata
+ * read by per-table pragmas from a SQLite-backed mock server
+ */
+public class LibSqlDatabaseMetaDataTest extends LibSqlTestBase {
+
+    private static final String[] SCHEMA = {
+        "create table parent (id integer primary key, code text unique, name text)",
+        "create table child (id integer, parent_id integer references parent(id) on delete cascade, code text, " +
+            "constraint child_pk primary key (id), constraint fk_code foreign key (code) references parent(code) on update set null)",
+        "create index child_parent on child(parent_id)",
+        "create index child_expr on child(lower(code), id)",
+        "create unique index parent_code_id on parent(code, id)",
+        "create table other (id integer primary key, child_id integer references child(id), parent_id integer references parent)",
+        "create table plain (a text, b real)",
+        "create view parent_view as select id, name from parent",
+    };
+
+    @Test
+    public void testSchemaSnapshot() throws Exception {
+        try (LibSqlMockServer sqliteServer = new LibSqlMockServer(LibSqlMockServer.sqlite())) {
+            String url = "jdbc:dbeaver:libsql:" + sqliteServer.getUrl();
+            Properties snapshotProps = makeProperties();
+            snapshotProps.setProperty("schemaCache", "true");
+            try (Connection queries = DriverManager.getConnection(url, makeProperties());
+                 Connection snapshot = DriverManager.getConnection(url, snapshotProps)) {
+                try (Statement dbStat = queries.createStatement()) {
+                    for (String ddl : SCHEMA) {
+                        dbStat.execute(ddl);
+                    }
+                }
+                DatabaseMetaData expected = queries.getMetaData();
+                DatabaseMetaData actual = snapshot.getMetaData();
+
+                assertRowsEqual(expected.getTables(null, null, null, null), actual.getTables(null, null, null, null), "tables");
+                assertRowsEqual(expected.getColumns(null, null, null, null), actual.getColumns(null, null, null, null), "columns");
+                List<String> tables = readColumn(expected.getTables(null, null, null, null), "TABLE_NAME");
+                assertEquals(List.of("parent", "child", "other", "plain"), tables);
+                for (String table : tables) {
+                    assertRowsEqual(expected.getColumns(null, null, table, null), actual.getColumns(null, null, table, null),
+                        "columns of " + table);
+                    assertRowsEqual(expected.getPrimaryKeys(null, null, table), actual.getPrimaryKeys(null, null, table),
+                        "primary keys of " + table);
+                    assertRowsEqual(expected.getImportedKeys(null, null, table), actual.getImportedKeys(null, null, table),
+                        "imported keys of " + table);
+                    assertRowsEqual(expected.getExportedKeys(null, null, table), actual.getExportedKeys(null, null, table),
+                        "exported keys of " + table);
+                    assertRowsEqual(expected.getIndexInfo(null, null, table, false, false), actual.getIndexInfo(null, null, table, false, false),
+                        "indexes of " + table);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExportedKeys() throws Exception {
+        try (LibSqlMockServer sqliteServer = new LibSqlMockServer(LibSqlMockServer.sqlite())) {
+            try (Connection connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + sqliteServer.getUrl(), makeProperties())) {
+                try (Statement dbStat = connection.createStatement()) {
+                    for (String ddl : SCHEMA) {
+                        dbStat.execute(ddl);
+                    }
+                }
+                DatabaseMetaData metaData = connection.getMetaData();
+                List<String> tables = readColumn(metaData.getTables(null, null, null, null), "TABLE_NAME");
+                for (String target : tables) {
+                    // Foreign keys which reference the table, found by imported keys of each table
+                    List<List<String>> expected = new ArrayList<>();
+                    for (String table : tables) {
+                        try (ResultSet dbResult = metaData.getImportedKeys(null, null, table)) {
+                            while (dbResult.next()) {
+                                if (target.equalsIgnoreCase(dbResult.getString("PKTABLE_NAME"))) {
+                                    expected.add(readKeyRow(dbResult));
+                                }
+                            }
+                        }
+                    }
+                    List<List<String>> actual = new ArrayList<>();
+                    try (ResultSet dbResult = metaData.getExportedKeys(null, null, target)) {
+                        while (dbResult.next()) {
+                            actual.add(readKeyRow(dbResult));
+                        }
+                    }
+                    assertEquals(expected, actual, "exported keys of " + target);
+                }
+                assertEquals(3, readColumn(metaData.getExportedKeys(null, null, "parent"), "FKCOLUMN_NAME").size());
+                assertEquals(List.of(), readColumn(metaData.getExportedKeys(null, null, "plain"), "FKCOLUMN_NAME"));
+            }
+        }
+    }
+
+    @Test
+    public void testIndexInfo() throws Exception {
+        try (LibSqlMockServer sqliteServer = new LibSqlMockServer(LibSqlMockServer.sqlite())) {
+            try (Connection connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + sqliteServer.getUrl(), makeProperties())) {
+                try (Statement dbStat = connection.createStatement()) {
+                    for (String ddl : SCHEMA) {
+                        dbStat.execute(ddl);
+                    }
+                }
+                DatabaseMetaData metaData = connection.getMetaData();
+                for (String table : List.of("parent", "child", "other", "plain")) {
+                    // Columns of each index read by a separate pragma
+                    List<List<String>> expected = new ArrayList<>();
+                    try (Statement dbStat = connection.createStatement();
+                         ResultSet indexes = dbStat.executeQuery("pragma index_list('" + table + "')")) {
+                        while (indexes.next()) {
+                            String indexName = indexes.getString("name");
+                            String nonUnique = String.valueOf(1 - indexes.getInt("unique"));
+                            try (Statement columnStat = connection.createStatement();
+                                 ResultSet columns = columnStat.executeQuery("pragma index_info('" + indexName + "')")) {
+                                while (columns.next()) {
+                                    expected.add(List.of(
+                                        table, nonUnique, indexName, String.valueOf(columns.getInt("seqno") + 1),
+                                        String.valueOf(columns.getString("name"))));
+                                }
+                            }
+                        }
+                    }
+                    List<List<String>> actual = new ArrayList<>();
+                    try (ResultSet dbResult = metaData.getIndexInfo(null, null, table, false, false)) {
+                        while (dbResult.next()) {
+                            actual.add(List.of(
+                                dbResult.getString("TABLE_NAME"), dbResult.getString("NON_UNIQUE"), dbResult.getString("INDEX_NAME"),
+                                dbResult.getString("ORDINAL_POSITION"), String.valueOf(dbResult.getString("COLUMN_NAME"))));
+                        }
+                    }
+                    assertEquals(expected, actual, "indexes of " + table);
+                }
+            }
+        }
+    }
+
+    private static List<String> readKeyRow(ResultSet dbResult) throws SQLException {
+        return List.of(
+            dbResult.getString("PKTABLE_NAME"), dbResult.getString("PKCOLUMN_NAME"),
+            dbResult.getString("FKTABLE_NAME"), dbResult.getString("FKCOLUMN_NAME"),
+            dbResult.getString("KEY_SEQ"), dbResult.getString("UPDATE_RULE"), dbResult.getString("DELETE_RULE"),
+            dbResult.getString("FK_NAME"));
+    }
+
+    private static List<String> readColumn(ResultSet dbResult, String column) throws SQLException {
+        try (dbResult) {
+            List<String> values = new ArrayList<>();
+            while (dbResult.next()) {
+                values.add(dbResult.getString(column));
+            }
+            return values;
+        }
+    }
+
+    private static void assertRowsEqual(ResultSet expected, ResultSet actual, String message) throws SQLException {
+        try (expected; actual) {
+            ResultSetMetaData expectedMeta = expected.getMetaData();
+            ResultSetMetaData actualMeta = actual.getMetaData();
+            assertEquals(expectedMeta.getColumnCount(), actualMeta.getColumnCount(), message + ": column count");
+            for (int i = 1; i <= expectedMeta.getColumnCount(); i++) {
+                assertEquals(expectedMeta.getColumnLabel(i), actualMeta.getColumnLabel(i), message + ": column " + i);
+            }
+            for (int row = 1; expected.next(); row++) {
+                assertTrue(actual.next(), message + ": row " + row + " is missing");
+                for (int i = 1; i <= expectedMeta.getColumnCount(); i++) {
+                    assertEquals(expected.getString(i), actual.getString(i),
+                        message + ": row " + row + ", " + expectedMeta.getColumnLabel(i));
+                    assertEquals(expected.getObject(i) == null, actual.getObject(i) == null,
+                        message + ": row " + row + ", null " + expectedMeta.getColumnLabel(i));
+                }
+            }
+            assertFalse(actual.next(), message + ": extra rows");
+        }
+    }
+}
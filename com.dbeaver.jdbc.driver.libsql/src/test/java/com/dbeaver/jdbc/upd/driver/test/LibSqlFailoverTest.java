@@ -0,0 +1,169 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlConnection;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlClient;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlEndpoints;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Retries of failed reads and routing of reads to replica servers
+ */
+public class LibSqlFailoverTest extends LibSqlTestBase {
+
+    @Test
+    public void testRetry() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null,
+            Map.of("protocol", "hrana2", "retryBackoff", "10"));
+        try {
+            long requestCount = server.getRequestCount();
+            server.failNext(1);
+            assertEquals(1, client.execute("select 1", null).getRows().size(), "read must be retried");
+            assertEquals(requestCount + 2, server.getRequestCount());
+            assertEquals(1, server.getFailedCount());
+
+            server.failNext(1);
+            SQLTransientConnectionException error = assertThrows(SQLTransientConnectionException.class,
+                () -> client.execute("insert 1", null), "write must not be retried");
+            assertTrue(error.getMessage().contains("unavailable"), error.getMessage());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testRetryLimits() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("readRetries", "10");
+        props.setProperty("retryBackoff", "5000");
+        try (Connection connection = connect(props); Statement dbStat = connection.createStatement()) {
+            server.setUnavailable(true);
+            dbStat.setQueryTimeout(1);
+            long startTime = System.currentTimeMillis();
+            assertThrows(SQLTimeoutException.class, () -> dbStat.executeQuery("select 1").close(),
+                "retries must be limited by query timeout");
+            assertTrue(System.currentTimeMillis() - startTime < 2000, "retries must not exceed query timeout");
+
+            dbStat.setQueryTimeout(0);
+            Thread canceller = new Thread(() -> {
+                try {
+                    Thread.sleep(300);
+                    dbStat.cancel();
+                } catch (Exception ignored) {
+                }
+            });
+            startTime = System.currentTimeMillis();
+            canceller.start();
+            SQLException error = assertThrows(SQLException.class, () -> dbStat.executeQuery("select 1").close());
+            assertEquals("HY008", error.getSQLState(), "retries must be stopped by cancel");
+            assertTrue(System.currentTimeMillis() - startTime < 2000, "cancel must interrupt retry backoff");
+            canceller.join();
+        } finally {
+            server.setUnavailable(false);
+        }
+    }
+
+    @Test
+    public void testReadRouting() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("retryBackoff", "10");
+        props.setProperty("healthCheckInterval", "0");
+        try (Connection connection = DriverManager.getConnection(getJdbcUrl() + "," + server.getUrl(), props)) {
+            assertNull(connection.unwrap(LibSqlConnection.class).getClient().getEndpoints(), "read routing must be opt-in");
+        }
+
+        props.setProperty("readRouting", "true");
+        try (LibSqlMockServer primary = new LibSqlMockServer(makeResponder())) {
+            primary.setUnavailable(true);
+            try (Connection connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + primary.getUrl() + "," + server.getUrl(), props)) {
+                LibSqlEndpoints endpoints = connection.unwrap(LibSqlConnection.class).getClient().getEndpoints();
+                assertNotNull(endpoints);
+                assertEquals(2, endpoints.getEndpoints().size());
+                assertFalse(endpoints.getPrimary().isAvailable(), "failed primary server");
+                try (Statement dbStat = connection.createStatement()) {
+                    long requestCount = server.getRequestCount();
+                    try (ResultSet dbResult = dbStat.executeQuery("select 1")) {
+                        assertTrue(dbResult.next(), "read from replica");
+                    }
+                    assertEquals(requestCount + 1, server.getRequestCount(), "read must be routed to replica");
+                    assertThrows(SQLTransientConnectionException.class, () -> dbStat.execute("insert 1"),
+                        "write must be sent to primary server");
+                }
+                assertTrue(endpoints.getEndpoints().get(1).getLatencyNanos() > 0, "replica response time");
+                try (Statement dbStat = connection.createStatement()) {
+                    assertThrows(SQLTransientConnectionException.class, () -> dbStat.execute("create temp table t1(a)"),
+                        "session statement must be sent to primary server");
+                    assertThrows(SQLTransientConnectionException.class, () -> dbStat.executeQuery("select 1").close(),
+                        "read after session state change must be sent to primary server");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPragmaReads() throws Exception {
+        assertTrue(new LibSqlStatementTemplate("pragma table_info('t1')").isReadOnly());
+        assertTrue(new LibSqlStatementTemplate("PRAGMA main.foreign_key_list(t1)").isReadOnly());
+        assertTrue(new LibSqlStatementTemplate("pragma user_version").isReadOnly());
+        assertFalse(new LibSqlStatementTemplate("pragma table_info('t1')").isSessionStateChange());
+        assertTrue(new LibSqlStatementTemplate("pragma foreign_keys = on").isSessionStateChange());
+        assertTrue(new LibSqlStatementTemplate("pragma cache_size(100)").isSessionStateChange());
+        assertFalse(new LibSqlStatementTemplate("pragma optimize").isReadOnly());
+
+        Properties props = makeProperties();
+        props.setProperty("retryBackoff", "10");
+        props.setProperty("healthCheckInterval", "0");
+        props.setProperty("readRouting", "true");
+        props.setProperty("schemaCache", "false");
+        try (LibSqlMockServer primary = new LibSqlMockServer(makeResponder())) {
+            primary.setUnavailable(true);
+            try (Connection connection = DriverManager.getConnection("jdbc:dbeaver:libsql:" + primary.getUrl() + "," + server.getUrl(), props)) {
+                // Without schema snapshot keys are read by pragma foreign_key_list and pragma table_info
+                connection.getMetaData().getImportedKeys(null, null, "testme").close();
+                assertTrue(server.getAllSql().stream().anyMatch(sql -> sql.startsWith("pragma foreign_key_list")),
+                    "metadata pragma must be routed to replica");
+                try (Statement dbStat = connection.createStatement()) {
+                    long requestCount = server.getRequestCount();
+                    try (ResultSet dbResult = dbStat.executeQuery("select 1")) {
+                        assertTrue(dbResult.next());
+                    }
+                    assertEquals(requestCount + 1, server.getRequestCount(), "read after metadata pragma must be routed to replica");
+                }
+            }
+        }
+
+        try (Connection connection = connect(props)) {
+            connection.getMetaData().getImportedKeys(null, null, "testme").close();
+            try (Statement dbStat = connection.createStatement()) {
+                long requestCount = server.getRequestCount();
+                server.failNext(1);
+                try (ResultSet dbResult = dbStat.executeQuery("select 1")) {
+                    assertTrue(dbResult.next(), "read after metadata pragma must be retried");
+                }
+                assertEquals(requestCount + 2, server.getRequestCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reading of query results by pages
+ */
+public class LibSqlFetchPagingTest extends LibSqlTestBase {
+
+    private static final long PREFETCH_DELAY = 600;
+
+    @Test
+    public void testFetchPaging() throws Exception {
+        checkFetchPaging(false);
+    }
+
+    @Test
+    public void testFetchPagingWithPrefetch() throws Exception {
+        checkFetchPaging(true);
+    }
+
+    @Test
+    public void testPrefetchAbort() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("fetchPaging", "true");
+        props.setProperty("prefetchPages", "true");
+        try (Connection connection = connect(props); Statement dbStat = connection.createStatement()) {
+            dbStat.setFetchSize(10);
+            // Response body is delayed, so the server sees the connection closed by the aborted prefetch
+            server.setBodyDelay(PREFETCH_DELAY);
+            long abortedCount = server.getAbortedCount();
+            ResultSet dbResult = dbStat.executeQuery("select range from test order by range");
+            assertTrue(dbResult.next());
+            Thread.sleep(PREFETCH_DELAY / 3);
+            dbResult.close();
+            waitForAbortedCount(abortedCount + 1, "result close must abort prefetch of the next page");
+
+            dbResult = dbStat.executeQuery("select range from test order by range");
+            assertTrue(dbResult.next());
+            Thread.sleep(PREFETCH_DELAY / 3);
+            dbStat.cancel();
+            waitForAbortedCount(abortedCount + 2, "statement cancel must abort prefetch of the next page");
+            dbResult.close();
+            server.setBodyDelay(0);
+        }
+    }
+
+    private void waitForAbortedCount(long expected, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + PREFETCH_DELAY * 5;
+        while (server.getAbortedCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, server.getAbortedCount(), message);
+    }
+
+    private void checkFetchPaging(boolean prefetch) throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("fetchPaging", "true");
+        props.setProperty("prefetchPages", String.valueOf(prefetch));
+        try (Connection connection = connect(props)) {
+            try (Statement dbStat = connection.createStatement()) {
+                dbStat.setFetchSize(10);
+                long requestCount = server.getRequestCount();
+                try (ResultSet dbResult = dbStat.executeQuery("select range from test order by range;")) {
+                    assertTrue(prefetch || server.getRequestCount() == requestCount + 1, "only the first page must be read on execute");
+                    for (int i = 0; i < RANGE_SIZE; i++) {
+                        assertTrue(dbResult.next(), "paged row " + i);
+                        assertEquals(i, dbResult.getInt(1));
+                    }
+                    assertFalse(dbResult.next(), "end of paged rows");
+                }
+                assertEquals(requestCount + 3, server.getRequestCount(), "page requests");
+                assertTrue(server.getAllSql().stream().anyMatch(sql -> sql.endsWith("\nLIMIT 10 OFFSET 20")), "page query");
+
+                try (ResultSet dbResult = dbStat.executeQuery("select range from test limit 5")) {
+                    int rowCount = 0;
+                    while (dbResult.next()) {
+                        rowCount++;
+                    }
+                    assertEquals(5, rowCount, "query with limit must not be paged");
+                }
+
+                for (String sql : new String[]{
+                    "select range from test",
+                    "select range from test where n in (select n from test order by n)",
+                    "select range, row_number() over (order by n) from test",
+                    "select range from test -- order by range\n",
+                    "select range from test where t = 'order by'",
+                }) {
+                    requestCount = server.getRequestCount();
+                    try (ResultSet dbResult = dbStat.executeQuery(sql)) {
+                        int rowCount = 0;
+                        while (dbResult.next()) {
+                            rowCount++;
+                        }
+                        assertEquals(RANGE_SIZE, rowCount);
+                    }
+                    assertEquals(requestCount + 1, server.getRequestCount(), "query without ORDER BY must not be paged: " + sql);
+                }
+            }
+            try (PreparedStatement dbStat = connection.prepareStatement("select range from test where b = ? order by range")) {
+                dbStat.setFetchSize(10);
+                dbStat.setBinaryStream(1, new ByteArrayInputStream(new byte[]{1, 2, 3}));
+                long requestCount = server.getRequestCount();
+                try (ResultSet dbResult = dbStat.executeQuery()) {
+                    int rowCount = 0;
+                    while (dbResult.next()) {
+                        rowCount++;
+                    }
+                    assertEquals(RANGE_SIZE, rowCount);
+                }
+                assertEquals(requestCount + 1, server.getRequestCount(), "query with stream parameters must not be paged");
+                assertFalse(getLastStatement().get("sql").getAsString().contains("LIMIT"));
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlClient;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlParameters;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlProtocol;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlRequestControl;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hrana pipeline transport: values, parameters, batches and stream batons
+ */
+public class LibSqlHranaTransportTest extends LibSqlTestBase {
+
+    private static final long SLOW_DELAY = 2000;
+
+    @Test
+    public void testExecute() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), "token", LibSqlProtocol.HRANA_V2);
+        try {
+            LibSqlExecutionResult result = client.execute("select 1", Map.of(1, 42L, 2, "text"));
+            assertEquals(List.of("i", "f", "t", "b", "n"), result.getColumns());
+            Object[] row = result.getRows().get(0);
+            assertEquals(Long.MAX_VALUE, row[0]);
+            assertEquals(1.5, row[1]);
+            assertEquals("text", row[2]);
+            assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) row[3]);
+            assertNull(row[4]);
+
+            assertTrue(server.getLastRequest().get("baton").isJsonNull(), "first request must open a stream");
+            JsonArray params = getLastStatement().getAsJsonArray("args");
+            assertEquals("integer", params.get(0).getAsJsonObject().get("type").getAsString());
+            assertEquals("42", params.get(0).getAsJsonObject().get("value").getAsString());
+            assertEquals("text", params.get(1).getAsJsonObject().get("type").getAsString());
+            assertEquals("Bearer token", server.getLastAuthorization());
+
+            String issuedBaton = server.getLastBaton();
+            client.execute("select 2", null);
+            assertEquals(issuedBaton, server.getLastRequest().get("baton").getAsString(),
+                "baton of the previous response must be passed");
+
+            LibSqlExecutionResult streamed = client.execute("select 3", null, true);
+            assertTrue(streamed.isStreaming());
+            assertNotNull(streamed.nextRow());
+            assertNull(streamed.nextRow());
+        } finally {
+            client.close();
+        }
+        JsonObject closeRequest = server.getLastRequest();
+        assertEquals("close", closeRequest.getAsJsonArray("requests").get(0).getAsJsonObject().get("type").getAsString());
+        assertEquals(0, server.getOpenStreamCount());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null, LibSqlProtocol.HRANA_V2);
+        try {
+            long requestCount = server.getRequestCount();
+            LibSqlExecutionResult[] results = client.executeBatch(
+                new String[]{"insert 1", "insert 2", "select 3"},
+                new Map[]{null, Map.of("name", "value"), null});
+            assertEquals(3, results.length);
+            assertEquals(1, results[0].getUpdateCount());
+            assertEquals(1, results[2].getRows().size());
+            assertEquals(requestCount + 1, server.getRequestCount(), "batch must be sent in one request");
+
+            JsonObject batch = server.getLastRequest().getAsJsonArray("requests").get(0).getAsJsonObject();
+            assertEquals("batch", batch.get("type").getAsString());
+            JsonArray steps = batch.getAsJsonObject("batch").getAsJsonArray("steps");
+            assertFalse(steps.get(0).getAsJsonObject().has("condition"), "first step is unconditional");
+            assertEquals(1, steps.get(2).getAsJsonObject().getAsJsonObject("condition").get("step").getAsInt());
+            assertTrue(steps.get(1).getAsJsonObject().getAsJsonObject("stmt").has("named_args"));
+
+            SQLException error = assertThrows(SQLException.class,
+                () -> client.executeBatch(new String[]{"insert 1", "fail", "select 3"}, null));
+            assertTrue(error.getMessage().contains("stub error"), error.getMessage());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testStreamExpired() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null, LibSqlProtocol.HRANA_V3);
+        try {
+            client.execute("select 1", null);
+            server.expireStreams();
+            LibSqlExecutionResult result = client.execute("select 2", null);
+            assertEquals(1, result.getRows().size(), "statement must be executed on a new stream");
+            assertTrue(server.getLastRequest().get("baton").isJsonNull(), "new stream must be opened");
+            assertEquals("/v3/pipeline", server.getLastPath());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testBadRequestOnStream() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null, LibSqlProtocol.HRANA_V3);
+        try {
+            client.execute("select 1", null);
+            String baton = server.getLastBaton();
+            long requestCount = server.getRequestCount();
+            server.rejectNext("Invalid statement argument");
+            SQLException error = assertThrows(SQLException.class, () -> client.execute("select 2", null));
+            assertEquals("Invalid statement argument", error.getMessage(), "server message must be reported");
+            assertEquals(requestCount + 1, server.getRequestCount(), "bad request must not be replayed");
+            assertEquals(baton, server.getLastRequest().get("baton").getAsString());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testStreamExpiredAfterSessionChange() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null, LibSqlProtocol.HRANA_V3);
+        try {
+            client.execute("create temp table tt (id integer)", null);
+            server.expireStreams();
+            long requestCount = server.getRequestCount();
+            SQLException error = assertThrows(SQLException.class, () -> client.execute("select 2", null));
+            assertNotNull(error.getCause(), "server message must be kept");
+            assertEquals("Stream not found", error.getCause().getMessage());
+            assertEquals(requestCount + 1, server.getRequestCount(), "statement must not be replayed without session state");
+
+            LibSqlExecutionResult result = client.execute("select 3", null);
+            assertEquals(1, result.getRows().size());
+            assertTrue(server.getLastRequest().get("baton").isJsonNull(), "new stream must be opened");
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testTimeoutAndCancel() throws Exception {
+        server.setLatency(SLOW_DELAY, 0);
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null, LibSqlProtocol.HRANA_V2);
+        try {
+            LibSqlStatementTemplate stmt = new LibSqlStatementTemplate("select 1");
+            LibSqlRequestControl control = new LibSqlRequestControl();
+            control.setTimeout(Duration.ofMillis(200));
+            long startTime = System.currentTimeMillis();
+            assertThrows(SQLTimeoutException.class, () -> client.execute(stmt, new LibSqlParameters(), false, control));
+            assertTrue(System.currentTimeMillis() - startTime < SLOW_DELAY, "request must be aborted");
+
+            LibSqlRequestControl cancelControl = new LibSqlRequestControl();
+            Thread canceller = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+                cancelControl.cancel();
+            });
+            canceller.start();
+            SQLException error = assertThrows(SQLException.class,
+                () -> client.execute(stmt, new LibSqlParameters(), false, cancelControl));
+            assertEquals("HY008", error.getSQLState());
+            canceller.join();
+
+            // Timeout covers the response body received after headers
+            server.setLatency(0, 0);
+            server.setBodyDelay(SLOW_DELAY);
+            startTime = System.currentTimeMillis();
+            assertThrows(SQLTimeoutException.class, () -> client.execute(stmt, new LibSqlParameters(), false, control),
+                "body read must be aborted by timeout");
+            assertTrue(System.currentTimeMillis() - startTime < SLOW_DELAY, "body read must be aborted");
+            server.setBodyDelay(0);
+
+            // Deadline is kept after headers until the streamed result is read completely
+            try (LibSqlMockServer rowServer = new LibSqlMockServer(LibSqlMockServer.generatedRows(1000, 10))) {
+                rowServer.setBodyDelay(SLOW_DELAY);
+                LibSqlClient rowClient = new LibSqlClient(rowServer.getUrl(), null, LibSqlProtocol.HRANA_V2);
+                try {
+                    LibSqlExecutionResult streamed = rowClient.execute(
+                        new LibSqlStatementTemplate("select id, value from generated"), new LibSqlParameters(), true, control);
+                    long streamStartTime = System.currentTimeMillis();
+                    assertThrows(HttpTimeoutException.class, () -> {
+                        while (streamed.nextRow() != null) {
+                            assertEquals(2, streamed.getColumns().size());
+                        }
+                    }, "streamed rows must be aborted by timeout");
+                    assertTrue(System.currentTimeMillis() - streamStartTime < SLOW_DELAY, "streamed rows must be aborted");
+                    streamed.close();
+                } finally {
+                    rowClient.close();
+                }
+            }
+
+            // Batons of aborted requests are lost, the next request opens a new stream
+            assertEquals(1, client.execute(stmt, new LibSqlParameters(), false, null).getRows().size());
+            assertTrue(server.getLastRequest().get("baton").isJsonNull(), "new stream after abort");
+        } finally {
+            client.close();
+        }
+    }
+}
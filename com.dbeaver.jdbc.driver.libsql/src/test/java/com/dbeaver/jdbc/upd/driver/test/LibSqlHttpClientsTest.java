@@ -0,0 +1,79 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlClient;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlParameters;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Executors of HTTP clients: custom and shared ones
+ */
+public class LibSqlHttpClientsTest extends LibSqlTestBase {
+
+    @Test
+    public void testHttpExecutors() throws Exception {
+        AtomicInteger taskCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Executor customExecutor = task -> {
+            taskCount.incrementAndGet();
+            pool.execute(task);
+        };
+        try {
+            LibSqlClient client = new LibSqlClient(server.getUrl(), null, Map.of("protocol", "hrana2", "httpExecutor", customExecutor));
+            try {
+                client.execute("select 1", null);
+                client.executeAsync(new LibSqlStatementTemplate("select 2"), new LibSqlParameters()).get();
+            } finally {
+                client.close();
+            }
+            assertTrue(taskCount.get() > 0, "custom executor is used");
+            assertFalse(pool.isShutdown(), "custom executor is not shut down");
+
+            LibSqlClient shared1 = new LibSqlClient(server.getUrl(), null, Map.of("protocol", "hrana2", "httpExecutor", "shared"));
+            LibSqlClient shared2 = new LibSqlClient(server.getUrl(), null,
+                Map.of("protocol", "hrana2", "httpExecutor", "shared", "sharedHttpClient", "false"));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    LibSqlClient sharedClient = i % 2 == 0 ? shared1 : shared2;
+                    futures.add(pool.submit(() -> sharedClient.execute("select 1", null)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                shared1.close();
+                shared2.close();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Load generator: executes a query from several threads against the mock server
+ * and reports latency percentiles and throughput.
+ *
+ * mvn exec:java -Dexec.mainClass=com.dbeaver.jdbc.upd.driver.test.LibSqlLoadTest "-Dexec.args=threads=16 latency=5"
+ *
+ * Arguments (name=value):
+ * threads - number of threads (8), shared - all threads use one connection (false),
+ * warmup, duration - seconds (2, 10), sql - executed query,
+ * backend - "rows" or "sqlite" (rows), rows, size - generated rows and length of text values (10, 100),
+ * latency, jitter - milliseconds (0, 0), errors - part of failed requests (0),
+ * other arguments are passed to the driver as connection properties.
+ */
+public class LibSqlLoadTest {
+
+    private static final Set<String> LOAD_OPTIONS = Set.of(
+        "threads", "shared", "warmup", "duration", "sql", "backend", "rows", "size", "latency", "jitter", "errors");
+
+    public static void main(String[] args) throws Exception {
+        // Otherwise small responses of the mock server wait for delayed ACK of the client (about 40ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int divPos = arg.indexOf('=');
+            if (divPos <= 0) {
+                throw new IllegalArgumentException("Bad argument '" + arg + "', name=value expected");
+            }
+            options.put(arg.substring(0, divPos), arg.substring(divPos + 1));
+        }
+        int threadCount = Integer.parseInt(options.getOrDefault("threads", "8"));
+        boolean shared = Boolean.parseBoolean(options.getOrDefault("shared", "false"));
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "2")) * 1000;
+        long duration = Long.parseLong(options.getOrDefault("duration", "10")) * 1000;
+        String sql = options.getOrDefault("sql", "select id, value from test where id > ?");
+        boolean sqlite = "sqlite".equals(options.get("backend"));
+        Properties properties = new Properties();
+        options.forEach((name, value) -> {
+            if (!LOAD_OPTIONS.contains(name)) {
+                properties.setProperty(name, value);
+            }
+        });
+
+        LibSqlMockServer.Responder responder = sqlite ? LibSqlMockServer.sqlite() : LibSqlMockServer.generatedRows(
+            Integer.parseInt(options.getOrDefault("rows", "10")),
+            Integer.parseInt(options.getOrDefault("size", "100")));
+        try (LibSqlMockServer server = new LibSqlMockServer(responder)) {
+            String url = "jdbc:dbeaver:libsql:" + server.getUrl();
+            if (sqlite) {
+                prepareTestTable(url, properties,
+                    Integer.parseInt(options.getOrDefault("rows", "10")),
+                    Integer.parseInt(options.getOrDefault("size", "100")));
+            }
+            server.setLatency(
+                Long.parseLong(options.getOrDefault("latency", "0")),
+                Long.parseLong(options.getOrDefault("jitter", "0")));
+            server.setErrorRate(Double.parseDouble(options.getOrDefault("errors", "0")));
+
+            List<Connection> connections = new ArrayList<>();
+            for (int i = 0; i < (shared ? 1 : threadCount); i++) {
+                connections.add(DriverManager.getConnection(url, properties));
+            }
+            try {
+                System.out.println("Threads: " + threadCount + (shared ? " (shared connection)" : "") + ", query: " + sql);
+                Worker[] workers = new Worker[threadCount];
+                CountDownLatch finished = new CountDownLatch(threadCount);
+                long startTime = System.nanoTime();
+                long measureStart = startTime + warmup * 1_000_000;
+                long endTime = measureStart + duration * 1_000_000;
+                for (int i = 0; i < threadCount; i++) {
+                    workers[i] = new Worker(connections.get(shared ? 0 : i), sql, measureStart, endTime, finished);
+                    workers[i].start();
+                }
+                finished.await();
+                long measuredTime = System.nanoTime() - measureStart;
+
+                printReport(workers, measuredTime, server);
+            } finally {
+                for (Connection connection : connections) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private static void prepareTestTable(String url, Properties properties, int rowCount, int valueLength) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, properties)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table test(id integer primary key, value text)");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("insert into test(id, value) values (?, ?)")) {
+                String value = "x".repeat(valueLength);
+                for (int i = 0; i < rowCount; i++) {
+                    statement.setLong(1, i);
+                    statement.setString(2, value);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private static void printReport(Worker[] workers, long measuredTime, LibSqlMockServer server) {
+        long[] latencies = new long[Arrays.stream(workers).mapToInt(worker -> worker.count).sum()];
+        int pos = 0;
+        long errorCount = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, pos, worker.count);
+            pos += worker.count;
+            errorCount += worker.errorCount;
+            if (worker.lastError != null) {
+                System.out.println("Error: " + worker.lastError.getMessage());
+            }
+        }
+        Arrays.sort(latencies);
+        System.out.printf("Requests: %d, errors: %d, server requests: %d (%d failed)%n",
+            latencies.length, errorCount, server.getRequestCount(), server.getFailedCount());
+        System.out.printf("Throughput: %.1f ops/s%n", latencies.length * 1e9 / measuredTime);
+        if (latencies.length > 0) {
+            System.out.printf("Latency (ms): p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sortedLatencies, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+
+    /**
+     * Executes the query until the end time. Latencies of successful executions after the warmup are recorded.
+     */
+    private static class Worker extends Thread {
+        private final Connection connection;
+        private final String sql;
+        private final long measureStart;
+        private final long endTime;
+        private final CountDownLatch finished;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errorCount;
+        private SQLException lastError;
+
+        Worker(Connection connection, String sql, long measureStart, long endTime, CountDownLatch finished) {
+            super("Load worker");
+            setDaemon(true);
+            this.connection = connection;
+            this.sql = sql;
+            this.measureStart = measureStart;
+            this.endTime = endTime;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                boolean hasParameter = sql.indexOf('?') >= 0;
+                long parameter = 0;
+                while (true) {
+                    long startTime = System.nanoTime();
+                    if (startTime >= endTime) {
+                        break;
+                    }
+                    if (hasParameter) {
+                        statement.setLong(1, parameter++ % 10);
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            resultSet.getObject(1);
+                        }
+                    } catch (SQLException e) {
+                        if (startTime >= measureStart) {
+                            errorCount++;
+                            lastError = e;
+                        }
+                        continue;
+                    }
+                    if (startTime >= measureStart) {
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - startTime;
+                    }
+                }
+            } catch (SQLException e) {
+                lastError = e;
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+}
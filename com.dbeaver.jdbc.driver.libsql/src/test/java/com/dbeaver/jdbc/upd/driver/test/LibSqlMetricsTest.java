@@ -0,0 +1,80 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlClient;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlMetrics;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlParameters;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlRequestStats;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlStatementTemplate;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Request metrics of a client and their MBeans
+ */
+public class LibSqlMetricsTest extends LibSqlTestBase {
+
+    @Test
+    public void testMetrics() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null,
+            Map.of("protocol", "hrana2", "metrics", "true", "readRetries", "0"));
+        List<LibSqlRequestStats> requests = Collections.synchronizedList(new ArrayList<>());
+        client.setMetricsListener(requests::add);
+        try {
+            client.execute("select 1", null);
+            client.executeBatch(new String[]{"insert 1", "insert 2"}, null);
+            assertThrows(SQLException.class, () -> client.execute("fail 1", null));
+            client.executeAsync(new LibSqlStatementTemplate("select 2"), new LibSqlParameters()).get();
+
+            LibSqlMetrics metrics = client.getMetrics();
+            assertNotNull(metrics);
+            assertEquals(4, metrics.getRequestCount());
+            assertEquals(5, metrics.getStatementCount());
+            assertEquals(1, metrics.getErrorCount());
+            assertEquals(Map.of("200", 1L), metrics.getErrorsByStatus());
+            assertEquals(2, metrics.getRowsRead());
+            assertEquals(2, metrics.getRowsWritten());
+            assertTrue(metrics.getRequestBytes() > 0 && metrics.getResponseBytes() > 0, "request/response bytes");
+            assertTrue(metrics.getLatencyMaxMillis() > 0 && metrics.getLatencyP99Millis() <= metrics.getLatencyMaxMillis(),
+                "latency percentiles");
+            assertEquals(4, requests.size());
+            assertTrue(requests.get(0).getResponseBytes() > 0 && requests.get(0).getDecodeNanos() > 0, "listener measurements");
+            assertNotNull(requests.get(2).getError(), "failed request measurements");
+            assertEquals(200, requests.get(2).getStatusCode());
+
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            Object driverRequests = mbeanServer.getAttribute(
+                new ObjectName("com.dbeaver.jdbc.driver.libsql:type=Driver"), "RequestCount");
+            assertTrue(driverRequests instanceof Long count && count >= 4, "driver MBean request count " + driverRequests);
+            assertFalse(mbeanServer.queryNames(new ObjectName("com.dbeaver.jdbc.driver.libsql:type=Connection,*"), null).isEmpty(),
+                "connection MBean");
+        } finally {
+            client.close();
+        }
+    }
+}
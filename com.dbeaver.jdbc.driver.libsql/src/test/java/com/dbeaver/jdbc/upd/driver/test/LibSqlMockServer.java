@@ -0,0 +1,787 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-JVM LibSQL server of the legacy protocol ({@code {"statements":[...]}} posted to "/")
+ * and of Hrana pipelines ({@code /v2/pipeline}, {@code /v3/pipeline}).
+ * Statements are executed by a responder: a scripted one which generates rows of the configured size,
+ * or an in-memory SQLite database (requires a SQLite JDBC driver in the classpath).
+ * Responses to small requests are delayed by Nagle's algorithm unless {@code sun.net.httpserver.nodelay} is set.
+ * Hrana streams are kept until they are closed or expired, a request with an unknown baton fails with 400 status.
+ * Latency, jitter and failures of requests may be injected.
+ * Benchmarks use a server with a fixed result, which is answered without parsing of the request.
+ */
+public class LibSqlMockServer implements AutoCloseable {
+
+    /**
+     * Result of a statement. Column types are declared types reported by Hrana, they may be null.
+     */
+    public record Result(List<String> columns, List<String> columnTypes, List<Object[]> rows, long rowsWritten) {
+        public Result(List<String> columns, List<Object[]> rows, long rowsWritten) {
+            this(columns, Collections.nCopies(columns.size(), null), rows, rowsWritten);
+        }
+    }
+
+    /**
+     * Executes statements. Named parameters are passed in the order of the request.
+     * Exception fails the statement with its message.
+     */
+    @FunctionalInterface
+    public interface Responder {
+        Result execute(String sql, List<Object> parameters) throws Exception;
+
+        /**
+         * Responder of a new Hrana stream. Statements of all streams are executed by this responder by default,
+         * a database responder returns a responder of its own session, so the session state is kept per stream.
+         */
+        default Responder openStream() throws Exception {
+            return this;
+        }
+
+        /**
+         * Called when the stream of a responder returned by {@link #openStream()} is closed or expired
+         */
+        default void closeStream() {
+        }
+    }
+
+    private static final AtomicLong databaseSequence = new AtomicLong();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile Responder responder;
+    private volatile long latency;
+    private volatile long jitter;
+    private volatile long bodyDelay;
+    private volatile double errorRate;
+    private volatile byte[] fixedHranaResponse;
+    private volatile byte[] fixedLegacyResponse;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong abortedCount = new AtomicLong();
+    private final AtomicLong batonSequence = new AtomicLong();
+    private final AtomicInteger failNextCount = new AtomicInteger();
+    private final AtomicReference<String> rejectNextMessage = new AtomicReference<>();
+    private volatile boolean unavailable;
+    private final Map<String, Responder> streams = new HashMap<>();
+
+    private volatile boolean recording;
+    private final List<String> allSql = new ArrayList<>();
+    private JsonObject lastRequest;
+    private String lastPath;
+    private String lastAuthorization;
+    private String lastBaton;
+
+    public LibSqlMockServer(Responder responder) throws IOException {
+        this.responder = responder;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v2/pipeline", exchange -> handleRequest(exchange, true));
+        server.createContext("/v3/pipeline", exchange -> handleRequest(exchange, true));
+        server.createContext("/health", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/", exchange -> handleRequest(exchange, false));
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "LibSQL mock server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Server which answers every request with the given result
+     */
+    public LibSqlMockServer(Result result) throws IOException {
+        this((sql, parameters) -> result);
+        setFixedResult(result);
+    }
+
+    public URL getUrl() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public void setResponder(Responder responder) {
+        this.responder = responder;
+        this.fixedHranaResponse = null;
+        this.fixedLegacyResponse = null;
+    }
+
+    /**
+     * Answers every request with a pre-built response of a single statement with the given result.
+     * Requests are not parsed and the responder is not called, so the server adds almost no work to the client code
+     * measured by benchmarks.
+     */
+    public void setFixedResult(Result result) {
+        this.responder = (sql, parameters) -> result;
+        this.fixedHranaResponse = makeHranaResponse(result);
+        this.fixedLegacyResponse = makeLegacyResponse(result);
+    }
+
+    /**
+     * Each response is delayed by latency plus a random value from 0 to jitter (milliseconds)
+     */
+    public void setLatency(long latency, long jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Each response body is sent in two parts separated by the given delay (milliseconds) after headers
+     */
+    public void setBodyDelay(long bodyDelay) {
+        this.bodyDelay = bodyDelay;
+    }
+
+    /**
+     * Part of requests (0..1) which fail with 500 status
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * The given number of next requests fail with 503 status
+     */
+    public void failNext(int count) {
+        failNextCount.set(count);
+    }
+
+    /**
+     * The next request is rejected with 400 status and the given message
+     */
+    public void rejectNext(String message) {
+        rejectNextMessage.set(message);
+    }
+
+    /**
+     * All requests fail with 503 status
+     */
+    public void setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Number of requests failed by error injection
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Number of responses which could not be sent because the client closed the connection
+     */
+    public long getAbortedCount() {
+        return abortedCount.get();
+    }
+
+    /**
+     * Keeps the last request and SQL of all executed statements. Requests of a fixed result are not recorded.
+     */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    public synchronized JsonObject getLastRequest() {
+        return lastRequest;
+    }
+
+    public synchronized String getLastPath() {
+        return lastPath;
+    }
+
+    public synchronized String getLastAuthorization() {
+        return lastAuthorization;
+    }
+
+    /**
+     * Baton issued by the last pipeline response
+     */
+    public synchronized String getLastBaton() {
+        return lastBaton;
+    }
+
+    public synchronized List<String> getAllSql() {
+        return new ArrayList<>(allSql);
+    }
+
+    public int getOpenStreamCount() {
+        synchronized (streams) {
+            return streams.size();
+        }
+    }
+
+    /**
+     * Forgets all streams, the next requests of open streams fail as requests with unknown batons
+     */
+    public void expireStreams() {
+        List<Responder> expired;
+        synchronized (streams) {
+            expired = new ArrayList<>(streams.values());
+            streams.clear();
+        }
+        for (Responder stream : expired) {
+            stream.closeStream();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        expireStreams();
+    }
+
+    /**
+     * Answers each statement with the given number of rows of an integer and a text column.
+     * Text values have the given length, so the payload size of the response is controlled.
+     */
+    public static Responder generatedRows(int rowCount, int valueLength) {
+        String value = "x".repeat(valueLength);
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[]{(long) i, value});
+        }
+        Result queryResult = new Result(List.of("id", "value"), rows, 0);
+        Result updateResult = new Result(List.of(), List.of(), 1);
+        return (sql, parameters) -> sql.regionMatches(true, 0, "select", 0, 6) ? queryResult : updateResult;
+    }
+
+    /**
+     * Executes statements in a new in-memory SQLite database.
+     * Each Hrana stream has its own connection to the database, so temporary tables and pragmas are kept per stream.
+     */
+    public static Responder sqlite() throws SQLException {
+        String url = "jdbc:sqlite:file:mock" + databaseSequence.incrementAndGet() + "?mode=memory&cache=shared";
+        // The database is kept while the connection of the server is open
+        return new SqliteResponder(url, new Object(), DriverManager.getConnection(url));
+    }
+
+    /**
+     * Statements of all connections are executed one at a time, because tables of a shared cache are locked
+     * by a statement until it is finished.
+     * Declared types of columns are reported by names of SQLite JDBC types, expressions have no declared type.
+     */
+    private static class SqliteResponder implements Responder {
+        private final String url;
+        private final Object lock;
+        private final Connection connection;
+
+        SqliteResponder(String url, Object lock, Connection connection) {
+            this.url = url;
+            this.lock = lock;
+            this.connection = connection;
+        }
+
+        @Override
+        public Result execute(String sql, List<Object> parameters) throws Exception {
+            synchronized (lock) {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < parameters.size(); i++) {
+                        statement.setObject(i + 1, parameters.get(i));
+                    }
+                    if (!statement.execute()) {
+                        return new Result(List.of(), List.of(), statement.getUpdateCount());
+                    }
+                    try (ResultSet resultSet = statement.getResultSet()) {
+                        ResultSetMetaData metaData = resultSet.getMetaData();
+                        List<String> columns = new ArrayList<>();
+                        List<String> columnTypes = new ArrayList<>();
+                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                            columns.add(metaData.getColumnLabel(i));
+                            String tableName = metaData.getTableName(i);
+                            columnTypes.add(tableName == null || tableName.isEmpty() ? null : metaData.getColumnTypeName(i));
+                        }
+                        List<Object[]> rows = new ArrayList<>();
+                        while (resultSet.next()) {
+                            Object[] row = new Object[columns.size()];
+                            for (int i = 0; i < row.length; i++) {
+                                row[i] = resultSet.getObject(i + 1);
+                            }
+                            rows.add(row);
+                        }
+                        return new Result(columns, columnTypes, rows, 0);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Responder openStream() throws SQLException {
+            return new SqliteResponder(url, lock, DriverManager.getConnection(url));
+        }
+
+        @Override
+        public void closeStream() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void handleRequest(HttpExchange exchange, boolean hrana) throws IOException {
+        requestCount.incrementAndGet();
+        byte[] fixedResponse = hrana ? fixedHranaResponse : fixedLegacyResponse;
+        JsonObject request = null;
+        try (InputStream body = exchange.getRequestBody()) {
+            if (fixedResponse != null) {
+                body.transferTo(OutputStream.nullOutputStream());
+            } else {
+                request = JsonParser.parseString(new String(body.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+            }
+        } catch (Exception e) {
+            sendError(exchange, 400, "Bad request: " + e.getMessage());
+            return;
+        }
+        if (recording && request != null) {
+            synchronized (this) {
+                lastRequest = request;
+                lastPath = exchange.getRequestURI().getPath();
+                lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+            }
+        }
+        long delay = latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                exchange.close();
+                return;
+            }
+        }
+        if (unavailable || failNextCount.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+            failedCount.incrementAndGet();
+            sendError(exchange, 503, "Service unavailable");
+            return;
+        }
+        String rejectMessage = rejectNextMessage.getAndSet(null);
+        if (rejectMessage != null) {
+            failedCount.incrementAndGet();
+            sendError(exchange, 400, rejectMessage);
+            return;
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            failedCount.incrementAndGet();
+            sendError(exchange, 500, "Injected error");
+            return;
+        }
+
+        byte[] bytes;
+        if (fixedResponse != null) {
+            bytes = fixedResponse;
+        } else if (hrana) {
+            JsonElement baton = request.get("baton");
+            Responder stream;
+            if (baton == null || baton.isJsonNull()) {
+                try {
+                    stream = responder.openStream();
+                } catch (Exception e) {
+                    sendError(exchange, 500, "Stream can't be opened: " + e.getMessage());
+                    return;
+                }
+            } else {
+                synchronized (streams) {
+                    stream = streams.remove(baton.getAsString());
+                }
+                if (stream == null) {
+                    sendError(exchange, 400, "Stream not found");
+                    return;
+                }
+            }
+            JsonObject finalRequest = request;
+            bytes = writeJson(json -> writePipelineResponse(json, finalRequest, stream));
+        } else {
+            JsonObject finalRequest = request;
+            bytes = writeJson(json -> writeLegacyResponse(json, finalRequest));
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(200, bytes.length);
+            writeResponseBody(exchange, bytes);
+        } catch (IOException e) {
+            // Connection was closed by the client
+            abortedCount.incrementAndGet();
+        }
+    }
+
+    private void writeResponseBody(HttpExchange exchange, byte[] bytes) throws IOException {
+        try (OutputStream os = exchange.getResponseBody()) {
+            if (bodyDelay > 0) {
+                int half = bytes.length / 2;
+                os.write(bytes, 0, half);
+                os.flush();
+                try {
+                    Thread.sleep(bodyDelay);
+                    // The first write to a connection closed by the client succeeds, the next one fails
+                    os.write(bytes, half, 1);
+                    os.flush();
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                os.write(bytes, half + 1, bytes.length - half - 1);
+            } else {
+                os.write(bytes);
+            }
+        }
+    }
+
+    private void writeLegacyResponse(JsonWriter json, JsonObject request) throws IOException {
+        json.beginArray();
+        for (JsonElement stmt : request.getAsJsonArray("statements")) {
+            String sql;
+            List<Object> parameters = new ArrayList<>();
+            if (stmt.isJsonObject()) {
+                sql = stmt.getAsJsonObject().get("q").getAsString();
+                JsonElement params = stmt.getAsJsonObject().get("params");
+                if (params != null && params.isJsonArray()) {
+                    for (JsonElement param : params.getAsJsonArray()) {
+                        parameters.add(toValue(param));
+                    }
+                } else if (params != null && params.isJsonObject()) {
+                    for (Map.Entry<String, JsonElement> param : params.getAsJsonObject().entrySet()) {
+                        parameters.add(toValue(param.getValue()));
+                    }
+                }
+            } else {
+                sql = stmt.getAsString();
+            }
+            json.beginObject();
+            Result result;
+            try {
+                result = execute(responder, sql, parameters);
+            } catch (Exception e) {
+                json.name("error").beginObject().name("message").value(String.valueOf(e.getMessage())).endObject();
+                json.endObject();
+                continue;
+            }
+            writeResult(json, result);
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * Every pipeline of an open stream gets a new baton, like batons of the LibSQL server
+     */
+    private void writePipelineResponse(JsonWriter json, JsonObject request, Responder stream) throws IOException {
+        JsonArray streamRequests = request.getAsJsonArray("requests");
+        boolean closed = false;
+        for (JsonElement streamRequest : streamRequests) {
+            closed |= "close".equals(streamRequest.getAsJsonObject().get("type").getAsString());
+        }
+        String baton = closed ? null : "mock-" + batonSequence.incrementAndGet();
+        json.beginObject();
+        json.name("baton").value(baton);
+        json.name("base_url").nullValue();
+        json.name("results").beginArray();
+        for (JsonElement element : streamRequests) {
+            JsonObject streamRequest = element.getAsJsonObject();
+            String type = streamRequest.get("type").getAsString();
+            switch (type) {
+                case "execute" -> {
+                    Result result;
+                    try {
+                        result = executeHrana(stream, streamRequest.getAsJsonObject("stmt"));
+                    } catch (Exception e) {
+                        json.beginObject().name("type").value("error").name("error");
+                        writeHranaError(json, e.getMessage());
+                        json.endObject();
+                        continue;
+                    }
+                    json.beginObject().name("type").value("ok");
+                    json.name("response").beginObject().name("type").value("execute").name("result");
+                    writeHranaResult(json, result);
+                    json.endObject().endObject();
+                }
+                case "batch" -> {
+                    json.beginObject().name("type").value("ok");
+                    json.name("response").beginObject().name("type").value("batch").name("result").beginObject();
+                    List<String> errors = new ArrayList<>();
+                    json.name("step_results").beginArray();
+                    // Each step is executed only if the previous one succeeded
+                    boolean failed = false;
+                    for (JsonElement step : streamRequest.getAsJsonObject("batch").getAsJsonArray("steps")) {
+                        String error = null;
+                        if (failed) {
+                            json.nullValue();
+                        } else {
+                            try {
+                                writeHranaResult(json, executeHrana(stream, step.getAsJsonObject().getAsJsonObject("stmt")));
+                            } catch (Exception e) {
+                                failed = true;
+                                error = String.valueOf(e.getMessage());
+                                json.nullValue();
+                            }
+                        }
+                        errors.add(error);
+                    }
+                    json.endArray();
+                    json.name("step_errors").beginArray();
+                    for (String error : errors) {
+                        if (error == null) {
+                            json.nullValue();
+                        } else {
+                            writeHranaError(json, error);
+                        }
+                    }
+                    json.endArray();
+                    json.endObject().endObject().endObject();
+                }
+                case "close" -> json.beginObject().name("type").value("ok")
+                    .name("response").beginObject().name("type").value("close").endObject().endObject();
+                default -> {
+                    json.beginObject().name("type").value("error").name("error");
+                    writeHranaError(json, "Unsupported request " + type);
+                    json.endObject();
+                }
+            }
+        }
+        json.endArray();
+        json.endObject();
+
+        if (closed) {
+            stream.closeStream();
+        } else {
+            synchronized (streams) {
+                streams.put(baton, stream);
+            }
+            if (recording) {
+                synchronized (this) {
+                    lastBaton = baton;
+                }
+            }
+        }
+    }
+
+    private Result executeHrana(Responder stream, JsonObject stmt) throws Exception {
+        List<Object> parameters = new ArrayList<>();
+        JsonElement args = stmt.get("args");
+        if (args != null) {
+            for (JsonElement arg : args.getAsJsonArray()) {
+                parameters.add(toHranaValue(arg.getAsJsonObject()));
+            }
+        }
+        JsonElement namedArgs = stmt.get("named_args");
+        if (namedArgs != null) {
+            for (JsonElement arg : namedArgs.getAsJsonArray()) {
+                parameters.add(toHranaValue(arg.getAsJsonObject().getAsJsonObject("value")));
+            }
+        }
+        return execute(stream, stmt.get("sql").getAsString(), parameters);
+    }
+
+    private Result execute(Responder executor, String sql, List<Object> parameters) throws Exception {
+        if (recording) {
+            synchronized (this) {
+                allSql.add(sql);
+            }
+        }
+        return executor.execute(sql, parameters);
+    }
+
+    /**
+     * Hrana pipeline response with a single execute result
+     */
+    public static byte[] makeHranaResponse(Result result) {
+        return writeJson(json -> {
+            json.beginObject();
+            json.name("baton").value("mock");
+            json.name("base_url").nullValue();
+            json.name("results").beginArray();
+            json.beginObject().name("type").value("ok");
+            json.name("response").beginObject().name("type").value("execute").name("result");
+            writeHranaResult(json, result);
+            json.endObject().endObject();
+            json.endArray();
+            json.endObject();
+        });
+    }
+
+    /**
+     * Legacy API response with a single statement result
+     */
+    public static byte[] makeLegacyResponse(Result result) {
+        return writeJson(json -> {
+            json.beginArray();
+            json.beginObject();
+            writeResult(json, result);
+            json.endObject();
+            json.endArray();
+        });
+    }
+
+    private static void writeHranaResult(JsonWriter json, Result result) throws IOException {
+        json.beginObject();
+        json.name("cols").beginArray();
+        for (int i = 0; i < result.columns().size(); i++) {
+            json.beginObject();
+            json.name("name").value(result.columns().get(i));
+            json.name("decltype").value(result.columnTypes().get(i));
+            json.endObject();
+        }
+        json.endArray();
+        json.name("rows").beginArray();
+        for (Object[] row : result.rows()) {
+            json.beginArray();
+            for (Object value : row) {
+                json.beginObject();
+                if (value == null) {
+                    json.name("type").value("null");
+                } else if (value instanceof Long || value instanceof Integer) {
+                    json.name("type").value("integer").name("value").value(value.toString());
+                } else if (value instanceof Number number) {
+                    json.name("type").value("float").name("value").value(number);
+                } else if (value instanceof byte[] bytes) {
+                    json.name("type").value("blob").name("base64").value(Base64.getEncoder().withoutPadding().encodeToString(bytes));
+                } else {
+                    json.name("type").value("text").name("value").value(value.toString());
+                }
+                json.endObject();
+            }
+            json.endArray();
+        }
+        json.endArray();
+        json.name("affected_row_count").value(result.rowsWritten());
+        json.name("last_insert_rowid").nullValue();
+        json.name("rows_read").value(result.rows().size());
+        json.name("rows_written").value(result.rowsWritten());
+        json.name("query_duration_ms").value(0.1);
+        json.endObject();
+    }
+
+    private static void writeHranaError(JsonWriter json, String message) throws IOException {
+        json.beginObject().name("message").value(message).name("code").value("SQLITE_ERROR").endObject();
+    }
+
+    private static void writeResult(JsonWriter json, Result result) throws IOException {
+        json.name("results").beginObject();
+        json.name("columns").beginArray();
+        for (String column : result.columns()) {
+            json.value(column);
+        }
+        json.endArray();
+        json.name("rows").beginArray();
+        for (Object[] row : result.rows()) {
+            json.beginArray();
+            for (Object value : row) {
+                if (value == null) {
+                    json.nullValue();
+                } else if (value instanceof Number number) {
+                    json.value(number);
+                } else if (value instanceof byte[] bytes) {
+                    json.beginObject().name("base64").value(Base64.getEncoder().encodeToString(bytes)).endObject();
+                } else {
+                    json.value(value.toString());
+                }
+            }
+            json.endArray();
+        }
+        json.endArray();
+        json.name("rows_read").value(result.rows().size());
+        json.name("rows_written").value(result.rowsWritten());
+        json.name("query_duration_ms").value(0.1);
+        json.endObject();
+    }
+
+    private static Object toHranaValue(JsonObject value) {
+        JsonElement text = value.get("value");
+        return switch (value.get("type").getAsString()) {
+            case "integer" -> Long.parseLong(text.getAsString());
+            case "float" -> text.getAsDouble();
+            case "text" -> text.getAsString();
+            case "blob" -> Base64.getDecoder().decode(value.get("base64").getAsString());
+            default -> null;
+        };
+    }
+
+    private static Object toValue(JsonElement param) {
+        if (param.isJsonNull()) {
+            return null;
+        }
+        if (param.isJsonObject()) {
+            JsonElement base64 = param.getAsJsonObject().get("base64");
+            return base64 == null ? null : Base64.getDecoder().decode(base64.getAsString());
+        }
+        JsonPrimitive primitive = param.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            String text = primitive.getAsString();
+            return text.contains(".") || text.contains("e") || text.contains("E") ? primitive.getAsDouble() : primitive.getAsLong();
+        }
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean() ? 1L : 0L;
+        }
+        return primitive.getAsString();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JsonObject body = new JsonObject();
+        body.addProperty("message", message);
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonContent {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private static byte[] writeJson(JsonContent content) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonWriter json = new JsonWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+            content.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlConnection;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlReplica;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Embedded replica synchronized from a SQLite-backed mock server
+ */
+public class LibSqlReplicaTest extends LibSqlTestBase {
+
+    @Test
+    public void testReplica() throws Exception {
+        Path replicaDir = Files.createTempDirectory("libsql-replica");
+        try (LibSqlMockServer sqliteServer = new LibSqlMockServer(LibSqlMockServer.sqlite())) {
+            String url = "jdbc:dbeaver:libsql:" + sqliteServer.getUrl();
+            try (Connection connection = DriverManager.getConnection(url, makeProperties());
+                 Statement dbStat = connection.createStatement()) {
+                dbStat.execute("create table t1 (id integer primary key, name text)");
+                dbStat.execute("insert into t1 values (1, 'a')");
+            }
+
+            Properties props = makeProperties();
+            props.setProperty("replicaPath", replicaDir.resolve("replica.db").toString());
+            try (Connection connection = DriverManager.getConnection(url, props);
+                 Statement dbStat = connection.createStatement()) {
+                LibSqlReplica replica = connection.unwrap(LibSqlConnection.class).getClient().getReplica();
+                assertNotNull(replica);
+                assertFalse(replica.isStale(), "replica must be synchronized on open");
+
+                long requestCount = sqliteServer.getRequestCount();
+                try (ResultSet dbResult = dbStat.executeQuery("select id, name from t1")) {
+                    assertTrue(dbResult.next());
+                    assertEquals(Long.class, dbResult.getObject(1).getClass(), "local integers must be Long as in server results");
+                    assertEquals("a", dbResult.getString(2));
+                    assertFalse(dbResult.next());
+                }
+                assertEquals(requestCount, sqliteServer.getRequestCount(), "read must be served by replica");
+
+                dbStat.execute("insert into t1 values (2, 'b')");
+                assertTrue(replica.isStale(), "replica must be stale after write");
+                requestCount = sqliteServer.getRequestCount();
+                try (ResultSet dbResult = dbStat.executeQuery("select count(*) from t1")) {
+                    assertTrue(dbResult.next());
+                    assertEquals(2, dbResult.getInt(1), "write must be visible to the next read");
+                }
+                assertEquals(requestCount + 1, sqliteServer.getRequestCount(), "read of stale replica must be sent to server");
+
+                replica.sync();
+                assertFalse(replica.isStale());
+                requestCount = sqliteServer.getRequestCount();
+                try (ResultSet dbResult = dbStat.executeQuery("select count(*) from t1")) {
+                    assertTrue(dbResult.next());
+                    assertEquals(2, dbResult.getInt(1), "synchronized replica must contain the write");
+                }
+                assertEquals(requestCount, sqliteServer.getRequestCount(), "read must be served by synchronized replica");
+
+                // Values of the server session are not in the replica
+                try (ResultSet dbResult = dbStat.executeQuery("select last_insert_rowid()")) {
+                    assertTrue(dbResult.next());
+                }
+                assertEquals(requestCount + 1, sqliteServer.getRequestCount(), "session value must be read from server");
+
+                // Table created by another client is not in the replica until the next synchronization
+                try (Connection other = DriverManager.getConnection(url, makeProperties());
+                     Statement otherStat = other.createStatement()) {
+                    otherStat.execute("create table t2 (id integer)");
+                }
+                requestCount = sqliteServer.getRequestCount();
+                try (ResultSet dbResult = dbStat.executeQuery("select count(*) from t2")) {
+                    assertTrue(dbResult.next());
+                    assertEquals(0, dbResult.getInt(1));
+                }
+                assertEquals(requestCount + 1, sqliteServer.getRequestCount(), "query failed by replica must be sent to server");
+
+                // Session state exists only on the server, the replica is not used after synchronization
+                dbStat.execute("create temp table tt (id integer)");
+                replica.sync();
+                requestCount = sqliteServer.getRequestCount();
+                try (ResultSet dbResult = dbStat.executeQuery("select count(*) from t1")) {
+                    assertTrue(dbResult.next());
+                    assertEquals(2, dbResult.getInt(1));
+                }
+                assertEquals(requestCount + 1, sqliteServer.getRequestCount(), "read after session state change must be sent to server");
+
+                try (LibSqlMockServer otherServer = new LibSqlMockServer(LibSqlMockServer.sqlite())) {
+                    assertThrows(SQLException.class,
+                        () -> DriverManager.getConnection("jdbc:dbeaver:libsql:" + otherServer.getUrl(), props).close(),
+                        "replica file must not be shared by replicas of different servers");
+                }
+                Properties otherProps = new Properties();
+                otherProps.putAll(props);
+                otherProps.setProperty("password", "other-token");
+                assertThrows(SQLException.class, () -> DriverManager.getConnection(url, otherProps).close(),
+                    "replica file must not be shared by replicas with different credentials");
+            }
+        } finally {
+            File[] files = replicaDir.toFile().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            Files.deleteIfExists(replicaDir);
+        }
+    }
+}
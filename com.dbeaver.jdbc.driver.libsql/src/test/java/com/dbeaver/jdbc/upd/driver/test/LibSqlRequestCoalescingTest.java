@@ -0,0 +1,68 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlClient;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Coalescing of concurrent auto-commit statements into one pipeline request
+ */
+public class LibSqlRequestCoalescingTest extends LibSqlTestBase {
+
+    @Test
+    public void testCoalescing() throws Exception {
+        LibSqlClient client = new LibSqlClient(server.getUrl(), null,
+            Map.of("protocol", "hrana2", "coalesceWindow", "50000"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            long requestCount = server.getRequestCount();
+            List<Future<LibSqlExecutionResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String sql = "select " + i;
+                futures.add(executor.submit(() -> client.execute(sql, null)));
+            }
+            for (Future<LibSqlExecutionResult> future : futures) {
+                assertEquals(1, future.get().getRows().size());
+            }
+            assertTrue(server.getRequestCount() - requestCount < 8, "statements must be coalesced");
+            assertTrue(server.getAllSql().containsAll(List.of("select 0", "select 7")), "all coalesced statements must be sent");
+
+            Future<LibSqlExecutionResult> succeeded = executor.submit(() -> client.execute("select 1", null));
+            Future<LibSqlExecutionResult> failed = executor.submit(() -> client.execute("select fail", null));
+            assertEquals(1, succeeded.get().getRows().size(), "statement coalesced with a failed one");
+            ExecutionException error = assertThrows(ExecutionException.class, failed::get);
+            assertInstanceOf(SQLException.class, error.getCause());
+            assertTrue(error.getCause().getMessage().contains("stub error"), error.getCause().getMessage());
+        } finally {
+            executor.shutdown();
+            client.close();
+        }
+    }
+}
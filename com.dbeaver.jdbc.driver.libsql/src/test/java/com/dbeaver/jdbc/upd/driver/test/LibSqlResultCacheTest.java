@@ -0,0 +1,137 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlConnection;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlResultCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.sql.*;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cache of query results shared by connections to the same server
+ */
+public class LibSqlResultCacheTest extends LibSqlTestBase {
+
+    @Test
+    public void testResultCache() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("resultCacheSize", "100000");
+        props.setProperty("resultCacheTtl", "500");
+        try (Connection connection = connect(props)) {
+            LibSqlResultCache cache = connection.unwrap(LibSqlConnection.class).getClient().getResultCache();
+            assertNotNull(cache);
+            try (PreparedStatement dbStat = connection.prepareStatement("select * from testme where id = ?")) {
+                long requestCount = server.getRequestCount();
+                for (int i = 0; i < 3; i++) {
+                    dbStat.setInt(1, 1);
+                    try (ResultSet dbResult = dbStat.executeQuery()) {
+                        assertTrue(dbResult.next());
+                        assertEquals(Long.MAX_VALUE, dbResult.getLong(1));
+                    }
+                }
+                assertEquals(requestCount + 1, server.getRequestCount(), "repeated query must be cached");
+                assertEquals(2, cache.getHitCount());
+
+                dbStat.setInt(1, 2);
+                dbStat.executeQuery().close();
+                assertEquals(requestCount + 2, server.getRequestCount(), "query with other parameters must not be cached");
+
+                long entryCount = cache.getEntryCount();
+                try (PreparedStatement streamStat = connection.prepareStatement("select * from testme where name = ?")) {
+                    for (int i = 0; i < 2; i++) {
+                        streamStat.setCharacterStream(1, new StringReader("text"));
+                        streamStat.executeQuery().close();
+                    }
+                }
+                assertEquals(requestCount + 4, server.getRequestCount(), "query with stream parameters must not be cached");
+                assertEquals(entryCount, cache.getEntryCount(), "result of query with stream parameters must not be stored");
+                requestCount += 2;
+
+                try (Statement updateStat = connection.createStatement()) {
+                    updateStat.executeUpdate("insert into testme values (1)");
+                }
+                assertEquals(0, cache.getEntryCount(), "cache must be invalidated by update");
+                dbStat.setInt(1, 1);
+                dbStat.executeQuery().close();
+                assertEquals(requestCount + 4, server.getRequestCount(), "query after update must be sent");
+
+                Thread.sleep(600);
+                dbStat.executeQuery().close();
+                assertEquals(requestCount + 5, server.getRequestCount(), "expired result must not be used");
+
+                Properties otherProps = new Properties();
+                otherProps.putAll(props);
+                otherProps.setProperty("password", "other-token");
+                try (Connection other = connect(otherProps)) {
+                    assertNotSame(cache, other.unwrap(LibSqlConnection.class).getClient().getResultCache(),
+                        "connections with other credentials must not share cache");
+                    long otherRequestCount = server.getRequestCount();
+                    try (PreparedStatement otherStat = other.prepareStatement("select * from testme where id = ?")) {
+                        otherStat.setInt(1, 1);
+                        otherStat.executeQuery().close();
+                    }
+                    assertEquals(otherRequestCount + 1, server.getRequestCount(), "result cached for other credentials must not be used");
+                    try (Statement updateStat = other.createStatement()) {
+                        updateStat.executeUpdate("insert into testme values (1)");
+                    }
+                    assertEquals(0, cache.getEntryCount(), "update with other credentials must invalidate cache");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSessionResults() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("resultCacheSize", "100000");
+        props.setProperty("resultCacheTtl", "60000");
+        try (Connection first = connect(props); Connection second = connect(props)) {
+            assertSame(first.unwrap(LibSqlConnection.class).getClient().getResultCache(),
+                second.unwrap(LibSqlConnection.class).getClient().getResultCache());
+            try (Statement firstStat = first.createStatement(); Statement secondStat = second.createStatement()) {
+                for (String sql : new String[]{
+                    "select last_insert_rowid()", "select changes()", "select total_changes()",
+                    "select random()", "select datetime('now')", "select current_timestamp", "select * from temp.t1"}) {
+                    long requestCount = server.getRequestCount();
+                    firstStat.executeQuery(sql).close();
+                    secondStat.executeQuery(sql).close();
+                    firstStat.executeQuery(sql).close();
+                    assertEquals(requestCount + 3, server.getRequestCount(), "result of " + sql + " must not be cached");
+                }
+
+                long requestCount = server.getRequestCount();
+                secondStat.executeQuery("select * from t1").close();
+                firstStat.executeQuery("select * from t1").close();
+                assertEquals(requestCount + 1, server.getRequestCount(), "result must be shared by connections");
+
+                firstStat.execute("create temp table t1(a)");
+                secondStat.executeQuery("select * from t1").close();
+                requestCount = server.getRequestCount();
+                firstStat.executeQuery("select * from t1").close();
+                firstStat.executeQuery("select * from t1").close();
+                assertEquals(requestCount + 2, server.getRequestCount(), "connection with session state must not use cache");
+                secondStat.executeQuery("select * from t1").close();
+                assertEquals(requestCount + 2, server.getRequestCount(), "other connection still uses cache");
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlExecutionResult;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlResultRows;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Materialized rows stored by typed columns
+ */
+public class LibSqlResultRowsTest extends LibSqlTestBase {
+
+    private static final int ROW_COUNT = 150;
+    // Text values start after this row, so the column is converted from longs to objects
+    private static final int MIXED_TEXT_ROW = 70;
+    private static final List<String> COLUMNS = List.of("l", "d", "m", "n", "b");
+
+    @Test
+    public void testTypedColumns() {
+        List<Object[]> rows = makeRows();
+        LibSqlResultRows resultRows = LibSqlExecutionResult.of(COLUMNS, rows).getResultRows();
+        assertEquals(ROW_COUNT, resultRows.getRowCount());
+        assertEquals(COLUMNS.size(), resultRows.getColumnCount());
+        assertEquals(Long.class, resultRows.getValueClass(0));
+        assertEquals(Double.class, resultRows.getValueClass(1));
+        assertEquals(Long.class, resultRows.getValueClass(2), "class of the first value of mixed column");
+        assertNull(resultRows.getValueClass(3), "column of nulls");
+        assertEquals(byte[].class, resultRows.getValueClass(4));
+
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Object[] row = rows.get(i);
+            // Null flags span several words
+            assertEquals(row[0] == null, resultRows.isNull(i, 0), "null flag of row " + i);
+            assertEquals(row[0] == null ? 0 : ((Integer) row[0]).longValue(), resultRows.getLong(i, 0));
+            assertEquals(row[0] == null ? null : ((Integer) row[0]).longValue(), resultRows.getObject(i, 0),
+                "integers must be stored as long");
+            assertEquals(row[1] == null, resultRows.isNull(i, 1));
+            assertEquals(row[1] == null ? 0.0 : (Double) row[1], resultRows.getDouble(i, 1));
+            assertEquals(row[1], resultRows.getObject(i, 1));
+            assertEquals(row[2], resultRows.getObject(i, 2), "value of mixed column must be kept after conversion");
+            assertTrue(resultRows.isNull(i, 3));
+            assertArrayEquals((byte[]) row[4], (byte[]) resultRows.getObject(i, 4));
+            assertEquals(row.length, resultRows.getRow(i).length);
+        }
+        assertEquals(5, resultRows.getLong(5, 2), "long read of converted column");
+        assertEquals(4.0, resultRows.getDouble(4, 0), "double read of long column");
+        assertEquals(2, resultRows.getLong(5, 1), "long read of double column");
+    }
+
+    @Test
+    public void testResultSetGetters() throws Exception {
+        server.setFixedResult(new LibSqlMockServer.Result(COLUMNS, makeRows(), 0));
+        List<Object[]> rows = makeRows();
+        try (Connection connection = connect(makeProperties());
+             Statement dbStat = connection.createStatement();
+             ResultSet dbResult = dbStat.executeQuery("select * from typed")) {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                assertTrue(dbResult.next());
+                Object[] row = rows.get(i);
+                long value = dbResult.getLong(1);
+                assertEquals(row[0] == null, dbResult.wasNull(), "wasNull of row " + i);
+                assertEquals(row[0] == null ? 0 : ((Integer) row[0]).longValue(), value);
+                if (row[0] != null) {
+                    assertEquals(String.valueOf(row[0]), dbResult.getString(1));
+                }
+                assertEquals(row[1] == null ? 0 : (int) (double) (Double) row[1], dbResult.getInt(2));
+                assertEquals(row[1] == null, dbResult.wasNull());
+                Object mixed = dbResult.getObject(3);
+                if (i < MIXED_TEXT_ROW) {
+                    assertEquals((long) i, mixed);
+                } else {
+                    assertEquals("s" + i, mixed);
+                }
+                assertNull(dbResult.getObject(4));
+                assertTrue(dbResult.wasNull());
+                assertArrayEquals((byte[]) row[4], dbResult.getBytes(5));
+            }
+            assertFalse(dbResult.next());
+        }
+    }
+
+    private static List<Object[]> makeRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            rows.add(new Object[]{
+                i % 3 == 0 ? null : i,
+                i == 100 ? null : i * 0.5,
+                i < MIXED_TEXT_ROW ? (Object) (long) i : "s" + i,
+                null,
+                new byte[]{(byte) i, 1}
+            });
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.LibSqlConnection;
+import com.dbeaver.jdbc.driver.libsql.LibSqlSlowQueryLogger;
+import com.dbeaver.jdbc.driver.libsql.LibSqlStatementEvent;
+import com.dbeaver.jdbc.driver.libsql.LibSqlStatementListener;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statement listeners configured by class name and the slow query logger
+ */
+public class LibSqlStatementListenerTest extends LibSqlTestBase {
+
+    @BeforeEach
+    void clearEvents() {
+        RecordingListener.events.clear();
+    }
+
+    @Test
+    public void testStatementEvents() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("statementListeners", RecordingListener.class.getName());
+        try (Connection connection = connect(props)) {
+            assertTrue(RecordingListener.events.isEmpty(), "connection verification must not be reported");
+            try (PreparedStatement dbStat = connection.prepareStatement("select * from testme where a = ?")) {
+                dbStat.setLong(1, 1);
+                try (ResultSet dbResult = dbStat.executeQuery()) {
+                    assertTrue(dbResult.next());
+                }
+            }
+            try (Statement dbStat = connection.createStatement()) {
+                assertThrows(SQLException.class, () -> dbStat.execute("fail 1"));
+                dbStat.addBatch("insert 1");
+                dbStat.addBatch("insert 2");
+                dbStat.executeBatch();
+            }
+        }
+        List<LibSqlStatementEvent> events = new ArrayList<>(RecordingListener.events);
+        assertEquals(3, events.size());
+        LibSqlStatementEvent query = events.get(0);
+        assertEquals("select * from testme where a = ?", query.getSql());
+        assertEquals(1, query.getParameterCount());
+        assertEquals(1, query.getRowCount());
+        assertNull(query.getError());
+        assertTrue(query.getElapsedNanos() > 0);
+        assertEquals(1, query.getRequestCount());
+        assertTrue(query.getRequestBytes() > 0 && query.getResponseBytes() > 0, "query event sizes");
+        assertNotNull(events.get(1).getError());
+        assertTrue(events.get(1).getError().getMessage().contains("stub error"), "failed event");
+        assertEquals(2, events.get(2).getStatements().size());
+        assertEquals(2, events.get(2).getUpdateCount());
+    }
+
+    @Test
+    public void testCoalescedStatementEvents() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("statementListeners", RecordingListener.class.getName());
+        props.setProperty("coalesceWindow", "1000");
+        props.setProperty("metrics", "true");
+        try (Connection connection = connect(props)) {
+            try (Statement dbStat = connection.createStatement()) {
+                try (ResultSet dbResult = dbStat.executeQuery("select 1")) {
+                    assertTrue(dbResult.next());
+                }
+            }
+            LibSqlMetrics metrics = connection.unwrap(LibSqlConnection.class).getClient().getMetrics();
+            assertNotNull(metrics);
+            assertTrue(metrics.getStatementCount() >= 1, "coalesced request metrics");
+        }
+        assertEquals(1, RecordingListener.events.size());
+        LibSqlStatementEvent coalesced = RecordingListener.events.get(0);
+        assertEquals(1, coalesced.getRequestCount());
+        assertTrue(coalesced.getRequestBytes() > 0 && coalesced.getResponseBytes() > 0, "coalesced statement event sizes");
+    }
+
+    @Test
+    public void testSlowQueryLogger() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("statementListeners", RecordingListener.class.getName());
+        try (Connection connection = connect(props)) {
+            try (Statement dbStat = connection.createStatement()) {
+                dbStat.executeQuery("select * from testme").close();
+            }
+        }
+        LibSqlStatementEvent query = RecordingListener.events.get(0);
+
+        List<String> messages = new ArrayList<>();
+        Logger logger = Logger.getLogger(LibSqlSlowQueryLogger.class.getName());
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            new LibSqlSlowQueryLogger(60_000).afterExecute(query, null);
+            assertTrue(messages.isEmpty(), "fast query must not be logged");
+            new LibSqlSlowQueryLogger(0).afterExecute(query, null);
+            assertEquals(1, messages.size());
+            assertTrue(messages.get(0).startsWith("Slow query") && messages.get(0).endsWith("select * from testme"),
+                "slow query message " + messages);
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    /**
+     * Statement listener configured by class name, collects events of all connections
+     */
+    public static class RecordingListener implements LibSqlStatementListener {
+        static final List<LibSqlStatementEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Object beforeExecute(LibSqlStatementEvent event) {
+            return event;
+        }
+
+        @Override
+        public void afterExecute(LibSqlStatementEvent event, Object context) {
+            assertSame(event, context, "listener context");
+            events.add(event);
+        }
+    }
+}
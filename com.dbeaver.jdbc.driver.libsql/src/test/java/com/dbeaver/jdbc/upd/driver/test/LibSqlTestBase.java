@@ -0,0 +1,110 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Base of tests against a mock server with a scripted responder, which is started for each test.
+ * Statements starting with "fail" or "select fail" return an error, "select range" returns numbers
+ * from 0 to {@link #RANGE_SIZE} with optional LIMIT and OFFSET, other "select" statements return one row
+ * of typed values, other statements affect one row.
+ */
+public abstract class LibSqlTestBase {
+
+    protected static final int RANGE_SIZE = 25;
+
+    private static final Pattern LIMIT_PATTERN = Pattern.compile("limit (\\d+)(?:\\s+offset (\\d+))?", Pattern.CASE_INSENSITIVE);
+
+    protected LibSqlMockServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new LibSqlMockServer(makeResponder());
+        server.setRecording(true);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    protected String getJdbcUrl() throws IOException {
+        return "jdbc:dbeaver:libsql:" + server.getUrl();
+    }
+
+    /**
+     * Connection properties of the Hrana protocol
+     */
+    protected static Properties makeProperties() {
+        Properties props = new Properties();
+        props.setProperty("protocol", "hrana2");
+        return props;
+    }
+
+    protected Connection connect(Properties props) throws SQLException, IOException {
+        return DriverManager.getConnection(getJdbcUrl(), props);
+    }
+
+    /**
+     * The first statement of the last pipeline request
+     */
+    protected JsonObject getLastStatement() {
+        return server.getLastRequest().getAsJsonArray("requests").get(0).getAsJsonObject().getAsJsonObject("stmt");
+    }
+
+    protected static LibSqlMockServer.Responder makeResponder() {
+        LibSqlMockServer.Result typedRow = new LibSqlMockServer.Result(
+            List.of("i", "f", "t", "b", "n"),
+            Arrays.asList("INTEGER", null, "TEXT", "BLOB", null),
+            List.<Object[]>of(new Object[]{Long.MAX_VALUE, 1.5, "text", new byte[]{1, 2, 3}, null}),
+            0);
+        LibSqlMockServer.Result update = new LibSqlMockServer.Result(List.of(), List.of(), 1);
+        return (sql, parameters) -> {
+            if (sql.startsWith("fail") || sql.startsWith("select fail")) {
+                throw new SQLException("stub error");
+            }
+            if (sql.startsWith("select range")) {
+                int offset = 0, limit = RANGE_SIZE;
+                Matcher matcher = LIMIT_PATTERN.matcher(sql);
+                if (matcher.find()) {
+                    limit = Integer.parseInt(matcher.group(1));
+                    offset = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+                }
+                List<Object[]> rows = new ArrayList<>();
+                for (int i = offset; i < Math.min(RANGE_SIZE, offset + limit); i++) {
+                    rows.add(new Object[]{(long) i});
+                }
+                return new LibSqlMockServer.Result(List.of("n"), rows, 0);
+            }
+            return sql.startsWith("select") ? typedRow : update;
+        };
+    }
+}
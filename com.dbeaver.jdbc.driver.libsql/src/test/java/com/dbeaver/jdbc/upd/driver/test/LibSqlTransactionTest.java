@@ -0,0 +1,108 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2024 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dbeaver.jdbc.upd.driver.test;
+
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlClient;
+import com.dbeaver.jdbc.driver.libsql.client.LibSqlProtocol;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Transactions on Hrana streams, buffered writes and aborted transactions
+ */
+public class LibSqlTransactionTest extends LibSqlTestBase {
+
+    @Test
+    public void testTransaction() throws Exception {
+        Properties props = makeProperties();
+        props.setProperty("transactionWriteBuffer", "true");
+        try (Connection connection = connect(props)) {
+            connection.setAutoCommit(false);
+            assertFalse(connection.getAutoCommit());
+            try (Statement dbStat = connection.createStatement()) {
+                long requestCount = server.getRequestCount();
+                assertEquals(Statement.SUCCESS_NO_INFO, dbStat.executeLargeUpdate("insert 1"), "buffered update count");
+                connection.setSavepoint("sp");
+                dbStat.executeLargeUpdate("insert 2");
+                assertEquals(requestCount, server.getRequestCount(), "buffered writes must not be sent");
+
+                int sqlCount = server.getAllSql().size();
+                try (ResultSet dbResult = dbStat.executeQuery("select 1")) {
+                    assertTrue(dbResult.next());
+                }
+                assertEquals(requestCount + 1, server.getRequestCount(), "buffered writes must be sent with the query");
+                List<String> sql = server.getAllSql();
+                assertEquals(List.of("BEGIN", "insert 1", "SAVEPOINT \"sp\"", "insert 2", "select 1"), sql.subList(sqlCount, sql.size()));
+                String transactionBaton = server.getLastBaton();
+
+                connection.commit();
+                assertEquals(transactionBaton, server.getLastRequest().get("baton").getAsString(), "commit on the transaction stream");
+                assertEquals("COMMIT", getLastSql());
+                requestCount = server.getRequestCount();
+                connection.commit();
+                dbStat.executeLargeUpdate("insert 3");
+                connection.rollback();
+                assertEquals(requestCount, server.getRequestCount(), "empty transaction must not send requests");
+
+                dbStat.executeQuery("select 2").close();
+                server.expireStreams();
+                SQLException error = assertThrows(SQLException.class, () -> dbStat.executeQuery("select 3"));
+                assertEquals("40000", error.getSQLState(), "expired transaction stream");
+                requestCount = server.getRequestCount();
+                error = assertThrows(SQLException.class, () -> dbStat.executeQuery("select 4"));
+                assertEquals("40000", error.getSQLState(), "aborted transaction");
+                error = assertThrows(SQLException.class, connection::commit);
+                assertEquals("40000", error.getSQLState(), "commit of aborted transaction");
+                assertEquals(requestCount, server.getRequestCount(), "aborted transaction must not send requests");
+                connection.rollback();
+                dbStat.executeQuery("select 4").close();
+                sql = server.getAllSql();
+                assertEquals(List.of("BEGIN", "select 4"), sql.subList(sql.size() - 2, sql.size()), "new transaction must be started");
+            }
+            connection.setAutoCommit(true);
+            assertEquals("COMMIT", getLastSql(), "auto-commit must commit transaction");
+        }
+    }
+
+    @Test
+    public void testLegacyProtocol() throws Exception {
+        LibSqlClient legacyClient = new LibSqlClient(server.getUrl(), null, LibSqlProtocol.LEGACY);
+        try {
+            long requestCount = server.getRequestCount();
+            legacyClient.setAutoCommit(false);
+            assertTrue(legacyClient.isAutoCommit(), "legacy protocol stays in auto-commit mode");
+            legacyClient.commit();
+            legacyClient.rollback();
+            assertEquals(requestCount, server.getRequestCount(), "legacy commit and rollback must not send requests");
+        } finally {
+            legacyClient.close();
+        }
+    }
+
+    private String getLastSql() {
+        List<String> sql = server.getAllSql();
+        return sql.get(sql.size() - 1);
+    }
+}